@@ -0,0 +1,308 @@
+/*-
+ * #%L
+ * wildfly-liquibase-distro
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase.config;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.jdom2.Attribute;
+import org.jdom2.Document;
+import org.jdom2.Element;
+import org.jdom2.JDOMException;
+import org.jdom2.Namespace;
+import org.jdom2.input.SAXBuilder;
+import org.jdom2.output.Format;
+import org.jdom2.output.XMLOutputter;
+
+/**
+ * Collapses the change sets of an XML change log tree that were applied up to and including a tag into a single
+ * baseline change set.
+ *
+ * The baseline is included at the start of the master change log. It only runs against databases without change log
+ * history and is marked as ran on all others, so the DATABASECHANGELOG rows of the squashed change sets remain valid.
+ * Databases that have not reached the tag are rejected by a change log precondition. The rewritten change logs, the
+ * baseline and a CSV mapping of the squashed change sets to the baseline are written to the output directory.
+ */
+public class ChangeLogSquash {
+
+    private static final String DEFAULT_CHANGELOG_TABLE = "DATABASECHANGELOG";
+    private static final String MAPPING_FILE = "squash-mapping.csv";
+    private static final Set<String> SQUASHABLE_ATTRIBUTES = new HashSet<>(Arrays.asList("id", "author", "created", "logicalFilePath"));
+    private static final Set<String> DISCARDED_ELEMENTS = new HashSet<>(Arrays.asList("comment", "rollback", "validCheckSum"));
+    private static final Set<String> CONDITIONAL_INCLUDE_ATTRIBUTES = new HashSet<>(Arrays.asList("context", "contextFilter", "labels", "ignore", "dbms"));
+
+    private final Path root;
+    private final String tag;
+    private final String changeLogTable;
+    private final SAXBuilder builder = new SAXBuilder();
+    private final Map<Path, Document> documents = new LinkedHashMap<>();
+    private final List<Element> properties = new ArrayList<>();
+    private final List<Element> changes = new ArrayList<>();
+    private final List<String> mapping = new ArrayList<>();
+    private final Set<Path> removed = new HashSet<>();
+    private Path masterChangeLog;
+    private Path baselineDirectory;
+    private Namespace namespace;
+    private boolean tagReached;
+
+    /**
+     * @param changeLogTable the name of the change log history table that the baseline preconditions query
+     */
+    ChangeLogSquash(Path root, String tag, String changeLogTable) {
+        this.root = root;
+        this.tag = tag;
+        this.changeLogTable = changeLogTable;
+    }
+
+    public static void main(String[] args) {
+
+        if (args.length != 4 && args.length != 5) {
+            throw new RuntimeException("Usage ChangeLogSquash <resource root> <master change log> <tag> <output directory> [change log table]");
+        }
+
+        final Path root = Paths.get(args[0]).toAbsolutePath().normalize();
+        final Path output = Paths.get(args[3]);
+        final String changeLogTable = args.length == 5 ? args[4] : DEFAULT_CHANGELOG_TABLE;
+
+        try {
+            new ChangeLogSquash(root, args[2], changeLogTable).squash(root.resolve(args[1]).normalize(), output);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    void squash(Path masterChangeLog, Path output) throws IOException, JDOMException {
+        Document master = load(masterChangeLog);
+        this.masterChangeLog = masterChangeLog;
+        baselineDirectory = masterChangeLog.getParent();
+        namespace = master.getRootElement().getNamespace();
+
+        visit(masterChangeLog, master.getRootElement());
+        if (!tagReached) {
+            throw new IllegalStateException("No change set tags the database with " + tag);
+        }
+
+        String baselineFileName = "baseline-" + tag + ".xml";
+        Element root = master.getRootElement();
+        // The include follows any properties and preconditions, even if no other content remains
+        int index = root.getContentSize();
+        for (Element child : root.getChildren()) {
+            if (!child.getName().equals("property") && !child.getName().equals("preConditions")) {
+                index = root.indexOf(child);
+                break;
+            }
+        }
+        root.addContent(index, new Element("include", namespace)
+            .setAttribute("file", baselineFileName)
+            .setAttribute("relativeToChangelogFile", "true"));
+
+        System.out.println("Squashing " + mapping.size() + " change sets up to tag " + tag + ":");
+
+        for (Map.Entry<Path, Document> entry : documents.entrySet()) {
+            if (!removed.contains(entry.getKey())) {
+                write(output.resolve(root(entry.getKey())), entry.getValue());
+            }
+        }
+
+        Path baselinePath = output.resolve(root(baselineDirectory.resolve(baselineFileName)));
+        write(baselinePath, createBaseline(master));
+
+        List<String> lines = new ArrayList<>();
+        lines.add("id,author,filename,baseline");
+        for (String entry : mapping) {
+            lines.add(entry + "," + csv(baselineFileName));
+        }
+        Files.write(baselinePath.resolveSibling(MAPPING_FILE), lines, StandardCharsets.UTF_8);
+
+        for (Path path : removed) {
+            System.out.println("  Removed " + root(path));
+        }
+    }
+
+    private void visit(Path changeLog, Element databaseChangeLog) throws IOException, JDOMException {
+        for (Element child : new ArrayList<>(databaseChangeLog.getChildren())) {
+            if (tagReached) {
+                return;
+            }
+
+            switch (child.getName()) {
+                case "property":
+                    properties.add(child.clone());
+                    break;
+                case "changeSet":
+                    squash(changeLog, child);
+                    break;
+                case "include":
+                    include(changeLog, child);
+                    break;
+                case "includeAll":
+                    throw new IllegalStateException("includeAll in " + root(changeLog) + " cannot be squashed. Tag an earlier change set");
+                case "preConditions":
+                    // Preconditions of the master change log still apply to the baseline, which it includes
+                    if (!changeLog.equals(masterChangeLog)) {
+                        throw new IllegalStateException(root(changeLog) + " has preconditions and cannot be squashed. Tag an earlier change set");
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException(String.format("Element %s in %s cannot be squashed. Tag an earlier change set", child.getName(), root(changeLog)));
+            }
+        }
+    }
+
+    private void include(Path changeLog, Element include) throws IOException, JDOMException {
+        String file = include.getAttributeValue("file");
+        for (Attribute attribute : include.getAttributes()) {
+            if (CONDITIONAL_INCLUDE_ATTRIBUTES.contains(attribute.getName())) {
+                throw new IllegalStateException(String.format("The include of %s in %s has attribute %s and cannot be squashed. Tag an earlier change set",
+                    file, root(changeLog), attribute.getName()));
+            }
+        }
+        if (!file.endsWith(".xml")) {
+            throw new IllegalStateException("Only XML change logs can be squashed. Found " + file + " in " + root(changeLog));
+        }
+
+        Path included = Boolean.parseBoolean(include.getAttributeValue("relativeToChangelogFile"))
+            ? changeLog.getParent().resolve(file).normalize()
+            : root.resolve(file).normalize();
+
+        Element databaseChangeLog = load(included).getRootElement();
+        visit(included, databaseChangeLog);
+
+        if (databaseChangeLog.getChildren().isEmpty()) {
+            removed.add(included);
+            include.detach();
+        }
+    }
+
+    private void squash(Path changeLog, Element changeSet) {
+        String id = changeSet.getAttributeValue("id");
+        for (Attribute attribute : changeSet.getAttributes()) {
+            if (!SQUASHABLE_ATTRIBUTES.contains(attribute.getName())) {
+                throw new IllegalStateException(String.format("Change set %s in %s has attribute %s and cannot be squashed. Tag an earlier change set",
+                    id, root(changeLog), attribute.getName()));
+            }
+        }
+
+        for (Element element : changeSet.getChildren()) {
+            if (element.getName().equals("preConditions")) {
+                throw new IllegalStateException(String.format("Change set %s in %s has preconditions and cannot be squashed. Tag an earlier change set", id, root(changeLog)));
+            }
+            if (element.getName().equals("tagDatabase") && tag.equals(element.getAttributeValue("tag"))) {
+                tagReached = true;
+            }
+            if (!DISCARDED_ELEMENTS.contains(element.getName())) {
+                changes.add(relocate(changeLog, element.clone()));
+            }
+        }
+
+        mapping.add(String.join(",", csv(id), csv(changeSet.getAttributeValue("author")), csv(root(changeLog).toString())));
+        changeSet.detach();
+    }
+
+    /**
+     * Rewrites paths that are relative to the change log a change was defined in so they resolve from the baseline.
+     */
+    private Element relocate(Path changeLog, Element change) {
+        if (Boolean.parseBoolean(change.getAttributeValue("relativeToChangelogFile"))) {
+            for (String name : Arrays.asList("path", "file")) {
+                String path = change.getAttributeValue(name);
+                if (path != null) {
+                    Path resolved = changeLog.getParent().resolve(path).normalize();
+                    change.setAttribute(name, baselineDirectory.relativize(resolved).toString().replace('\\', '/'));
+                }
+            }
+        }
+        return change;
+    }
+
+    private Document createBaseline(Document master) {
+        Element databaseChangeLog = master.getRootElement().clone();
+        databaseChangeLog.removeContent();
+        properties.forEach(databaseChangeLog::addContent);
+
+        Element tagCheck = new Element("or", namespace)
+            .addContent(sqlCheck("0", "SELECT COUNT(*) FROM " + changeLogTable))
+            .addContent(sqlCheck("1", "SELECT CASE WHEN COUNT(*) > 0 THEN 1 ELSE 0 END FROM " + changeLogTable + " WHERE TAG = '" + tag.replace("'", "''") + "'"));
+        databaseChangeLog.addContent(new Element("preConditions", namespace)
+            .setAttribute("onFail", "HALT")
+            .setAttribute("onFailMessage", "The database has change log history but has not been updated to tag " + tag + ". Apply the unsquashed change log first")
+            .addContent(tagCheck));
+
+        Element changeSet = new Element("changeSet", namespace)
+            .setAttribute("id", "baseline-" + tag)
+            .setAttribute("author", "wildfly-liquibase");
+        changeSet.addContent(new Element("preConditions", namespace)
+            .setAttribute("onFail", "MARK_RAN")
+            .addContent(sqlCheck("0", "SELECT COUNT(*) FROM " + changeLogTable)));
+        changes.forEach(changeSet::addContent);
+        databaseChangeLog.addContent(changeSet);
+
+        return new Document(databaseChangeLog);
+    }
+
+    private Element sqlCheck(String expectedResult, String sql) {
+        return new Element("sqlCheck", namespace)
+            .setAttribute("expectedResult", expectedResult)
+            .setText(sql);
+    }
+
+    private Document load(Path changeLog) throws IOException, JDOMException {
+        Document document = documents.get(changeLog);
+        if (document == null) {
+            document = builder.build(changeLog.toFile());
+            documents.put(changeLog, document);
+        }
+        return document;
+    }
+
+    private Path root(Path path) {
+        return root.relativize(path);
+    }
+
+    /**
+     * Quotes a CSV field if it contains a delimiter, quote or line break.
+     */
+    private static String csv(String value) {
+        if (value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+
+    private static void write(Path path, Document document) throws IOException {
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        XMLOutputter output = new XMLOutputter();
+        output.setFormat(Format.getPrettyFormat().setLineSeparator(System.lineSeparator()));
+        try (OutputStream stream = Files.newOutputStream(path)) {
+            output.output(document, stream);
+        }
+        System.out.println("  Wrote " + path);
+    }
+}
@@ -0,0 +1,145 @@
+/*-
+ * #%L
+ * wildfly-liquibase-distro
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase.config;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.jdom2.Element;
+import org.jdom2.input.SAXBuilder;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ChangeLogSquashTestCase {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSquash() throws Exception {
+        Path root = fixture();
+        Path output = folder.newFolder("output").toPath();
+        new ChangeLogSquash(root, "v1", "DATABASECHANGELOG").squash(root.resolve("changelog.xml"), output);
+
+        List<Element> includes = load(output.resolve("changelog.xml")).getChildren("include", null);
+        Assert.assertEquals(Arrays.asList("baseline-v1.xml", "db/release-1.xml"), includes.stream().map(include -> include.getAttributeValue("file")).collect(Collectors.toList()));
+
+        // Every change set of tables.xml was squashed
+        Assert.assertFalse(Files.exists(output.resolve("db/tables.xml")));
+        List<Element> changeSets = load(output.resolve("db/release-1.xml")).getChildren();
+        Assert.assertEquals(1, changeSets.size());
+        Assert.assertEquals("5", changeSets.get(0).getAttributeValue("id"));
+
+        Element baseline = load(output.resolve("baseline-v1.xml"));
+        Assert.assertEquals(Arrays.asList("property", "preConditions", "changeSet"), names(baseline.getChildren()));
+        Element changeSet = baseline.getChildren().get(2);
+        Assert.assertEquals("baseline-v1", changeSet.getAttributeValue("id"));
+        Assert.assertEquals(Arrays.asList("preConditions", "createTable", "loadData", "addColumn", "tagDatabase"), names(changeSet.getChildren()));
+        Assert.assertEquals("db/people.csv", changeSet.getChildren().get(2).getAttributeValue("file"));
+        Assert.assertTrue(changeSet.getChildren().get(0).getChildren().get(0).getText().contains("FROM DATABASECHANGELOG"));
+
+        List<String> mapping = Files.readAllLines(output.resolve("squash-mapping.csv"), StandardCharsets.UTF_8);
+        Assert.assertEquals(Arrays.asList(
+            "id,author,filename,baseline",
+            "1,\"Doe, Jane\",db/tables.xml,baseline-v1.xml",
+            "2,wildfly,db/tables.xml,baseline-v1.xml",
+            "3,wildfly,db/release-1.xml,baseline-v1.xml",
+            "4,wildfly,db/release-1.xml,baseline-v1.xml"), mapping);
+    }
+
+    @Test
+    public void testChangeLogTable() throws Exception {
+        Path root = fixture();
+        Path output = folder.newFolder("output").toPath();
+        new ChangeLogSquash(root, "v1", "APP_CHANGELOG").squash(root.resolve("changelog.xml"), output);
+
+        String baseline = new String(Files.readAllBytes(output.resolve("baseline-v1.xml")), StandardCharsets.UTF_8);
+        Assert.assertTrue(baseline.contains("FROM APP_CHANGELOG"));
+        Assert.assertFalse(baseline.contains("DATABASECHANGELOG"));
+    }
+
+    @Test
+    public void testUnknownTag() throws Exception {
+        Path root = fixture();
+        assertRejected(root, "v2", "No change set tags the database with v2");
+    }
+
+    @Test
+    public void testConditionalIncludeRejected() throws Exception {
+        for (String attribute : Arrays.asList("context=\"test\"", "contextFilter=\"test\"", "labels=\"a\"", "ignore=\"true\"", "dbms=\"h2\"")) {
+            Path root = folder.newFolder().toPath();
+            write(root.resolve("changelog.xml"), "<include file=\"tables.xml\" relativeToChangelogFile=\"true\" " + attribute + "/>");
+            write(root.resolve("tables.xml"), "<changeSet id=\"1\" author=\"wildfly\"><tagDatabase tag=\"v1\"/></changeSet>");
+            assertRejected(root, "v1", "has attribute " + attribute.substring(0, attribute.indexOf('=')));
+        }
+    }
+
+    @Test
+    public void testIncludedPreconditionsRejected() throws Exception {
+        Path root = folder.newFolder().toPath();
+        write(root.resolve("changelog.xml"), "<include file=\"tables.xml\" relativeToChangelogFile=\"true\"/>");
+        write(root.resolve("tables.xml"), "<preConditions><dbms type=\"h2\"/></preConditions><changeSet id=\"1\" author=\"wildfly\"><tagDatabase tag=\"v1\"/></changeSet>");
+        assertRejected(root, "v1", "tables.xml has preconditions");
+    }
+
+    @Test
+    public void testMasterPreconditionsKept() throws Exception {
+        Path root = folder.newFolder().toPath();
+        write(root.resolve("changelog.xml"), "<preConditions><dbms type=\"h2\"/></preConditions><changeSet id=\"1\" author=\"wildfly\"><tagDatabase tag=\"v1\"/></changeSet>");
+        Path output = folder.newFolder("output").toPath();
+        new ChangeLogSquash(root, "v1", "DATABASECHANGELOG").squash(root.resolve("changelog.xml"), output);
+
+        Assert.assertEquals(Arrays.asList("preConditions", "include"), names(load(output.resolve("changelog.xml")).getChildren()));
+    }
+
+    private void assertRejected(Path root, String tag, String message) throws Exception {
+        try {
+            new ChangeLogSquash(root, tag, "DATABASECHANGELOG").squash(root.resolve("changelog.xml"), folder.newFolder().toPath());
+            Assert.fail("Expected IllegalStateException");
+        } catch (IllegalStateException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains(message));
+        }
+    }
+
+    private static Path fixture() throws URISyntaxException {
+        return Paths.get(ChangeLogSquashTestCase.class.getResource("/squash/changelog.xml").toURI()).getParent();
+    }
+
+    private static Element load(Path path) throws Exception {
+        return new SAXBuilder().build(path.toFile()).getRootElement();
+    }
+
+    private static List<String> names(List<Element> elements) {
+        return elements.stream().map(Element::getName).collect(Collectors.toList());
+    }
+
+    private static void write(Path path, String content) throws IOException {
+        String changeLog = "<databaseChangeLog xmlns=\"http://www.liquibase.org/xml/ns/dbchangelog\">" + content + "</databaseChangeLog>";
+        Files.write(path, changeLog.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -23,19 +23,23 @@ import com.github.jamesnetherton.extension.liquibase.test.cdi.producer.Liquibase
 import com.github.jamesnetherton.liquibase.arquillian.LiquibaseTestSupport;
 import org.jboss.arquillian.container.test.api.Deployment;
 import org.jboss.arquillian.junit5.ArquillianExtension;
+import org.jboss.dmr.ModelNode;
 import org.jboss.shrinkwrap.api.Archive;
 import org.jboss.shrinkwrap.api.ShrinkWrap;
 import org.jboss.shrinkwrap.api.asset.EmptyAsset;
 import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 
 @ExtendWith(ArquillianExtension.class)
 public class LiquibaseCdiDeploymentTest extends LiquibaseTestSupport {
 
+    private static final String DEPLOYMENT_NAME = "liquibase-cdi-deployment-test.jar";
+
     @Deployment
     public static Archive<?> deployment() {
-        return ShrinkWrap.create(JavaArchive.class, "liquibase-cdi-deployment-test.jar")
+        return ShrinkWrap.create(JavaArchive.class, DEPLOYMENT_NAME)
             .addClass(LiquibaseConfigurationProducer.class)
             .addAsResource("configs/cdi/changelog.xml", "/com/github/jamesnetherton/liquibase/test/changes.xml")
             .addAsManifestResource(EmptyAsset.INSTANCE, "beans.xml");
@@ -45,4 +49,13 @@ public class LiquibaseCdiDeploymentTest extends LiquibaseTestSupport {
     public void testLiquibaseCdi() throws Exception {
         assertTableModified("cdi_test");
     }
+
+    @Test
+    public void testLiquibaseCdiChangeLogMetrics() throws Exception {
+        // The CDI change log is exposed beneath the deployment under its path without the leading slash
+        ModelNode parameters = new ModelNode();
+        parameters.get("name").set("changesets-applied");
+        ModelNode result = executeLiquibaseDeploymentOperation(DEPLOYMENT_NAME, "com/github/jamesnetherton/liquibase/test/changes.xml", "read-attribute", parameters);
+        Assertions.assertEquals(2, result.asLong());
+    }
 }
@@ -0,0 +1,66 @@
+/*-
+ * #%L
+ * wildfly-liquibase-itests
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase.test.config;
+
+import com.github.jamesnetherton.liquibase.arquillian.LiquibaseTestSupport;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+import javax.sql.DataSource;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit5.ArquillianExtension;
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.spec.WebArchive;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(ArquillianExtension.class)
+public class LiquibaseBatchedLoadDataFailureTest extends LiquibaseTestSupport {
+
+    @Deployment
+    public static Archive<?> deployment() {
+        return ShrinkWrap.create(WebArchive.class, "liquibase-batched-load-data-failure-test.war")
+                .addAsResource("configs/batch/changelog-failure.xml", "changelog.xml")
+                .addAsResource("configs/batch/data-failure.csv", "data-failure.csv")
+                .addAsManifestResource("configs/batch/jboss-all-failure.xml", "jboss-all.xml");
+    }
+
+    @Test
+    public void testFailedLoadDataLeavesNoRows() throws Exception {
+        assertTableModified("batch_load_failure_test", Arrays.asList("firstname", "id"));
+
+        // The last batch violates the primary key, so the rows of the batches before it must be rolled back with the change set
+        DataSource dataSource = lookup("java:jboss/datasources/ExampleDS", DataSource.class);
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            try (ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM batch_load_failure_test")) {
+                Assertions.assertTrue(resultSet.next());
+                Assertions.assertEquals(0, resultSet.getInt(1));
+            }
+            try (ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM DATABASECHANGELOG WHERE ID = 'batch-load-failure-2'")) {
+                Assertions.assertTrue(resultSet.next());
+                Assertions.assertEquals(0, resultSet.getInt(1));
+            }
+        }
+    }
+}
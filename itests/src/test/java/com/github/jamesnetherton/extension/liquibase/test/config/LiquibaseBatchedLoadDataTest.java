@@ -0,0 +1,63 @@
+/*-
+ * #%L
+ * wildfly-liquibase-itests
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase.test.config;
+
+import com.github.jamesnetherton.liquibase.arquillian.LiquibaseTestSupport;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+import javax.sql.DataSource;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit5.ArquillianExtension;
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.spec.WebArchive;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(ArquillianExtension.class)
+public class LiquibaseBatchedLoadDataTest extends LiquibaseTestSupport {
+
+    @Deployment
+    public static Archive<?> deployment() {
+        return ShrinkWrap.create(WebArchive.class, "liquibase-batched-load-data-test.war")
+                .addAsResource("configs/batch/changelog.xml", "changelog.xml")
+                .addAsResource("configs/batch/data.csv", "data.csv")
+                .addAsManifestResource("configs/batch/jboss-all.xml", "jboss-all.xml");
+    }
+
+    @Test
+    public void testLoadDataWithBatchSize() throws Exception {
+        assertTableModified("batch_load_test", Arrays.asList("active", "firstname", "id", "lastname"));
+
+        DataSource dataSource = lookup("java:jboss/datasources/ExampleDS", DataSource.class);
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            try (ResultSet resultSet = statement.executeQuery("SELECT COUNT(*), COUNT(firstname), SUM(CASE WHEN active THEN 1 ELSE 0 END) FROM batch_load_test")) {
+                Assertions.assertTrue(resultSet.next());
+                Assertions.assertEquals(5, resultSet.getInt(1));
+                Assertions.assertEquals(4, resultSet.getInt(2));
+                Assertions.assertEquals(3, resultSet.getInt(3));
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*-
+ * #%L
+ * wildfly-liquibase-itests
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase.test.config;
+
+import com.github.jamesnetherton.liquibase.arquillian.LiquibaseTestSupport;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+import org.jboss.arquillian.container.test.api.Deployer;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit5.ArquillianExtension;
+import org.jboss.arquillian.test.api.ArquillianResource;
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.jboss.shrinkwrap.api.spec.WebArchive;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(ArquillianExtension.class)
+public class LiquibaseExecutionTimeoutTest extends LiquibaseTestSupport {
+
+    private static final String DATASOURCE = "TimeoutDS";
+
+    @ArquillianResource
+    private Deployer deployer;
+
+    @Deployment
+    public static Archive<?> deployment() {
+        return ShrinkWrap.create(JavaArchive.class, "liquibase-execution-timeout-test.jar");
+    }
+
+    @Deployment(testable = false, managed = false, name = "timeout.war")
+    public static Archive<?> timeoutDeployment() {
+        return ShrinkWrap.create(WebArchive.class, "timeout.war")
+            .addAsResource("configs/timeout/changelog.xml", "changelog.xml")
+            .addAsManifestResource("configs/timeout/jboss-all-timeout.xml", "jboss-all.xml");
+    }
+
+    @Deployment(testable = false, managed = false, name = "deferred.war")
+    public static Archive<?> deferredDeployment() {
+        return ShrinkWrap.create(WebArchive.class, "deferred.war")
+            .addAsResource("configs/timeout/changelog.xml", "changelog.xml")
+            .addAsManifestResource("configs/timeout/jboss-all-deferred.xml", "jboss-all.xml");
+    }
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        addDataSource(DATASOURCE, "timeoutdb");
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        removeDataSource(DATASOURCE);
+    }
+
+    @Test
+    public void testChangeSetTimeout() throws Exception {
+        long start = System.nanoTime();
+        deployer.deploy("timeout.war");
+        try {
+            Assertions.assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 60, "Expected the change set to time out");
+            Assertions.assertTrue(isChangeSetExecuted("timeout-1"));
+            Assertions.assertFalse(isChangeSetExecuted("timeout-sleep"));
+            assertPoolConnectionsReleased();
+        } finally {
+            deployer.undeploy("timeout.war");
+        }
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        deployer.deploy("deferred.war");
+        try {
+            // The deferred execution may not have started by the time the deployment completes
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            boolean cancelled = false;
+            while (!cancelled && System.nanoTime() < deadline) {
+                cancelled = executeLiquibaseDeploymentOperation("deferred.war", "changelog.xml", "cancel", null).asBoolean();
+                if (!cancelled) {
+                    Thread.sleep(200);
+                }
+            }
+            Assertions.assertTrue(cancelled, "Expected an in-flight execution to cancel");
+            assertPoolConnectionsReleased();
+            Assertions.assertFalse(isChangeSetExecuted("timeout-sleep"));
+        } finally {
+            deployer.undeploy("deferred.war");
+        }
+    }
+
+    private void assertPoolConnectionsReleased() throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        int inUse = readDataSourcePoolStatistic(DATASOURCE, "InUseCount");
+        while (inUse > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(200);
+            inUse = readDataSourcePoolStatistic(DATASOURCE, "InUseCount");
+        }
+        Assertions.assertEquals(0, inUse, "Expected the aborted connection to be returned to the pool");
+    }
+
+    private boolean isChangeSetExecuted(String id) throws Exception {
+        DataSource dataSource = lookup("java:jboss/datasources/" + DATASOURCE, DataSource.class);
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT COUNT(*) FROM DATABASECHANGELOG WHERE ID = ?")) {
+            statement.setString(1, id);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() && resultSet.getInt(1) > 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,163 @@
+/*-
+ * #%L
+ * wildfly-liquibase-itests
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase.test.deployment;
+
+import com.github.jamesnetherton.liquibase.arquillian.LiquibaseTestSupport;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.annotation.WebServlet;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import javax.sql.DataSource;
+import org.jboss.arquillian.container.test.api.Deployer;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit5.ArquillianExtension;
+import org.jboss.arquillian.test.api.ArquillianResource;
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.spec.EnterpriseArchive;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.jboss.shrinkwrap.api.spec.WebArchive;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(ArquillianExtension.class)
+public class LiquibaseComponentDependencyTest extends LiquibaseTestSupport {
+
+    private static final String DATASOURCE = "ComponentsDS";
+    private static final String STARTUP_BEAN_PROPERTY = "liquibase.components.startup";
+    private static final String SERVLET_PROPERTY = "liquibase.components.servlet";
+
+    @ArquillianResource
+    private Deployer deployer;
+
+    @Deployment
+    public static Archive<?> deployment() {
+        return ShrinkWrap.create(JavaArchive.class, "liquibase-component-dependency-test.jar");
+    }
+
+    // The change log and the startup bean belong to sibling modules, so the bean has to wait for a change log of
+    // another module
+    @Deployment(testable = false, managed = false, name = "components.ear")
+    public static Archive<?> componentsDeployment() {
+        return ShrinkWrap.create(EnterpriseArchive.class, "components.ear")
+            .addAsModule(
+                ShrinkWrap.create(WebArchive.class, "components-migration.war")
+                    .addClasses(UnrelatedServlet.class, SchemaProbe.class)
+                    .addAsResource("configs/components/changelog.xml", "changelog.xml")
+            )
+            .addAsModule(
+                ShrinkWrap.create(JavaArchive.class, "components-startup.jar")
+                    .addClasses(StartupBean.class, SchemaProbe.class)
+            );
+    }
+
+    @Deployment(testable = false, managed = false, name = "deferred-components.ear")
+    public static Archive<?> deferredComponentsDeployment() {
+        return ShrinkWrap.create(EnterpriseArchive.class, "deferred-components.ear")
+            .addAsModule(
+                ShrinkWrap.create(WebArchive.class, "deferred-components-migration.war")
+                    .addAsResource("configs/components/changelog.xml", "changelog.xml")
+                    .addAsManifestResource("configs/components/jboss-all-deferred.xml", "jboss-all.xml")
+            )
+            .addAsModule(
+                ShrinkWrap.create(JavaArchive.class, "deferred-components-startup.jar")
+                    .addClasses(StartupBean.class, SchemaProbe.class)
+            );
+    }
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        addDataSource(DATASOURCE, "componentsdb");
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        System.clearProperty(STARTUP_BEAN_PROPERTY);
+        System.clearProperty(SERVLET_PROPERTY);
+        removeDataSource(DATASOURCE);
+    }
+
+    @Test
+    public void testComponentDependencies() throws Exception {
+        deployer.deploy("components.ear");
+        try {
+            Assertions.assertEquals("true", System.getProperty(STARTUP_BEAN_PROPERTY), "Expected the startup bean to wait for the migration");
+            Assertions.assertEquals("false", System.getProperty(SERVLET_PROPERTY), "Expected the servlet not to wait for the migration");
+        } finally {
+            deployer.undeploy("components.ear");
+        }
+    }
+
+    @Test
+    public void testDeferredChangeLogWithStartupBean() {
+        Assertions.assertThrows(Exception.class, () -> deployer.deploy("deferred-components.ear"));
+        Assertions.assertNull(System.getProperty(STARTUP_BEAN_PROPERTY), "Expected the startup bean not to start");
+    }
+
+    public static final class SchemaProbe {
+
+        private SchemaProbe() {
+        }
+
+        static String isMigrated(DataSource dataSource) {
+            try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+                statement.executeQuery("SELECT COUNT(*) FROM component_dependency_test").close();
+                return "true";
+            } catch (SQLException e) {
+                return "false";
+            }
+        }
+    }
+
+    @Startup
+    @Singleton
+    public static class StartupBean {
+
+        @Resource(lookup = "java:jboss/datasources/" + DATASOURCE)
+        private DataSource dataSource;
+
+        @PostConstruct
+        public void init() {
+            System.setProperty(STARTUP_BEAN_PROPERTY, SchemaProbe.isMigrated(dataSource));
+        }
+    }
+
+    @WebServlet(urlPatterns = "/unrelated", loadOnStartup = 1)
+    public static class UnrelatedServlet extends HttpServlet {
+
+        private static final long serialVersionUID = 1L;
+
+        @Resource(lookup = "java:jboss/datasources/" + DATASOURCE)
+        private DataSource dataSource;
+
+        @Override
+        public void init() {
+            System.setProperty(SERVLET_PROPERTY, SchemaProbe.isMigrated(dataSource));
+        }
+    }
+}
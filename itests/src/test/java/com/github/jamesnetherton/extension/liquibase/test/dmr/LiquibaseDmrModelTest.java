@@ -20,11 +20,16 @@
 package com.github.jamesnetherton.extension.liquibase.test.dmr;
 
 import com.github.jamesnetherton.liquibase.arquillian.LiquibaseTestSupport;
+import java.sql.Connection;
+import java.sql.Statement;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import javax.sql.DataSource;
 import liquibase.util.NetUtil;
 import org.jboss.arquillian.container.test.api.Deployment;
 import org.jboss.arquillian.junit5.ArquillianExtension;
+import org.jboss.dmr.ModelNode;
 import org.jboss.shrinkwrap.api.Archive;
 import org.jboss.shrinkwrap.api.ShrinkWrap;
 import org.jboss.shrinkwrap.api.spec.JavaArchive;
@@ -109,6 +114,41 @@ public class LiquibaseDmrModelTest extends LiquibaseTestSupport {
         }
     }
 
+    @Test
+    public void testDmrModelCreateWithHostRoles() throws Exception {
+        try {
+            boolean success = executeCliScript(getTestResourceFile("cli/changelog-add-with-host-roles.cli"));
+            Assertions.assertTrue(success, "Expected changelog-add-with-host-roles.cli success but it failed");
+            assertTableModified("dmr_add_with_host_roles", Collections.emptyList());
+
+            System.setProperty("wildfly.liquibase.host.roles", "web, DMR-Migrator");
+            success = executeCliCommand("/subsystem=liquibase/databaseChangeLog=dmr-model-with-host-roles-test.xml/:write-attribute(name=host-includes,value=\"non.existent.host, role:dmr-migrator\")");
+            Assertions.assertTrue(success, "Expected update of host includes success but it failed");
+            assertTableModified("dmr_add_with_host_roles");
+        } finally {
+            removeLiquibaseDmrModel("dmr-model-with-host-roles-test.xml");
+            System.clearProperty("wildfly.liquibase.host.roles");
+        }
+    }
+
+    @Test
+    public void testDmrModelCreateWithHostGlob() throws Exception {
+        try {
+            boolean success = executeCliScript(getTestResourceFile("cli/changelog-add-with-host-glob.cli"));
+            Assertions.assertTrue(success, "Expected changelog-add-with-host-glob.cli success but it failed");
+            assertTableModified("dmr_add_with_host_glob", Collections.emptyList());
+        } finally {
+            removeLiquibaseDmrModel("dmr-model-with-host-glob-test.xml");
+        }
+    }
+
+    @Test
+    public void testDmrModelCreateWithInvalidHostRegex() throws Exception {
+        boolean success = executeCliScript(getTestResourceFile("cli/changelog-add-with-invalid-host-regex.cli"));
+        Assertions.assertFalse(success, "Expected changelog-add-with-invalid-host-regex.cli to fail but it was successful");
+        assertTableModified("dmr_add_with_invalid_host_regex", Collections.emptyList());
+    }
+
     @Test
     public void testDmrModelCreateWithNoFileNameExtension() throws Exception {
         try {
@@ -172,12 +212,148 @@ public class LiquibaseDmrModelTest extends LiquibaseTestSupport {
         }
     }
 
+    @Test
+    public void testDmrModelChangeSetExecutions() throws Exception {
+        try {
+            boolean success = executeCliScript(getTestResourceFile("cli/changelog-add.cli"));
+            Assertions.assertTrue(success, "Expected changelog-add.cli success but it failed");
+
+            List<ModelNode> executions = readLiquibaseDmrAttribute("dmr-model-test.xml", "changeset-executions").asList();
+            Assertions.assertEquals(2, executions.size());
+            Assertions.assertEquals("EXECUTED", executions.get(0).get("exec-type").asString());
+            Assertions.assertEquals("java:jboss/datasources/ExampleDS", executions.get(0).get("datasource").asString());
+            Assertions.assertTrue(executions.get(0).get("statements").asInt() > 0);
+
+            executeLiquibaseDmrOperation("dmr-model-test.xml", "clear-changeset-executions", null);
+            Assertions.assertTrue(readLiquibaseDmrAttribute("dmr-model-test.xml", "changeset-executions").asList().isEmpty());
+        } finally {
+            removeLiquibaseDmrModel("dmr-model-test.xml");
+        }
+    }
+
+    @Test
+    public void testDmrModelMetrics() throws Exception {
+        try {
+            boolean success = executeCliScript(getTestResourceFile("cli/changelog-add.cli"));
+            Assertions.assertTrue(success, "Expected changelog-add.cli success but it failed");
+
+            Assertions.assertEquals(2, readLiquibaseDmrAttribute("dmr-model-test.xml", "changesets-applied").asLong());
+            Assertions.assertEquals(0, readLiquibaseDmrAttribute("dmr-model-test.xml", "failures").asLong());
+            Assertions.assertTrue(readLiquibaseDmrAttribute("dmr-model-test.xml", "resource-cache-hits").asLong() > 0);
+        } finally {
+            removeLiquibaseDmrModel("dmr-model-test.xml");
+        }
+    }
+
+    @Test
+    public void testDmrModelUpToDateSkipsChangeLogLock() throws Exception {
+        try {
+            boolean success = executeCliScript(getTestResourceFile("cli/changelog-add.cli"));
+            Assertions.assertTrue(success, "Expected changelog-add.cli success but it failed");
+
+            // Another server holds the change log lock, which an execution with no pending change sets must not wait for
+            setChangeLogLocked(true);
+            success = executeCliCommand("/subsystem=liquibase/databaseChangeLog=dmr-model-test.xml/:write-attribute(name=host-excludes,value=excluded-host)");
+            Assertions.assertTrue(success, "Expected update of host excludes success but it failed");
+
+            Assertions.assertEquals(0, readLiquibaseDmrAttribute("dmr-model-test.xml", "changesets-applied").asLong());
+            Assertions.assertEquals(2, readLiquibaseDmrAttribute("dmr-model-test.xml", "changesets-skipped").asLong());
+            Assertions.assertEquals("EXECUTED", readLiquibaseDmrAttribute("dmr-model-test.xml", "datasource-status").get(0).get("state").asString());
+        } finally {
+            setChangeLogLocked(false);
+            removeLiquibaseDmrModel("dmr-model-test.xml");
+        }
+    }
+
+    @Test
+    public void testDmrModelStatus() throws Exception {
+        try {
+            System.setProperty("host.excludes", NetUtil.getLocalHostName());
+            boolean success = executeCliScript(getTestResourceFile("cli/changelog-add-pending.cli"));
+            Assertions.assertTrue(success, "Expected changelog-add-pending.cli success but it failed");
+            assertTableModified("dmr_pending", Collections.emptyList());
+
+            List<ModelNode> status = executeLiquibaseDmrOperation("dmr-model-pending-test.xml", "status", null).asList();
+            Assertions.assertEquals(1, status.size());
+            Assertions.assertEquals("java:jboss/datasources/ExampleDS", status.get(0).get("datasource").asString());
+            Assertions.assertEquals(2, status.get(0).get("pending-changesets").asInt());
+
+            List<ModelNode> changeSets = status.get(0).get("changesets").asList();
+            Assertions.assertEquals("dmr-pending-1", changeSets.get(0).get("id").asString());
+            Assertions.assertEquals("wildfly", changeSets.get(0).get("author").asString());
+            Assertions.assertEquals("dmr-pending-2", changeSets.get(1).get("id").asString());
+
+            success = executeCliCommand("/subsystem=liquibase/databaseChangeLog=dmr-model-pending-test.xml/:write-attribute(name=host-excludes,value=excluded-host)");
+            Assertions.assertTrue(success, "Expected update of host excludes success but it failed");
+            assertTableModified("dmr_pending");
+
+            ModelNode parameters = new ModelNode();
+            parameters.get("datasource").set("java:jboss/datasources/ExampleDS");
+            status = executeLiquibaseDmrOperation("dmr-model-pending-test.xml", "status", parameters).asList();
+            Assertions.assertEquals(0, status.get(0).get("pending-changesets").asInt());
+            Assertions.assertTrue(status.get(0).get("changesets").asList().isEmpty());
+        } finally {
+            removeLiquibaseDmrModel("dmr-model-pending-test.xml");
+            System.clearProperty("host.excludes");
+        }
+    }
+
+    @Test
+    public void testDmrModelUpdateSql() throws Exception {
+        try {
+            System.setProperty("host.excludes", NetUtil.getLocalHostName());
+            boolean success = executeCliScript(getTestResourceFile("cli/changelog-add-update-sql.cli"));
+            Assertions.assertTrue(success, "Expected changelog-add-update-sql.cli success but it failed");
+
+            String sql = executeLiquibaseDmrStreamOperation("dmr-model-update-sql-test.xml", "update-sql", null);
+            Assertions.assertTrue(sql.toUpperCase().contains("CREATE TABLE PUBLIC.DMR_UPDATE_SQL"), sql);
+            Assertions.assertTrue(sql.toUpperCase().contains("ALTER TABLE PUBLIC.DMR_UPDATE_SQL ADD USERNAME"), sql);
+            Assertions.assertTrue(sql.contains("'dmr-update-sql-2'"), sql);
+
+            // Generating the SQL does not apply it
+            assertTableModified("dmr_update_sql", Collections.emptyList());
+        } finally {
+            removeLiquibaseDmrModel("dmr-model-update-sql-test.xml");
+            System.clearProperty("host.excludes");
+        }
+    }
+
     @Test
     public void testDmrModelCreateWithDuplicateDatasource() throws Exception {
         boolean success = executeCliScript(getTestResourceFile("cli/changelog-add-with-duplicate-datasource.cli"));
         Assertions.assertFalse(success, "Expected changelog-add-with-duplicate-datasource.cli to fail but it was successful");
     }
 
+    @Test
+    public void testDmrModelBatchAdd() throws Exception {
+        try {
+            Assertions.assertTrue(addDataSource("DmrBatchDS", "dmrbatchdb"), "Expected DmrBatchDS to be added");
+            boolean success = executeCliScript(getTestResourceFile("cli/changelog-add-batch.cli"));
+            Assertions.assertTrue(success, "Expected changelog-add-batch.cli success but it failed");
+            assertTableModified("dmr_batch_1", Arrays.asList("id", "name"));
+            assertTableModified("dmr_batch_2", Arrays.asList("id", "name"), "java:jboss/datasources/DmrBatchDS");
+        } finally {
+            removeLiquibaseDmrModel("dmr-model-batch-1.xml");
+            removeLiquibaseDmrModel("dmr-model-batch-2.xml");
+            removeDataSource("DmrBatchDS");
+        }
+    }
+
+    @Test
+    public void testDmrModelBatchAddWithInvalidChangeLog() throws Exception {
+        try {
+            Assertions.assertTrue(addDataSource("DmrBatchDS", "dmrbatchdb"), "Expected DmrBatchDS to be added");
+            boolean success = executeCliScript(getTestResourceFile("cli/changelog-add-batch-invalid.cli"));
+            Assertions.assertFalse(success, "Expected changelog-add-batch-invalid.cli to fail but it was successful");
+
+            // No change log of the batch is applied when one of them is invalid
+            assertTableModified("dmr_batch_invalid", Collections.emptyList());
+            Assertions.assertFalse(removeLiquibaseDmrModel("dmr-model-batch-invalid-1.xml"), "Expected dmr-model-batch-invalid-1.xml not to be added");
+        } finally {
+            removeDataSource("DmrBatchDS");
+        }
+    }
+
     @Test
     public void testDmrModelUpdate() throws Exception {
         try {
@@ -257,4 +433,59 @@ public class LiquibaseDmrModelTest extends LiquibaseTestSupport {
             removeLiquibaseDmrModel("dmr-model-update-with-datasource-test.xml");
         }
     }
+
+    @Test
+    public void testDmrModelUndefineBaseline() throws Exception {
+        try {
+            Assertions.assertTrue(addDataSource("DmrBaselineDS", "dmrbaselinedb"), "Expected DmrBaselineDS to be added");
+            boolean success = executeCliScript(getTestResourceFile("cli/changelog-add-with-baseline.cli"));
+            Assertions.assertTrue(success, "Expected changelog-add-with-baseline.cli success but it failed");
+
+            // The baseline cannot be applied, which fail-on-error=false ignores
+            assertTableModified("dmr_baseline", Collections.emptyList(), "java:jboss/datasources/DmrBaselineDS");
+
+            success = executeCliCommand("/subsystem=liquibase/databaseChangeLog=dmr-model-baseline-test.xml/:undefine-attribute(name=baseline)");
+            Assertions.assertTrue(success, "Expected undefine of baseline success but it failed");
+            assertTableModified("dmr_baseline", Collections.singletonList("id"), "java:jboss/datasources/DmrBaselineDS");
+        } finally {
+            removeLiquibaseDmrModel("dmr-model-baseline-test.xml");
+            removeDataSource("DmrBaselineDS");
+        }
+    }
+
+    @Test
+    public void testDmrModelUndefineMigrationDatasource() throws Exception {
+        try {
+            Assertions.assertTrue(addDataSource("DmrTargetDS", "dmrmigrationdb"), "Expected DmrTargetDS to be added");
+            Assertions.assertTrue(addDataSource("DmrMigrationDS", "dmrmigrationdb"), "Expected DmrMigrationDS to be added");
+            boolean success = executeCliScript(getTestResourceFile("cli/changelog-add-with-migration-datasource.cli"));
+            Assertions.assertTrue(success, "Expected changelog-add-with-migration-datasource.cli success but it failed");
+            assertTableModified("dmr_migration_datasource", Collections.singletonList("id"), "java:jboss/datasources/DmrTargetDS");
+
+            // The change log is reinstalled against the target datasource only
+            success = executeCliCommand("/subsystem=liquibase/databaseChangeLog=dmr-model-migration-datasource-test.xml/:undefine-attribute(name=migration-datasource)");
+            Assertions.assertTrue(success, "Expected undefine of migration-datasource success but it failed");
+
+            List<ModelNode> status = executeLiquibaseDmrOperation("dmr-model-migration-datasource-test.xml", "status", null).asList();
+            Assertions.assertEquals(1, status.size());
+            Assertions.assertEquals("java:jboss/datasources/DmrTargetDS", status.get(0).get("datasource").asString());
+            Assertions.assertEquals(0, status.get(0).get("pending-changesets").asInt());
+        } finally {
+            removeLiquibaseDmrModel("dmr-model-migration-datasource-test.xml");
+            removeDataSource("DmrMigrationDS");
+            removeDataSource("DmrTargetDS");
+        }
+    }
+
+    private void setChangeLogLocked(boolean locked) throws Exception {
+        DataSource dataSource = lookup("java:jboss/datasources/ExampleDS", DataSource.class);
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            if (locked) {
+                statement.executeUpdate("UPDATE DATABASECHANGELOGLOCK SET LOCKED = TRUE, LOCKGRANTED = CURRENT_TIMESTAMP, LOCKEDBY = 'other-server' WHERE ID = 1");
+            } else {
+                statement.executeUpdate("UPDATE DATABASECHANGELOGLOCK SET LOCKED = FALSE, LOCKGRANTED = NULL, LOCKEDBY = NULL WHERE ID = 1");
+            }
+        }
+    }
 }
@@ -37,9 +37,24 @@ final class ChangeLogAdd extends AbstractAddStepHandler {
         ChangeLogResource.HOST_EXCLUDES.validateAndSet(operation, model);
         ChangeLogResource.HOST_INCLUDES.validateAndSet(operation, model);
         ChangeLogResource.LABELS.validateAndSet(operation, model);
+        ChangeLogResource.PARALLELISM.validateAndSet(operation, model);
+        ChangeLogResource.TIMEOUT.validateAndSet(operation, model);
+        ChangeLogResource.CHANGESET_TIMEOUT.validateAndSet(operation, model);
+        ChangeLogResource.BATCH_SIZE.validateAndSet(operation, model);
+        ChangeLogResource.TRANSACTION_GROUP_SIZE.validateAndSet(operation, model);
+        ChangeLogResource.BASELINE.validateAndSet(operation, model);
+        ChangeLogResource.HISTORY_INDEX.validateAndSet(operation, model);
+        ChangeLogResource.MIGRATION_DATASOURCE.validateAndSet(operation, model);
         ChangeLogResource.VALUE.validateAndSet(operation, model);
     }
 
+    @Override
+    protected void populateModel(OperationContext context, ModelNode operation, Resource resource) throws OperationFailedException {
+        super.populateModel(context, operation, resource);
+        String dataSource = ChangeLogResource.DATASOURCE.resolveModelAttribute(context, resource.getModel()).asString();
+        DataSourceMetricsResource.registerDataSources(resource, dataSource);
+    }
+
     @Override
     protected void performRuntime(OperationContext context, ModelNode operation, ModelNode model) throws OperationFailedException {
         ChangeLogModelService service = ServiceHelper.getChangeLogModelUpdateService(context);
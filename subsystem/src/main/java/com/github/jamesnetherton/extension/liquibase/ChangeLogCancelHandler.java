@@ -0,0 +1,52 @@
+/*-
+ * #%L
+ * wildfly-liquibase-subsystem
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase;
+
+import com.github.jamesnetherton.extension.liquibase.service.ChangeLogExecutionService;
+import org.jboss.as.controller.AbstractRuntimeOnlyHandler;
+import org.jboss.as.controller.OperationContext;
+import org.jboss.as.controller.OperationFailedException;
+import org.jboss.as.controller.SimpleOperationDefinition;
+import org.jboss.as.controller.SimpleOperationDefinitionBuilder;
+import org.jboss.dmr.ModelNode;
+import org.jboss.dmr.ModelType;
+
+/**
+ * Cancels an in-flight change log execution. The result indicates whether an execution was running.
+ */
+final class ChangeLogCancelHandler extends AbstractRuntimeOnlyHandler {
+
+    static final SimpleOperationDefinition DEFINITION = new SimpleOperationDefinitionBuilder(ModelConstants.CANCEL,
+        LiquibaseResourceDescriptionResolvers.getResolver(ModelConstants.DATABASE_CHANGELOG))
+        .setReplyType(ModelType.BOOLEAN)
+        .setRuntimeOnly()
+        .build();
+
+    static final ChangeLogCancelHandler INSTANCE = new ChangeLogCancelHandler();
+
+    private ChangeLogCancelHandler() {
+    }
+
+    @Override
+    protected void executeRuntimeStep(OperationContext context, ModelNode operation) throws OperationFailedException {
+        ChangeLogExecutionService executionService = ExecutionServiceLocator.locate(context, context.getCurrentAddress());
+        context.getResult().set(executionService != null && executionService.cancel());
+    }
+}
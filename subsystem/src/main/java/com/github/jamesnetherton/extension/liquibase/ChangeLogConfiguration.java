@@ -21,8 +21,13 @@ package com.github.jamesnetherton.extension.liquibase;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import liquibase.resource.ResourceAccessor;
 
 public final class ChangeLogConfiguration {
 
@@ -33,10 +38,22 @@ public final class ChangeLogConfiguration {
     private boolean failOnError = true;
     private String hostExcludes;
     private String hostIncludes;
+    private HostRules hostRules;
     private String labels;
     private String name;
+    private int parallelism;
+    private String migrationDataSource;
+    private boolean historyIndex;
+    private String baseline;
+    private int transactionGroupSize;
+    private int batchSize;
+    private int changeSetTimeout;
+    private int timeout;
+    private ChangeLogExecutionMode executionMode = ChangeLogExecutionMode.SYNC;
+    private Boolean skipIfUnchanged;
     private String path;
-    private String basePath; // Physical base directory for FileSystemResourceAccessor
+    private String basePath; // Virtual file path of the directory containing the change log, for VirtualFileResourceAccessor
+    private ResourceAccessor resourceAccessor; // Resolves the change log and its includes in place of the WildFly resource accessors
     private ClassLoader classLoader;
     private ConfigurationOrigin origin;
 
@@ -64,6 +81,14 @@ public final class ChangeLogConfiguration {
         this.basePath = basePath;
     }
 
+    public ResourceAccessor getResourceAccessor() {
+        return resourceAccessor;
+    }
+
+    public void setResourceAccessor(ResourceAccessor resourceAccessor) {
+        this.resourceAccessor = resourceAccessor;
+    }
+
     public String getDeployment() {
         return deployment;
     }
@@ -88,6 +113,142 @@ public final class ChangeLogConfiguration {
         this.dataSource = dataSource;
     }
 
+    /**
+     * Get the JNDI names of all datasources the change log targets. The datasource attribute may hold a single
+     * JNDI name or a comma separated list of JNDI names, in which case the change log is applied to each of them.
+     */
+    public List<String> getDataSources() {
+        return parseDataSources(this.dataSource);
+    }
+
+    /**
+     * Splits a comma separated list of datasource JNDI bindings, removing blank and duplicate entries.
+     */
+    public static List<String> parseDataSources(String dataSourceList) {
+        if (dataSourceList == null) {
+            return Collections.emptyList();
+        }
+
+        Set<String> dataSources = new LinkedHashSet<>();
+        for (String dataSource : dataSourceList.split(",")) {
+            dataSource = dataSource.trim();
+            if (!dataSource.isEmpty()) {
+                dataSources.add(dataSource);
+            }
+        }
+        return new ArrayList<>(dataSources);
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Get the JNDI names of the datasources that migration connections are obtained from, keyed by the target datasource
+     * they replace. The migration-datasource attribute holds either a single JNDI name, if the change log targets one
+     * datasource, or a comma separated list of target=migration pairs.
+     */
+    public Map<String, String> getMigrationDataSources() {
+        Map<String, String> migrationDataSources = new LinkedHashMap<>();
+        List<String> dataSources = getDataSources();
+        for (String entry : parseDataSources(this.migrationDataSource)) {
+            int separator = entry.indexOf('=');
+            if (separator < 0) {
+                if (dataSources.size() != 1) {
+                    throw new IllegalStateException("Migration datasource " + entry + " must be mapped to one of the target datasources " + dataSources + " using target=migration");
+                }
+                migrationDataSources.put(dataSources.get(0), entry);
+            } else {
+                String target = entry.substring(0, separator).trim();
+                if (!dataSources.contains(target)) {
+                    throw new IllegalStateException("Migration datasource " + entry + " does not refer to one of the target datasources " + dataSources);
+                }
+                migrationDataSources.put(target, entry.substring(separator + 1).trim());
+            }
+        }
+        return migrationDataSources;
+    }
+
+    public String getMigrationDataSource() {
+        return migrationDataSource;
+    }
+
+    public void setMigrationDataSource(String migrationDataSource) {
+        this.migrationDataSource = migrationDataSource;
+    }
+
+    public boolean isHistoryIndex() {
+        return historyIndex;
+    }
+
+    public void setHistoryIndex(boolean historyIndex) {
+        this.historyIndex = historyIndex;
+    }
+
+    public String getBaseline() {
+        return baseline;
+    }
+
+    public void setBaseline(String baseline) {
+        this.baseline = baseline;
+    }
+
+    public int getTransactionGroupSize() {
+        return transactionGroupSize;
+    }
+
+    public void setTransactionGroupSize(int transactionGroupSize) {
+        this.transactionGroupSize = transactionGroupSize;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public int getChangeSetTimeout() {
+        return changeSetTimeout;
+    }
+
+    public void setChangeSetTimeout(int changeSetTimeout) {
+        this.changeSetTimeout = changeSetTimeout;
+    }
+
+    public int getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(int timeout) {
+        this.timeout = timeout;
+    }
+
+    public ChangeLogExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+
+    public void setExecutionMode(ChangeLogExecutionMode executionMode) {
+        this.executionMode = executionMode;
+    }
+
+    /**
+     * @return whether executions are skipped while the change log and its history are unchanged, or null to use the
+     * skip mode of the subsystem
+     */
+    public Boolean getSkipIfUnchanged() {
+        return skipIfUnchanged;
+    }
+
+    public void setSkipIfUnchanged(Boolean skipIfUnchanged) {
+        this.skipIfUnchanged = skipIfUnchanged;
+    }
+
     public void setContexts(String contexts) {
         this.contexts = contexts;
     }
@@ -110,6 +271,7 @@ public final class ChangeLogConfiguration {
 
     public void setHostExcludes(String hostExcludes) {
         this.hostExcludes = hostExcludes;
+        this.hostRules = null;
     }
 
     public String getHostIncludes() {
@@ -118,6 +280,20 @@ public final class ChangeLogConfiguration {
 
     public void setHostIncludes(String hostIncludes) {
         this.hostIncludes = hostIncludes;
+        this.hostRules = null;
+    }
+
+    /**
+     * @return the compiled host-includes and host-excludes rules, which are compiled again once either of them changes
+     * @throws IllegalStateException if a rule is not valid
+     */
+    public HostRules getHostRules() {
+        HostRules rules = hostRules;
+        if (rules == null) {
+            rules = HostRules.compile(hostIncludes, hostExcludes);
+            hostRules = rules;
+        }
+        return rules;
     }
 
     public void setLabels(String labels) {
@@ -233,7 +409,7 @@ public final class ChangeLogConfiguration {
             classpathPath = classpathPath.substring("WEB-INF/classes/".length());
         }
         // For files directly in WEB-INF/ (not in classes), they're not on classpath
-        // Return just the filename for FileSystemResourceAccessor lookup via basePath
+        // Return just the filename for VirtualFileResourceAccessor lookup via basePath
         else if (classpathPath.startsWith("WEB-INF/")) {
             int lastSlash = classpathPath.lastIndexOf('/');
             if (lastSlash >= 0) {
@@ -253,6 +429,39 @@ public final class ChangeLogConfiguration {
         return new Builder();
     }
 
+    /**
+     * @return a copy of this configuration, which can be modified without affecting the change log it belongs to
+     */
+    public ChangeLogConfiguration copy() {
+        ChangeLogConfiguration copy = new ChangeLogConfiguration();
+        copy.contexts = contexts;
+        copy.dataSource = dataSource;
+        copy.definition = definition;
+        copy.deployment = deployment;
+        copy.failOnError = failOnError;
+        copy.hostExcludes = hostExcludes;
+        copy.hostIncludes = hostIncludes;
+        copy.hostRules = hostRules;
+        copy.labels = labels;
+        copy.name = name;
+        copy.parallelism = parallelism;
+        copy.migrationDataSource = migrationDataSource;
+        copy.historyIndex = historyIndex;
+        copy.baseline = baseline;
+        copy.transactionGroupSize = transactionGroupSize;
+        copy.batchSize = batchSize;
+        copy.changeSetTimeout = changeSetTimeout;
+        copy.timeout = timeout;
+        copy.executionMode = executionMode;
+        copy.skipIfUnchanged = skipIfUnchanged;
+        copy.path = path;
+        copy.basePath = basePath;
+        copy.resourceAccessor = resourceAccessor;
+        copy.classLoader = classLoader;
+        copy.origin = origin;
+        return copy;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o)
@@ -260,7 +469,7 @@ public final class ChangeLogConfiguration {
         if (o == null || getClass() != o.getClass())
             return false;
         ChangeLogConfiguration that = (ChangeLogConfiguration) o;
-        return failOnError == that.failOnError && Objects.equals(name, that.name) && Objects.equals(path, that.path) && Objects.equals(contexts, that.contexts)
+        return failOnError == that.failOnError && parallelism == that.parallelism && Objects.equals(migrationDataSource, that.migrationDataSource) && historyIndex == that.historyIndex && Objects.equals(baseline, that.baseline) && transactionGroupSize == that.transactionGroupSize && batchSize == that.batchSize && changeSetTimeout == that.changeSetTimeout && timeout == that.timeout && executionMode == that.executionMode && Objects.equals(skipIfUnchanged, that.skipIfUnchanged) && Objects.equals(name, that.name) && Objects.equals(path, that.path) && Objects.equals(contexts, that.contexts)
                 && Objects.equals(dataSource, that.dataSource) && Objects.equals(definition, that.definition) && Objects.equals(deployment, that.deployment) && Objects
                 .equals(hostExcludes, that.hostExcludes) && Objects.equals(hostIncludes, that.hostIncludes) && Objects.equals(labels, that.labels) && Objects
                 .equals(classLoader, that.classLoader) && origin == that.origin;
@@ -268,7 +477,7 @@ public final class ChangeLogConfiguration {
 
     @Override
     public int hashCode() {
-        return Objects.hash(name, path, contexts, dataSource, definition, deployment, failOnError, hostExcludes, hostIncludes, labels, classLoader, origin);
+        return Objects.hash(name, path, contexts, dataSource, definition, deployment, failOnError, hostExcludes, hostIncludes, labels, parallelism, changeSetTimeout, timeout, executionMode, skipIfUnchanged, batchSize, transactionGroupSize, baseline, historyIndex, migrationDataSource, classLoader, origin);
     }
 
     public static class Builder {
@@ -281,8 +490,19 @@ public final class ChangeLogConfiguration {
         private String hostIncludes;
         private String labels;
         private String name;
+        private int parallelism;
+        private String migrationDataSource;
+        private boolean historyIndex;
+        private String baseline;
+        private int transactionGroupSize;
+        private int batchSize;
+        private int changeSetTimeout;
+        private int timeout;
+        private ChangeLogExecutionMode executionMode = ChangeLogExecutionMode.SYNC;
+        private Boolean skipIfUnchanged;
         private String path;
         private String basePath;
+        private ResourceAccessor resourceAccessor;
         private ClassLoader classLoader;
         private ConfigurationOrigin origin;
 
@@ -331,6 +551,56 @@ public final class ChangeLogConfiguration {
             return this;
         }
 
+        public Builder parallelism(int parallelism) {
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        public Builder migrationDataSource(String migrationDataSource) {
+            this.migrationDataSource = migrationDataSource;
+            return this;
+        }
+
+        public Builder historyIndex(boolean historyIndex) {
+            this.historyIndex = historyIndex;
+            return this;
+        }
+
+        public Builder baseline(String baseline) {
+            this.baseline = baseline;
+            return this;
+        }
+
+        public Builder transactionGroupSize(int transactionGroupSize) {
+            this.transactionGroupSize = transactionGroupSize;
+            return this;
+        }
+
+        public Builder batchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        public Builder changeSetTimeout(int changeSetTimeout) {
+            this.changeSetTimeout = changeSetTimeout;
+            return this;
+        }
+
+        public Builder timeout(int timeout) {
+            this.timeout = timeout;
+            return this;
+        }
+
+        public Builder executionMode(ChangeLogExecutionMode executionMode) {
+            this.executionMode = executionMode;
+            return this;
+        }
+
+        public Builder skipIfUnchanged(Boolean skipIfUnchanged) {
+            this.skipIfUnchanged = skipIfUnchanged;
+            return this;
+        }
+
         public Builder path(String path) {
             this.path = path;
             return this;
@@ -341,6 +611,11 @@ public final class ChangeLogConfiguration {
             return this;
         }
 
+        public Builder resourceAccessor(ResourceAccessor resourceAccessor) {
+            this.resourceAccessor = resourceAccessor;
+            return this;
+        }
+
         public Builder classLoader(ClassLoader classLoader) {
             this.classLoader = classLoader;
             return this;
@@ -369,6 +644,30 @@ public final class ChangeLogConfiguration {
                 throw new IllegalStateException("ChangeLogConfiguration dataSource must be specified");
             }
 
+            if (this.parallelism < 0) {
+                throw new IllegalStateException("ChangeLogConfiguration parallelism must not be negative");
+            }
+
+            if (this.transactionGroupSize < 0) {
+                throw new IllegalStateException("ChangeLogConfiguration transactionGroupSize must not be negative");
+            }
+
+            if (this.batchSize < 0) {
+                throw new IllegalStateException("ChangeLogConfiguration batchSize must not be negative");
+            }
+
+            if (this.changeSetTimeout < 0) {
+                throw new IllegalStateException("ChangeLogConfiguration changeSetTimeout must not be negative");
+            }
+
+            if (this.timeout < 0) {
+                throw new IllegalStateException("ChangeLogConfiguration timeout must not be negative");
+            }
+
+            if (this.executionMode == null) {
+                throw new IllegalStateException("ChangeLogConfiguration executionMode must be specified");
+            }
+
             if (this.classLoader == null) {
                 throw new IllegalStateException("ChangeLogConfiguration classLoader must be specified");
             }
@@ -389,11 +688,28 @@ public final class ChangeLogConfiguration {
             configuration.setLabels(this.labels);
             configuration.setName(this.name);
             configuration.setOrigin(this.origin);
+            configuration.setParallelism(this.parallelism);
+            configuration.setMigrationDataSource(this.migrationDataSource);
+            configuration.setHistoryIndex(this.historyIndex);
+            configuration.setBaseline(this.baseline);
+            configuration.setTransactionGroupSize(this.transactionGroupSize);
+            configuration.setBatchSize(this.batchSize);
+            configuration.setChangeSetTimeout(this.changeSetTimeout);
+            configuration.setTimeout(this.timeout);
+            configuration.setExecutionMode(this.executionMode);
+            configuration.setSkipIfUnchanged(this.skipIfUnchanged);
             configuration.setPath(this.path);
             configuration.setBasePath(this.basePath);
+            configuration.setResourceAccessor(this.resourceAccessor);
+            // Fail fast on invalid host rules, rather than when the change log is executed
+            configuration.getHostRules();
             return configuration;
         }
 
+        public String getDataSource() {
+            return this.dataSource;
+        }
+
         private String getName() {
             return this.name;
         }
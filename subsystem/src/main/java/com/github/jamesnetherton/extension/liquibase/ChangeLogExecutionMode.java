@@ -0,0 +1,54 @@
+/*-
+ * #%L
+ * wildfly-liquibase-subsystem
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase;
+
+import java.util.Locale;
+
+/**
+ * How the execution of a change log relates to the start of the deployment or server that it belongs to.
+ */
+public enum ChangeLogExecutionMode {
+    /**
+     * The change log is applied by the thread that starts its service, and dependent services wait for it to complete.
+     */
+    SYNC,
+    /**
+     * The change log is applied by a thread of its own, which frees the thread that started its service for other
+     * services. Dependent services still wait for it to complete and a failure still fails the deployment.
+     */
+    ASYNC,
+    /**
+     * The change log is applied in the background once its service has started, so that dependent services do not
+     * wait for it. Failures are logged and counted by the change log metrics rather than failing the deployment.
+     */
+    DEFERRED;
+
+    /**
+     * @throws IllegalArgumentException if the name does not match any mode
+     */
+    public static ChangeLogExecutionMode forName(String name) {
+        return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+
+    @Override
+    public String toString() {
+        return this.name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,78 @@
+/*-
+ * #%L
+ * wildfly-liquibase-subsystem
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase;
+
+import com.github.jamesnetherton.extension.liquibase.service.ChangeLogExecutionService;
+import java.sql.SQLException;
+import java.util.List;
+import liquibase.exception.LiquibaseException;
+import org.jboss.as.controller.AbstractRuntimeOnlyHandler;
+import org.jboss.as.controller.OperationContext;
+import org.jboss.as.controller.OperationFailedException;
+import org.jboss.as.controller.SimpleAttributeDefinition;
+import org.jboss.as.controller.SimpleAttributeDefinitionBuilder;
+import org.jboss.as.controller.SimpleOperationDefinition;
+import org.jboss.as.controller.SimpleOperationDefinitionBuilder;
+import org.jboss.as.controller.StringListAttributeDefinition;
+import org.jboss.dmr.ModelNode;
+import org.jboss.dmr.ModelType;
+
+/**
+ * Moves the change log history rows of change sets that were squashed or deleted from a change log to an archive
+ * table, keeping the DATABASECHANGELOG table of a datasource small.
+ */
+final class ChangeLogHistoryArchiveHandler extends AbstractRuntimeOnlyHandler {
+
+    private static final SimpleAttributeDefinition DATASOURCE = new SimpleAttributeDefinitionBuilder(ModelConstants.DATASOURCE, ModelType.STRING)
+        .setRequired(false)
+        .build();
+
+    private static final StringListAttributeDefinition FILES = new StringListAttributeDefinition.Builder(ModelConstants.FILES)
+        .setRequired(false)
+        .build();
+
+    static final SimpleOperationDefinition DEFINITION = new SimpleOperationDefinitionBuilder(ModelConstants.ARCHIVE_HISTORY,
+        LiquibaseResourceDescriptionResolvers.getResolver(ModelConstants.DATABASE_CHANGELOG))
+        .setParameters(DATASOURCE, FILES)
+        .setReplyType(ModelType.INT)
+        .setRuntimeOnly()
+        .build();
+
+    static final ChangeLogHistoryArchiveHandler INSTANCE = new ChangeLogHistoryArchiveHandler();
+
+    private ChangeLogHistoryArchiveHandler() {
+    }
+
+    @Override
+    protected void executeRuntimeStep(OperationContext context, ModelNode operation) throws OperationFailedException {
+        ChangeLogExecutionService executionService = ExecutionServiceLocator.locate(context, context.getCurrentAddress());
+        if (executionService == null) {
+            throw new OperationFailedException("Change log " + context.getCurrentAddressValue() + " has not been executed");
+        }
+
+        String dataSource = DATASOURCE.resolveModelAttribute(context, operation).asStringOrNull();
+        List<String> files = FILES.unwrap(context, operation);
+        try {
+            context.getResult().set(executionService.archiveHistory(dataSource, files));
+        } catch (LiquibaseException | SQLException e) {
+            throw new OperationFailedException("Failed to archive change log history: " + e.getMessage(), e);
+        }
+    }
+}
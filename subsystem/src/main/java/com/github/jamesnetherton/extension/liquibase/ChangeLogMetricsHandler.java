@@ -0,0 +1,137 @@
+/*-
+ * #%L
+ * wildfly-liquibase-subsystem
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase;
+
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.NAME;
+
+import com.github.jamesnetherton.extension.liquibase.service.ChangeLogExecutionService;
+import com.github.jamesnetherton.extension.liquibase.service.ExecutionMetrics;
+import org.jboss.as.controller.AbstractRuntimeOnlyHandler;
+import org.jboss.as.controller.AttributeDefinition;
+import org.jboss.as.controller.OperationContext;
+import org.jboss.as.controller.OperationFailedException;
+import org.jboss.as.controller.PathAddress;
+import org.jboss.as.controller.PathElement;
+import org.jboss.as.controller.SimpleAttributeDefinition;
+import org.jboss.as.controller.SimpleAttributeDefinitionBuilder;
+import org.jboss.as.controller.client.helpers.MeasurementUnit;
+import org.jboss.as.controller.registry.AttributeAccess;
+import org.jboss.as.controller.registry.ManagementResourceRegistration;
+import org.jboss.dmr.ModelNode;
+import org.jboss.dmr.ModelType;
+
+/**
+ * Reads the {@link ExecutionMetrics} of a change log, or of one of its target datasources, from its {@link ChangeLogExecutionService}.
+ *
+ * Works for both subsystem change log resources and the runtime resources registered for change logs within deployments.
+ */
+final class ChangeLogMetricsHandler extends AbstractRuntimeOnlyHandler {
+
+    static final ChangeLogMetricsHandler INSTANCE = new ChangeLogMetricsHandler();
+
+    static final SimpleAttributeDefinition PARSE_TIME = createMetric(ModelConstants.PARSE_TIME, MeasurementUnit.MILLISECONDS);
+    static final SimpleAttributeDefinition EXECUTION_TIME = createMetric(ModelConstants.EXECUTION_TIME, MeasurementUnit.MILLISECONDS);
+    static final SimpleAttributeDefinition LOCK_WAIT_TIME = createMetric(ModelConstants.LOCK_WAIT_TIME, MeasurementUnit.MILLISECONDS);
+    static final SimpleAttributeDefinition CHANGESETS_APPLIED = createMetric(ModelConstants.CHANGESETS_APPLIED, MeasurementUnit.NONE);
+    static final SimpleAttributeDefinition CHANGESETS_SKIPPED = createMetric(ModelConstants.CHANGESETS_SKIPPED, MeasurementUnit.NONE);
+    static final SimpleAttributeDefinition FAILURES = createMetric(ModelConstants.FAILURES, MeasurementUnit.NONE);
+    static final SimpleAttributeDefinition RESOURCE_CACHE_HITS = createMetric(ModelConstants.RESOURCE_CACHE_HITS, MeasurementUnit.NONE);
+
+    static final AttributeDefinition[] CHANGE_LOG_METRICS = {
+        PARSE_TIME, EXECUTION_TIME, LOCK_WAIT_TIME, CHANGESETS_APPLIED, CHANGESETS_SKIPPED, FAILURES, RESOURCE_CACHE_HITS
+    };
+
+    static final AttributeDefinition[] DATASOURCE_METRICS = {
+        EXECUTION_TIME, LOCK_WAIT_TIME, CHANGESETS_APPLIED, CHANGESETS_SKIPPED, FAILURES
+    };
+
+    private ChangeLogMetricsHandler() {
+    }
+
+    static void registerMetrics(ManagementResourceRegistration resourceRegistration, AttributeDefinition... metrics) {
+        for (AttributeDefinition metric : metrics) {
+            resourceRegistration.registerMetric(metric, INSTANCE);
+        }
+    }
+
+    @Override
+    protected void executeRuntimeStep(OperationContext context, ModelNode operation) throws OperationFailedException {
+        PathAddress address = context.getCurrentAddress();
+        PathElement dataSourceElement = address.getLastElement();
+        PathAddress changeLogAddress = address;
+        if (dataSourceElement.getKey().equals(ModelConstants.DATASOURCE)) {
+            changeLogAddress = address.getParent();
+        } else {
+            dataSourceElement = null;
+        }
+
+        ChangeLogExecutionService executionService = ExecutionServiceLocator.locate(context, changeLogAddress);
+        if (executionService == null) {
+            return;
+        }
+
+        ExecutionMetrics metrics;
+        if (dataSourceElement != null) {
+            metrics = executionService.getMetrics(dataSourceElement.getValue());
+            if (metrics == null) {
+                return;
+            }
+        } else {
+            metrics = executionService.getMetrics();
+        }
+
+        String metricName = operation.require(NAME).asString();
+        ModelNode result = context.getResult();
+        switch (metricName) {
+            case ModelConstants.PARSE_TIME:
+                result.set(metrics.getParseTime());
+                break;
+            case ModelConstants.EXECUTION_TIME:
+                result.set(metrics.getExecutionTime());
+                break;
+            case ModelConstants.LOCK_WAIT_TIME:
+                result.set(metrics.getLockWaitTime());
+                break;
+            case ModelConstants.CHANGESETS_APPLIED:
+                result.set(metrics.getChangeSetsApplied());
+                break;
+            case ModelConstants.CHANGESETS_SKIPPED:
+                result.set(metrics.getChangeSetsSkipped());
+                break;
+            case ModelConstants.FAILURES:
+                result.set(metrics.getFailures());
+                break;
+            case ModelConstants.RESOURCE_CACHE_HITS:
+                result.set(metrics.getResourceCacheHits());
+                break;
+            default:
+                throw new OperationFailedException("Unknown metric " + metricName);
+        }
+    }
+
+    private static SimpleAttributeDefinition createMetric(String name, MeasurementUnit unit) {
+        return new SimpleAttributeDefinitionBuilder(name, ModelType.LONG)
+            .addFlag(AttributeAccess.Flag.COUNTER_METRIC)
+            .setMeasurementUnit(unit)
+            .setUndefinedMetricValue(ModelNode.ZERO_LONG)
+            .setStorageRuntime()
+            .build();
+    }
+}
@@ -19,10 +19,16 @@
  */
 package com.github.jamesnetherton.extension.liquibase;
 
+import org.jboss.as.controller.ObjectListAttributeDefinition;
+import org.jboss.as.controller.ObjectTypeAttributeDefinition;
 import org.jboss.as.controller.PathElement;
 import org.jboss.as.controller.SimpleAttributeDefinition;
 import org.jboss.as.controller.SimpleAttributeDefinitionBuilder;
+import org.jboss.as.controller.SimpleOperationDefinition;
+import org.jboss.as.controller.SimpleOperationDefinitionBuilder;
 import org.jboss.as.controller.SimpleResourceDefinition;
+import org.jboss.as.controller.client.helpers.MeasurementUnit;
+import org.jboss.as.controller.operations.validation.IntRangeValidator;
 import org.jboss.as.controller.registry.AttributeAccess;
 import org.jboss.as.controller.registry.ManagementResourceRegistration;
 import org.jboss.dmr.ModelType;
@@ -66,11 +72,98 @@ public final class ChangeLogResource extends SimpleResourceDefinition {
         .setRequired(false)
         .build();
 
+    public static final SimpleAttributeDefinition PARALLELISM = new SimpleAttributeDefinitionBuilder(ModelConstants.PARALLELISM, ModelType.INT)
+        .addFlag(AttributeAccess.Flag.RESTART_RESOURCE_SERVICES)
+        .setAllowExpression(true)
+        .setRequired(false)
+        .setValidator(new IntRangeValidator(1, true, true))
+        .build();
+
+    public static final SimpleAttributeDefinition TIMEOUT = new SimpleAttributeDefinitionBuilder(ModelConstants.TIMEOUT, ModelType.INT)
+        .addFlag(AttributeAccess.Flag.RESTART_RESOURCE_SERVICES)
+        .setAllowExpression(true)
+        .setMeasurementUnit(MeasurementUnit.SECONDS)
+        .setRequired(false)
+        .setValidator(new IntRangeValidator(1, true, true))
+        .build();
+
+    public static final SimpleAttributeDefinition CHANGESET_TIMEOUT = new SimpleAttributeDefinitionBuilder(ModelConstants.CHANGESET_TIMEOUT, ModelType.INT)
+        .addFlag(AttributeAccess.Flag.RESTART_RESOURCE_SERVICES)
+        .setAllowExpression(true)
+        .setMeasurementUnit(MeasurementUnit.SECONDS)
+        .setRequired(false)
+        .setValidator(new IntRangeValidator(1, true, true))
+        .build();
+
+    public static final SimpleAttributeDefinition BATCH_SIZE = new SimpleAttributeDefinitionBuilder(ModelConstants.BATCH_SIZE, ModelType.INT)
+        .addFlag(AttributeAccess.Flag.RESTART_RESOURCE_SERVICES)
+        .setAllowExpression(true)
+        .setRequired(false)
+        .setValidator(new IntRangeValidator(1, true, true))
+        .build();
+
+    public static final SimpleAttributeDefinition TRANSACTION_GROUP_SIZE = new SimpleAttributeDefinitionBuilder(ModelConstants.TRANSACTION_GROUP_SIZE, ModelType.INT)
+        .addFlag(AttributeAccess.Flag.RESTART_RESOURCE_SERVICES)
+        .setAllowExpression(true)
+        .setRequired(false)
+        .setValidator(new IntRangeValidator(1, true, true))
+        .build();
+
+    public static final SimpleAttributeDefinition BASELINE = new SimpleAttributeDefinitionBuilder(ModelConstants.BASELINE, ModelType.STRING)
+        .addFlag(AttributeAccess.Flag.RESTART_RESOURCE_SERVICES)
+        .setAllowExpression(true)
+        .setRequired(false)
+        .build();
+
+    public static final SimpleAttributeDefinition HISTORY_INDEX = new SimpleAttributeDefinitionBuilder(ModelConstants.HISTORY_INDEX, ModelType.BOOLEAN)
+        .addFlag(AttributeAccess.Flag.RESTART_RESOURCE_SERVICES)
+        .setAllowExpression(true)
+        .setRequired(false)
+        .build();
+
+    public static final SimpleAttributeDefinition MIGRATION_DATASOURCE = new SimpleAttributeDefinitionBuilder(ModelConstants.MIGRATION_DATASOURCE, ModelType.STRING)
+        .addFlag(AttributeAccess.Flag.RESTART_RESOURCE_SERVICES)
+        .setAllowExpression(true)
+        .setRequired(false)
+        .build();
+
     public static final SimpleAttributeDefinition VALUE = new SimpleAttributeDefinitionBuilder(ModelConstants.VALUE, ModelType.STRING)
         .addFlag(AttributeAccess.Flag.RESTART_NONE)
         .setAllowExpression(false)
         .build();
 
+    public static final ObjectListAttributeDefinition DATASOURCE_STATUS = ObjectListAttributeDefinition.Builder.of(ModelConstants.DATASOURCE_STATUS,
+        ObjectTypeAttributeDefinition.Builder.of(ModelConstants.DATASOURCE_STATUS,
+            new SimpleAttributeDefinitionBuilder(ModelConstants.DATASOURCE, ModelType.STRING).build(),
+            new SimpleAttributeDefinitionBuilder(ModelConstants.STATE, ModelType.STRING).build(),
+            new SimpleAttributeDefinitionBuilder(ModelConstants.DURATION, ModelType.LONG).setRequired(false).build(),
+            new SimpleAttributeDefinitionBuilder(ModelConstants.FAILURE, ModelType.STRING).setRequired(false).build())
+            .build())
+        .setStorageRuntime()
+        .setRequired(false)
+        .build();
+
+    public static final ObjectListAttributeDefinition CHANGESET_EXECUTIONS = ObjectListAttributeDefinition.Builder.of(ModelConstants.CHANGESET_EXECUTIONS,
+        ObjectTypeAttributeDefinition.Builder.of(ModelConstants.CHANGESET_EXECUTIONS,
+            new SimpleAttributeDefinitionBuilder(ModelConstants.ID, ModelType.STRING).build(),
+            new SimpleAttributeDefinitionBuilder(ModelConstants.AUTHOR, ModelType.STRING).build(),
+            new SimpleAttributeDefinitionBuilder(ModelConstants.FILENAME, ModelType.STRING).build(),
+            new SimpleAttributeDefinitionBuilder(ModelConstants.DATASOURCE, ModelType.STRING).build(),
+            new SimpleAttributeDefinitionBuilder(ModelConstants.EXEC_TYPE, ModelType.STRING).build(),
+            new SimpleAttributeDefinitionBuilder(ModelConstants.TIMESTAMP, ModelType.LONG).build(),
+            new SimpleAttributeDefinitionBuilder(ModelConstants.DURATION, ModelType.LONG).build(),
+            new SimpleAttributeDefinitionBuilder(ModelConstants.STATEMENTS, ModelType.INT).build(),
+            new SimpleAttributeDefinitionBuilder(ModelConstants.ROWS_AFFECTED, ModelType.INT).build())
+            .build())
+        .setStorageRuntime()
+        .setRequired(false)
+        .build();
+
+    static final SimpleOperationDefinition CLEAR_CHANGESET_EXECUTIONS = new SimpleOperationDefinitionBuilder(ModelConstants.CLEAR_CHANGESET_EXECUTIONS,
+        LiquibaseResourceDescriptionResolvers.getResolver(ModelConstants.DATABASE_CHANGELOG))
+        .setRuntimeOnly()
+        .build();
+
     ChangeLogResource() {
         super(CHANGE_LOG_PATH,
           LiquibaseResourceDescriptionResolvers.getResolver(ModelConstants.DATABASE_CHANGELOG),
@@ -87,6 +180,33 @@ public final class ChangeLogResource extends SimpleResourceDefinition {
         resourceRegistration.registerReadWriteAttribute(HOST_EXCLUDES, null, ChangeLogWrite.INSTANCE);
         resourceRegistration.registerReadWriteAttribute(HOST_INCLUDES, null, ChangeLogWrite.INSTANCE);
         resourceRegistration.registerReadWriteAttribute(LABELS, null, ChangeLogWrite.INSTANCE);
+        resourceRegistration.registerReadWriteAttribute(PARALLELISM, null, ChangeLogWrite.INSTANCE);
+        resourceRegistration.registerReadWriteAttribute(TIMEOUT, null, ChangeLogWrite.INSTANCE);
+        resourceRegistration.registerReadWriteAttribute(CHANGESET_TIMEOUT, null, ChangeLogWrite.INSTANCE);
+        resourceRegistration.registerReadWriteAttribute(BATCH_SIZE, null, ChangeLogWrite.INSTANCE);
+        resourceRegistration.registerReadWriteAttribute(TRANSACTION_GROUP_SIZE, null, ChangeLogWrite.INSTANCE);
+        resourceRegistration.registerReadWriteAttribute(BASELINE, null, ChangeLogWrite.INSTANCE);
+        resourceRegistration.registerReadWriteAttribute(HISTORY_INDEX, null, ChangeLogWrite.INSTANCE);
+        resourceRegistration.registerReadWriteAttribute(MIGRATION_DATASOURCE, null, ChangeLogWrite.INSTANCE);
         resourceRegistration.registerReadWriteAttribute(VALUE, null, ChangeLogWrite.INSTANCE);
+        resourceRegistration.registerReadOnlyAttribute(DATASOURCE_STATUS, ChangeLogStatusHandler.INSTANCE);
+        resourceRegistration.registerReadOnlyAttribute(CHANGESET_EXECUTIONS, ChangeSetExecutionsHandler.INSTANCE);
+        ChangeLogMetricsHandler.registerMetrics(resourceRegistration, ChangeLogMetricsHandler.CHANGE_LOG_METRICS);
+    }
+
+    @Override
+    public void registerOperations(ManagementResourceRegistration resourceRegistration) {
+        super.registerOperations(resourceRegistration);
+        resourceRegistration.registerOperationHandler(CLEAR_CHANGESET_EXECUTIONS, ChangeSetExecutionsClearHandler.INSTANCE);
+        resourceRegistration.registerOperationHandler(ChangeLogCancelHandler.DEFINITION, ChangeLogCancelHandler.INSTANCE);
+        resourceRegistration.registerOperationHandler(BaselineGenerateHandler.DEFINITION, BaselineGenerateHandler.INSTANCE);
+        resourceRegistration.registerOperationHandler(ChangeLogHistoryArchiveHandler.DEFINITION, ChangeLogHistoryArchiveHandler.INSTANCE);
+        resourceRegistration.registerOperationHandler(PendingChangeSetsHandler.DEFINITION, PendingChangeSetsHandler.INSTANCE);
+        resourceRegistration.registerOperationHandler(UpdateSqlHandler.DEFINITION, UpdateSqlHandler.INSTANCE);
+    }
+
+    @Override
+    public void registerChildren(ManagementResourceRegistration resourceRegistration) {
+        resourceRegistration.registerSubModel(new DataSourceMetricsResource());
     }
 }
@@ -0,0 +1,62 @@
+/*-
+ * #%L
+ * wildfly-liquibase-subsystem
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase;
+
+import com.github.jamesnetherton.extension.liquibase.service.ChangeLogExecutionService;
+import com.github.jamesnetherton.extension.liquibase.service.ChangeLogModelService;
+import com.github.jamesnetherton.extension.liquibase.service.DataSourceExecutionStatus;
+import com.github.jamesnetherton.extension.liquibase.service.ServiceHelper;
+import org.jboss.as.controller.AbstractRuntimeOnlyHandler;
+import org.jboss.as.controller.OperationContext;
+import org.jboss.as.controller.OperationFailedException;
+import org.jboss.dmr.ModelNode;
+
+/**
+ * Reads the per datasource execution status of a change log from its {@link ChangeLogExecutionService}.
+ */
+final class ChangeLogStatusHandler extends AbstractRuntimeOnlyHandler {
+
+    static final ChangeLogStatusHandler INSTANCE = new ChangeLogStatusHandler();
+
+    private ChangeLogStatusHandler() {
+    }
+
+    @Override
+    protected void executeRuntimeStep(OperationContext context, ModelNode operation) throws OperationFailedException {
+        ChangeLogModelService service = ServiceHelper.getChangeLogModelUpdateService(context);
+        ChangeLogExecutionService executionService = service.getExecutionService(context.getCurrentAddressValue());
+
+        ModelNode result = context.getResult().setEmptyList();
+        if (executionService != null) {
+            for (DataSourceExecutionStatus status : executionService.getDataSourceStatus()) {
+                ModelNode node = new ModelNode();
+                node.get(ModelConstants.DATASOURCE).set(status.getDataSource());
+                node.get(ModelConstants.STATE).set(status.getState().toString());
+                if (status.getDuration() >= 0) {
+                    node.get(ModelConstants.DURATION).set(status.getDuration());
+                }
+                if (status.getFailure() != null) {
+                    node.get(ModelConstants.FAILURE).set(status.getFailure());
+                }
+                result.add(node);
+            }
+        }
+    }
+}
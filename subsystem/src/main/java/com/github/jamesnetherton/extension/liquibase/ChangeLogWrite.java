@@ -24,6 +24,8 @@ import com.github.jamesnetherton.extension.liquibase.service.ServiceHelper;
 import org.jboss.as.controller.AbstractWriteAttributeHandler;
 import org.jboss.as.controller.OperationContext;
 import org.jboss.as.controller.OperationFailedException;
+import org.jboss.as.controller.descriptions.ModelDescriptionConstants;
+import org.jboss.as.controller.registry.Resource;
 import org.jboss.dmr.ModelNode;
 
 final class ChangeLogWrite extends AbstractWriteAttributeHandler<Object> {
@@ -38,10 +40,28 @@ final class ChangeLogWrite extends AbstractWriteAttributeHandler<Object> {
             ChangeLogResource.HOST_EXCLUDES,
             ChangeLogResource.HOST_INCLUDES,
             ChangeLogResource.LABELS,
+            ChangeLogResource.PARALLELISM,
+            ChangeLogResource.TIMEOUT,
+            ChangeLogResource.CHANGESET_TIMEOUT,
+            ChangeLogResource.BATCH_SIZE,
+            ChangeLogResource.TRANSACTION_GROUP_SIZE,
+            ChangeLogResource.BASELINE,
+            ChangeLogResource.HISTORY_INDEX,
+            ChangeLogResource.MIGRATION_DATASOURCE,
             ChangeLogResource.VALUE
         );
     }
 
+    @Override
+    protected void finishModelStage(OperationContext context, ModelNode operation, String attributeName, ModelNode newValue, ModelNode oldValue,
+            Resource model) throws OperationFailedException {
+        super.finishModelStage(context, operation, attributeName, newValue, oldValue, model);
+        if (attributeName.equals(ModelConstants.DATASOURCE)) {
+            String dataSource = ChangeLogResource.DATASOURCE.resolveModelAttribute(context, model.getModel()).asString();
+            DataSourceMetricsResource.registerDataSources(model, dataSource);
+        }
+    }
+
     @Override
     protected boolean applyUpdateToRuntime(OperationContext context, ModelNode operation, String attributeName, ModelNode resolvedValue, ModelNode currentValue,
             HandbackHolder<Object> handbackHolder) throws OperationFailedException {
@@ -56,7 +76,10 @@ final class ChangeLogWrite extends AbstractWriteAttributeHandler<Object> {
     }
 
     private void updateRuntime(OperationContext context, ModelNode operation, ModelNode future, ModelNode current) throws OperationFailedException {
+        // Reverting passes the value to restore, which is not the value of the operation
+        ModelNode update = operation.clone();
+        update.get(ModelDescriptionConstants.VALUE).set(future);
         ChangeLogModelService service = ServiceHelper.getChangeLogModelUpdateService(context);
-        service.updateChangeLogModel(context, operation);
+        service.updateChangeLogModel(context, update);
     }
 }
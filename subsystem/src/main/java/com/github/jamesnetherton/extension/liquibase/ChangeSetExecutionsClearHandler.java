@@ -0,0 +1,48 @@
+/*-
+ * #%L
+ * wildfly-liquibase-subsystem
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase;
+
+import com.github.jamesnetherton.extension.liquibase.service.ChangeLogExecutionService;
+import com.github.jamesnetherton.extension.liquibase.service.ChangeLogModelService;
+import com.github.jamesnetherton.extension.liquibase.service.ServiceHelper;
+import org.jboss.as.controller.AbstractRuntimeOnlyHandler;
+import org.jboss.as.controller.OperationContext;
+import org.jboss.as.controller.OperationFailedException;
+import org.jboss.dmr.ModelNode;
+
+/**
+ * Discards the change set executions recorded by a {@link ChangeLogExecutionService}.
+ */
+final class ChangeSetExecutionsClearHandler extends AbstractRuntimeOnlyHandler {
+
+    static final ChangeSetExecutionsClearHandler INSTANCE = new ChangeSetExecutionsClearHandler();
+
+    private ChangeSetExecutionsClearHandler() {
+    }
+
+    @Override
+    protected void executeRuntimeStep(OperationContext context, ModelNode operation) throws OperationFailedException {
+        ChangeLogModelService service = ServiceHelper.getChangeLogModelUpdateService(context);
+        ChangeLogExecutionService executionService = service.getExecutionService(context.getCurrentAddressValue());
+        if (executionService != null) {
+            executionService.getChangeSetExecutionHistory().clear();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*-
+ * #%L
+ * wildfly-liquibase-subsystem
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase;
+
+import org.jboss.as.controller.PathElement;
+import org.jboss.as.controller.SimpleResourceDefinition;
+import org.jboss.as.controller.registry.ManagementResourceRegistration;
+import org.jboss.as.controller.registry.Resource;
+
+/**
+ * Runtime resource exposing the execution metrics of a change log for one of its target datasources.
+ */
+final class DataSourceMetricsResource extends SimpleResourceDefinition {
+
+    static final PathElement DATASOURCE_PATH = PathElement.pathElement(ModelConstants.DATASOURCE);
+    private static final String DATASOURCE_METRICS = "datasource-metrics";
+
+    DataSourceMetricsResource() {
+        super(new Parameters(DATASOURCE_PATH, LiquibaseResourceDescriptionResolvers.getResolver(DATASOURCE_METRICS))
+            .setRuntime());
+    }
+
+    /**
+     * Replaces the datasource children of a change log resource with one for each datasource in the given comma separated list.
+     */
+    static void registerDataSources(Resource changeLogResource, String dataSourceList) {
+        for (String dataSource : changeLogResource.getChildrenNames(ModelConstants.DATASOURCE)) {
+            changeLogResource.removeChild(PathElement.pathElement(ModelConstants.DATASOURCE, dataSource));
+        }
+        for (String dataSource : ChangeLogConfiguration.parseDataSources(dataSourceList)) {
+            changeLogResource.registerChild(PathElement.pathElement(ModelConstants.DATASOURCE, dataSource), Resource.Factory.create(true));
+        }
+    }
+
+    @Override
+    public void registerAttributes(ManagementResourceRegistration resourceRegistration) {
+        ChangeLogMetricsHandler.registerMetrics(resourceRegistration, ChangeLogMetricsHandler.DATASOURCE_METRICS);
+    }
+}
@@ -0,0 +1,62 @@
+/*-
+ * #%L
+ * wildfly-liquibase-subsystem
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase;
+
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.DEPLOYMENT;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.SUBDEPLOYMENT;
+
+import com.github.jamesnetherton.extension.liquibase.service.ChangeLogExecutionService;
+import com.github.jamesnetherton.extension.liquibase.service.ChangeLogModelService;
+import com.github.jamesnetherton.extension.liquibase.service.ServiceHelper;
+import org.jboss.as.controller.OperationContext;
+import org.jboss.as.controller.PathAddress;
+import org.jboss.as.controller.PathElement;
+
+/**
+ * Locates the {@link ChangeLogExecutionService} backing a subsystem or deployment change log resource.
+ */
+final class ExecutionServiceLocator {
+
+    private ExecutionServiceLocator() {
+    }
+
+    /**
+     * @return the execution service of the change log at the given address, or null if it has not been installed
+     */
+    static ChangeLogExecutionService locate(OperationContext context, PathAddress changeLogAddress) {
+        ChangeLogModelService service = ServiceHelper.getChangeLogModelUpdateService(context);
+        return service.getExecutionService(getRuntimeName(changeLogAddress));
+    }
+
+    /**
+     * Subsystem change logs are registered under their resource name. Deployment change logs are registered under
+     * their name qualified by the name of the deployment unit that contains them.
+     */
+    private static String getRuntimeName(PathAddress changeLogAddress) {
+        String changeLogName = changeLogAddress.getLastElement().getValue();
+        String deploymentName = null;
+        for (PathElement element : changeLogAddress) {
+            if (element.getKey().equals(DEPLOYMENT) || element.getKey().equals(SUBDEPLOYMENT)) {
+                deploymentName = element.getValue();
+            }
+        }
+        return deploymentName != null ? String.format("%s.%s", changeLogName, deploymentName) : changeLogName;
+    }
+}
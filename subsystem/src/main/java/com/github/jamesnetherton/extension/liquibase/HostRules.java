@@ -0,0 +1,183 @@
+/*-
+ * #%L
+ * wildfly-liquibase-subsystem
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.BiPredicate;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import java.util.stream.Collectors;
+import liquibase.util.NetUtil;
+
+/**
+ * The compiled host-includes and host-excludes rules of a change log, which decide whether this server applies it.
+ * Both are comma separated lists of rules, each of which is one of:
+ *
+ * <ul>
+ *     <li>A host name, matched ignoring case</li>
+ *     <li>A glob pattern where {@code *} matches any characters and {@code ?} a single character, such as {@code app-*.example.com}</li>
+ *     <li>{@code regex:} followed by a regular expression that must match the whole host name, ignoring case</li>
+ *     <li>{@code role:} followed by a role name, matching servers that list the role in the {@value #ROLES_PROPERTY} system property</li>
+ * </ul>
+ *
+ * If any include rules are configured, the change log is only applied by servers matching one of them and exclude
+ * rules are ignored. Otherwise it is applied by every server not matching an exclude rule.
+ */
+public final class HostRules {
+
+    public static final String ROLES_PROPERTY = "wildfly.liquibase.host.roles";
+
+    private static final HostRules NONE = new HostRules(Collections.emptyList(), Collections.emptyList());
+    private static final String REGEX_PREFIX = "regex:";
+    private static final String ROLE_PREFIX = "role:";
+
+    private static volatile String localHostName;
+
+    private final List<BiPredicate<String, Set<String>>> includes;
+    private final List<BiPredicate<String, Set<String>>> excludes;
+
+    private HostRules(List<BiPredicate<String, Set<String>>> includes, List<BiPredicate<String, Set<String>>> excludes) {
+        this.includes = includes;
+        this.excludes = excludes;
+    }
+
+    /**
+     * @throws IllegalStateException if a rule is not valid
+     */
+    public static HostRules compile(String hostIncludes, String hostExcludes) {
+        List<BiPredicate<String, Set<String>>> includes = compile(hostIncludes);
+        List<BiPredicate<String, Set<String>>> excludes = compile(hostExcludes);
+        if (includes.isEmpty() && excludes.isEmpty()) {
+            return NONE;
+        }
+        return new HostRules(includes, excludes);
+    }
+
+    /**
+     * @return true if no rules are configured, in which case every server applies the change log
+     */
+    public boolean isEmpty() {
+        return includes.isEmpty() && excludes.isEmpty();
+    }
+
+    /**
+     * @return true if this server applies the change log
+     */
+    public boolean matchesLocalHost() {
+        if (isEmpty()) {
+            return true;
+        }
+        return matches(getLocalHostName(), getLocalRoles());
+    }
+
+    boolean matches(String hostName, Set<String> roles) {
+        if (!includes.isEmpty()) {
+            return includes.stream().anyMatch(rule -> rule.test(hostName, roles));
+        }
+        return excludes.stream().noneMatch(rule -> rule.test(hostName, roles));
+    }
+
+    /**
+     * The host name is looked up once, as resolving it can be slow. Roles are read on every call so that changes to
+     * the system property take effect for the next change log execution.
+     */
+    private static String getLocalHostName() {
+        String hostName = localHostName;
+        if (hostName == null) {
+            hostName = NetUtil.getLocalHostName();
+            localHostName = hostName;
+        }
+        return hostName;
+    }
+
+    private static Set<String> getLocalRoles() {
+        return parseList(System.getProperty(ROLES_PROPERTY))
+            .stream()
+            .map(role -> role.toLowerCase(Locale.ROOT))
+            .collect(Collectors.toSet());
+    }
+
+    private static List<BiPredicate<String, Set<String>>> compile(String rules) {
+        List<BiPredicate<String, Set<String>>> predicates = new ArrayList<>();
+        for (String rule : parseList(rules)) {
+            predicates.add(compileRule(rule));
+        }
+        return predicates;
+    }
+
+    private static BiPredicate<String, Set<String>> compileRule(String rule) {
+        if (rule.startsWith(ROLE_PREFIX)) {
+            String role = rule.substring(ROLE_PREFIX.length()).trim().toLowerCase(Locale.ROOT);
+            if (role.isEmpty()) {
+                throw new IllegalStateException("Host rule " + rule + " does not specify a role");
+            }
+            return (hostName, roles) -> roles.contains(role);
+        }
+
+        Pattern pattern;
+        if (rule.startsWith(REGEX_PREFIX)) {
+            try {
+                pattern = Pattern.compile(rule.substring(REGEX_PREFIX.length()), Pattern.CASE_INSENSITIVE);
+            } catch (PatternSyntaxException e) {
+                throw new IllegalStateException("Host rule " + rule + " is not a valid regular expression: " + e.getDescription());
+            }
+        } else if (rule.indexOf('*') >= 0 || rule.indexOf('?') >= 0) {
+            pattern = Pattern.compile(globToRegex(rule), Pattern.CASE_INSENSITIVE);
+        } else {
+            return (hostName, roles) -> rule.equalsIgnoreCase(hostName);
+        }
+        return (hostName, roles) -> hostName != null && pattern.matcher(hostName).matches();
+    }
+
+    private static String globToRegex(String glob) {
+        StringBuilder regex = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+        for (char c : glob.toCharArray()) {
+            if (c == '*' || c == '?') {
+                if (literal.length() > 0) {
+                    regex.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+                regex.append(c == '*' ? ".*" : ".");
+            } else {
+                literal.append(c);
+            }
+        }
+        if (literal.length() > 0) {
+            regex.append(Pattern.quote(literal.toString()));
+        }
+        return regex.toString();
+    }
+
+    private static List<String> parseList(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return Collections.emptyList();
+        }
+        return Arrays.stream(value.split(","))
+            .map(String::trim)
+            .filter(item -> !item.isEmpty())
+            .collect(Collectors.toList());
+    }
+}
@@ -22,6 +22,7 @@ package com.github.jamesnetherton.extension.liquibase;
 import com.github.jamesnetherton.extension.liquibase.ChangeLogConfiguration.BuilderCollection;
 import org.jboss.as.server.deployment.AttachmentKey;
 import org.jboss.as.server.deployment.AttachmentList;
+import org.jboss.msc.service.ServiceName;
 
 public interface LiquibaseConstants {
 
@@ -35,6 +36,18 @@ public interface LiquibaseConstants {
      */
     AttachmentKey<BuilderCollection> LIQUIBASE_CHANGELOG_BUILDERS = AttachmentKey.create(BuilderCollection.class);
 
+    /**
+     * AttachmentList containing the names of the change log execution services installed for a deployment and its
+     * subdeployments. It is attached to the top level deployment unit
+     */
+    AttachmentKey<AttachmentList<ServiceName>> LIQUIBASE_EXECUTION_SERVICES = AttachmentKey.createList(ServiceName.class);
+
+    /**
+     * AttachmentList containing the names of the deferred change logs of a deployment and its subdeployments. It is
+     * attached to the top level deployment unit
+     */
+    AttachmentKey<AttachmentList<String>> LIQUIBASE_DEFERRED_CHANGELOGS = AttachmentKey.createList(String.class);
+
     /**
      * Attachment denoting whether the Liquibase subsystem was activated for a given deployment
      */
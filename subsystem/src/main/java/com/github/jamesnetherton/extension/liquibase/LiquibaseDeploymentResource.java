@@ -0,0 +1,73 @@
+/*-
+ * #%L
+ * wildfly-liquibase-subsystem
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase;
+
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.DEPLOYMENT;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.SUBSYSTEM;
+
+import org.jboss.as.controller.PathElement;
+import org.jboss.as.controller.SimpleResourceDefinition;
+import org.jboss.as.controller.registry.ManagementResourceRegistration;
+
+/**
+ * Runtime resource registered beneath deployments that contain Liquibase change logs.
+ */
+final class LiquibaseDeploymentResource extends SimpleResourceDefinition {
+
+    private static final PathElement SUBSYSTEM_PATH = PathElement.pathElement(SUBSYSTEM, LiquibaseExtension.SUBSYSTEM_NAME);
+
+    LiquibaseDeploymentResource() {
+        super(new Parameters(SUBSYSTEM_PATH, LiquibaseResourceDescriptionResolvers.getResolver(DEPLOYMENT))
+            .setRuntime());
+    }
+
+    @Override
+    public void registerChildren(ManagementResourceRegistration resourceRegistration) {
+        resourceRegistration.registerSubModel(new ChangeLogDeploymentResource());
+    }
+
+    private static final class ChangeLogDeploymentResource extends SimpleResourceDefinition {
+
+        ChangeLogDeploymentResource() {
+            super(new Parameters(ChangeLogResource.CHANGE_LOG_PATH, LiquibaseResourceDescriptionResolvers.getResolver(ModelConstants.DATABASE_CHANGELOG))
+                .setRuntime());
+        }
+
+        @Override
+        public void registerAttributes(ManagementResourceRegistration resourceRegistration) {
+            ChangeLogMetricsHandler.registerMetrics(resourceRegistration, ChangeLogMetricsHandler.CHANGE_LOG_METRICS);
+        }
+
+        @Override
+        public void registerOperations(ManagementResourceRegistration resourceRegistration) {
+            super.registerOperations(resourceRegistration);
+            resourceRegistration.registerOperationHandler(ChangeLogCancelHandler.DEFINITION, ChangeLogCancelHandler.INSTANCE);
+            resourceRegistration.registerOperationHandler(BaselineGenerateHandler.DEFINITION, BaselineGenerateHandler.INSTANCE);
+            resourceRegistration.registerOperationHandler(ChangeLogHistoryArchiveHandler.DEFINITION, ChangeLogHistoryArchiveHandler.INSTANCE);
+            resourceRegistration.registerOperationHandler(PendingChangeSetsHandler.DEFINITION, PendingChangeSetsHandler.INSTANCE);
+            resourceRegistration.registerOperationHandler(UpdateSqlHandler.DEFINITION, UpdateSqlHandler.INSTANCE);
+        }
+
+        @Override
+        public void registerChildren(ManagementResourceRegistration resourceRegistration) {
+            resourceRegistration.registerSubModel(new DataSourceMetricsResource());
+        }
+    }
+}
@@ -30,13 +30,14 @@ public final class LiquibaseExtension implements Extension {
     public static final String SUBSYSTEM_NAME = "liquibase";
 
     private static final int API_MAJOR_VERSION = 1;
-    private static final int API_MINOR_VERSION = 0;
+    private static final int API_MINOR_VERSION = 1;
     private static final int API_MICRO_VERSION = 0;
 
 
     @Override
     public void initializeParsers(ExtensionParsingContext context) {
         context.setSubsystemXmlMapping(SUBSYSTEM_NAME, Namespace.VERSION_1_0.getUriString(), LiquibaseSubsystemParser.INSTANCE);
+        context.setSubsystemXmlMapping(SUBSYSTEM_NAME, Namespace.VERSION_1_1.getUriString(), LiquibaseSubsystemParser.INSTANCE);
     }
 
     @Override
@@ -44,6 +45,7 @@ public final class LiquibaseExtension implements Extension {
         ModelVersion modelVersion = ModelVersion.create(API_MAJOR_VERSION, API_MINOR_VERSION, API_MICRO_VERSION);
         SubsystemRegistration subsystem = context.registerSubsystem(SUBSYSTEM_NAME, modelVersion);
         subsystem.registerSubsystemModel(new LiquibaseRootResource());
+        subsystem.registerDeploymentModel(new LiquibaseDeploymentResource());
         subsystem.registerXMLElementWriter(LiquibaseSubsystemWriter.INSTANCE);
     }
 
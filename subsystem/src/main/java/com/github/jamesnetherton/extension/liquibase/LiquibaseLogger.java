@@ -27,4 +27,7 @@ public interface LiquibaseLogger {
 
     String MESSAGE_DUPLICATE_DATASOURCE = "Multiple change log definitions for datasource '%s' detected. "
             + "Concurrent change log executions on the same datasource must be avoided as the execution order is non-deterministic.";
+
+    String MESSAGE_DEFERRED_SCHEMA_DEPENDENCY = "Deferred change logs %s do not hold back the components which use the schema as they start, "
+            + "such as %s. Use the sync or async execution mode for change logs of deployments with such components.";
 }
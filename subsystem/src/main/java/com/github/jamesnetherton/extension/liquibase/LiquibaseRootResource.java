@@ -21,20 +21,114 @@ package com.github.jamesnetherton.extension.liquibase;
 
 import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.SUBSYSTEM;
 
+import com.github.jamesnetherton.extension.liquibase.service.ExecutionSettings;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import org.jboss.as.controller.AttributeDefinition;
 import org.jboss.as.controller.PathElement;
 import org.jboss.as.controller.ReloadRequiredRemoveStepHandler;
+import org.jboss.as.controller.ReloadRequiredWriteAttributeHandler;
+import org.jboss.as.controller.SimpleAttributeDefinition;
+import org.jboss.as.controller.SimpleAttributeDefinitionBuilder;
 import org.jboss.as.controller.SimpleResourceDefinition;
+import org.jboss.as.controller.client.helpers.MeasurementUnit;
 import org.jboss.as.controller.descriptions.ResourceDescriptionResolver;
 import org.jboss.as.controller.operations.common.GenericSubsystemDescribeHandler;
+import org.jboss.as.controller.operations.validation.EnumValidator;
+import org.jboss.as.controller.operations.validation.IntRangeValidator;
+import org.jboss.as.controller.registry.AttributeAccess;
 import org.jboss.as.controller.registry.ManagementResourceRegistration;
+import org.jboss.dmr.ModelNode;
+import org.jboss.dmr.ModelType;
 
 final class LiquibaseRootResource extends SimpleResourceDefinition {
 
     private static final PathElement SUBSYSTEM_PATH = PathElement.pathElement(SUBSYSTEM, LiquibaseExtension.SUBSYSTEM_NAME);
     private static final ResourceDescriptionResolver RESOLVER = LiquibaseResourceDescriptionResolvers.getResolver(LiquibaseExtension.SUBSYSTEM_NAME);
 
+    static final SimpleAttributeDefinition EXECUTOR_THREADS = new SimpleAttributeDefinitionBuilder(ModelConstants.EXECUTOR_THREADS, ModelType.INT)
+        .addFlag(AttributeAccess.Flag.RESTART_ALL_SERVICES)
+        .setAllowExpression(true)
+        .setRequired(false)
+        .setValidator(new IntRangeValidator(1, true, true))
+        .build();
+
+    static final SimpleAttributeDefinition VIRTUAL_THREADS = new SimpleAttributeDefinitionBuilder(ModelConstants.VIRTUAL_THREADS, ModelType.BOOLEAN)
+        .addFlag(AttributeAccess.Flag.RESTART_ALL_SERVICES)
+        .setAllowExpression(true)
+        .setRequired(false)
+        .setDefaultValue(ModelNode.FALSE)
+        .build();
+
+    static final SimpleAttributeDefinition LOCK_RECHECK_INTERVAL = new SimpleAttributeDefinitionBuilder(ModelConstants.LOCK_RECHECK_INTERVAL, ModelType.INT)
+        .addFlag(AttributeAccess.Flag.RESTART_ALL_SERVICES)
+        .setAllowExpression(true)
+        .setMeasurementUnit(MeasurementUnit.SECONDS)
+        .setRequired(false)
+        .setValidator(new IntRangeValidator(1, true, true))
+        .build();
+
+    static final SimpleAttributeDefinition LOCK_WAIT_TIMEOUT = new SimpleAttributeDefinitionBuilder(ModelConstants.LOCK_WAIT_TIMEOUT, ModelType.INT)
+        .addFlag(AttributeAccess.Flag.RESTART_ALL_SERVICES)
+        .setAllowExpression(true)
+        .setMeasurementUnit(MeasurementUnit.MINUTES)
+        .setRequired(false)
+        .setValidator(new IntRangeValidator(1, true, true))
+        .build();
+
+    static final SimpleAttributeDefinition MIGRATION_LEASE_DURATION = new SimpleAttributeDefinitionBuilder(ModelConstants.MIGRATION_LEASE_DURATION, ModelType.INT)
+        .addFlag(AttributeAccess.Flag.RESTART_ALL_SERVICES)
+        .setAllowExpression(true)
+        .setMeasurementUnit(MeasurementUnit.SECONDS)
+        .setRequired(false)
+        .setValidator(new IntRangeValidator(1, true, true))
+        .build();
+
+    static final SimpleAttributeDefinition HISTORY_CACHE_SIZE = new SimpleAttributeDefinitionBuilder(ModelConstants.HISTORY_CACHE_SIZE, ModelType.INT)
+        .addFlag(AttributeAccess.Flag.RESTART_ALL_SERVICES)
+        .setAllowExpression(true)
+        .setRequired(false)
+        .setDefaultValue(new ModelNode(32))
+        .setValidator(new IntRangeValidator(0, true, true))
+        .build();
+
+    static final SimpleAttributeDefinition CHANGELOG_POOL_SIZE = new SimpleAttributeDefinitionBuilder(ModelConstants.CHANGELOG_POOL_SIZE, ModelType.INT)
+        .addFlag(AttributeAccess.Flag.RESTART_ALL_SERVICES)
+        .setAllowExpression(true)
+        .setRequired(false)
+        .setValidator(new IntRangeValidator(1, true, true))
+        .build();
+
+    static final SimpleAttributeDefinition SKIP_MODE = new SimpleAttributeDefinitionBuilder(ModelConstants.SKIP_MODE, ModelType.STRING)
+        .addFlag(AttributeAccess.Flag.RESTART_ALL_SERVICES)
+        .setAllowExpression(true)
+        .setRequired(false)
+        .setDefaultValue(new ModelNode(ExecutionSettings.SkipMode.PENDING.toString()))
+        .setValidator(EnumValidator.create(ExecutionSettings.SkipMode.class))
+        .build();
+
+    static final SimpleAttributeDefinition STATISTICS_ENABLED = new SimpleAttributeDefinitionBuilder(ModelConstants.STATISTICS_ENABLED, ModelType.BOOLEAN)
+        .addFlag(AttributeAccess.Flag.RESTART_ALL_SERVICES)
+        .setAllowExpression(true)
+        .setRequired(false)
+        .setDefaultValue(ModelNode.TRUE)
+        .build();
+
+    static final Collection<AttributeDefinition> ATTRIBUTES = Collections.unmodifiableList(Arrays.asList(EXECUTOR_THREADS, VIRTUAL_THREADS,
+        LOCK_RECHECK_INTERVAL, LOCK_WAIT_TIMEOUT, MIGRATION_LEASE_DURATION, HISTORY_CACHE_SIZE, CHANGELOG_POOL_SIZE, SKIP_MODE, STATISTICS_ENABLED));
+
     LiquibaseRootResource() {
-        super(SUBSYSTEM_PATH, RESOLVER, new LiquibaseSubsystemAdd(), ReloadRequiredRemoveStepHandler.INSTANCE);
+        super(new Parameters(SUBSYSTEM_PATH, RESOLVER)
+            .setAddHandler(new LiquibaseSubsystemAdd())
+            .setRemoveHandler(ReloadRequiredRemoveStepHandler.INSTANCE));
+    }
+
+    @Override
+    public void registerAttributes(ManagementResourceRegistration resourceRegistration) {
+        for (AttributeDefinition attribute : ATTRIBUTES) {
+            resourceRegistration.registerReadWriteAttribute(attribute, null, ReloadRequiredWriteAttributeHandler.INSTANCE);
+        }
     }
 
     @Override
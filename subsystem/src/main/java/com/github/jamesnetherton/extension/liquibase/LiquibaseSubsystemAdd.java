@@ -19,17 +19,29 @@
  */
 package com.github.jamesnetherton.extension.liquibase;
 
+import com.github.jamesnetherton.extension.liquibase.change.BatchedLoadDataChange;
 import com.github.jamesnetherton.extension.liquibase.deployment.LiquibaseCdiAnnotationProcessor;
+import com.github.jamesnetherton.extension.liquibase.deployment.LiquibaseCdiExtensionProcessor;
 import com.github.jamesnetherton.extension.liquibase.deployment.LiquibaseChangeLogExecutionProcessor;
 import com.github.jamesnetherton.extension.liquibase.deployment.LiquibaseChangeLogParseProcessor;
+import com.github.jamesnetherton.extension.liquibase.deployment.LiquibaseComponentDependencyProcessor;
 import com.github.jamesnetherton.extension.liquibase.deployment.LiquibaseDependenciesProcessor;
 import com.github.jamesnetherton.extension.liquibase.deployment.LiquibaseJBossAllParser;
 import com.github.jamesnetherton.extension.liquibase.scope.WildFlyScopeManager;
+import com.github.jamesnetherton.extension.liquibase.service.CachingChangeLogHistoryService;
 import com.github.jamesnetherton.extension.liquibase.service.ChangeLogConfigurationRegistryService;
 import com.github.jamesnetherton.extension.liquibase.service.ChangeLogModelService;
+import com.github.jamesnetherton.extension.liquibase.service.ExecutionScheduler;
+import com.github.jamesnetherton.extension.liquibase.service.ExecutionSettings;
+import com.github.jamesnetherton.extension.liquibase.precondition.CachedColumnExistsPrecondition;
+import com.github.jamesnetherton.extension.liquibase.precondition.CachedIndexExistsPrecondition;
+import com.github.jamesnetherton.extension.liquibase.precondition.CachedTableExistsPrecondition;
 import com.github.jamesnetherton.extension.liquibase.service.ServiceHelper;
+import java.util.Locale;
 import liquibase.Liquibase;
 import liquibase.Scope;
+import liquibase.change.ChangeFactory;
+import liquibase.precondition.PreconditionFactory;
 import org.jboss.as.controller.AbstractBoottimeAddStepHandler;
 import org.jboss.as.controller.OperationContext;
 import org.jboss.as.controller.OperationFailedException;
@@ -47,8 +59,15 @@ class LiquibaseSubsystemAdd extends AbstractBoottimeAddStepHandler {
     private static final int STRUCTURE_LIQUIBASE_JBOSS_ALL = Phase.STRUCTURE_PARSE_JBOSS_ALL_XML - 0x01;
     private static final int PARSE_LIQUIBASE_CDI_ANNOTATIONS = Phase.PARSE_COMPOSITE_ANNOTATION_INDEX + 0x01;
     private static final int DEPENDENCIES_LIQUIBASE = Phase.DEPENDENCIES_SINGLETON_DEPLOYMENT + 0x01;
-    private static final int INSTALL_LIQUIBASE_CHANGE_LOG = Phase.INSTALL_MDB_DELIVERY_DEPENDENCIES + 0x01;
-    private static final int INSTALL_LIQUIBASE_MIGRATION_EXECUTION = INSTALL_LIQUIBASE_CHANGE_LOG + 0x01;
+    private static final int POST_MODULE_LIQUIBASE_CDI_EXTENSION = Phase.POST_MODULE_WELD_PORTABLE_EXTENSIONS + 0x01;
+    // Migrations only need the deployment module and the datasource binder services, so their services are installed
+    // before the INSTALL phase. Deployment processing carries on while they execute, and only the components which
+    // use the schema wait for them
+    private static final int POST_MODULE_LIQUIBASE_CHANGE_LOG = POST_MODULE_LIQUIBASE_CDI_EXTENSION + 0x01;
+    private static final int POST_MODULE_LIQUIBASE_MIGRATION_EXECUTION = POST_MODULE_LIQUIBASE_CHANGE_LOG + 0x01;
+    // Components are configured in the INSTALL phase, by which time every module of an EAR has completed POST_MODULE and
+    // recorded its execution services on the top level deployment
+    private static final int INSTALL_LIQUIBASE_COMPONENT_DEPENDENCIES = Phase.INSTALL_EE_MODULE_CONFIG - 0x01;
 
     @Override
     protected void performBoottime(OperationContext context, ModelNode operation, ModelNode model) throws OperationFailedException {
@@ -56,11 +75,23 @@ class LiquibaseSubsystemAdd extends AbstractBoottimeAddStepHandler {
 
         ServiceTarget serviceTarget = context.getServiceTarget();
 
+        ExecutionSettings settings = new ExecutionSettings(
+            LiquibaseRootResource.EXECUTOR_THREADS.resolveModelAttribute(context, model).asInt(0),
+            LiquibaseRootResource.VIRTUAL_THREADS.resolveModelAttribute(context, model).asBoolean(),
+            LiquibaseRootResource.LOCK_RECHECK_INTERVAL.resolveModelAttribute(context, model).asInt(0),
+            LiquibaseRootResource.LOCK_WAIT_TIMEOUT.resolveModelAttribute(context, model).asInt(0),
+            LiquibaseRootResource.MIGRATION_LEASE_DURATION.resolveModelAttribute(context, model).asInt(0),
+            LiquibaseRootResource.CHANGELOG_POOL_SIZE.resolveModelAttribute(context, model).asInt(0),
+            ExecutionSettings.SkipMode.valueOf(LiquibaseRootResource.SKIP_MODE.resolveModelAttribute(context, model).asString().toUpperCase(Locale.ROOT)),
+            LiquibaseRootResource.STATISTICS_ENABLED.resolveModelAttribute(context, model).asBoolean());
+        CachingChangeLogHistoryService.setCacheSize(LiquibaseRootResource.HISTORY_CACHE_SIZE.resolveModelAttribute(context, model).asInt());
+
         ChangeLogConfigurationRegistryService registryService = new ChangeLogConfigurationRegistryService();
 
         ServiceName modelUpdateServiceName = ChangeLogModelService.getServiceName();
-        ChangeLogModelService modelUpdateService = new ChangeLogModelService(registryService);
+        ChangeLogModelService modelUpdateService = new ChangeLogModelService(registryService, settings);
         ServiceHelper.installService(modelUpdateServiceName, serviceTarget, modelUpdateService);
+        ServiceHelper.installService(ExecutionScheduler.getServiceName(), serviceTarget, settings.getScheduler());
 
         ClassLoader oldTCCL = Thread.currentThread().getContextClassLoader();
         try {
@@ -68,6 +99,15 @@ class LiquibaseSubsystemAdd extends AbstractBoottimeAddStepHandler {
             Scope.setScopeManager(new WildFlyScopeManager());
             // Trigger root scope creation in WildFlyScopeManager
             Scope.getCurrentScope();
+            // Takes precedence over the core loadData change, which it delegates to unless a batch size is configured
+            Scope.getCurrentScope().getSingleton(ChangeFactory.class).register(new BatchedLoadDataChange());
+            // Replace the core metadata preconditions, which fall back to their default behavior outside of a change log execution
+            PreconditionFactory.getInstance().register(new CachedTableExistsPrecondition());
+            PreconditionFactory.getInstance().register(new CachedColumnExistsPrecondition());
+            PreconditionFactory.getInstance().register(new CachedIndexExistsPrecondition());
+            CachingChangeLogHistoryService.register();
+        } catch (Exception e) {
+            throw new OperationFailedException("Failed to register the Liquibase change log history service", e);
         } finally {
             Thread.currentThread().setContextClassLoader(oldTCCL);
         }
@@ -79,8 +119,10 @@ class LiquibaseSubsystemAdd extends AbstractBoottimeAddStepHandler {
                 processorTarget.addDeploymentProcessor(LiquibaseExtension.SUBSYSTEM_NAME, Phase.STRUCTURE, STRUCTURE_LIQUIBASE_JBOSS_ALL, parser);
                 processorTarget.addDeploymentProcessor(LiquibaseExtension.SUBSYSTEM_NAME, Phase.PARSE, PARSE_LIQUIBASE_CDI_ANNOTATIONS, new LiquibaseCdiAnnotationProcessor());
                 processorTarget.addDeploymentProcessor(LiquibaseExtension.SUBSYSTEM_NAME, Phase.DEPENDENCIES, DEPENDENCIES_LIQUIBASE, new LiquibaseDependenciesProcessor());
-                processorTarget.addDeploymentProcessor(LiquibaseExtension.SUBSYSTEM_NAME, Phase.INSTALL, INSTALL_LIQUIBASE_CHANGE_LOG, new LiquibaseChangeLogParseProcessor());
-                processorTarget.addDeploymentProcessor(LiquibaseExtension.SUBSYSTEM_NAME, Phase.INSTALL, INSTALL_LIQUIBASE_MIGRATION_EXECUTION, new LiquibaseChangeLogExecutionProcessor(registryService));
+                processorTarget.addDeploymentProcessor(LiquibaseExtension.SUBSYSTEM_NAME, Phase.POST_MODULE, POST_MODULE_LIQUIBASE_CDI_EXTENSION, new LiquibaseCdiExtensionProcessor(registryService, settings));
+                processorTarget.addDeploymentProcessor(LiquibaseExtension.SUBSYSTEM_NAME, Phase.POST_MODULE, POST_MODULE_LIQUIBASE_CHANGE_LOG, new LiquibaseChangeLogParseProcessor());
+                processorTarget.addDeploymentProcessor(LiquibaseExtension.SUBSYSTEM_NAME, Phase.POST_MODULE, POST_MODULE_LIQUIBASE_MIGRATION_EXECUTION, new LiquibaseChangeLogExecutionProcessor(registryService, settings));
+                processorTarget.addDeploymentProcessor(LiquibaseExtension.SUBSYSTEM_NAME, Phase.INSTALL, INSTALL_LIQUIBASE_COMPONENT_DEPENDENCIES, new LiquibaseComponentDependencyProcessor());
             }
         }, OperationContext.Stage.RUNTIME);
     }
@@ -19,13 +19,14 @@
  */
 package com.github.jamesnetherton.extension.liquibase;
 
-import static com.github.jamesnetherton.extension.liquibase.Namespace.VERSION_1_0;
+import static com.github.jamesnetherton.extension.liquibase.Namespace.VERSION_1_1;
 import static com.github.jamesnetherton.extension.liquibase.Namespace10.Element.DATABASE_CHANGELOG;
 import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.ADD;
 import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.OP;
 import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.OP_ADDR;
 import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.SUBSYSTEM;
 import static org.jboss.as.controller.parsing.ParseUtils.missingRequired;
+import static org.jboss.as.controller.parsing.ParseUtils.requireNoAttributes;
 import static org.jboss.as.controller.parsing.ParseUtils.requireNoNamespaceAttribute;
 import static org.jboss.as.controller.parsing.ParseUtils.unexpectedAttribute;
 import static org.jboss.as.controller.parsing.ParseUtils.unexpectedElement;
@@ -38,7 +39,7 @@ import org.jboss.dmr.ModelNode;
 import org.jboss.staxmapper.XMLElementReader;
 import org.jboss.staxmapper.XMLExtendedStreamReader;
 
-final class LiquibaseSubsystemParser implements Namespace10, XMLStreamConstants, XMLElementReader<List<ModelNode>> {
+final class LiquibaseSubsystemParser implements Namespace11, XMLStreamConstants, XMLElementReader<List<ModelNode>> {
 
     static XMLElementReader<List<ModelNode>> INSTANCE = new LiquibaseSubsystemParser();
 
@@ -57,19 +58,68 @@ final class LiquibaseSubsystemParser implements Namespace10, XMLStreamConstants,
         subsystemAdd.get(OP_ADDR).set(address);
         operations.add(subsystemAdd);
 
+        // Subsystem attributes were introduced by version 1.1 of the namespace
+        final Namespace namespace = Namespace.forUri(reader.getNamespaceURI());
+        if (namespace.equals(VERSION_1_1)) {
+            parseSubsystemAttributes(reader, subsystemAdd);
+        } else {
+            requireNoAttributes(reader);
+        }
+
         while (reader.hasNext() && reader.nextTag() != END_ELEMENT) {
-            if (Namespace.forUri(reader.getNamespaceURI()).equals(VERSION_1_0)) {
-                final Element element = Element.forName(reader.getLocalName());
-                if (element.equals(DATABASE_CHANGELOG)) {
-                    parseChangeLog(reader, address, operations);
-                } else {
-                    throw unexpectedElement(reader);
-                }
+            if (!Namespace.forUri(reader.getNamespaceURI()).equals(namespace)) {
+                throw unexpectedElement(reader);
+            }
+
+            final Element element = Element.forName(reader.getLocalName());
+            if (element.equals(DATABASE_CHANGELOG)) {
+                parseChangeLog(reader, namespace, address, operations);
+            } else {
+                throw unexpectedElement(reader);
+            }
+        }
+    }
+
+    private void parseSubsystemAttributes(XMLExtendedStreamReader reader, ModelNode subsystemAdd) throws XMLStreamException {
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            requireNoNamespaceAttribute(reader, i);
+            final String attrValue = reader.getAttributeValue(i);
+            final SubsystemAttribute attribute = SubsystemAttribute.forName(reader.getAttributeLocalName(i));
+            switch (attribute) {
+                case EXECUTOR_THREADS:
+                    LiquibaseRootResource.EXECUTOR_THREADS.parseAndSetParameter(attrValue, subsystemAdd, reader);
+                    break;
+                case VIRTUAL_THREADS:
+                    LiquibaseRootResource.VIRTUAL_THREADS.parseAndSetParameter(attrValue, subsystemAdd, reader);
+                    break;
+                case LOCK_RECHECK_INTERVAL:
+                    LiquibaseRootResource.LOCK_RECHECK_INTERVAL.parseAndSetParameter(attrValue, subsystemAdd, reader);
+                    break;
+                case LOCK_WAIT_TIMEOUT:
+                    LiquibaseRootResource.LOCK_WAIT_TIMEOUT.parseAndSetParameter(attrValue, subsystemAdd, reader);
+                    break;
+                case MIGRATION_LEASE_DURATION:
+                    LiquibaseRootResource.MIGRATION_LEASE_DURATION.parseAndSetParameter(attrValue, subsystemAdd, reader);
+                    break;
+                case HISTORY_CACHE_SIZE:
+                    LiquibaseRootResource.HISTORY_CACHE_SIZE.parseAndSetParameter(attrValue, subsystemAdd, reader);
+                    break;
+                case CHANGELOG_POOL_SIZE:
+                    LiquibaseRootResource.CHANGELOG_POOL_SIZE.parseAndSetParameter(attrValue, subsystemAdd, reader);
+                    break;
+                case SKIP_MODE:
+                    LiquibaseRootResource.SKIP_MODE.parseAndSetParameter(attrValue, subsystemAdd, reader);
+                    break;
+                case STATISTICS_ENABLED:
+                    LiquibaseRootResource.STATISTICS_ENABLED.parseAndSetParameter(attrValue, subsystemAdd, reader);
+                    break;
+                default:
+                    throw unexpectedAttribute(reader, i);
             }
         }
     }
 
-    private void parseChangeLog(XMLExtendedStreamReader reader, ModelNode address, List<ModelNode> operations) throws XMLStreamException {
+    private void parseChangeLog(XMLExtendedStreamReader reader, Namespace namespace, ModelNode address, List<ModelNode> operations) throws XMLStreamException {
 
         String changeLogName = null;
         String contexts = null;
@@ -79,6 +129,9 @@ final class LiquibaseSubsystemParser implements Namespace10, XMLStreamConstants,
         String hostIncludes = null;
         String labels = null;
 
+        ModelNode propNode = new ModelNode();
+        propNode.get(OP).set(ADD);
+
         for (int i = 0; i < reader.getAttributeCount(); i++) {
             requireNoNamespaceAttribute(reader, i);
             final String attrValue = reader.getAttributeValue(i);
@@ -106,7 +159,11 @@ final class LiquibaseSubsystemParser implements Namespace10, XMLStreamConstants,
                     changeLogName = attrValue;
                     break;
                 default:
-                    throw unexpectedAttribute(reader, i);
+                    // Change log execution tuning attributes were introduced by version 1.1 of the namespace
+                    if (!namespace.equals(VERSION_1_1)) {
+                        throw unexpectedAttribute(reader, i);
+                    }
+                    parseChangeLogAttribute(reader, i, propNode);
             }
         }
         if (changeLogName == null) {
@@ -129,8 +186,6 @@ final class LiquibaseSubsystemParser implements Namespace10, XMLStreamConstants,
 
         String changeLogDefinition = content.toString();
 
-        ModelNode propNode = new ModelNode();
-        propNode.get(OP).set(ADD);
         propNode.get(OP_ADDR)
             .set(address)
             .add(ModelConstants.DATABASE_CHANGELOG, changeLogName);
@@ -154,9 +209,42 @@ final class LiquibaseSubsystemParser implements Namespace10, XMLStreamConstants,
         }
 
         if (labels != null) {
-            propNode.get(ModelConstants.LABELS).set(contexts);
+            propNode.get(ModelConstants.LABELS).set(labels);
         }
 
         operations.add(propNode);
     }
+
+    private void parseChangeLogAttribute(XMLExtendedStreamReader reader, int index, ModelNode changeLogAdd) throws XMLStreamException {
+        final String attrValue = reader.getAttributeValue(index);
+        final ChangeLogAttribute attribute = ChangeLogAttribute.forName(reader.getAttributeLocalName(index));
+        switch (attribute) {
+            case PARALLELISM:
+                ChangeLogResource.PARALLELISM.parseAndSetParameter(attrValue, changeLogAdd, reader);
+                break;
+            case TIMEOUT:
+                ChangeLogResource.TIMEOUT.parseAndSetParameter(attrValue, changeLogAdd, reader);
+                break;
+            case CHANGESET_TIMEOUT:
+                ChangeLogResource.CHANGESET_TIMEOUT.parseAndSetParameter(attrValue, changeLogAdd, reader);
+                break;
+            case BATCH_SIZE:
+                ChangeLogResource.BATCH_SIZE.parseAndSetParameter(attrValue, changeLogAdd, reader);
+                break;
+            case TRANSACTION_GROUP_SIZE:
+                ChangeLogResource.TRANSACTION_GROUP_SIZE.parseAndSetParameter(attrValue, changeLogAdd, reader);
+                break;
+            case BASELINE:
+                ChangeLogResource.BASELINE.parseAndSetParameter(attrValue, changeLogAdd, reader);
+                break;
+            case HISTORY_INDEX:
+                ChangeLogResource.HISTORY_INDEX.parseAndSetParameter(attrValue, changeLogAdd, reader);
+                break;
+            case MIGRATION_DATASOURCE:
+                ChangeLogResource.MIGRATION_DATASOURCE.parseAndSetParameter(attrValue, changeLogAdd, reader);
+                break;
+            default:
+                throw unexpectedAttribute(reader, index);
+        }
+    }
 }
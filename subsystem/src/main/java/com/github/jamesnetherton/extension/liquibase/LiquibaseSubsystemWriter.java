@@ -22,6 +22,7 @@ package com.github.jamesnetherton.extension.liquibase;
 import java.util.TreeSet;
 import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
+import org.jboss.as.controller.AttributeDefinition;
 import org.jboss.as.controller.persistence.SubsystemMarshallingContext;
 import org.jboss.dmr.ModelNode;
 import org.jboss.staxmapper.XMLElementWriter;
@@ -39,6 +40,10 @@ final class LiquibaseSubsystemWriter implements XMLStreamConstants, XMLElementWr
         context.startSubsystemElement(Namespace.CURRENT.getUriString(), false);
         ModelNode node = context.getModelNode();
 
+        for (AttributeDefinition attribute : LiquibaseRootResource.ATTRIBUTES) {
+            attribute.getMarshaller().marshallAsAttribute(attribute, node, false, writer);
+        }
+
         if (node.hasDefined(ModelConstants.DATABASE_CHANGELOG)) {
             ModelNode properties = node.get(ModelConstants.DATABASE_CHANGELOG);
 
@@ -49,6 +54,14 @@ final class LiquibaseSubsystemWriter implements XMLStreamConstants, XMLElementWr
                 String hostExcludes = properties.get(key).get(ModelConstants.HOST_EXCLUDES).asStringOrNull();
                 String hostIncludes = properties.get(key).get(ModelConstants.HOST_INCLUDES).asStringOrNull();
                 String labels = properties.get(key).get(ModelConstants.LABELS).asStringOrNull();
+                String parallelism = properties.get(key).get(ModelConstants.PARALLELISM).asStringOrNull();
+                String timeout = properties.get(key).get(ModelConstants.TIMEOUT).asStringOrNull();
+                String changeSetTimeout = properties.get(key).get(ModelConstants.CHANGESET_TIMEOUT).asStringOrNull();
+                String batchSize = properties.get(key).get(ModelConstants.BATCH_SIZE).asStringOrNull();
+                String transactionGroupSize = properties.get(key).get(ModelConstants.TRANSACTION_GROUP_SIZE).asStringOrNull();
+                String baseline = properties.get(key).get(ModelConstants.BASELINE).asStringOrNull();
+                String historyIndex = properties.get(key).get(ModelConstants.HISTORY_INDEX).asStringOrNull();
+                String migrationDataSource = properties.get(key).get(ModelConstants.MIGRATION_DATASOURCE).asStringOrNull();
                 String val = properties.get(key).get(ModelConstants.VALUE).asString();
 
                 writer.writeStartElement(Namespace10.Element.DATABASE_CHANGELOG.getLocalName());
@@ -75,6 +88,38 @@ final class LiquibaseSubsystemWriter implements XMLStreamConstants, XMLElementWr
                     writer.writeAttribute(Namespace10.Attribute.HOST_INCLUDES.getLocalName(), hostIncludes);
                 }
 
+                if (parallelism != null) {
+                    writer.writeAttribute(Namespace11.ChangeLogAttribute.PARALLELISM.getLocalName(), parallelism);
+                }
+
+                if (timeout != null) {
+                    writer.writeAttribute(Namespace11.ChangeLogAttribute.TIMEOUT.getLocalName(), timeout);
+                }
+
+                if (changeSetTimeout != null) {
+                    writer.writeAttribute(Namespace11.ChangeLogAttribute.CHANGESET_TIMEOUT.getLocalName(), changeSetTimeout);
+                }
+
+                if (batchSize != null) {
+                    writer.writeAttribute(Namespace11.ChangeLogAttribute.BATCH_SIZE.getLocalName(), batchSize);
+                }
+
+                if (transactionGroupSize != null) {
+                    writer.writeAttribute(Namespace11.ChangeLogAttribute.TRANSACTION_GROUP_SIZE.getLocalName(), transactionGroupSize);
+                }
+
+                if (baseline != null) {
+                    writer.writeAttribute(Namespace11.ChangeLogAttribute.BASELINE.getLocalName(), baseline);
+                }
+
+                if (historyIndex != null) {
+                    writer.writeAttribute(Namespace11.ChangeLogAttribute.HISTORY_INDEX.getLocalName(), historyIndex);
+                }
+
+                if (migrationDataSource != null) {
+                    writer.writeAttribute(Namespace11.ChangeLogAttribute.MIGRATION_DATASOURCE.getLocalName(), migrationDataSource);
+                }
+
                 writer.writeCharacters(val);
                 writer.writeEndElement();
             }
@@ -0,0 +1,86 @@
+/*-
+ * #%L
+ * wildfly-liquibase-subsystem
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase;
+
+import org.jboss.as.controller.AttributeDefinition;
+import org.jboss.as.controller.ModelVersion;
+import org.jboss.as.controller.transform.ExtensionTransformerRegistration;
+import org.jboss.as.controller.transform.SubsystemTransformerRegistration;
+import org.jboss.as.controller.transform.description.DiscardAttributeChecker;
+import org.jboss.as.controller.transform.description.RejectAttributeChecker;
+import org.jboss.as.controller.transform.description.ResourceTransformationDescriptionBuilder;
+import org.jboss.as.controller.transform.description.TransformationDescription;
+import org.jboss.as.controller.transform.description.TransformationDescriptionBuilder;
+
+/**
+ * Transforms the subsystem model for hosts running version 1.0.0 of the subsystem, which has no subsystem attributes,
+ * no change log execution tuning attributes and no change log operations. Attributes left at their default value, or
+ * undefined for change logs, are discarded, while any other value is rejected as the host would not apply it.
+ */
+public final class LiquibaseTransformers implements ExtensionTransformerRegistration {
+
+    static final ModelVersion VERSION_1_0_0 = ModelVersion.create(1, 0, 0);
+
+    static final AttributeDefinition[] CHANGE_LOG_ATTRIBUTES_1_1 = {
+        ChangeLogResource.PARALLELISM,
+        ChangeLogResource.TIMEOUT,
+        ChangeLogResource.CHANGESET_TIMEOUT,
+        ChangeLogResource.BATCH_SIZE,
+        ChangeLogResource.TRANSACTION_GROUP_SIZE,
+        ChangeLogResource.BASELINE,
+        ChangeLogResource.HISTORY_INDEX,
+        ChangeLogResource.MIGRATION_DATASOURCE,
+    };
+
+    static final String[] CHANGE_LOG_OPERATIONS_1_1 = {
+        ModelConstants.CLEAR_CHANGESET_EXECUTIONS,
+        ModelConstants.CANCEL,
+        ModelConstants.GENERATE_BASELINE,
+        ModelConstants.ARCHIVE_HISTORY,
+        ModelConstants.STATUS,
+        ModelConstants.UPDATE_SQL,
+    };
+
+    @Override
+    public String getSubsystemName() {
+        return LiquibaseExtension.SUBSYSTEM_NAME;
+    }
+
+    @Override
+    public void registerTransformers(SubsystemTransformerRegistration registration) {
+        ResourceTransformationDescriptionBuilder builder = TransformationDescriptionBuilder.Factory.createSubsystemInstance();
+        AttributeDefinition[] attributes = LiquibaseRootResource.ATTRIBUTES.toArray(new AttributeDefinition[0]);
+        builder.getAttributeBuilder()
+            .setDiscard(DiscardAttributeChecker.DEFAULT_VALUE, attributes)
+            .addRejectCheck(RejectAttributeChecker.DEFINED, attributes)
+            .end();
+
+        ResourceTransformationDescriptionBuilder changeLogBuilder = builder.addChildResource(ChangeLogResource.CHANGE_LOG_PATH);
+        changeLogBuilder.getAttributeBuilder()
+            .setDiscard(DiscardAttributeChecker.UNDEFINED, CHANGE_LOG_ATTRIBUTES_1_1)
+            .addRejectCheck(RejectAttributeChecker.DEFINED, CHANGE_LOG_ATTRIBUTES_1_1)
+            .end();
+        for (String operation : CHANGE_LOG_OPERATIONS_1_1) {
+            changeLogBuilder.addOperationTransformationOverride(operation).setReject();
+        }
+
+        TransformationDescription.Tools.register(builder.build(), registration, VERSION_1_0_0);
+    }
+}
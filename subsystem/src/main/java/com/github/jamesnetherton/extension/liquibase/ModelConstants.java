@@ -20,12 +20,58 @@
 package com.github.jamesnetherton.extension.liquibase;
 
 public interface ModelConstants {
+    String ARCHIVE_HISTORY = "archive-history";
+    String AUTHOR = "author";
+    String BASELINE = "baseline";
+    String BATCH_SIZE = "batch-size";
+    String CANCEL = "cancel";
+    String CHANGELOG_POOL_SIZE = "changelog-pool-size";
+    String CHANGESETS = "changesets";
+    String CHANGESETS_APPLIED = "changesets-applied";
+    String CHANGESETS_SKIPPED = "changesets-skipped";
+    String CHANGESET_EXECUTIONS = "changeset-executions";
+    String CHANGESET_TIMEOUT = "changeset-timeout";
+    String CLEAR_CHANGESET_EXECUTIONS = "clear-changeset-executions";
     String CONTEXTS = "contexts";
     String DATABASE_CHANGELOG = "databaseChangeLog";
     String DATASOURCE = "datasource";
+    String DATASOURCE_STATUS = "datasource-status";
+    String DURATION = "duration";
+    String EXECUTION_TIME = "execution-time";
+    String EXECUTOR_THREADS = "executor-threads";
+    String EXEC_TYPE = "exec-type";
+    String FAILURE = "failure";
+    String FAILURES = "failures";
     String FAIL_ON_ERROR = "fail-on-error";
+    String FILENAME = "filename";
+    String FILES = "files";
+    String GENERATE_BASELINE = "generate-baseline";
+    String HISTORY_CACHE_SIZE = "history-cache-size";
+    String HISTORY_INDEX = "history-index";
     String HOST_EXCLUDES = "host-excludes";
     String HOST_INCLUDES = "host-includes";
+    String ID = "id";
     String LABELS = "labels";
+    String LOCK_RECHECK_INTERVAL = "lock-recheck-interval";
+    String LOCK_WAIT_TIME = "lock-wait-time";
+    String LOCK_WAIT_TIMEOUT = "lock-wait-timeout";
+    String MIGRATION_DATASOURCE = "migration-datasource";
+    String MIGRATION_LEASE_DURATION = "migration-lease-duration";
+    String PARALLELISM = "parallelism";
+    String PARSE_TIME = "parse-time";
+    String PENDING_CHANGESETS = "pending-changesets";
+    String RESOURCE_CACHE_HITS = "resource-cache-hits";
+    String ROWS_AFFECTED = "rows-affected";
+    String SKIP_MODE = "skip-mode";
+    String STATE = "state";
+    String STATEMENTS = "statements";
+    String STATISTICS_ENABLED = "statistics-enabled";
+    String STATUS = "status";
+    String TAG = "tag";
+    String TIMEOUT = "timeout";
+    String TIMESTAMP = "timestamp";
+    String TRANSACTION_GROUP_SIZE = "transaction-group-size";
+    String UPDATE_SQL = "update-sql";
     String VALUE = "value";
+    String VIRTUAL_THREADS = "virtual-threads";
 }
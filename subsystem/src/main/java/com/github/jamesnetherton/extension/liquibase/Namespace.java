@@ -26,10 +26,11 @@ enum Namespace {
 
     // must be first
     UNKNOWN(null),
-    VERSION_1_0("urn:com.github.jamesnetherton.liquibase:1.0")
+    VERSION_1_0("urn:com.github.jamesnetherton.liquibase:1.0"),
+    VERSION_1_1("urn:com.github.jamesnetherton.liquibase:1.1"),
     ;
 
-    static final Namespace CURRENT = VERSION_1_0;
+    static final Namespace CURRENT = VERSION_1_1;
 
     private final String name;
 
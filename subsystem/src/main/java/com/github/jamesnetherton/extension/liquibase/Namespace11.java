@@ -0,0 +1,125 @@
+/*-
+ * #%L
+ * wildfly-liquibase-subsystem
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Version 1.1 of the subsystem namespace, which adds attributes to the subsystem and change log elements that tune
+ * how change logs are executed.
+ */
+interface Namespace11 extends Namespace10 {
+
+    enum SubsystemAttribute {
+        EXECUTOR_THREADS(ModelConstants.EXECUTOR_THREADS),
+        VIRTUAL_THREADS(ModelConstants.VIRTUAL_THREADS),
+        LOCK_RECHECK_INTERVAL(ModelConstants.LOCK_RECHECK_INTERVAL),
+        LOCK_WAIT_TIMEOUT(ModelConstants.LOCK_WAIT_TIMEOUT),
+        MIGRATION_LEASE_DURATION(ModelConstants.MIGRATION_LEASE_DURATION),
+        HISTORY_CACHE_SIZE(ModelConstants.HISTORY_CACHE_SIZE),
+        CHANGELOG_POOL_SIZE(ModelConstants.CHANGELOG_POOL_SIZE),
+        SKIP_MODE(ModelConstants.SKIP_MODE),
+        STATISTICS_ENABLED(ModelConstants.STATISTICS_ENABLED),
+        UNKNOWN(null),
+        ;
+        private final String name;
+
+        SubsystemAttribute(final String name) {
+            this.name = name;
+        }
+
+        /**
+         * Get the local name of this attribute.
+         *
+         * @return the local name
+         */
+        public String getLocalName() {
+            return name;
+        }
+
+        private static final Map<String, SubsystemAttribute> MAP;
+
+        static {
+            final Map<String, SubsystemAttribute> map = new HashMap<>();
+            for (SubsystemAttribute element : values()) {
+                final String name = element.getLocalName();
+                if (name != null) map.put(name, element);
+            }
+            MAP = map;
+        }
+
+        public static SubsystemAttribute forName(String localName) {
+            final SubsystemAttribute element = MAP.get(localName);
+            return element == null ? UNKNOWN : element;
+        }
+
+        public String toString() {
+            return getLocalName();
+        }
+    }
+
+    enum ChangeLogAttribute {
+        PARALLELISM(ModelConstants.PARALLELISM),
+        TIMEOUT(ModelConstants.TIMEOUT),
+        CHANGESET_TIMEOUT(ModelConstants.CHANGESET_TIMEOUT),
+        BATCH_SIZE(ModelConstants.BATCH_SIZE),
+        TRANSACTION_GROUP_SIZE(ModelConstants.TRANSACTION_GROUP_SIZE),
+        BASELINE(ModelConstants.BASELINE),
+        HISTORY_INDEX(ModelConstants.HISTORY_INDEX),
+        MIGRATION_DATASOURCE(ModelConstants.MIGRATION_DATASOURCE),
+        UNKNOWN(null),
+        ;
+        private final String name;
+
+        ChangeLogAttribute(final String name) {
+            this.name = name;
+        }
+
+        /**
+         * Get the local name of this attribute.
+         *
+         * @return the local name
+         */
+        public String getLocalName() {
+            return name;
+        }
+
+        private static final Map<String, ChangeLogAttribute> MAP;
+
+        static {
+            final Map<String, ChangeLogAttribute> map = new HashMap<>();
+            for (ChangeLogAttribute element : values()) {
+                final String name = element.getLocalName();
+                if (name != null) map.put(name, element);
+            }
+            MAP = map;
+        }
+
+        public static ChangeLogAttribute forName(String localName) {
+            final ChangeLogAttribute element = MAP.get(localName);
+            return element == null ? UNKNOWN : element;
+        }
+
+        public String toString() {
+            return getLocalName();
+        }
+    }
+}
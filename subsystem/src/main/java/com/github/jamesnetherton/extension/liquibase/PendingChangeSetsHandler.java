@@ -0,0 +1,96 @@
+/*-
+ * #%L
+ * wildfly-liquibase-subsystem
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase;
+
+import com.github.jamesnetherton.extension.liquibase.service.ChangeLogExecutionService;
+import com.github.jamesnetherton.extension.liquibase.service.PendingChangeSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import liquibase.exception.LiquibaseException;
+import org.jboss.as.controller.AbstractRuntimeOnlyHandler;
+import org.jboss.as.controller.OperationContext;
+import org.jboss.as.controller.OperationFailedException;
+import org.jboss.as.controller.SimpleAttributeDefinition;
+import org.jboss.as.controller.SimpleAttributeDefinitionBuilder;
+import org.jboss.as.controller.SimpleOperationDefinition;
+import org.jboss.as.controller.SimpleOperationDefinitionBuilder;
+import org.jboss.dmr.ModelNode;
+import org.jboss.dmr.ModelType;
+
+/**
+ * Reports the change sets of a change log that are pending on each target datasource, without applying them or
+ * taking the change log lock.
+ */
+final class PendingChangeSetsHandler extends AbstractRuntimeOnlyHandler {
+
+    private static final SimpleAttributeDefinition DATASOURCE = new SimpleAttributeDefinitionBuilder(ModelConstants.DATASOURCE, ModelType.STRING)
+        .setRequired(false)
+        .build();
+
+    static final SimpleOperationDefinition DEFINITION = new SimpleOperationDefinitionBuilder(ModelConstants.STATUS,
+        LiquibaseResourceDescriptionResolvers.getResolver(ModelConstants.DATABASE_CHANGELOG))
+        .setParameters(DATASOURCE)
+        .setReplyType(ModelType.LIST)
+        .setReplyValueType(ModelType.OBJECT)
+        .setReadOnly()
+        .setRuntimeOnly()
+        .build();
+
+    static final PendingChangeSetsHandler INSTANCE = new PendingChangeSetsHandler();
+
+    private PendingChangeSetsHandler() {
+    }
+
+    @Override
+    protected void executeRuntimeStep(OperationContext context, ModelNode operation) throws OperationFailedException {
+        ChangeLogExecutionService executionService = ExecutionServiceLocator.locate(context, context.getCurrentAddress());
+        if (executionService == null) {
+            throw new OperationFailedException("Change log " + context.getCurrentAddressValue() + " is not installed");
+        }
+
+        String dataSource = DATASOURCE.resolveModelAttribute(context, operation).asStringOrNull();
+        Map<String, List<PendingChangeSet>> pending;
+        try {
+            pending = executionService.getPendingChangeSets(dataSource);
+        } catch (LiquibaseException | SQLException e) {
+            throw new OperationFailedException("Failed to determine pending change sets: " + e.getMessage(), e);
+        }
+
+        ModelNode result = context.getResult().setEmptyList();
+        for (Map.Entry<String, List<PendingChangeSet>> entry : pending.entrySet()) {
+            ModelNode node = new ModelNode();
+            node.get(ModelConstants.DATASOURCE).set(entry.getKey());
+            node.get(ModelConstants.PENDING_CHANGESETS).set(entry.getValue().size());
+            ModelNode changeSets = node.get(ModelConstants.CHANGESETS).setEmptyList();
+            for (PendingChangeSet changeSet : entry.getValue()) {
+                ModelNode changeSetNode = new ModelNode();
+                changeSetNode.get(ModelConstants.ID).set(changeSet.getId());
+                changeSetNode.get(ModelConstants.AUTHOR).set(changeSet.getAuthor());
+                changeSetNode.get(ModelConstants.FILENAME).set(changeSet.getFileName());
+                if (changeSet.getLastDuration() >= 0) {
+                    changeSetNode.get(ModelConstants.DURATION).set(changeSet.getLastDuration());
+                }
+                changeSets.add(changeSetNode);
+            }
+            result.add(node);
+        }
+    }
+}
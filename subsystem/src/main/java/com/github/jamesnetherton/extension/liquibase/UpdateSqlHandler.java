@@ -0,0 +1,102 @@
+/*-
+ * #%L
+ * wildfly-liquibase-subsystem
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase;
+
+import com.github.jamesnetherton.extension.liquibase.service.ChangeLogExecutionService;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import liquibase.exception.LiquibaseException;
+import org.jboss.as.controller.AbstractRuntimeOnlyHandler;
+import org.jboss.as.controller.OperationContext;
+import org.jboss.as.controller.OperationFailedException;
+import org.jboss.as.controller.SimpleAttributeDefinition;
+import org.jboss.as.controller.SimpleAttributeDefinitionBuilder;
+import org.jboss.as.controller.SimpleOperationDefinition;
+import org.jboss.as.controller.SimpleOperationDefinitionBuilder;
+import org.jboss.as.server.ServerEnvironment;
+import org.jboss.dmr.ModelNode;
+import org.jboss.dmr.ModelType;
+
+/**
+ * Generates the SQL that an update of a change log would execute, without executing it.
+ *
+ * The SQL is streamed to a temporary file rather than being held in the operation result, and the file is attached to
+ * the response so that management clients can download it. The file is deleted once the attached stream is closed.
+ */
+final class UpdateSqlHandler extends AbstractRuntimeOnlyHandler {
+
+    private static final SimpleAttributeDefinition DATASOURCE = new SimpleAttributeDefinitionBuilder(ModelConstants.DATASOURCE, ModelType.STRING)
+        .setRequired(false)
+        .build();
+
+    static final SimpleOperationDefinition DEFINITION = new SimpleOperationDefinitionBuilder(ModelConstants.UPDATE_SQL,
+        LiquibaseResourceDescriptionResolvers.getResolver(ModelConstants.DATABASE_CHANGELOG))
+        .setParameters(DATASOURCE)
+        .setReplyType(ModelType.STRING)
+        .setReadOnly()
+        .setRuntimeOnly()
+        .build();
+
+    static final UpdateSqlHandler INSTANCE = new UpdateSqlHandler();
+
+    private UpdateSqlHandler() {
+    }
+
+    @Override
+    protected void executeRuntimeStep(OperationContext context, ModelNode operation) throws OperationFailedException {
+        ChangeLogExecutionService executionService = ExecutionServiceLocator.locate(context, context.getCurrentAddress());
+        if (executionService == null) {
+            throw new OperationFailedException("Change log " + context.getCurrentAddressValue() + " is not installed");
+        }
+
+        String dataSource = DATASOURCE.resolveModelAttribute(context, operation).asStringOrNull();
+        Path sqlFile = null;
+        try {
+            Path directory = Paths.get(System.getProperty(ServerEnvironment.SERVER_TEMP_DIR));
+            String fileName = context.getCurrentAddressValue().replaceAll("[^A-Za-z0-9._-]", "_");
+            sqlFile = Files.createTempFile(directory, fileName + "-", ".sql");
+            try (Writer writer = Files.newBufferedWriter(sqlFile, StandardCharsets.UTF_8)) {
+                executionService.updateSql(dataSource, writer);
+            }
+
+            String uuid = context.attachResultStream("text/plain", Files.newInputStream(sqlFile, StandardOpenOption.DELETE_ON_CLOSE));
+            context.getResult().set(uuid);
+        } catch (IOException | LiquibaseException | SQLException e) {
+            deleteQuietly(sqlFile);
+            throw new OperationFailedException("Failed to generate update SQL: " + e.getMessage(), e);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file != null) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                LiquibaseLogger.ROOT_LOGGER.debug("Failed to delete {}", file, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,325 @@
+/*-
+ * #%L
+ * wildfly-liquibase-subsystem
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase.change;
+
+import com.github.jamesnetherton.extension.liquibase.LiquibaseLogger;
+import java.math.BigDecimal;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import liquibase.CatalogAndSchema;
+import liquibase.Scope;
+import liquibase.change.ChangeMetaData;
+import liquibase.change.DatabaseChange;
+import liquibase.change.core.LoadDataChange;
+import liquibase.change.core.LoadDataColumnConfig;
+import liquibase.database.Database;
+import liquibase.database.PreparedStatementFactory;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.DatabaseException;
+import liquibase.exception.DateParseException;
+import liquibase.exception.UnexpectedLiquibaseException;
+import liquibase.executor.ExecutorService;
+import liquibase.executor.LoggingExecutor;
+import liquibase.executor.jvm.JdbcExecutor;
+import liquibase.statement.AbstractSqlStatement;
+import liquibase.statement.ExecutablePreparedStatement;
+import liquibase.statement.SqlStatement;
+import liquibase.structure.core.Column;
+import liquibase.structure.core.Table;
+import liquibase.util.BooleanUtil;
+import liquibase.util.StringUtil;
+import liquibase.util.csv.CSVReader;
+
+/**
+ * {@link LoadDataChange} which streams CSV rows into the target table using JDBC batching.
+ *
+ * The standard implementation reads the entire data file into memory before generating any statements. When a batch size
+ * is present in the current {@link Scope} under {@link #BATCH_SIZE_SCOPE_KEY}, rows are instead read one at a time, added
+ * to a single prepared statement batch and sent to the database every batch size rows, so heap usage stays flat
+ * regardless of the size of the data file. Batches are not committed individually. The rows are committed with the
+ * change set, so a change set that fails part way through leaves no rows behind and can be run again.
+ *
+ * Column types that cannot be bound directly from the CSV value (computed, sequence, blob and clob), as well as SQL
+ * generation without a live connection, are delegated to the standard implementation.
+ */
+@DatabaseChange(name = "loadData", description = "Loads data from a CSV file into an existing table", priority = ChangeMetaData.PRIORITY_DEFAULT + 1, appliesTo = "table", since = "1.7")
+public class BatchedLoadDataChange extends LoadDataChange {
+
+    public static final String BATCH_SIZE_SCOPE_KEY = "wildfly.liquibase.loadDataBatchSize";
+
+    @Override
+    public SqlStatement[] generateStatements(Database database) {
+        int batchSize = Scope.getCurrentScope().get(BATCH_SIZE_SCOPE_KEY, 0);
+        if (batchSize <= 0 || !isBatchable(database)) {
+            return super.generateStatements(database);
+        }
+        return new SqlStatement[] { new BatchedLoadDataStatement(database, batchSize) };
+    }
+
+    private boolean isBatchable(Database database) {
+        if (!(database.getConnection() instanceof JdbcConnection) || Boolean.FALSE.equals(getUsePreparedStatements())) {
+            return false;
+        }
+
+        ExecutorService executorService = Scope.getCurrentScope().getSingleton(ExecutorService.class);
+        if (executorService.executorExists("logging", database) && executorService.getExecutor("logging", database) instanceof LoggingExecutor) {
+            return false;
+        }
+
+        for (LoadDataColumnConfig column : getColumns()) {
+            LOAD_DATA_TYPE type = column.getTypeEnum();
+            if (type == LOAD_DATA_TYPE.COMPUTED || type == LOAD_DATA_TYPE.SEQUENCE || type == LOAD_DATA_TYPE.BLOB || type == LOAD_DATA_TYPE.CLOB) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int load(PreparedStatementFactory factory, Database database, int batchSize) throws DatabaseException {
+        // CSVReader.close() declares Exception, so the reader is closed explicitly rather than by try-with-resources
+        CSVReader reader = null;
+        try {
+            reader = getCSVReader();
+            if (reader == null) {
+                throw new UnexpectedLiquibaseException("Unable to read file " + getFile());
+            }
+
+            String[] headers = reader.readNext();
+            if (headers == null) {
+                throw new UnexpectedLiquibaseException("Data file " + getFile() + " was empty");
+            }
+
+            List<Integer> indexes = new ArrayList<>();
+            List<String> columnNames = new ArrayList<>();
+            List<LoadDataColumnConfig> columnConfigs = new ArrayList<>();
+            for (int i = 0; i < headers.length; i++) {
+                String header = headers[i].trim();
+                LoadDataColumnConfig columnConfig = getColumnConfig(i, header);
+                if (columnConfig != null && columnConfig.getTypeEnum() == LOAD_DATA_TYPE.SKIP) {
+                    continue;
+                }
+                indexes.add(i);
+                columnNames.add(columnConfig != null && columnConfig.getName() != null ? columnConfig.getName() : header);
+                columnConfigs.add(columnConfig);
+            }
+
+            int[] sqlTypes = getSqlTypes(database, columnNames);
+            String sql = createInsertSql(database, columnNames);
+            boolean commentsEnabled = getCommentLineStartsWith() != null && !getCommentLineStartsWith().isEmpty();
+
+            int rows = 0;
+            int batched = 0;
+            int batches = 0;
+            int lineNumber = 1;
+            String[] line;
+
+            try (PreparedStatement statement = factory.create(sql)) {
+                while ((line = reader.readNext()) != null) {
+                    lineNumber++;
+                    if (line.length == 0 || (line.length == 1 && line[0].trim().isEmpty()) || (commentsEnabled && line[0].startsWith(getCommentLineStartsWith()))) {
+                        continue;
+                    }
+
+                    if (line.length != headers.length) {
+                        throw new UnexpectedLiquibaseException("CSV file " + getFile() + " Line " + lineNumber + " has " + line.length
+                            + " values defined, Header has " + headers.length + ". Numbers MUST be equal (check for unquoted string with embedded commas)");
+                    }
+
+                    for (int i = 0; i < indexes.size(); i++) {
+                        bindValue(statement, i + 1, line[indexes.get(i)], columnConfigs.get(i), sqlTypes[i]);
+                    }
+                    statement.addBatch();
+
+                    if (++batched == batchSize) {
+                        rows += executeBatch(statement);
+                        batched = 0;
+                        batches++;
+                    }
+                }
+
+                if (batched > 0) {
+                    rows += executeBatch(statement);
+                    batches++;
+                }
+            }
+
+            LiquibaseLogger.ROOT_LOGGER.debug("Loaded {} rows from {} into table {} in {} batches", rows, getFile(), getTableName(), batches);
+            return rows;
+        } catch (SQLException e) {
+            throw new DatabaseException(e);
+        } catch (DatabaseException | UnexpectedLiquibaseException e) {
+            throw e;
+        } catch (Exception e) {
+            // Covers the checked exceptions of reading the data file
+            throw new UnexpectedLiquibaseException(e);
+        } finally {
+            closeReader(reader);
+        }
+    }
+
+    private void closeReader(CSVReader reader) {
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (Exception e) {
+                LiquibaseLogger.ROOT_LOGGER.debug("Failed to close data file {}", getFile(), e);
+            }
+        }
+    }
+
+    private int executeBatch(PreparedStatement statement) throws SQLException {
+        int rows = 0;
+        for (int count : statement.executeBatch()) {
+            rows += count >= 0 ? count : count == PreparedStatement.SUCCESS_NO_INFO ? 1 : 0;
+        }
+        statement.clearBatch();
+        return rows;
+    }
+
+    private String createInsertSql(Database database, List<String> columnNames) {
+        StringBuilder columns = new StringBuilder();
+        StringBuilder parameters = new StringBuilder();
+        for (String columnName : columnNames) {
+            if (columns.length() > 0) {
+                columns.append(", ");
+                parameters.append(", ");
+            }
+            columns.append(database.escapeColumnName(getCatalogName(), getSchemaName(), getTableName(), columnName));
+            parameters.append('?');
+        }
+        return String.format("INSERT INTO %s (%s) VALUES (%s)", database.escapeTableName(getCatalogName(), getSchemaName(), getTableName()), columns, parameters);
+    }
+
+    /**
+     * Looks up the JDBC type of each target column so that untyped CSV values can be converted by the driver.
+     */
+    private int[] getSqlTypes(Database database, List<String> columnNames) throws SQLException {
+        CatalogAndSchema catalogAndSchema = new CatalogAndSchema(getCatalogName(), getSchemaName()).standardize(database);
+        DatabaseMetaData metaData = ((JdbcConnection) database.getConnection()).getUnderlyingConnection().getMetaData();
+
+        Map<String, Integer> tableColumns = new HashMap<>();
+        String tableName = database.correctObjectName(getTableName(), Table.class);
+        try (ResultSet resultSet = metaData.getColumns(catalogAndSchema.getCatalogName(), catalogAndSchema.getSchemaName(), tableName, null)) {
+            while (resultSet.next()) {
+                tableColumns.put(resultSet.getString("COLUMN_NAME").toLowerCase(Locale.ROOT), resultSet.getInt("DATA_TYPE"));
+            }
+        }
+
+        int[] sqlTypes = new int[columnNames.size()];
+        for (int i = 0; i < columnNames.size(); i++) {
+            String columnName = database.correctObjectName(columnNames.get(i), Column.class);
+            sqlTypes[i] = tableColumns.getOrDefault(columnName.toLowerCase(Locale.ROOT), Types.VARCHAR);
+        }
+        return sqlTypes;
+    }
+
+    private void bindValue(PreparedStatement statement, int index, String value, LoadDataColumnConfig columnConfig, int sqlType) throws SQLException {
+        if (columnConfig != null && (value == null || value.isEmpty()) && columnConfig.getDefaultValue() != null) {
+            value = columnConfig.getDefaultValue();
+        }
+
+        if (value == null || (columnConfig != null ? isNullValue(value, columnConfig) : StringUtil.equalsWordNull(value))) {
+            statement.setNull(index, sqlType);
+            return;
+        }
+
+        LOAD_DATA_TYPE type = columnConfig != null ? columnConfig.getTypeEnum() : null;
+        if (type == LOAD_DATA_TYPE.BOOLEAN) {
+            statement.setBoolean(index, BooleanUtil.parseBoolean(value));
+        } else if (type == LOAD_DATA_TYPE.NUMERIC) {
+            statement.setBigDecimal(index, new BigDecimal(value.trim()));
+        } else if (type == LOAD_DATA_TYPE.DATE || isTemporal(columnConfig)) {
+            statement.setTimestamp(index, parseDate(columnConfig, value));
+        } else if (type == LOAD_DATA_TYPE.STRING) {
+            statement.setString(index, value);
+        } else if (columnConfig == null) {
+            bindUntypedValue(statement, index, value.trim(), sqlType);
+        } else {
+            bindUntypedValue(statement, index, value, sqlType);
+        }
+    }
+
+    private static void bindUntypedValue(PreparedStatement statement, int index, String value, int sqlType) throws SQLException {
+        if (sqlType == Types.VARCHAR || sqlType == Types.CHAR || sqlType == Types.LONGVARCHAR || sqlType == Types.NVARCHAR) {
+            statement.setString(index, value);
+        } else {
+            statement.setObject(index, value, sqlType);
+        }
+    }
+
+    private static boolean isTemporal(LoadDataColumnConfig columnConfig) {
+        if (columnConfig == null || columnConfig.getType() == null) {
+            return false;
+        }
+        String type = columnConfig.getType();
+        return type.equalsIgnoreCase("datetime") || type.equalsIgnoreCase("time");
+    }
+
+    private static Timestamp parseDate(LoadDataColumnConfig columnConfig, String value) {
+        try {
+            Date date = new LoadDataColumnConfig().setValueDate(value).getValueDate();
+            return date instanceof Timestamp ? (Timestamp) date : new Timestamp(date.getTime());
+        } catch (DateParseException e) {
+            throw new UnexpectedLiquibaseException("Invalid date value " + value + " for column " + columnConfig.getName(), e);
+        }
+    }
+
+    private final class BatchedLoadDataStatement extends AbstractSqlStatement implements ExecutablePreparedStatement {
+
+        private final Database database;
+        private final int batchSize;
+
+        private BatchedLoadDataStatement(Database database, int batchSize) {
+            this.database = database;
+            this.batchSize = batchSize;
+        }
+
+        @Override
+        public void execute(PreparedStatementFactory factory) throws DatabaseException {
+            int rows = load(factory, database, batchSize);
+
+            AtomicInteger rowsAffected = Scope.getCurrentScope().get(JdbcExecutor.ROWS_AFFECTED_SCOPE_KEY, AtomicInteger.class);
+            if (rowsAffected != null) {
+                rowsAffected.addAndGet(rows);
+            }
+        }
+
+        @Override
+        public String getFormattedStatement(Database database) {
+            return String.format("-- Batched load of %s into %s", getFile(), getTableName());
+        }
+
+        @Override
+        public String toString() {
+            return getFormattedStatement(null);
+        }
+    }
+}
@@ -0,0 +1,254 @@
+/*-
+ * #%L
+ * wildfly-liquibase-subsystem
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase.deployment;
+
+import com.github.jamesnetherton.extension.liquibase.ChangeLogConfiguration;
+import com.github.jamesnetherton.extension.liquibase.ChangeLogConfiguration.Builder;
+import com.github.jamesnetherton.extension.liquibase.ChangeLogConfiguration.BuilderCollection;
+import com.github.jamesnetherton.extension.liquibase.ChangeLogExecutionMode;
+import com.github.jamesnetherton.extension.liquibase.LiquibaseConstants;
+import com.github.jamesnetherton.extension.liquibase.LiquibaseLogger;
+import com.github.jamesnetherton.extension.liquibase.service.ChangeLogConfigurationRegistryService;
+import com.github.jamesnetherton.extension.liquibase.service.ChangeLogExecutionService;
+import com.github.jamesnetherton.extension.liquibase.service.ExecutionSettings;
+import com.github.jamesnetherton.extension.liquibase.service.ServiceHelper;
+import jakarta.enterprise.context.spi.CreationalContext;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.inject.Instance;
+import jakarta.enterprise.inject.spi.AfterDeploymentValidation;
+import jakarta.enterprise.inject.spi.BeanManager;
+import jakarta.enterprise.inject.spi.Extension;
+import jakarta.enterprise.inject.spi.InjectionPoint;
+import jakarta.enterprise.inject.spi.ProcessProducer;
+import jakarta.enterprise.inject.spi.Producer;
+import jakarta.enterprise.util.AnnotationLiteral;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import javax.sql.DataSource;
+import liquibase.integration.jakarta.cdi.CDILiquibaseConfig;
+import liquibase.integration.jakarta.cdi.annotations.LiquibaseType;
+import liquibase.resource.ResourceAccessor;
+import org.jboss.as.server.deployment.DeploymentUnit;
+import org.jboss.msc.service.LifecycleEvent;
+import org.jboss.msc.service.LifecycleListener;
+import org.jboss.msc.service.ServiceController;
+import org.jboss.msc.service.ServiceName;
+import org.jboss.msc.service.ServiceTarget;
+import org.jboss.msc.service.StartException;
+
+/**
+ * CDI portable extension which applies the change log configured by the {@code @LiquibaseType} producers of a
+ * deployment through a {@link ChangeLogExecutionService}, so that it is executed with the subsystem settings, lock
+ * handling, skip mode and metrics rather than by {@code CDILiquibase}.
+ *
+ * The produced {@link CDILiquibaseConfig} is intercepted and its {@code shouldRun} flag cleared, which leaves
+ * {@code CDILiquibase} with nothing to do. Once deployment validation has completed, which is when {@code CDILiquibase}
+ * would have applied it, the change log is installed as an execution service of the deployment and exposed as a
+ * deployment change log resource, as change logs found in deployments are. It is resolved through the produced
+ * {@link ResourceAccessor}, and takes its execution settings, such as its execution mode, from a {@code jboss-all.xml}
+ * entry of the same name. Unless its execution is deferred, deployment validation waits for it to be applied, as beans
+ * may use the database from then on. Configurations using features that the subsystem does not support, such as
+ * {@code dropFirst}, change log parameters or a default schema, are left to {@code CDILiquibase}.
+ */
+public final class LiquibaseCdiExtension implements Extension {
+
+    private static final LiquibaseTypeLiteral LIQUIBASE_TYPE = new LiquibaseTypeLiteral();
+
+    private final DeploymentUnit deploymentUnit;
+    private final String deploymentName;
+    private final ClassLoader classLoader;
+    private final ServiceTarget serviceTarget;
+    private final ChangeLogConfigurationRegistryService registryService;
+    private final ExecutionSettings settings;
+    private volatile Producer<CDILiquibaseConfig> configProducer;
+    private volatile String runtimeName;
+
+    public LiquibaseCdiExtension(DeploymentUnit deploymentUnit, ClassLoader classLoader, ServiceTarget serviceTarget,
+                                 ChangeLogConfigurationRegistryService registryService, ExecutionSettings settings) {
+        this.deploymentUnit = deploymentUnit;
+        this.deploymentName = deploymentUnit.getName();
+        this.classLoader = classLoader;
+        this.serviceTarget = serviceTarget;
+        this.registryService = registryService;
+        this.settings = settings;
+    }
+
+    <T> void interceptConfiguration(@Observes ProcessProducer<T, CDILiquibaseConfig> event) {
+        if (!event.getAnnotatedMember().isAnnotationPresent(LiquibaseType.class)) {
+            return;
+        }
+
+        Producer<CDILiquibaseConfig> producer = event.getProducer();
+        configProducer = producer;
+        event.setProducer(new Producer<CDILiquibaseConfig>() {
+            @Override
+            public CDILiquibaseConfig produce(CreationalContext<CDILiquibaseConfig> context) {
+                CDILiquibaseConfig config = producer.produce(context);
+                if (isApplicable(config)) {
+                    config.setShouldRun(false);
+                }
+                return config;
+            }
+
+            @Override
+            public void dispose(CDILiquibaseConfig config) {
+                producer.dispose(config);
+            }
+
+            @Override
+            public Set<InjectionPoint> getInjectionPoints() {
+                return producer.getInjectionPoints();
+            }
+        });
+    }
+
+    void applyChangeLog(@Observes AfterDeploymentValidation event, BeanManager beanManager) {
+        Producer<CDILiquibaseConfig> producer = configProducer;
+        if (producer == null) {
+            return;
+        }
+
+        // Produce a configuration from the original producer, as the intercepting one clears its shouldRun flag
+        CreationalContext<CDILiquibaseConfig> context = beanManager.createCreationalContext(null);
+        CDILiquibaseConfig config = producer.produce(context);
+        try {
+            if (!isApplicable(config)) {
+                if (config != null && config.getShouldRun()) {
+                    LiquibaseLogger.ROOT_LOGGER.info("Leaving CDI changelog {} of deployment {} to CDILiquibase as it uses dropFirst, parameters or a default schema", config.getChangeLog(), deploymentName);
+                }
+                return;
+            }
+
+            Instance<Object> instance = beanManager.createInstance();
+            ResourceAccessor resourceAccessor = instance.select(ResourceAccessor.class, LIQUIBASE_TYPE).get();
+            DataSource dataSource = instance.select(DataSource.class, LIQUIBASE_TYPE).get();
+
+            ChangeLogConfiguration configuration = createConfiguration(config, resourceAccessor);
+            Map<String, Supplier<DataSource>> dataSourceSuppliers = Map.of(configuration.getDataSource(), () -> dataSource);
+
+            // Applied by a service of the deployment, as change logs found in deployments are, so that its execution mode applies and its metrics are exposed
+            ExecutionListener listener = new ExecutionListener();
+            ServiceName serviceName = ChangeLogExecutionService.createServiceName(configuration.getName());
+            ChangeLogExecutionService service = ServiceHelper.installChangeLogExecutionService(serviceTarget.subTarget().addListener(listener), serviceName, configuration, settings, null, dataSourceSuppliers);
+            runtimeName = LiquibaseChangeLogExecutionProcessor.getConfigurationKey(deploymentUnit, configuration);
+            registryService.addConfiguration(runtimeName, service);
+            LiquibaseChangeLogExecutionProcessor.registerDeploymentResources(deploymentUnit, configuration);
+
+            // Beans may use the database once deployment validation completes
+            if (configuration.getExecutionMode() != ChangeLogExecutionMode.DEFERRED) {
+                while (!listener.await()) {
+                    // A service with missing dependencies never starts, so stop waiting for it
+                    ServiceController<?> controller = deploymentUnit.getServiceRegistry().getService(serviceName);
+                    Set<ServiceName> missing = controller != null ? controller.missing() : Set.of();
+                    if (!missing.isEmpty()) {
+                        event.addDeploymentProblem(new IllegalStateException(String.format("Changelog %s of deployment %s has missing dependencies %s", configuration.getFileName(), deploymentName, missing)));
+                        break;
+                    }
+                }
+                if (listener.failure != null) {
+                    event.addDeploymentProblem(listener.failure);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            event.addDeploymentProblem(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            event.addDeploymentProblem(e);
+        } finally {
+            producer.dispose(config);
+            context.release();
+        }
+    }
+
+    private ChangeLogConfiguration createConfiguration(CDILiquibaseConfig config, ResourceAccessor resourceAccessor) throws IOException {
+        // Liquibase records change sets with the normalized path of the change log, which has no leading slash
+        String changeLog = config.getChangeLog().startsWith("/") ? config.getChangeLog().substring(1) : config.getChangeLog();
+
+        String definition;
+        try (InputStream stream = resourceAccessor.getExisting(config.getChangeLog()).openInputStream()) {
+            definition = new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+
+        BuilderCollection builders = deploymentUnit.getAttachment(LiquibaseConstants.LIQUIBASE_CHANGELOG_BUILDERS);
+        Builder builder = builders == null ? ChangeLogConfiguration.builder() : builders.getOrCreateBuilder(changeLog);
+        return builder
+            .name(changeLog)
+            .path(String.format("/content/%s/%s", deploymentName, changeLog))
+            .definition(definition)
+            .dataSource("cdi:" + deploymentName)
+            .deployment(deploymentName)
+            .contexts(config.getContexts())
+            .labels(config.getLabels())
+            .resourceAccessor(resourceAccessor)
+            .classLoader(classLoader)
+            .deploymentOrigin()
+            .build();
+    }
+
+    /**
+     * Removes the change log from the registry of change logs, once its deployment is undeployed.
+     */
+    void unregister() {
+        String name = runtimeName;
+        if (name != null) {
+            registryService.removeConfiguration(name);
+        }
+    }
+
+    private static boolean isApplicable(CDILiquibaseConfig config) {
+        return config != null
+            && config.getShouldRun()
+            && !config.isDropFirst()
+            && (config.getParameters() == null || config.getParameters().isEmpty())
+            && config.getDefaultSchema() == null;
+    }
+
+    /**
+     * Waits for the execution service to come up, which it does once the change log has been applied, or to fail.
+     */
+    private static final class ExecutionListener implements LifecycleListener {
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile StartException failure;
+
+        @Override
+        public void handleEvent(ServiceController<?> controller, LifecycleEvent event) {
+            if (event == LifecycleEvent.FAILED) {
+                failure = controller.getStartException();
+            }
+            if (event != LifecycleEvent.DOWN) {
+                done.countDown();
+            }
+        }
+
+        boolean await() throws InterruptedException {
+            return done.await(1, TimeUnit.SECONDS);
+        }
+    }
+
+    @SuppressWarnings("all")
+    private static final class LiquibaseTypeLiteral extends AnnotationLiteral<LiquibaseType> implements LiquibaseType {
+    }
+}
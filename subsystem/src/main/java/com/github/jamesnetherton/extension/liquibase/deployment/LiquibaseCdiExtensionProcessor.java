@@ -0,0 +1,79 @@
+/*-
+ * #%L
+ * wildfly-liquibase-subsystem
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase.deployment;
+
+import com.github.jamesnetherton.extension.liquibase.LiquibaseConstants;
+import com.github.jamesnetherton.extension.liquibase.service.ChangeLogConfigurationRegistryService;
+import com.github.jamesnetherton.extension.liquibase.service.ExecutionSettings;
+import org.jboss.as.server.deployment.AttachmentKey;
+import org.jboss.as.server.deployment.Attachments;
+import org.jboss.as.server.deployment.DeploymentPhaseContext;
+import org.jboss.as.server.deployment.DeploymentUnit;
+import org.jboss.as.server.deployment.DeploymentUnitProcessingException;
+import org.jboss.as.server.deployment.DeploymentUnitProcessor;
+import org.jboss.as.server.deployment.annotation.CompositeIndex;
+import org.jboss.as.weld.deployment.CdiAnnotationMarker;
+import org.jboss.as.weld.deployment.WeldPortableExtensions;
+import org.jboss.jandex.DotName;
+import org.jboss.modules.Module;
+
+/**
+ * {@link DeploymentUnitProcessor} which registers the {@link LiquibaseCdiExtension} with deployments that configure
+ * Liquibase through {@code @LiquibaseType} producers.
+ */
+public class LiquibaseCdiExtensionProcessor implements DeploymentUnitProcessor {
+
+    private static final DotName LIQUIBASE_TYPE = DotName.createSimple("liquibase.integration.jakarta.cdi.annotations.LiquibaseType");
+
+    private static final AttachmentKey<LiquibaseCdiExtension> EXTENSION = AttachmentKey.create(LiquibaseCdiExtension.class);
+
+    private final ChangeLogConfigurationRegistryService registryService;
+    private final ExecutionSettings settings;
+
+    public LiquibaseCdiExtensionProcessor(ChangeLogConfigurationRegistryService registryService, ExecutionSettings settings) {
+        this.registryService = registryService;
+        this.settings = settings;
+    }
+
+    @Override
+    public void deploy(DeploymentPhaseContext phaseContext) throws DeploymentUnitProcessingException {
+        DeploymentUnit deploymentUnit = phaseContext.getDeploymentUnit();
+
+        CompositeIndex index = deploymentUnit.getAttachment(Attachments.COMPOSITE_ANNOTATION_INDEX);
+        Module module = deploymentUnit.getAttachment(Attachments.MODULE);
+        if (index == null || module == null || !CdiAnnotationMarker.cdiAnnotationsPresent(deploymentUnit) || index.getAnnotations(LIQUIBASE_TYPE).isEmpty()) {
+            return;
+        }
+
+        // The change log execution service is installed once Weld has validated the deployment, as a child of this phase
+        LiquibaseCdiExtension extension = new LiquibaseCdiExtension(deploymentUnit, module.getClassLoader(), phaseContext.getRequirementServiceTarget(), registryService, settings);
+        deploymentUnit.putAttachment(EXTENSION, extension);
+        WeldPortableExtensions.getPortableExtensions(deploymentUnit).registerExtensionInstance(extension, deploymentUnit);
+        deploymentUnit.putAttachment(LiquibaseConstants.LIQUIBASE_SUBSYTEM_ACTIVATED, Boolean.TRUE);
+    }
+
+    @Override
+    public void undeploy(DeploymentUnit deploymentUnit) {
+        LiquibaseCdiExtension extension = deploymentUnit.removeAttachment(EXTENSION);
+        if (extension != null) {
+            extension.unregister();
+        }
+    }
+}
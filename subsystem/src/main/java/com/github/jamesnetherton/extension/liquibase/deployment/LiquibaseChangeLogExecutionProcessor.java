@@ -22,29 +22,28 @@ package com.github.jamesnetherton.extension.liquibase.deployment;
 import static com.github.jamesnetherton.extension.liquibase.LiquibaseLogger.MESSAGE_DUPLICATE_DATASOURCE;
 
 import com.github.jamesnetherton.extension.liquibase.ChangeLogConfiguration;
+import com.github.jamesnetherton.extension.liquibase.ChangeLogExecutionMode;
 import com.github.jamesnetherton.extension.liquibase.LiquibaseConstants;
-import com.github.jamesnetherton.extension.liquibase.LiquibaseLogger;
+import com.github.jamesnetherton.extension.liquibase.LiquibaseExtension;
+import com.github.jamesnetherton.extension.liquibase.ModelConstants;
 import com.github.jamesnetherton.extension.liquibase.scope.WildFlyScopeManager;
 import com.github.jamesnetherton.extension.liquibase.service.ChangeLogConfigurationRegistryService;
 import com.github.jamesnetherton.extension.liquibase.service.ChangeLogExecutionService;
+import com.github.jamesnetherton.extension.liquibase.service.ExecutionSettings;
+import com.github.jamesnetherton.extension.liquibase.service.ServiceHelper;
 import java.util.List;
-import java.util.function.Consumer;
-import java.util.function.Supplier;
-import javax.sql.DataSource;
-import org.jboss.as.naming.ManagedReferenceFactory;
-import org.jboss.as.naming.deployment.ContextNames;
+import org.jboss.as.controller.PathAddress;
+import org.jboss.as.controller.PathElement;
+import org.jboss.as.server.deployment.AttachmentKey;
+import org.jboss.as.server.deployment.AttachmentList;
 import org.jboss.as.server.deployment.Attachments;
 import org.jboss.as.server.deployment.DeploymentPhaseContext;
+import org.jboss.as.server.deployment.DeploymentResourceSupport;
 import org.jboss.as.server.deployment.DeploymentUnit;
 import org.jboss.as.server.deployment.DeploymentUnitProcessingException;
 import org.jboss.as.server.deployment.DeploymentUnitProcessor;
 import org.jboss.modules.Module;
-import org.jboss.msc.service.Service;
-import org.jboss.msc.service.ServiceBuilder;
 import org.jboss.msc.service.ServiceName;
-import org.jboss.msc.service.StartContext;
-import org.jboss.msc.service.StartException;
-import org.jboss.msc.service.StopContext;
 
 /**
  * {@link DeploymentUnitProcessor} which adds a {@link ChangeLogExecutionService} service dependency for
@@ -52,10 +51,16 @@ import org.jboss.msc.service.StopContext;
  */
 public class LiquibaseChangeLogExecutionProcessor implements DeploymentUnitProcessor {
 
+    // The execution services that a deployment unit added to the execution services of its top level deployment.
+    // Their names are unique to each installation, so they are removed from it by the names recorded here
+    private static final AttachmentKey<AttachmentList<ServiceName>> EXECUTION_SERVICES = AttachmentKey.createList(ServiceName.class);
+
     private final ChangeLogConfigurationRegistryService registryService;
+    private final ExecutionSettings settings;
 
-    public LiquibaseChangeLogExecutionProcessor(ChangeLogConfigurationRegistryService registryService) {
+    public LiquibaseChangeLogExecutionProcessor(ChangeLogConfigurationRegistryService registryService, ExecutionSettings settings) {
         this.registryService = registryService;
+        this.settings = settings;
     }
 
     @Override
@@ -69,79 +74,32 @@ public class LiquibaseChangeLogExecutionProcessor implements DeploymentUnitProce
         }
 
         for (ChangeLogConfiguration configuration : configurations) {
-            String dataSource = configuration.getDataSource();
+            for (String dataSource : configuration.getDataSources()) {
+                if (registryService.containsDatasource(dataSource)) {
+                    throw new DeploymentUnitProcessingException(String.format(MESSAGE_DUPLICATE_DATASOURCE, dataSource));
+                }
+            }
 
-            if (registryService.containsDatasource(dataSource)) {
-                throw new DeploymentUnitProcessingException(String.format(MESSAGE_DUPLICATE_DATASOURCE, configuration.getDataSource()));
+            try {
+                configuration.getMigrationDataSources();
+            } catch (IllegalStateException e) {
+                throw new DeploymentUnitProcessingException(e.getMessage());
             }
 
             ServiceName serviceName = ChangeLogExecutionService.createServiceName(configuration.getName());
+            ChangeLogExecutionService service = ServiceHelper.installChangeLogExecutionService(phaseContext.getRequirementServiceTarget(), serviceName, configuration, settings, null);
+
+            // Components of any module of an EAR may use the schema of a change log from another module
+            DeploymentUnit topLevelUnit = deploymentUnit.getParent() != null ? deploymentUnit.getParent() : deploymentUnit;
+            if (configuration.getExecutionMode() == ChangeLogExecutionMode.DEFERRED) {
+                topLevelUnit.addToAttachmentList(LiquibaseConstants.LIQUIBASE_DEFERRED_CHANGELOGS, configuration.getFileName());
+            } else {
+                topLevelUnit.addToAttachmentList(LiquibaseConstants.LIQUIBASE_EXECUTION_SERVICES, serviceName);
+                deploymentUnit.addToAttachmentList(EXECUTION_SERVICES, serviceName);
+            }
 
-            // Get the datasource service name using bind info
-            ContextNames.BindInfo bindInfo = ContextNames.bindInfoFor(dataSource);
-            ServiceName dataSourceServiceName = bindInfo.getBinderServiceName();
-
-            LiquibaseLogger.ROOT_LOGGER.info("Using datasource service name: {} for JNDI name: {}",
-                    dataSourceServiceName, dataSource);
-
-            // Create wrapper service for WildFly 35 compatibility
-            final ChangeLogExecutionService[] serviceHolder = new ChangeLogExecutionService[1];
-            Service<Void> wrapperService = new Service<Void>() {
-                @Override
-                public void start(StartContext context) throws StartException {
-                    serviceHolder[0].start(context);
-                }
-
-                @Override
-                public void stop(StopContext context) {
-                    if (serviceHolder[0] != null) {
-                        serviceHolder[0].stop(context);
-                    }
-                }
-
-                @Override
-                public Void getValue() throws IllegalStateException, IllegalArgumentException {
-                    return null;
-                }
-            };
-
-            // Build the service
-            ServiceBuilder<?> builder = phaseContext.getServiceTarget().addService(serviceName, wrapperService);
-
-            // Create suppliers and consumers
-            Consumer<ChangeLogExecutionService> serviceConsumer = service -> {
-                serviceHolder[0] = service;
-            };
-
-            // Add a dependency on the datasource's reference factory service
-            Supplier<ManagedReferenceFactory> dataSourceRefSupplier = builder.requires(dataSourceServiceName);
-
-            // Create a wrapper supplier that extracts the DataSource from the reference
-            Supplier<DataSource> dataSourceSupplier = () -> {
-                try {
-                    ManagedReferenceFactory factory = dataSourceRefSupplier.get();
-                    if (factory != null) {
-                        Object reference = factory.getReference().getInstance();
-                        if (reference instanceof DataSource) {
-                            return (DataSource) reference;
-                        }
-                    }
-                    throw new RuntimeException("Failed to obtain DataSource from reference factory");
-                } catch (Exception e) {
-                    throw new RuntimeException("Failed to get DataSource reference", e);
-                }
-            };
-
-            // Create the service with the datasource supplier
-            ChangeLogExecutionService service = new ChangeLogExecutionService(configuration, serviceConsumer, dataSourceSupplier);
-
-            // Set initial reference
-            serviceHolder[0] = service;
-
-            // Install the service
-            builder.install();
-
-            registryService.addConfiguration(getConfigurationKey(deploymentUnit, configuration), configuration);
+            registryService.addConfiguration(getConfigurationKey(deploymentUnit, configuration), service);
+            registerDeploymentResources(deploymentUnit, configuration);
         }
     }
 
@@ -151,8 +109,18 @@ public class LiquibaseChangeLogExecutionProcessor implements DeploymentUnitProce
         if (activated != null && activated) {
             List<ChangeLogConfiguration> configurations = deploymentUnit.getAttachmentList(LiquibaseConstants.LIQUIBASE_CHANGELOGS);
             if (!configurations.isEmpty()) {
+                DeploymentUnit topLevelUnit = deploymentUnit.getParent() != null ? deploymentUnit.getParent() : deploymentUnit;
+                AttachmentList<ServiceName> executionServices = topLevelUnit.getAttachment(LiquibaseConstants.LIQUIBASE_EXECUTION_SERVICES);
+                AttachmentList<ServiceName> installedServices = deploymentUnit.removeAttachment(EXECUTION_SERVICES);
+                if (executionServices != null && installedServices != null) {
+                    executionServices.removeAll(installedServices);
+                }
+                AttachmentList<String> deferredChangeLogs = topLevelUnit.getAttachment(LiquibaseConstants.LIQUIBASE_DEFERRED_CHANGELOGS);
                 for (ChangeLogConfiguration configuration : configurations) {
                     registryService.removeConfiguration(getConfigurationKey(deploymentUnit, configuration));
+                    if (deferredChangeLogs != null) {
+                        deferredChangeLogs.remove(configuration.getFileName());
+                    }
                 }
             }
 
@@ -161,7 +129,19 @@ public class LiquibaseChangeLogExecutionProcessor implements DeploymentUnitProce
         }
     }
 
-    private String getConfigurationKey(DeploymentUnit deploymentUnit, ChangeLogConfiguration configuration) {
+    /**
+     * Registers runtime resources beneath the deployment to expose the change log execution metrics
+     */
+    static void registerDeploymentResources(DeploymentUnit deploymentUnit, ChangeLogConfiguration configuration) {
+        DeploymentResourceSupport resourceSupport = deploymentUnit.getAttachment(Attachments.DEPLOYMENT_RESOURCE_SUPPORT);
+        PathAddress changeLogAddress = PathAddress.pathAddress(PathElement.pathElement(ModelConstants.DATABASE_CHANGELOG, configuration.getName()));
+        resourceSupport.getDeploymentSubModel(LiquibaseExtension.SUBSYSTEM_NAME, changeLogAddress);
+        for (String dataSource : configuration.getDataSources()) {
+            resourceSupport.getDeploymentSubModel(LiquibaseExtension.SUBSYSTEM_NAME, changeLogAddress.append(ModelConstants.DATASOURCE, dataSource));
+        }
+    }
+
+    static String getConfigurationKey(DeploymentUnit deploymentUnit, ChangeLogConfiguration configuration) {
         return String.format("%s.%s", configuration.getName(), deploymentUnit.getName());
     }
 }
@@ -26,12 +26,14 @@ import com.github.jamesnetherton.extension.liquibase.ChangeLogParserFactory;
 import com.github.jamesnetherton.extension.liquibase.LiquibaseConstants;
 import com.github.jamesnetherton.extension.liquibase.LiquibaseLogger;
 import com.github.jamesnetherton.extension.liquibase.ModelConstants;
+import com.github.jamesnetherton.extension.liquibase.jfr.ChangeLogDiscoveryEvent;
+import com.github.jamesnetherton.extension.liquibase.jfr.ChangeLogParseEvent;
 import com.github.jamesnetherton.extension.liquibase.resource.VFSResourceAccessor;
+import com.github.jamesnetherton.extension.liquibase.resource.VirtualFileResourceAccessor;
 import com.github.jamesnetherton.extension.liquibase.resource.WildFlyCompositeResourceAccessor;
-import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
@@ -39,7 +41,6 @@ import liquibase.changelog.ChangeLogParameters;
 import liquibase.changelog.DatabaseChangeLog;
 import liquibase.exception.ChangeLogParseException;
 import liquibase.parser.ChangeLogParser;
-import liquibase.resource.FileSystemResourceAccessor;
 import org.jboss.as.ee.structure.DeploymentType;
 import org.jboss.as.ee.structure.DeploymentTypeMarker;
 import org.jboss.as.server.deployment.Attachments;
@@ -85,6 +86,8 @@ public class LiquibaseChangeLogParseProcessor implements DeploymentUnitProcessor
         List<VirtualFile> changeLogFiles = new ArrayList<>();
 
         try {
+            ChangeLogDiscoveryEvent discoveryEvent = new ChangeLogDiscoveryEvent();
+            discoveryEvent.begin();
             if (deploymentUnit.getName().matches(LiquibaseConstants.LIQUIBASE_CHANGELOG_PATTERN)) {
                 VirtualFile virtualFile = deploymentUnit.getAttachment(Attachments.DEPLOYMENT_CONTENTS);
                 LiquibaseLogger.ROOT_LOGGER.info("Found Liquibase changelog: {}", virtualFile.getName());
@@ -98,6 +101,9 @@ public class LiquibaseChangeLogParseProcessor implements DeploymentUnitProcessor
                     changeLogFiles.add(virtualFile);
                 }
             }
+            discoveryEvent.deployment = deploymentUnit.getName();
+            discoveryEvent.changeLogCount = changeLogFiles.size();
+            discoveryEvent.commit();
 
             BuilderCollection builderCollection = deploymentUnit.getAttachment(LiquibaseConstants.LIQUIBASE_CHANGELOG_BUILDERS);
 
@@ -109,9 +115,10 @@ public class LiquibaseChangeLogParseProcessor implements DeploymentUnitProcessor
             }
 
             for (VirtualFile virtualFile : changeLogFiles) {
-                File file = virtualFile.getPhysicalFile();
-                String changeLogDefinition = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
-                String dataSource = parseDataSource(virtualFile, deploymentUnit.getName(), module.getClassLoader());
+                String changeLogDefinition;
+                try (InputStream inputStream = virtualFile.openStream()) {
+                    changeLogDefinition = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+                }
 
                 // For standalone changelog deployments, use deployment name (which has extension)
                 // instead of physical file name (which may be 'content' in content repository)
@@ -119,7 +126,7 @@ public class LiquibaseChangeLogParseProcessor implements DeploymentUnitProcessor
                 if (deploymentUnit.getName().matches(LiquibaseConstants.LIQUIBASE_CHANGELOG_PATTERN)) {
                     changeLogName = deploymentUnit.getName();
                 } else {
-                    changeLogName = file.getName();
+                    changeLogName = virtualFile.getName();
                 }
 
                 Builder builder;
@@ -131,9 +138,15 @@ public class LiquibaseChangeLogParseProcessor implements DeploymentUnitProcessor
 
                 LiquibaseLogger.ROOT_LOGGER.info("Looking up builder for changeLogName={}", changeLogName);
 
+                // A datasource configured in jboss-all.xml takes precedence over the change log datasource property
+                String dataSource = builder.getDataSource();
+                if (dataSource == null || dataSource.trim().isEmpty()) {
+                    dataSource = parseDataSource(virtualFile, deploymentUnit.getName(), module.getClassLoader());
+                }
+
                 ChangeLogConfiguration configuration = builder.name(changeLogName)
                     .path(virtualFile.getPathName())
-                    .basePath(file.getParent())
+                    .basePath(virtualFile.getParent().getPathName())
                     .deployment(deploymentUnit.getName())
                     .definition(changeLogDefinition)
                     .dataSource(dataSource)
@@ -166,8 +179,7 @@ public class LiquibaseChangeLogParseProcessor implements DeploymentUnitProcessor
         try {
             Thread.currentThread().setContextClassLoader(classLoader);
 
-            File[] basePaths = new File[] { new File(file.getPhysicalFile().getParent()) };
-            FileSystemResourceAccessor fileSystemResourceAccessor = new FileSystemResourceAccessor(basePaths);
+            VirtualFileResourceAccessor virtualFileResourceAccessor = new VirtualFileResourceAccessor(file.getParent());
 
             ChangeLogConfiguration configuration = new ChangeLogConfiguration();
             configuration.setName(file.getName());
@@ -176,7 +188,7 @@ public class LiquibaseChangeLogParseProcessor implements DeploymentUnitProcessor
             configuration.setClassLoader(classLoader);
             VFSResourceAccessor vfsResourceAccessor = new VFSResourceAccessor(configuration);
 
-            WildFlyCompositeResourceAccessor compositeResourceAccessor = new WildFlyCompositeResourceAccessor(fileSystemResourceAccessor, vfsResourceAccessor);
+            WildFlyCompositeResourceAccessor compositeResourceAccessor = new WildFlyCompositeResourceAccessor(virtualFileResourceAccessor, vfsResourceAccessor);
 
             ChangeLogParser parser = ChangeLogParserFactory.createParser(file.getName());
             if (parser == null) {
@@ -196,20 +208,25 @@ public class LiquibaseChangeLogParseProcessor implements DeploymentUnitProcessor
                 changeLogLocation = "content";
             } else if (vfsPath.contains("/WEB-INF/") && !vfsPath.contains("/WEB-INF/classes/") && !vfsPath.contains(".jar/")) {
                 // Changelog directly in WEB-INF (not in classes or lib/*.jar)
-                // These are NOT on classpath, use filename for FileSystemResourceAccessor
+                // These are NOT on classpath, use filename for VirtualFileResourceAccessor
                 changeLogLocation = file.getName();
             } else {
                 // Changelog on classpath (WEB-INF/classes, JAR, etc.) - use classpath path
                 changeLogLocation = classpathPath;
             }
 
+            ChangeLogParseEvent parseEvent = new ChangeLogParseEvent();
+            parseEvent.begin();
             DatabaseChangeLog changeLog = parser.parse(changeLogLocation, new ChangeLogParameters(), compositeResourceAccessor);
             Object dataSource = changeLog.getChangeLogParameters().getValue(ModelConstants.DATASOURCE, changeLog);
+            parseEvent.changeLog = file.getName();
+            parseEvent.dataSource = dataSource != null ? dataSource.toString() : null;
+            parseEvent.commit();
             if (dataSource == null) {
                 throw new DeploymentUnitProcessingException("Change log is missing a datasource-ref property");
             }
             return (String) dataSource;
-        } catch (ChangeLogParseException | IOException e) {
+        } catch (ChangeLogParseException e) {
             throw new DeploymentUnitProcessingException(e);
         } finally {
             Thread.currentThread().setContextClassLoader(oldTCCL);
@@ -0,0 +1,143 @@
+/*-
+ * #%L
+ * wildfly-liquibase-subsystem
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase.deployment;
+
+import static com.github.jamesnetherton.extension.liquibase.LiquibaseLogger.MESSAGE_DEFERRED_SCHEMA_DEPENDENCY;
+
+import com.github.jamesnetherton.extension.liquibase.LiquibaseConstants;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.jboss.as.ee.component.ComponentDescription;
+import org.jboss.as.ee.component.EEModuleDescription;
+import org.jboss.as.server.deployment.Attachments;
+import org.jboss.as.server.deployment.DeploymentPhaseContext;
+import org.jboss.as.server.deployment.DeploymentUnit;
+import org.jboss.as.server.deployment.DeploymentUnitProcessingException;
+import org.jboss.as.server.deployment.DeploymentUnitProcessor;
+import org.jboss.as.server.deployment.annotation.CompositeIndex;
+import org.jboss.jandex.AnnotationInstance;
+import org.jboss.jandex.AnnotationTarget;
+import org.jboss.jandex.ClassInfo;
+import org.jboss.jandex.DotName;
+import org.jboss.msc.service.ServiceName;
+
+/**
+ * {@link DeploymentUnitProcessor} which makes the EE components that use the database schema wait for the change log
+ * execution services of their deployment.
+ *
+ * Change log execution services are installed early in the deployment, so that migrations overlap the remaining
+ * deployment processing. Only {@code @Startup} EJBs and components injecting a {@code @PersistenceContext} or
+ * {@code @PersistenceUnit} depend on them, since those are the components which touch the schema as they start.
+ * Within an EAR, components wait for the change logs of every module, since the schema they use may be owned by a
+ * sibling module. Deferred change logs do not hold back dependent services, so deployments that contain such
+ * components are refused rather than left to start against a schema which is still being migrated.
+ */
+public class LiquibaseComponentDependencyProcessor implements DeploymentUnitProcessor {
+
+    private static final DotName STARTUP = DotName.createSimple("jakarta.ejb.Startup");
+    private static final DotName PERSISTENCE_CONTEXT = DotName.createSimple("jakarta.persistence.PersistenceContext");
+    private static final DotName PERSISTENCE_CONTEXTS = DotName.createSimple("jakarta.persistence.PersistenceContexts");
+    private static final DotName PERSISTENCE_UNIT = DotName.createSimple("jakarta.persistence.PersistenceUnit");
+    private static final DotName PERSISTENCE_UNITS = DotName.createSimple("jakarta.persistence.PersistenceUnits");
+
+    @Override
+    public void deploy(DeploymentPhaseContext phaseContext) throws DeploymentUnitProcessingException {
+        DeploymentUnit deploymentUnit = phaseContext.getDeploymentUnit();
+        DeploymentUnit topLevelUnit = deploymentUnit.getParent() != null ? deploymentUnit.getParent() : deploymentUnit;
+
+        List<ServiceName> executionServices = topLevelUnit.getAttachmentList(LiquibaseConstants.LIQUIBASE_EXECUTION_SERVICES);
+        List<String> deferredChangeLogs = topLevelUnit.getAttachmentList(LiquibaseConstants.LIQUIBASE_DEFERRED_CHANGELOGS);
+        EEModuleDescription moduleDescription = deploymentUnit.getAttachment(org.jboss.as.ee.component.Attachments.EE_MODULE_DESCRIPTION);
+        CompositeIndex index = deploymentUnit.getAttachment(Attachments.COMPOSITE_ANNOTATION_INDEX);
+        if ((executionServices.isEmpty() && deferredChangeLogs.isEmpty()) || moduleDescription == null || index == null) {
+            return;
+        }
+
+        Set<String> schemaDependentClasses = new HashSet<>();
+        for (DotName annotation : new DotName[] {STARTUP, PERSISTENCE_CONTEXT, PERSISTENCE_CONTEXTS, PERSISTENCE_UNIT, PERSISTENCE_UNITS}) {
+            for (AnnotationInstance instance : index.getAnnotations(annotation)) {
+                String className = getDeclaringClassName(instance.target());
+                if (className != null) {
+                    schemaDependentClasses.add(className);
+                }
+            }
+        }
+
+        List<ComponentDescription> dependentComponents = new ArrayList<>();
+        for (ComponentDescription component : moduleDescription.getComponentDescriptions()) {
+            if (isSchemaDependent(index, DotName.createSimple(component.getComponentClassName()), schemaDependentClasses)) {
+                dependentComponents.add(component);
+            }
+        }
+
+        if (dependentComponents.isEmpty()) {
+            return;
+        }
+
+        if (!deferredChangeLogs.isEmpty()) {
+            throw new DeploymentUnitProcessingException(String.format(MESSAGE_DEFERRED_SCHEMA_DEPENDENCY, deferredChangeLogs, dependentComponents.get(0).getComponentClassName()));
+        }
+
+        for (ComponentDescription component : dependentComponents) {
+            for (ServiceName executionService : executionServices) {
+                component.addDependency(executionService);
+            }
+        }
+    }
+
+    @Override
+    public void undeploy(DeploymentUnit deploymentUnit) {
+    }
+
+    /**
+     * Injection points may be declared by a superclass of the component, so its hierarchy is searched as far as the
+     * index allows.
+     */
+    private static boolean isSchemaDependent(CompositeIndex index, DotName className, Set<String> schemaDependentClasses) {
+        DotName current = className;
+        while (current != null) {
+            if (schemaDependentClasses.contains(current.toString())) {
+                return true;
+            }
+            ClassInfo classInfo = index.getClassByName(current);
+            current = classInfo != null ? classInfo.superName() : null;
+        }
+        return false;
+    }
+
+    private static String getDeclaringClassName(AnnotationTarget target) {
+        if (target == null) {
+            return null;
+        }
+
+        switch (target.kind()) {
+            case CLASS:
+                return target.asClass().name().toString();
+            case FIELD:
+                return target.asField().declaringClass().name().toString();
+            case METHOD:
+                return target.asMethod().declaringClass().name().toString();
+            default:
+                return null;
+        }
+    }
+}
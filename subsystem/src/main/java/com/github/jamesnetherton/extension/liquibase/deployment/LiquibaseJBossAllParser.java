@@ -21,6 +21,7 @@ package com.github.jamesnetherton.extension.liquibase.deployment;
 
 import com.github.jamesnetherton.extension.liquibase.ChangeLogConfiguration.Builder;
 import com.github.jamesnetherton.extension.liquibase.ChangeLogConfiguration.BuilderCollection;
+import com.github.jamesnetherton.extension.liquibase.ChangeLogExecutionMode;
 /*-
  * #%L
  * wildfly-liquibase-subsystem
@@ -66,10 +67,21 @@ public class LiquibaseJBossAllParser implements JBossAllXMLParser<BuilderCollect
     enum Element {
         LIQUIBASE(ROOT_ELEMENT),
         CONTEXTS(new QName(NAMESPACE_1_0, "contexts")),
+        DATASOURCE(new QName(NAMESPACE_1_0, "datasource")),
         FAIL_ON_ERROR(new QName(NAMESPACE_1_0, "fail-on-error")),
         HOST_EXCLUDES(new QName(NAMESPACE_1_0, "host-excludes")),
         HOST_INCLUDES(new QName(NAMESPACE_1_0, "host-includes")),
         LABELS(new QName(NAMESPACE_1_0, "labels")),
+        PARALLELISM(new QName(NAMESPACE_1_0, "parallelism")),
+        TIMEOUT(new QName(NAMESPACE_1_0, "timeout")),
+        CHANGESET_TIMEOUT(new QName(NAMESPACE_1_0, "changeset-timeout")),
+        BATCH_SIZE(new QName(NAMESPACE_1_0, "batch-size")),
+        TRANSACTION_GROUP_SIZE(new QName(NAMESPACE_1_0, "transaction-group-size")),
+        BASELINE(new QName(NAMESPACE_1_0, "baseline")),
+        HISTORY_INDEX(new QName(NAMESPACE_1_0, "history-index")),
+        MIGRATION_DATASOURCE(new QName(NAMESPACE_1_0, "migration-datasource")),
+        EXECUTION_MODE(new QName(NAMESPACE_1_0, "execution-mode")),
+        SKIP_IF_UNCHANGED(new QName(NAMESPACE_1_0, "skip-if-unchanged")),
         UNKNOWN(null);
 
         private static final Map<QName, Element> elements;
@@ -151,6 +163,9 @@ public class LiquibaseJBossAllParser implements JBossAllXMLParser<BuilderCollect
                         case CONTEXTS:
                             builder.contexts(parseElement(reader, builder));
                             break;
+                        case DATASOURCE:
+                            builder.dataSource(parseElement(reader, builder));
+                            break;
                         case FAIL_ON_ERROR:
                             Boolean failOnError = Boolean.valueOf(parseElement(reader, builder));
                             builder.failOnError(failOnError);
@@ -164,6 +179,36 @@ public class LiquibaseJBossAllParser implements JBossAllXMLParser<BuilderCollect
                         case LABELS:
                             builder.labels(parseElement(reader, builder));
                             break;
+                        case PARALLELISM:
+                            builder.parallelism(parseIntElement(reader, builder));
+                            break;
+                        case TIMEOUT:
+                            builder.timeout(parseIntElement(reader, builder));
+                            break;
+                        case CHANGESET_TIMEOUT:
+                            builder.changeSetTimeout(parseIntElement(reader, builder));
+                            break;
+                        case BATCH_SIZE:
+                            builder.batchSize(parseIntElement(reader, builder));
+                            break;
+                        case TRANSACTION_GROUP_SIZE:
+                            builder.transactionGroupSize(parseIntElement(reader, builder));
+                            break;
+                        case BASELINE:
+                            builder.baseline(parseElement(reader, builder));
+                            break;
+                        case HISTORY_INDEX:
+                            builder.historyIndex(Boolean.valueOf(parseElement(reader, builder)));
+                            break;
+                        case MIGRATION_DATASOURCE:
+                            builder.migrationDataSource(parseElement(reader, builder));
+                            break;
+                        case EXECUTION_MODE:
+                            builder.executionMode(parseExecutionModeElement(reader, builder));
+                            break;
+                        case SKIP_IF_UNCHANGED:
+                            builder.skipIfUnchanged(Boolean.valueOf(parseElement(reader, builder)));
+                            break;
                         default:
                             throw unexpectedContent(reader);
                     }
@@ -192,6 +237,24 @@ public class LiquibaseJBossAllParser implements JBossAllXMLParser<BuilderCollect
         }
     }
 
+    private int parseIntElement(XMLExtendedStreamReader reader, Builder result) throws XMLStreamException {
+        String value = parseElement(reader, result);
+        try {
+            return value == null ? 0 : Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new XMLStreamException("Invalid integer value '" + value + "' at " + reader.getLocation());
+        }
+    }
+
+    private ChangeLogExecutionMode parseExecutionModeElement(XMLExtendedStreamReader reader, Builder result) throws XMLStreamException {
+        String value = parseElement(reader, result);
+        try {
+            return value == null ? ChangeLogExecutionMode.SYNC : ChangeLogExecutionMode.forName(value);
+        } catch (IllegalArgumentException e) {
+            throw new XMLStreamException("Invalid execution mode '" + value + "' at " + reader.getLocation() + ". Supported modes are sync, async and deferred");
+        }
+    }
+
     private XMLStreamException unexpectedContent(final XMLStreamReader reader) {
         final String kind;
         switch (reader.getEventType()) {
@@ -0,0 +1,42 @@
+/*-
+ * #%L
+ * wildfly-liquibase-subsystem
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Emitted when a change log is parsed, either to discover its datasource during deployment or before it is executed.
+ */
+@Name("com.github.jamesnetherton.liquibase.ChangeLogParse")
+@Label("Change Log Parse")
+@Category("Liquibase")
+@Description("Parse of a Liquibase change log and its included files")
+public final class ChangeLogParseEvent extends Event {
+
+    @Label("Change Log")
+    public String changeLog;
+
+    @Label("Datasource")
+    public String dataSource;
+}
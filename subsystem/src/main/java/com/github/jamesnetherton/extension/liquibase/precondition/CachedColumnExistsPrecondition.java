@@ -0,0 +1,53 @@
+/*-
+ * #%L
+ * wildfly-liquibase-subsystem
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase.precondition;
+
+import java.sql.SQLException;
+import liquibase.changelog.ChangeSet;
+import liquibase.changelog.DatabaseChangeLog;
+import liquibase.changelog.visitor.ChangeExecListener;
+import liquibase.database.Database;
+import liquibase.exception.PreconditionErrorException;
+import liquibase.exception.PreconditionFailedException;
+import liquibase.precondition.core.ColumnExistsPrecondition;
+
+/**
+ * {@link ColumnExistsPrecondition} which is evaluated against the {@link MetadataSnapshotCache} of the current change
+ * log execution, if there is one.
+ */
+public class CachedColumnExistsPrecondition extends ColumnExistsPrecondition {
+
+    @Override
+    public void check(Database database, DatabaseChangeLog changeLog, ChangeSet changeSet, ChangeExecListener changeExecListener) throws PreconditionFailedException, PreconditionErrorException {
+        MetadataSnapshotCache cache = MetadataSnapshotCache.getCurrent(database);
+        if (cache == null || getTableName() == null || getTableName().isBlank()) {
+            super.check(database, changeLog, changeSet, changeExecListener);
+            return;
+        }
+
+        try {
+            if (!cache.hasColumn(database, getCatalogName(), getSchemaName(), getTableName(), getColumnName())) {
+                throw new PreconditionFailedException("Column '" + database.escapeColumnName(getCatalogName(), getSchemaName(), getTableName(), getColumnName()) + "' does not exist", changeLog, this);
+            }
+        } catch (SQLException e) {
+            throw new PreconditionErrorException(e, changeLog, this);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+/*-
+ * #%L
+ * wildfly-liquibase-subsystem
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase.precondition;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import liquibase.CatalogAndSchema;
+import liquibase.Scope;
+import liquibase.changelog.ChangeSet;
+import liquibase.changelog.DatabaseChangeLog;
+import liquibase.changelog.visitor.AbstractChangeExecListener;
+import liquibase.changelog.visitor.ChangeExecListener;
+import liquibase.database.AbstractJdbcDatabase;
+import liquibase.database.Database;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.structure.DatabaseObject;
+import liquibase.structure.core.Column;
+import liquibase.structure.core.Index;
+import liquibase.structure.core.Table;
+
+/**
+ * Caches the tables, columns and indexes of the schemas that table, column and index preconditions are evaluated
+ * against during a change log execution.
+ *
+ * The tables and columns of a schema are read with a single metadata query each the first time the schema is checked.
+ * Indexes are read per table. The cache is discarded whenever a change set has run, including one that failed, as it
+ * may have changed the schema. Change sets that were only marked as ran or skipped leave it in place.
+ */
+public final class MetadataSnapshotCache {
+
+    public static final String SCOPE_KEY = "wildfly.liquibase.metadataSnapshotCache";
+
+    private static final String[] TABLE_TYPES = {"TABLE", "BASE TABLE", "PARTITIONED TABLE"};
+
+    private final Map<String, SchemaMetadata> schemas = new HashMap<>();
+    private final ChangeExecListener changeExecListener = new AbstractChangeExecListener() {
+        @Override
+        public void ran(ChangeSet changeSet, DatabaseChangeLog databaseChangeLog, Database database, ChangeSet.ExecType execType) {
+            // Change sets that failed without failing the update, such as those with failOnError=false, may still have changed the schema
+            if (execType != ChangeSet.ExecType.MARK_RAN && execType != ChangeSet.ExecType.SKIPPED) {
+                invalidate();
+            }
+        }
+
+        @Override
+        public void runFailed(ChangeSet changeSet, DatabaseChangeLog databaseChangeLog, Database database, Exception exception) {
+            invalidate();
+        }
+    };
+
+    /**
+     * @return the cache registered in the current scope, or null if preconditions are evaluated without one
+     */
+    static MetadataSnapshotCache getCurrent(Database database) {
+        if (!(database instanceof AbstractJdbcDatabase) || !(database.getConnection() instanceof JdbcConnection)) {
+            return null;
+        }
+        return Scope.getCurrentScope().get(SCOPE_KEY, MetadataSnapshotCache.class);
+    }
+
+    public ChangeExecListener getChangeExecListener() {
+        return changeExecListener;
+    }
+
+    public synchronized void invalidate() {
+        schemas.clear();
+    }
+
+    synchronized boolean hasTable(Database database, String catalogName, String schemaName, String tableName) throws SQLException {
+        return getSchema(database, catalogName, schemaName).columns.containsKey(key(database, tableName, Table.class));
+    }
+
+    synchronized boolean hasColumn(Database database, String catalogName, String schemaName, String tableName, String columnName) throws SQLException {
+        Set<String> columns = getSchema(database, catalogName, schemaName).columns.get(key(database, tableName, Table.class));
+        return columns != null && columns.contains(key(database, columnName, Column.class));
+    }
+
+    synchronized boolean hasIndex(Database database, String catalogName, String schemaName, String tableName, String indexName) throws SQLException {
+        SchemaMetadata schema = getSchema(database, catalogName, schemaName);
+        String table = key(database, tableName, Table.class);
+        if (!schema.columns.containsKey(table)) {
+            return false;
+        }
+
+        Set<String> indexes = schema.indexes.get(table);
+        if (indexes == null) {
+            indexes = new HashSet<>();
+            try (ResultSet resultSet = getMetaData(database).getIndexInfo(schema.catalog, schema.schema, schema.tableNames.get(table), false, true)) {
+                while (resultSet.next()) {
+                    String name = resultSet.getString("INDEX_NAME");
+                    if (name != null) {
+                        indexes.add(key(database, name));
+                    }
+                }
+            }
+            schema.indexes.put(table, indexes);
+        }
+        return indexes.contains(key(database, indexName, Index.class));
+    }
+
+    private SchemaMetadata getSchema(Database database, String catalogName, String schemaName) throws SQLException {
+        AbstractJdbcDatabase jdbcDatabase = (AbstractJdbcDatabase) database;
+        CatalogAndSchema catalogAndSchema = new CatalogAndSchema(catalogName, schemaName).customize(database);
+        String catalog = jdbcDatabase.getJdbcCatalogName(catalogAndSchema);
+        String schema = jdbcDatabase.getJdbcSchemaName(catalogAndSchema);
+
+        String schemaKey = catalog + "." + schema;
+        SchemaMetadata metadata = schemas.get(schemaKey);
+        if (metadata == null) {
+            metadata = new SchemaMetadata(catalog, schema);
+            DatabaseMetaData databaseMetaData = getMetaData(database);
+            try (ResultSet resultSet = databaseMetaData.getTables(catalog, schema, null, TABLE_TYPES)) {
+                while (resultSet.next()) {
+                    String table = resultSet.getString("TABLE_NAME");
+                    metadata.tableNames.put(key(database, table), table);
+                    metadata.columns.put(key(database, table), new HashSet<>());
+                }
+            }
+            try (ResultSet resultSet = databaseMetaData.getColumns(catalog, schema, null, null)) {
+                while (resultSet.next()) {
+                    Set<String> columns = metadata.columns.get(key(database, resultSet.getString("TABLE_NAME")));
+                    if (columns != null) {
+                        columns.add(key(database, resultSet.getString("COLUMN_NAME")));
+                    }
+                }
+            }
+            schemas.put(schemaKey, metadata);
+        }
+        return metadata;
+    }
+
+    private static DatabaseMetaData getMetaData(Database database) throws SQLException {
+        return ((JdbcConnection) database.getConnection()).getUnderlyingConnection().getMetaData();
+    }
+
+    private static String key(Database database, String name, Class<? extends DatabaseObject> type) {
+        return key(database, database.correctObjectName(name, type));
+    }
+
+    private static String key(Database database, String name) {
+        return database.isCaseSensitive() ? name : name.toLowerCase(Locale.ROOT);
+    }
+
+    private static final class SchemaMetadata {
+        private final String catalog;
+        private final String schema;
+        private final Map<String, String> tableNames = new HashMap<>();
+        private final Map<String, Set<String>> columns = new HashMap<>();
+        private final Map<String, Set<String>> indexes = new HashMap<>();
+
+        private SchemaMetadata(String catalog, String schema) {
+            this.catalog = catalog;
+            this.schema = schema;
+        }
+    }
+}
@@ -21,6 +21,7 @@ package com.github.jamesnetherton.extension.liquibase.resource;
 
 import com.github.jamesnetherton.extension.liquibase.ChangeLogConfiguration;
 import com.github.jamesnetherton.extension.liquibase.LiquibaseLogger;
+import com.github.jamesnetherton.extension.liquibase.jfr.ResourceLookupEvent;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
@@ -50,6 +51,18 @@ public class VFSResourceAccessor extends ClassLoaderResourceAccessor {
 
     @Override
     public InputStreamList openStreams(String relativeTo, String path) throws IOException {
+        ResourceLookupEvent event = new ResourceLookupEvent();
+        event.begin();
+        InputStreamList resources = null;
+        try {
+            resources = lookupStreams(relativeTo, path);
+            return resources;
+        } finally {
+            commit(event, path, resources != null && !resources.isEmpty());
+        }
+    }
+
+    private InputStreamList lookupStreams(String relativeTo, String path) throws IOException {
         LiquibaseLogger.ROOT_LOGGER.info("VFSResourceAccessor.openStreams: relativeTo={}, path={}", relativeTo, path);
         InputStreamList resources = new InputStreamList();
         ClassLoader classLoader = configuration.getClassLoader();
@@ -185,6 +198,18 @@ public class VFSResourceAccessor extends ClassLoaderResourceAccessor {
 
     @Override
     public List<Resource> getAll(String path) throws IOException {
+        ResourceLookupEvent event = new ResourceLookupEvent();
+        event.begin();
+        List<Resource> resources = null;
+        try {
+            resources = lookupAll(path);
+            return resources;
+        } finally {
+            commit(event, path, resources != null && !resources.isEmpty());
+        }
+    }
+
+    private List<Resource> lookupAll(String path) throws IOException {
         ClassLoader classLoader = configuration.getClassLoader();
 
         // Normalize path (remove leading slash for classloader lookup)
@@ -221,6 +246,16 @@ public class VFSResourceAccessor extends ClassLoaderResourceAccessor {
         return super.getAll(path);
     }
 
+    private void commit(ResourceLookupEvent event, String path, boolean found) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.changeLog = configuration.getName();
+            event.path = path;
+            event.found = found;
+            event.commit();
+        }
+    }
+
     /**
      * Extract the classpath resource base path (parent directory) from the VFS path.
      * VFS paths look like: /path/to/wildfly/tmp/vfs/.../contents/com/example/changelog.xml
@@ -0,0 +1,142 @@
+/*-
+ * #%L
+ * wildfly-liquibase-subsystem
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase.resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import liquibase.resource.AbstractResource;
+import liquibase.resource.AbstractResourceAccessor;
+import liquibase.resource.Resource;
+import org.jboss.vfs.VirtualFile;
+
+/**
+ * Resource accessor which reads files relative to a {@link VirtualFile} directory of a deployment.
+ *
+ * Streams are opened directly on the mounted deployment content. Files within archive deployments are therefore read
+ * from the archive without being extracted to a temporary directory, and files within exploded deployments are read in
+ * place.
+ */
+public class VirtualFileResourceAccessor extends AbstractResourceAccessor {
+
+    private final VirtualFile root;
+
+    public VirtualFileResourceAccessor(VirtualFile root) {
+        this.root = root;
+    }
+
+    @Override
+    public List<Resource> getAll(String path) throws IOException {
+        VirtualFileResource resource = getResource(path);
+        return resource.exists() ? Collections.singletonList(resource) : null;
+    }
+
+    @Override
+    public List<Resource> search(String path, boolean recursive) throws IOException {
+        String normalizedPath = normalize(path);
+        VirtualFile directory = normalizedPath.isEmpty() ? root : root.getChild(normalizedPath);
+        if (!directory.isDirectory()) {
+            return Collections.emptyList();
+        }
+
+        List<Resource> resources = new ArrayList<>();
+        for (VirtualFile child : recursive ? directory.getChildrenRecursively() : directory.getChildren()) {
+            if (child.isFile()) {
+                resources.add(new VirtualFileResource(child.getPathNameRelativeTo(root), child));
+            }
+        }
+        return resources;
+    }
+
+    @Override
+    public List<String> describeLocations() {
+        return Collections.singletonList(root.getPathName());
+    }
+
+    @Override
+    public void close() {
+        // The deployment owns the virtual file mounts
+    }
+
+    private VirtualFileResource getResource(String path) {
+        String normalizedPath = normalize(path);
+        return new VirtualFileResource(normalizedPath, root.getChild(normalizedPath));
+    }
+
+    /**
+     * Converts the path to a form relative to the root directory, resolving any '.' and '..' segments.
+     */
+    private static String normalize(String path) {
+        Deque<String> segments = new ArrayDeque<>();
+        for (String segment : path.replace('\\', '/').replaceFirst("^classpath\\*?:", "").split("/")) {
+            if (segment.equals("..")) {
+                segments.pollLast();
+            } else if (!segment.isEmpty() && !segment.equals(".")) {
+                segments.addLast(segment);
+            }
+        }
+        return String.join("/", segments);
+    }
+
+    private static URI toUri(VirtualFile file) {
+        try {
+            return file.toURI();
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException("Invalid URI for virtual file " + file.getPathName(), e);
+        }
+    }
+
+    private final class VirtualFileResource extends AbstractResource {
+
+        private final VirtualFile file;
+
+        private VirtualFileResource(String path, VirtualFile file) {
+            super(path, toUri(file));
+            this.file = file;
+        }
+
+        @Override
+        public InputStream openInputStream() throws IOException {
+            return file.openStream();
+        }
+
+        @Override
+        public boolean exists() {
+            return file.isFile();
+        }
+
+        @Override
+        public Resource resolve(String other) {
+            return getResource(getPath() + "/" + other);
+        }
+
+        @Override
+        public Resource resolveSibling(String other) {
+            int index = getPath().lastIndexOf('/');
+            return getResource(index > -1 ? getPath().substring(0, index + 1) + other : other);
+        }
+    }
+}
@@ -28,6 +28,7 @@ import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 import liquibase.resource.AbstractResource;
 import liquibase.resource.InputStreamList;
 import liquibase.resource.Resource;
@@ -42,10 +43,19 @@ public final class WildFlyResourceAccessor extends VFSResourceAccessor {
     private static final String LIQUIBASE_ELEMENT_END = "</databaseChangeLog>";
     private static final String LIQUIBASE_XSD_PATH = "www.liquibase.org/xml/ns/dbchangelog";
 
+    private final LongAdder cacheHits = new LongAdder();
+
     public WildFlyResourceAccessor(ChangeLogConfiguration configuration) {
         super(configuration);
     }
 
+    /**
+     * @return the number of change log lookups served from the in-memory change log definition
+     */
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
     @Override
     public InputStreamList openStreams(String relativeTo, String path) throws IOException {
         // Prevent 'Found x copies of resource' errors
@@ -70,6 +80,7 @@ public final class WildFlyResourceAccessor extends VFSResourceAccessor {
             }
 
             if (definition != null && path.equals(configuration.getFileName())) {
+                cacheHits.increment();
                 resources.add(file.toURI(), new ByteArrayInputStream(definition.getBytes(StandardCharsets.UTF_8)));
             } else if (definition == null || !path.equals(configuration.getFileName())) {
                 resources = super.openStreams(relativeTo, path);
@@ -93,7 +104,7 @@ public final class WildFlyResourceAccessor extends VFSResourceAccessor {
 
     @Override
     public List<Resource> getAll(String path) throws IOException {
-        // If file is in WEB-INF (not on classpath), let FileSystemResourceAccessor handle it
+        // If file is in WEB-INF (not on classpath), let VirtualFileResourceAccessor handle it
         // WEB-INF files (not in classes or lib/*.jar) are not accessible via ClassLoader
         String vfsPath = configuration.getPath();
         boolean isWebInfNonClasspath = vfsPath != null
@@ -116,6 +127,7 @@ public final class WildFlyResourceAccessor extends VFSResourceAccessor {
                         definition += LIQUIBASE_ELEMENT_END;
                     }
                 }
+                cacheHits.increment();
                 final String finalDefinition = definition;
                 final String currentPath = path;
                 final WildFlyResourceAccessor accessor = this;
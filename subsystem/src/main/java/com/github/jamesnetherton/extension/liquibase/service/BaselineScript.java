@@ -0,0 +1,261 @@
+/*-
+ * #%L
+ * wildfly-liquibase-subsystem
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import liquibase.Scope;
+import liquibase.change.Change;
+import liquibase.changelog.ChangeLogHistoryService;
+import liquibase.changelog.ChangeLogHistoryServiceFactory;
+import liquibase.changelog.ChangeSet;
+import liquibase.database.Database;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.diff.DiffGeneratorFactory;
+import liquibase.diff.DiffResult;
+import liquibase.diff.ObjectDifferences;
+import liquibase.diff.compare.CompareControl;
+import liquibase.diff.output.DiffOutputControl;
+import liquibase.diff.output.ObjectChangeFilter;
+import liquibase.diff.output.changelog.DiffToChangeLog;
+import liquibase.exception.DatabaseException;
+import liquibase.exception.LiquibaseException;
+import liquibase.executor.Executor;
+import liquibase.executor.ExecutorService;
+import liquibase.resource.ResourceAccessor;
+import liquibase.sql.Sql;
+import liquibase.sqlgenerator.SqlGeneratorFactory;
+import liquibase.statement.SqlStatement;
+import liquibase.statement.core.InsertStatement;
+import liquibase.statement.core.RawParameterizedSqlStatement;
+import liquibase.structure.DatabaseObject;
+import liquibase.structure.core.Column;
+import liquibase.structure.core.ForeignKey;
+import liquibase.structure.core.Index;
+import liquibase.structure.core.PrimaryKey;
+import liquibase.structure.core.Relation;
+import liquibase.structure.core.UniqueConstraint;
+import liquibase.util.StringUtil;
+
+/**
+ * Generates and applies baseline scripts. A baseline script holds the DDL of a schema together with the change log
+ * history rows that produced it, so that a new database can be brought up to date without replaying every change set.
+ */
+final class BaselineScript {
+
+    private static final String TAG_COLUMN = "TAG";
+
+    private BaselineScript() {
+    }
+
+    /**
+     * Applies the baseline script at the given path in a single transaction if no change sets have been executed
+     * against the database yet.
+     *
+     * Databases that commit DDL implicitly are refused, as a baseline that failed part way through would leave schema
+     * objects behind without the change log history that created them, and could not be applied again.
+     *
+     * @return the number of statements executed, or -1 if the database already has change log history
+     */
+    static int applyIfEmpty(Database database, ResourceAccessor resourceAccessor, String path) throws LiquibaseException {
+        ChangeLogHistoryService historyService = Scope.getCurrentScope().getSingleton(ChangeLogHistoryServiceFactory.class).getChangeLogService(database);
+        historyService.init();
+        if (!historyService.getRanChangeSets().isEmpty()) {
+            return -1;
+        }
+
+        if (!TransactionGroupingConnection.isSupported(database)) {
+            throw new LiquibaseException(String.format("Baseline %s cannot be applied in a single transaction as %s commits DDL implicitly. "
+                + "Execute the change log without a baseline instead", path, database.getDatabaseProductName()));
+        }
+
+        String script;
+        try (InputStream stream = resourceAccessor.getExisting(path).openInputStream()) {
+            script = new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new LiquibaseException("Unable to read baseline " + path, e);
+        }
+
+        String[] statements = StringUtil.processMultiLineSQL(script, true, true, null);
+        Executor executor = Scope.getCurrentScope().getSingleton(ExecutorService.class).getExecutor("jdbc", database);
+        try {
+            for (String statement : statements) {
+                executor.execute(new RawParameterizedSqlStatement(statement));
+            }
+            database.commit();
+        } catch (DatabaseException e) {
+            database.rollback();
+            throw e;
+        } finally {
+            historyService.reset();
+        }
+        return statements.length;
+    }
+
+    /**
+     * Generates a baseline script from the current schema of the database and its change log history.
+     *
+     * @param tag if not null, the most recent change log tag, which ensures that the baseline matches a known state
+     */
+    static String generate(Database database, String tag) throws LiquibaseException, SQLException {
+        // Unqualified names let the script be applied to databases that use a different default schema
+        database.setOutputDefaultCatalog(false);
+        database.setOutputDefaultSchema(false);
+
+        StringBuilder script = new StringBuilder();
+        script.append("-- Liquibase baseline");
+        if (tag != null) {
+            script.append(" at tag ").append(tag);
+        }
+        script.append(System.lineSeparator());
+
+        for (ChangeSet changeSet : generateSchemaChangeSets(database)) {
+            for (Change change : changeSet.getChanges()) {
+                appendSql(script, change.generateStatements(database), database);
+            }
+        }
+
+        List<InsertStatement> history = readHistory(database);
+        if (history.isEmpty()) {
+            throw new LiquibaseException("Database has no change log history to create a baseline from");
+        }
+        if (tag != null && !tag.equals(getTag(history.get(history.size() - 1)))) {
+            throw new LiquibaseException(String.format("The most recently executed change set is not tagged %s. Generate the baseline from a database updated to that tag", tag));
+        }
+        appendSql(script, history.toArray(new SqlStatement[0]), database);
+        return script.toString();
+    }
+
+    private static List<ChangeSet> generateSchemaChangeSets(Database database) throws LiquibaseException {
+        DiffResult diffResult = DiffGeneratorFactory.getInstance().compare(database, null, new CompareControl());
+        DiffOutputControl outputControl = new DiffOutputControl(false, false, false, null);
+        outputControl.setObjectChangeFilter(new HistoryTableFilter(ChangeLogHistoryTable.getArchiveTableName(database), MigrationLease.getTableName(database)));
+        DiffToChangeLog diffToChangeLog = new DiffToChangeLog(diffResult, outputControl);
+
+        Map<String, Object> scopeValues = new HashMap<>();
+        scopeValues.put(DiffToChangeLog.DIFF_OUTPUT_CONTROL_SCOPE_KEY, outputControl);
+        scopeValues.put(DiffToChangeLog.DIFF_SNAPSHOT_DATABASE, database);
+        try {
+            return Scope.child(scopeValues, diffToChangeLog::generateChangeSets);
+        } catch (LiquibaseException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new LiquibaseException(e);
+        }
+    }
+
+    /**
+     * Reads the rows of the change log table, in execution order, as insert statements.
+     */
+    private static List<InsertStatement> readHistory(Database database) throws SQLException, DatabaseException {
+        String tableName = database.getDatabaseChangeLogTableName();
+        String query = String.format("SELECT * FROM %s ORDER BY DATEEXECUTED, ORDEREXECUTED",
+            database.escapeTableName(database.getLiquibaseCatalogName(), database.getLiquibaseSchemaName(), tableName));
+
+        List<InsertStatement> history = new ArrayList<>();
+        try (Statement statement = ((JdbcConnection) database.getConnection()).createStatement();
+             ResultSet resultSet = statement.executeQuery(query)) {
+            ResultSetMetaData metaData = resultSet.getMetaData();
+            while (resultSet.next()) {
+                InsertStatement insert = new InsertStatement(null, null, tableName);
+                for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                    Object value = resultSet.getObject(i);
+                    if (value != null) {
+                        insert.addColumnValue(metaData.getColumnLabel(i), value);
+                    }
+                }
+                history.add(insert);
+            }
+        }
+        return history;
+    }
+
+    private static Object getTag(InsertStatement row) {
+        for (Map.Entry<String, Object> column : row.getColumnValues().entrySet()) {
+            if (column.getKey().equalsIgnoreCase(TAG_COLUMN)) {
+                return column.getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Excludes tables used alongside the change log history, together with their columns, keys and indexes. Liquibase
+     * only excludes its change log and lock tables from the schema itself.
+     */
+    private static final class HistoryTableFilter implements ObjectChangeFilter {
+
+        private final Set<String> tableNames = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+
+        HistoryTableFilter(String... tableNames) {
+            this.tableNames.addAll(Arrays.asList(tableNames));
+        }
+
+        @Override
+        public boolean includeMissing(DatabaseObject object, Database referenceDatabase, Database comparisonDatabase) {
+            return include(object);
+        }
+
+        @Override
+        public boolean includeUnexpected(DatabaseObject object, Database referenceDatabase, Database comparisonDatabase) {
+            return include(object);
+        }
+
+        @Override
+        public boolean includeChanged(DatabaseObject object, ObjectDifferences differences, Database referenceDatabase, Database comparisonDatabase) {
+            return include(object);
+        }
+
+        @Override
+        public boolean include(DatabaseObject object) {
+            DatabaseObject relation = object;
+            if (object instanceof Column) {
+                relation = ((Column) object).getRelation();
+            } else if (object instanceof Index) {
+                relation = ((Index) object).getRelation();
+            } else if (object instanceof PrimaryKey) {
+                relation = ((PrimaryKey) object).getTable();
+            } else if (object instanceof UniqueConstraint) {
+                relation = ((UniqueConstraint) object).getRelation();
+            } else if (object instanceof ForeignKey) {
+                relation = ((ForeignKey) object).getForeignKeyTable();
+            }
+            return !(relation instanceof Relation && tableNames.contains(relation.getName()));
+        }
+    }
+
+    private static void appendSql(StringBuilder script, SqlStatement[] statements, Database database) {
+        for (Sql sql : SqlGeneratorFactory.getInstance().generateSql(statements, database)) {
+            script.append(sql.toSql()).append(sql.getEndDelimiter()).append(System.lineSeparator());
+        }
+    }
+}
@@ -0,0 +1,244 @@
+/*-
+ * #%L
+ * wildfly-liquibase-subsystem
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase.service;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import liquibase.Scope;
+import liquibase.changelog.ChangeLogHistoryService;
+import liquibase.changelog.ChangeLogHistoryServiceFactory;
+import liquibase.changelog.ChangeSet;
+import liquibase.changelog.RanChangeSet;
+import liquibase.changelog.StandardChangeLogHistoryService;
+import liquibase.database.AbstractJdbcDatabase;
+import liquibase.database.Database;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.DatabaseException;
+import liquibase.exception.LiquibaseException;
+import liquibase.exception.ServiceNotFoundException;
+import liquibase.servicelocator.ServiceLocator;
+
+/**
+ * {@link StandardChangeLogHistoryService} which reads the change log history through the {@link RanChangeSetCache}
+ * of the target datasource, and records the change sets it marks as ran in it.
+ *
+ * Only used for databases created by {@link ChangeLogExecutionService}, which carry the cache as an attribute.
+ */
+public final class CachingChangeLogHistoryService extends StandardChangeLogHistoryService {
+
+    private List<RanChangeSet> ranChangeSets;
+    private int lastSequenceValue;
+
+    /**
+     * Makes the service available to {@link ChangeLogHistoryServiceFactory}. Services added through
+     * {@link ChangeLogHistoryServiceFactory#register(ChangeLogHistoryService)} are discarded whenever a change log lock is
+     * acquired, so the service is instead contributed by the service locator the factory discovers its plugins with.
+     *
+     * Must be called before the factory is first used.
+     */
+    public static void register() throws Exception {
+        ServiceLocator serviceLocator = Scope.getCurrentScope().getServiceLocator();
+        Scope.child(Scope.Attr.serviceLocator, new HistoryServiceLocator(serviceLocator),
+            () -> Scope.getCurrentScope().getSingleton(ChangeLogHistoryServiceFactory.class).resetAll());
+    }
+
+    /**
+     * Shares the cached history of the given datasource with the database, if it is a JDBC database and histories
+     * are cached. The history is looked up by the change log table the database is configured with when it is read.
+     */
+    static void attach(Database database, String dataSource) {
+        if (database instanceof AbstractJdbcDatabase && RanChangeSetCache.isEnabled()) {
+            ((AbstractJdbcDatabase) database).set(RanChangeSetCache.DATA_SOURCE_ATTRIBUTE, dataSource);
+        }
+    }
+
+    /**
+     * Sets the number of datasources whose change log history is cached. A size of 0 disables the cache.
+     */
+    public static void setCacheSize(int size) {
+        RanChangeSetCache.setMaxSize(size);
+    }
+
+    @Override
+    public int getPriority() {
+        return super.getPriority() + 1;
+    }
+
+    @Override
+    public boolean supports(Database database) {
+        return getDataSource(database) != null;
+    }
+
+    @Override
+    public List<RanChangeSet> getRanChangeSets() throws DatabaseException {
+        if (ranChangeSets == null) {
+            if (!hasDatabaseChangeLogTable()) {
+                return super.getRanChangeSets();
+            }
+
+            RanChangeSetCache cache = getCache(getDatabase());
+            if (cache == null) {
+                return super.getRanChangeSets();
+            }
+            long[] state = queryTableState();
+            ranChangeSets = cache.get(state[0], state[1]);
+            if (ranChangeSets == null) {
+                ranChangeSets = new ArrayList<>(super.getRanChangeSets());
+                cache.put(ranChangeSets, state[0], state[1]);
+            }
+        }
+        return Collections.unmodifiableList(ranChangeSets);
+    }
+
+    @Override
+    public int getNextSequenceValue() throws LiquibaseException {
+        lastSequenceValue = super.getNextSequenceValue();
+        return lastSequenceValue;
+    }
+
+    @Override
+    public void setExecType(ChangeSet changeSet, ChangeSet.ExecType execType) throws DatabaseException {
+        super.setExecType(changeSet, execType);
+        if (ranChangeSets != null) {
+            ranChangeSets.add(new RanChangeSet(changeSet, execType, null, null));
+        }
+        RanChangeSetCache cache = getCache(getDatabase());
+        if (cache != null && execType != ChangeSet.ExecType.FAILED && execType != ChangeSet.ExecType.SKIPPED) {
+            cache.recorded(changeSet, execType, lastSequenceValue);
+        }
+    }
+
+    @Override
+    public void removeFromHistory(ChangeSet changeSet) throws DatabaseException {
+        super.removeFromHistory(changeSet);
+        invalidate();
+    }
+
+    @Override
+    public void tag(String tagString) throws DatabaseException {
+        super.tag(tagString);
+        if (ranChangeSets != null && !ranChangeSets.isEmpty()) {
+            ranChangeSets.get(ranChangeSets.size() - 1).setTag(tagString);
+        }
+        RanChangeSetCache cache = getCache(getDatabase());
+        if (cache != null) {
+            cache.tagged(tagString);
+        }
+    }
+
+    @Override
+    public void replaceChecksum(ChangeSet changeSet) throws DatabaseException {
+        super.replaceChecksum(changeSet);
+        invalidate();
+    }
+
+    @Override
+    public void replaceFilePath(ChangeSet changeSet, String oldPath) throws DatabaseException {
+        super.replaceFilePath(changeSet, oldPath);
+        invalidate();
+    }
+
+    @Override
+    public void clearAllCheckSums() throws LiquibaseException {
+        super.clearAllCheckSums();
+        invalidate();
+    }
+
+    /**
+     * Liquibase resets the service between its up to date check and the update. The cached history of the datasource
+     * remains valid and is revalidated by the next read.
+     */
+    @Override
+    public void reset() {
+        super.reset();
+        ranChangeSets = null;
+    }
+
+    /**
+     * Discards the cached history of the datasource after rows have been changed in a way that does not alter the
+     * row count or the highest ORDEREXECUTED value.
+     */
+    private void invalidate() {
+        reset();
+        RanChangeSetCache cache = getCache(getDatabase());
+        if (cache != null) {
+            cache.invalidate();
+        }
+    }
+
+    private long[] queryTableState() throws DatabaseException {
+        Database database = getDatabase();
+        String sql = String.format("SELECT COUNT(*), MAX(ORDEREXECUTED) FROM %s",
+            database.escapeTableName(getLiquibaseCatalogName(), getLiquibaseSchemaName(), getDatabaseChangeLogTableName()));
+        try (Statement statement = ((JdbcConnection) database.getConnection()).createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            resultSet.next();
+            return new long[] {resultSet.getLong(1), resultSet.getLong(2)};
+        } catch (SQLException e) {
+            throw new DatabaseException(e);
+        }
+    }
+
+    private static String getDataSource(Database database) {
+        if (database instanceof AbstractJdbcDatabase && database.getConnection() instanceof JdbcConnection) {
+            return (String) ((AbstractJdbcDatabase) database).get(RanChangeSetCache.DATA_SOURCE_ATTRIBUTE);
+        }
+        return null;
+    }
+
+    /**
+     * @return the cached history of the change log table of the database, or null if histories are no longer cached
+     */
+    private static RanChangeSetCache getCache(Database database) {
+        String dataSource = getDataSource(database);
+        if (dataSource == null) {
+            return null;
+        }
+        return RanChangeSetCache.forTable(dataSource, database.getLiquibaseCatalogName(), database.getLiquibaseSchemaName(), database.getDatabaseChangeLogTableName());
+    }
+
+    private static final class HistoryServiceLocator implements ServiceLocator {
+
+        private final ServiceLocator delegate;
+
+        private HistoryServiceLocator(ServiceLocator delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int getPriority() {
+            return delegate.getPriority();
+        }
+
+        @Override
+        public <T> List<T> findInstances(Class<T> interfaceType) throws ServiceNotFoundException {
+            List<T> instances = delegate.findInstances(interfaceType);
+            if (interfaceType == ChangeLogHistoryService.class) {
+                instances = new ArrayList<>(instances);
+                instances.add(interfaceType.cast(new CachingChangeLogHistoryService()));
+            }
+            return instances;
+        }
+    }
+}
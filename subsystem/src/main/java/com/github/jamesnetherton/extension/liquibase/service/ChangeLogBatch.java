@@ -0,0 +1,71 @@
+/*-
+ * #%L
+ * wildfly-liquibase-subsystem
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase.service;
+
+import com.github.jamesnetherton.extension.liquibase.ChangeLogConfiguration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.jboss.as.controller.OperationContext;
+
+/**
+ * Subsystem change logs added by the same management operation, such as a composite operation or the boot of the server.
+ *
+ * The change logs of a batch are validated together before any of them is installed, so that an invalid change log
+ * does not leave the others partially applied. Their executions share one pool of threads, which applies the batch
+ * to its target datasources in parallel.
+ */
+final class ChangeLogBatch {
+
+    static final OperationContext.AttachmentKey<ChangeLogBatch> KEY = OperationContext.AttachmentKey.create(ChangeLogBatch.class);
+
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+    private final List<ChangeLogConfiguration> configurations = new ArrayList<>();
+
+    void add(ChangeLogConfiguration configuration) {
+        configurations.add(configuration);
+    }
+
+    List<ChangeLogConfiguration> getConfigurations() {
+        return Collections.unmodifiableList(configurations);
+    }
+
+    boolean containsDataSource(String dataSource) {
+        return configurations.stream().anyMatch(configuration -> configuration.getDataSources().contains(dataSource));
+    }
+
+    /**
+     * Creates the pool that the change logs of the batch are executed with. Threads are started as executions are
+     * submitted and end once they have been idle for a while, so the pool needs no shutdown.
+     */
+    ExecutorService createExecutor(ExecutionSettings settings) {
+        int dataSources = configurations.stream().mapToInt(configuration -> configuration.getDataSources().size()).sum();
+        int threads = Math.max(1, Math.min(dataSources, settings.getExecutorThreads()));
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+            settings.createThreadFactory("Liquibase batch " + COUNTER.incrementAndGet()));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
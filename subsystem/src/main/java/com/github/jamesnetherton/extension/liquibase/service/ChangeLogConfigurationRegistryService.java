@@ -26,6 +26,7 @@ import java.util.Map;
 public class ChangeLogConfigurationRegistryService {
 
     private final Map<String, ChangeLogConfiguration> configurationMap = new HashMap<>();
+    private final Map<String, ChangeLogExecutionService> executionServiceMap = new HashMap<>();
 
     public void addConfiguration(String runtimeName, ChangeLogConfiguration configuration) {
         synchronized (configurationMap) {
@@ -33,17 +34,31 @@ public class ChangeLogConfigurationRegistryService {
         }
     }
 
+    public void addConfiguration(String runtimeName, ChangeLogExecutionService executionService) {
+        synchronized (configurationMap) {
+            configurationMap.put(runtimeName, executionService.getConfiguration());
+            executionServiceMap.put(runtimeName, executionService);
+        }
+    }
+
     public ChangeLogConfiguration removeConfiguration(String runtimeName) {
         synchronized (configurationMap) {
+            executionServiceMap.remove(runtimeName);
             return configurationMap.remove(runtimeName);
         }
     }
 
+    public ChangeLogExecutionService getExecutionService(String runtimeName) {
+        synchronized (configurationMap) {
+            return executionServiceMap.get(runtimeName);
+        }
+    }
+
     public boolean containsDatasource(String dataSource) {
         synchronized (configurationMap) {
             return configurationMap.values()
                 .stream()
-                .anyMatch((configuration -> configuration.getDataSource().equals(dataSource)));
+                .anyMatch((configuration -> configuration.getDataSources().contains(dataSource)));
         }
     }
 }
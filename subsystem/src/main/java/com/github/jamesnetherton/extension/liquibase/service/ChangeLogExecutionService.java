@@ -7,9 +7,9 @@
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
  * You may obtain a copy of the License at
- *
+ * 
  *      http://www.apache.org/licenses/LICENSE-2.0
- *
+ * 
  * Unless required by applicable law or agreed to in writing, software
  * distributed under the License is distributed on an "AS IS" BASIS,
  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
@@ -21,122 +21,523 @@ package com.github.jamesnetherton.extension.liquibase.service;
 
 import com.github.jamesnetherton.extension.liquibase.ChangeLogConfiguration;
 import com.github.jamesnetherton.extension.liquibase.LiquibaseLogger;
+import com.github.jamesnetherton.extension.liquibase.change.BatchedLoadDataChange;
+import com.github.jamesnetherton.extension.liquibase.jfr.ChangeLogParseEvent;
+import com.github.jamesnetherton.extension.liquibase.jfr.LockAcquisitionEvent;
+import com.github.jamesnetherton.extension.liquibase.precondition.MetadataSnapshotCache;
+import com.github.jamesnetherton.extension.liquibase.resource.VirtualFileResourceAccessor;
 import com.github.jamesnetherton.extension.liquibase.resource.WildFlyResourceAccessor;
 import com.github.jamesnetherton.extension.liquibase.scope.WildFlyScopeManager;
-import java.io.File;
+import com.github.jamesnetherton.extension.liquibase.service.ParsedChangeLogPool.ParsedChangeLog;
+import java.io.Writer;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 import javax.sql.DataSource;
+import liquibase.ChecksumVersion;
 import liquibase.Contexts;
 import liquibase.LabelExpression;
 import liquibase.Liquibase;
+import liquibase.Scope;
+import liquibase.changelog.ChangeSet;
+import liquibase.changelog.visitor.ChangeExecListener;
+import liquibase.database.Database;
+import liquibase.database.DatabaseFactory;
 import liquibase.database.jvm.JdbcConnection;
 import liquibase.exception.DatabaseException;
 import liquibase.exception.LiquibaseException;
+import liquibase.lockservice.LockService;
+import liquibase.lockservice.LockServiceFactory;
 import liquibase.resource.CompositeResourceAccessor;
-import liquibase.resource.FileSystemResourceAccessor;
 import liquibase.resource.ResourceAccessor;
 import org.jboss.msc.service.ServiceName;
 import org.jboss.msc.service.StartContext;
 import org.jboss.msc.service.StartException;
 import org.jboss.msc.service.StopContext;
+import org.jboss.vfs.VFS;
+import org.jboss.vfs.VirtualFile;
 
 /**
  * Service which executes a Liquibase change log based on the provided {@link ChangeLogConfiguration}.
+ *
+ * When the change log targets more than one datasource, it is applied to each of them concurrently using at most
+ * {@link ChangeLogConfiguration#getParallelism()} threads.
  */
 public final class ChangeLogExecutionService {
 
     private static final AtomicInteger COUNTER = new AtomicInteger();
     private final ChangeLogConfiguration configuration;
     private final Consumer<ChangeLogExecutionService> serviceConsumer;
-    private final Supplier<DataSource> dataSourceSupplier;
+    private final Map<String, Supplier<DataSource>> dataSourceSuppliers;
+    private final Map<String, DataSourceExecutionStatus> dataSourceStatus = new LinkedHashMap<>();
+    private final Map<String, ExecutionMetrics> dataSourceMetrics = new LinkedHashMap<>();
+    private final ChangeSetExecutionHistory changeSetHistory = new ChangeSetExecutionHistory();
+    private final ExecutionMetrics metrics = new ExecutionMetrics();
+    private final Map<String, ExecutionGuard> activeExecutions = new ConcurrentHashMap<>();
+    private final ParsedChangeLogPool changeLogPool;
+    private final ExecutionSettings settings;
+    private final ExecutionSettings.SkipMode skipMode;
+    private final ExecutorService batchExecutor;
+    private volatile Map<String, Set<String>> executedChangeSets;
+    private volatile Thread backgroundExecution;
+
+    public ChangeLogExecutionService(ChangeLogConfiguration configuration,
+                                     Consumer<ChangeLogExecutionService> serviceConsumer,
+                                     Map<String, Supplier<DataSource>> dataSourceSuppliers) {
+        this(configuration, serviceConsumer, dataSourceSuppliers, ExecutionSettings.DEFAULT, null);
+    }
 
+    /**
+     * @param settings the subsystem settings that the change log is executed with
+     * @param batchExecutor if not null, the pool shared with the other change logs of a {@link ChangeLogBatch} that the
+     * change log is applied to its datasources with
+     */
     public ChangeLogExecutionService(ChangeLogConfiguration configuration,
                                      Consumer<ChangeLogExecutionService> serviceConsumer,
-                                     Supplier<DataSource> dataSourceSupplier) {
+                                     Map<String, Supplier<DataSource>> dataSourceSuppliers,
+                                     ExecutionSettings settings,
+                                     ExecutorService batchExecutor) {
         this.configuration = configuration;
         this.serviceConsumer = serviceConsumer;
-        this.dataSourceSupplier = dataSourceSupplier;
+        this.dataSourceSuppliers = dataSourceSuppliers;
+        this.settings = settings;
+        this.batchExecutor = batchExecutor;
+        this.changeLogPool = new ParsedChangeLogPool(settings.getChangeLogPoolSize());
+        if (configuration.getSkipIfUnchanged() == null) {
+            this.skipMode = settings.getSkipMode();
+        } else {
+            this.skipMode = configuration.getSkipIfUnchanged() ? ExecutionSettings.SkipMode.FINGERPRINT : ExecutionSettings.SkipMode.NONE;
+        }
+        for (String dataSource : dataSourceSuppliers.keySet()) {
+            this.dataSourceStatus.put(dataSource, new DataSourceExecutionStatus(dataSource));
+            this.dataSourceMetrics.put(dataSource, metrics.createChild());
+        }
     }
 
     public void start(StartContext context) throws StartException {
-        executeChangeLog(configuration);
-        serviceConsumer.accept(this);
+        switch (configuration.getExecutionMode()) {
+            case ASYNC:
+                context.asynchronous();
+                startBackgroundExecution(() -> {
+                    try {
+                        executeChangeLog(configuration);
+                        serviceConsumer.accept(this);
+                        context.complete();
+                    } catch (Throwable e) {
+                        // The start must always be completed or failed, else the service would never leave the STARTING state
+                        context.failed(new StartException(e));
+                    }
+                });
+                break;
+            case DEFERRED:
+                serviceConsumer.accept(this);
+                startBackgroundExecution(() -> {
+                    try {
+                        executeChangeLog(configuration);
+                    } catch (Throwable e) {
+                        LiquibaseLogger.ROOT_LOGGER.error("Deferred execution of changelog {} failed", configuration.getFileName(), e);
+                    }
+                });
+                break;
+            default:
+                executeChangeLog(configuration);
+                serviceConsumer.accept(this);
+        }
     }
 
     public void stop(StopContext context) {
         serviceConsumer.accept(null);
+        // A deferred execution may still be in progress, and must not outlive the deployment it belongs to
+        Thread execution = backgroundExecution;
+        if (execution != null && execution.isAlive()) {
+            cancel();
+        }
+    }
+
+    public ChangeLogConfiguration getConfiguration() {
+        return configuration;
+    }
+
+    private void startBackgroundExecution(Runnable execution) {
+        Thread thread = settings.createThreadFactory("Liquibase " + configuration.getName() + " " + configuration.getExecutionMode()).newThread(execution);
+        backgroundExecution = thread;
+        thread.start();
+    }
+
+    /**
+     * Cancels any in-flight execution of the change log by aborting its database connections.
+     *
+     * @return true if there was an execution to cancel
+     */
+    public boolean cancel() {
+        boolean cancelled = false;
+        for (ExecutionGuard guard : activeExecutions.values()) {
+            guard.cancel("Execution was cancelled");
+            cancelled = true;
+        }
+        return cancelled;
+    }
+
+    public Collection<DataSourceExecutionStatus> getDataSourceStatus() {
+        return Collections.unmodifiableCollection(dataSourceStatus.values());
+    }
+
+    public ChangeSetExecutionHistory getChangeSetExecutionHistory() {
+        return changeSetHistory;
+    }
+
+    public ExecutionMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return the metrics of the given target datasource, or null if the change log is not applied to it
+     */
+    public ExecutionMetrics getMetrics(String dataSource) {
+        return dataSourceMetrics.get(dataSource);
     }
 
     public void executeChangeLog(ChangeLogConfiguration configuration) {
-        if (!ServiceHelper.isChangeLogExecutable(configuration)) {
+        if (!configuration.getHostRules().matchesLocalHost()) {
             LiquibaseLogger.ROOT_LOGGER.info("Not executing changelog {} as host-excludes or host-includes rules did not apply to this server host", configuration.getFileName());
+            dataSourceStatus.values().forEach(DataSourceExecutionStatus::skipped);
             return;
         }
 
+        List<String> dataSources = new ArrayList<>(dataSourceSuppliers.keySet());
+        if (batchExecutor != null) {
+            executeChangeLog(configuration, dataSources, batchExecutor);
+        } else if (dataSources.size() == 1) {
+            executeChangeLog(configuration, dataSources.get(0), true);
+        } else {
+            executeChangeLog(configuration, dataSources);
+        }
+    }
+
+    /**
+     * Replaces the definition of a subsystem change log and applies it without reinstalling the service, provided
+     * that the new definition only appends change sets to the one that was last applied to every target datasource.
+     * The new definition is parsed once and pooled, so the execution that follows only has to apply the appended
+     * change sets.
+     *
+     * @param definition the new change log definition
+     * @return false if the service must be reinstalled to apply the definition, as the previous definition was not
+     * applied successfully or change sets other than those appended differ from it
+     */
+    public boolean applyAppendedChangeSets(String definition) throws LiquibaseException, SQLException {
+        if (executedChangeSets == null || dataSourceStatus.values().stream().anyMatch(status -> status.getState() != DataSourceExecutionStatus.State.EXECUTED)) {
+            return false;
+        }
+
+        String dataSourceName = dataSourceSuppliers.keySet().iterator().next();
+        String previousDefinition = configuration.getDefinition();
+        int appended = -1;
+        final ClassLoader oldTCCL = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(configuration.getClassLoader());
+        JdbcConnection connection = null;
+        Database database = null;
+        try {
+            connection = new JdbcConnection(dataSourceSuppliers.get(dataSourceName).get().getConnection());
+            database = DatabaseFactory.getInstance().findCorrectDatabaseImplementation(connection);
+            String changeLogPath = getChangeLogPath(configuration);
+            ExecutionMetrics executionMetrics = dataSourceMetrics.get(dataSourceName);
+
+            ParsedChangeLog previous = acquireChangeLog(changeLogPath, createResourceAccessor(configuration, new WildFlyResourceAccessor(configuration)), database, dataSourceName, executionMetrics);
+            List<ChangeSet> previousChangeSets = previous.getChangeLog().getChangeSets();
+
+            // Parse results of the previous definition must not be handed to later executions
+            configuration.setDefinition(definition);
+            changeLogPool.clear();
+
+            ParsedChangeLog parsedChangeLog = acquireChangeLog(changeLogPath, createResourceAccessor(configuration, new WildFlyResourceAccessor(configuration)), database, dataSourceName, executionMetrics);
+            List<ChangeSet> changeSets = parsedChangeLog.getChangeLog().getChangeSets();
+            changeLogPool.release(parsedChangeLog);
+
+            if (changeSets.size() < previousChangeSets.size()) {
+                return false;
+            }
+            ChecksumVersion checksumVersion = ChecksumVersion.latest();
+            for (int i = 0; i < previousChangeSets.size(); i++) {
+                ChangeSet previousChangeSet = previousChangeSets.get(i);
+                ChangeSet changeSet = changeSets.get(i);
+                if (!previousChangeSet.getId().equals(changeSet.getId())
+                    || !previousChangeSet.getAuthor().equals(changeSet.getAuthor())
+                    || !Objects.equals(previousChangeSet.getFilePath(), changeSet.getFilePath())
+                    || !previousChangeSet.generateCheckSum(checksumVersion).equals(changeSet.generateCheckSum(checksumVersion))) {
+                    return false;
+                }
+            }
+            appended = changeSets.size() - previousChangeSets.size();
+        } finally {
+            if (appended < 0) {
+                configuration.setDefinition(previousDefinition);
+                changeLogPool.clear();
+            }
+            if (database != null) {
+                database.close();
+            } else if (connection != null) {
+                connection.close();
+            }
+            WildFlyScopeManager.removeCurrentScope();
+            Thread.currentThread().setContextClassLoader(oldTCCL);
+        }
+
+        if (appended > 0) {
+            LiquibaseLogger.ROOT_LOGGER.info("Applying {} change sets appended to changelog {}", appended, configuration.getFileName());
+            try {
+                executeChangeLog(configuration);
+            } catch (RuntimeException e) {
+                // The failed operation keeps the previous definition in the model, so the service must keep it too
+                configuration.setDefinition(previousDefinition);
+                changeLogPool.clear();
+                throw e;
+            }
+        }
+        return true;
+    }
+
+    private void executeChangeLog(ChangeLogConfiguration configuration, List<String> dataSources) {
+        int parallelism = configuration.getParallelism() > 0 ? configuration.getParallelism() : settings.getExecutorThreads();
+        int threads = Math.min(parallelism, dataSources.size());
+
+        LiquibaseLogger.ROOT_LOGGER.info("Applying changelog {} to {} datasources using {} threads", configuration.getFileName(), dataSources.size(), threads);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads, settings.createThreadFactory("Liquibase " + configuration.getName()));
+
+        try {
+            executeChangeLog(configuration, dataSources, executor);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Applies the change log to its datasources using the given pool, with no more than the configured parallelism
+     * of them in progress at once.
+     */
+    private void executeChangeLog(ChangeLogConfiguration configuration, List<String> dataSources, ExecutorService executor) {
+        int parallelism = configuration.getParallelism() > 0 ? configuration.getParallelism() : dataSources.size();
+        CompletionService<Void> completionService = new ExecutorCompletionService<>(executor);
+        Iterator<String> pending = dataSources.iterator();
+        List<Future<Void>> futures = new ArrayList<>();
+        try {
+            while (futures.size() < parallelism && pending.hasNext()) {
+                String dataSource = pending.next();
+                futures.add(completionService.submit(() -> executeChangeLog(configuration, dataSource, true), null));
+            }
+
+            List<Throwable> failures = new ArrayList<>();
+            for (int completed = 0; completed < dataSources.size(); completed++) {
+                try {
+                    completionService.take().get();
+                } catch (ExecutionException e) {
+                    failures.add(e.getCause());
+                }
+                if (pending.hasNext()) {
+                    String dataSource = pending.next();
+                    futures.add(completionService.submit(() -> executeChangeLog(configuration, dataSource, true), null));
+                }
+            }
+
+            if (dataSources.size() > 1) {
+                logSummary(configuration);
+            }
+
+            if (failures.size() == 1 && dataSources.size() == 1) {
+                throw failures.get(0) instanceof RuntimeException ? (RuntimeException) failures.get(0) : new IllegalStateException(failures.get(0));
+            } else if (!failures.isEmpty()) {
+                IllegalStateException exception = new IllegalStateException(String.format("Changelog %s failed on %d of %d datasources",
+                    configuration.getFileName(), failures.size(), dataSources.size()), failures.get(0));
+                failures.stream().skip(1).forEach(exception::addSuppressed);
+                throw exception;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(future -> future.cancel(true));
+            throw new IllegalStateException("Interrupted while executing changelog " + configuration.getFileName(), e);
+        }
+    }
+
+    private void executeChangeLog(ChangeLogConfiguration configuration, String dataSourceName, boolean groupTransactions) {
+        DataSourceExecutionStatus status = dataSourceStatus.get(dataSourceName);
+        ExecutionMetrics executionMetrics = dataSourceMetrics.get(dataSourceName);
+        long startTime = System.nanoTime();
+        status.running();
+
         JdbcConnection connection = null;
+        WildFlyResourceAccessor wildFlyResourceAccessor = new WildFlyResourceAccessor(configuration);
         Liquibase liquibase = null;
+        ParsedChangeLog parsedChangeLog = null;
+        ExecutionGuard guard = null;
+        TransactionGroupingConnection grouping = null;
+        MigrationLease lease = null;
+        boolean lockAcquired = false;
+        boolean retryWithoutGrouping = false;
 
         // Set TCCL BEFORE any Liquibase classes are loaded to ensure ServiceLoader finds log services
         final ClassLoader oldTCCL = Thread.currentThread().getContextClassLoader();
         Thread.currentThread().setContextClassLoader(configuration.getClassLoader());
         try {
-            // Determine if we need FileSystemResourceAccessor for WEB-INF files
-            // WEB-INF files (not in classes or lib/*.jar) are not on classpath
-            boolean needsFileSystemAccessor = configuration.getBasePath() != null
-                && configuration.getPath() != null
-                && configuration.getPath().contains("/WEB-INF/")
-                && !configuration.getPath().contains("/WEB-INF/classes/")
-                && !configuration.getPath().contains(".jar/");
-
-            ResourceAccessor resourceAccessor;
-            if (needsFileSystemAccessor) {
-                File[] basePaths = new File[] { new File(configuration.getBasePath()) };
-                resourceAccessor = new CompositeResourceAccessor(new FileSystemResourceAccessor(basePaths), new WildFlyResourceAccessor(configuration));
-            } else {
-                resourceAccessor = new WildFlyResourceAccessor(configuration);
-            }
+            ResourceAccessor resourceAccessor = createResourceAccessor(configuration, wildFlyResourceAccessor);
+            String changeLogPath = getChangeLogPath(configuration);
+            Contexts contexts = new Contexts(configuration.getContexts());
+            LabelExpression labelExpression = new LabelExpression(configuration.getLabels());
 
-            DataSource datasource = dataSourceSupplier.get();
+            DataSource datasource = dataSourceSuppliers.get(dataSourceName).get();
             if (datasource == null) {
-                throw new IllegalStateException("DataSource is not available for changelog: " + configuration.getFileName());
+                throw new IllegalStateException("DataSource " + dataSourceName + " is not available for changelog: " + configuration.getFileName());
             }
-            connection = new JdbcConnection(datasource.getConnection());
 
-            Contexts contexts = new Contexts(configuration.getContexts());
-            LabelExpression labelExpression = new LabelExpression(configuration.getLabels());
+            // Borrow a connection for the whole migration only if there are change sets to apply. A retry after a
+            // rolled back transaction group always has work left
+            boolean checkUpToDate = groupTransactions && skipMode != ExecutionSettings.SkipMode.NONE;
+            if (checkUpToDate && isUpToDate(datasource, dataSourceName, changeLogPath, resourceAccessor, contexts, labelExpression, executionMetrics)) {
+                LiquibaseLogger.ROOT_LOGGER.info("Changelog {} is up to date on datasource {}", configuration.getFileName(), dataSourceName);
+                status.executed();
+                return;
+            }
 
-            // Use appropriate path for changelog lookup:
-            // - For subsystem origin or standalone deployments: use fileName (has correct extension)
-            // - For WAR/JAR deployments: use classpath path for proper relative include resolution
-            String changeLogPath;
-            if (configuration.isSubsystemOrigin()) {
-                // Subsystem changelogs have their definition in memory, use fileName
-                changeLogPath = configuration.getFileName();
-            } else if (needsFileSystemAccessor) {
-                // WEB-INF files (not on classpath) use fileName with FileSystemResourceAccessor
-                changeLogPath = configuration.getFileName();
-            } else if (configuration.getPath() != null && configuration.getPath().contains("/data/content/")) {
-                // Standalone changelog deployments stored in content repository
-                // Use fileName which has the correct extension
-                changeLogPath = configuration.getFileName();
+            // Only the server holding the lease applies the change log, the others find it up to date once it is released.
+            // A retry without transaction grouping runs under the lease of the execution it retries
+            if (groupTransactions && settings.getMigrationLeaseDuration() > 0) {
+                lease = MigrationLease.acquire(configuration, datasource, dataSourceName, settings);
+                if (lease.isContended() && checkUpToDate && isUpToDate(datasource, dataSourceName, changeLogPath, resourceAccessor, contexts, labelExpression, executionMetrics)) {
+                    LiquibaseLogger.ROOT_LOGGER.info("Changelog {} was applied to datasource {} by another server", configuration.getFileName(), dataSourceName);
+                    status.executed();
+                    return;
+                }
+            }
+
+            String description = String.format("execution of changelog %s on datasource %s", configuration.getFileName(), dataSourceName);
+            guard = new ExecutionGuard(description, datasource.getConnection(), configuration.getTimeout(), configuration.getChangeSetTimeout(),
+                settings.getScheduler().getExecutor());
+            activeExecutions.put(dataSourceName, guard);
+            if (groupTransactions && configuration.getTransactionGroupSize() > 1) {
+                grouping = new TransactionGroupingConnection(guard.getConnection(), configuration.getTransactionGroupSize());
+                connection = grouping;
             } else {
-                // Standard classpath deployments: use classpath path for proper relative includes
-                changeLogPath = configuration.getClasspathPath();
+                connection = new JdbcConnection(guard.getConnection());
+            }
+
+            LiquibaseLogger.ROOT_LOGGER.info(String.format("Starting execution of %s changelog %s (path: %s, datasource: %s)", configuration.getOrigin(), configuration.getFileName(), changeLogPath, dataSourceName));
+
+            Database database = DatabaseFactory.getInstance().findCorrectDatabaseImplementation(connection);
+            // Read the change log history through the history shared by executions against the same datasource
+            CachingChangeLogHistoryService.attach(database, dataSourceName);
+            parsedChangeLog = acquireChangeLog(changeLogPath, resourceAccessor, database, dataSourceName, executionMetrics);
+
+            if (grouping != null && !TransactionGroupingConnection.isSupported(database)) {
+                LiquibaseLogger.ROOT_LOGGER.info("Not grouping change set transactions of changelog {} as datasource {} does not support transactional DDL", configuration.getFileName(), dataSourceName);
+                grouping = null;
+            }
+
+            ChangeSetMetricsListener metricsListener = null;
+            MetadataSnapshotCache metadataCache = new MetadataSnapshotCache();
+            List<ChangeExecListener> listeners = new ArrayList<>();
+            listeners.add(guard);
+            if (grouping != null) {
+                listeners.add(grouping.getChangeExecListener());
+            }
+            listeners.add(metadataCache.getChangeExecListener());
+            if (settings.isStatisticsEnabled()) {
+                metricsListener = new ChangeSetMetricsListener(configuration.getName(), dataSourceName, changeSetHistory, executionMetrics);
+                listeners.add(metricsListener);
+            }
+            liquibase = new Liquibase(parsedChangeLog.getChangeLog(), resourceAccessor, database);
+            liquibase.setChangeExecListener(new CompositeChangeExecListener(listeners.toArray(new ChangeExecListener[0])));
+
+            // Acquire the change log lock up front so that time spent waiting on other nodes can be measured. The update reuses the lock and releases it
+            LockAcquisitionEvent lockEvent = new LockAcquisitionEvent();
+            lockEvent.begin();
+            long lockStart = System.nanoTime();
+            LockService lockService = LockServiceFactory.getInstance().getLockService(database);
+            settings.configure(lockService);
+            lockService.waitForLock();
+            lockAcquired = true;
+            executionMetrics.lockAcquired(System.nanoTime() - lockStart);
+            lockEvent.changeLog = configuration.getName();
+            lockEvent.dataSource = dataSourceName;
+            lockEvent.commit();
+
+            if (configuration.isHistoryIndex() && ChangeLogHistoryTable.ensureIndex(database)) {
+                LiquibaseLogger.ROOT_LOGGER.info("Created change log history index on datasource {}", dataSourceName);
+            }
+
+            if (configuration.getBaseline() != null) {
+                int statements = BaselineScript.applyIfEmpty(database, resourceAccessor, configuration.getBaseline());
+                if (statements >= 0) {
+                    LiquibaseLogger.ROOT_LOGGER.info("Applied baseline {} of changelog {} to datasource {} ({} statements)", configuration.getBaseline(), configuration.getFileName(), dataSourceName, statements);
+                }
+            }
+
+            update(liquibase, metricsListener, metadataCache, contexts, labelExpression, configuration.getBatchSize());
+            if (grouping != null) {
+                // Commits the last group together with the release of the change log lock. Change sets may still have
+                // been rolled back here if one that does not fail on error was grouped with them
+                grouping.flush();
+                retryWithoutGrouping = isGroupRolledBack(grouping, configuration, dataSourceName);
+            }
+
+            if (!retryWithoutGrouping) {
+                if (metricsListener != null) {
+                    int skipped = parsedChangeLog.getChangeLog().getChangeSets().size() - metricsListener.getVisitedCount();
+                    if (skipped > 0) {
+                        executionMetrics.changeSetsSkipped(skipped);
+                    }
+                }
+                if (skipMode == ExecutionSettings.SkipMode.FINGERPRINT) {
+                    ChangeLogFingerprint.record(configuration, parsedChangeLog.getChangeLog(), dataSourceName, database);
+                }
+                executedChangeSets = ChangeLogHistoryTable.identify(parsedChangeLog.getChangeLog());
+                status.executed();
             }
-            LiquibaseLogger.ROOT_LOGGER.info(String.format("Starting execution of %s changelog %s (path: %s)", configuration.getOrigin(), configuration.getFileName(), changeLogPath));
-            liquibase = new Liquibase(changeLogPath, resourceAccessor, connection);
-            liquibase.update(contexts, labelExpression);
         } catch (LiquibaseException | SQLException e) {
-            if (configuration.isFailOnError()) {
-                throw new IllegalStateException(e);
+            if (grouping != null && commitLockRelease(grouping) && !guard.isCancelled() && isGroupRolledBack(grouping, configuration, dataSourceName)) {
+                retryWithoutGrouping = true;
             } else {
-                LiquibaseLogger.ROOT_LOGGER.warn("Liquibase changelog execution failed:", e);
-                LiquibaseLogger.ROOT_LOGGER.warn("Continuing deployment after changelog execution failure of {} as fail-on-error is false", configuration.getDeployment());
+                Exception failure = e;
+                if (guard != null && guard.isCancelled()) {
+                    failure = new LiquibaseException(guard.getCancellationReason(), e);
+                }
+                executionMetrics.failed();
+                status.failed(failure);
+                if (configuration.isFailOnError()) {
+                    throw new IllegalStateException(failure);
+                } else {
+                    LiquibaseLogger.ROOT_LOGGER.warn("Liquibase changelog execution failed:", failure);
+                    LiquibaseLogger.ROOT_LOGGER.warn("Continuing deployment after changelog execution failure of {} on datasource {} as fail-on-error is false", configuration.getDeployment(), dataSourceName);
+                }
             }
+        } catch (RuntimeException e) {
+            executionMetrics.failed();
+            status.failed(e);
+            throw e;
         } finally {
+            executionMetrics.executed(System.nanoTime() - startTime);
+            executionMetrics.resourceCacheHits(wildFlyResourceAccessor.getCacheHits());
+
+            if (parsedChangeLog != null) {
+                changeLogPool.release(parsedChangeLog);
+            }
+
             if (liquibase != null && liquibase.getDatabase() != null) {
                 try {
                     LiquibaseLogger.ROOT_LOGGER.info("Closing Liquibase database");
@@ -153,10 +554,393 @@ public final class ChangeLogExecutionService {
                 }
             }
 
+            if (guard != null) {
+                activeExecutions.remove(dataSourceName);
+                guard.close();
+                if (guard.isCancelled() && lockAcquired) {
+                    releaseLock(dataSourceName);
+                }
+            }
+
+            if (lease != null && !retryWithoutGrouping) {
+                lease.release();
+            }
+
             WildFlyScopeManager.removeCurrentScope();
 
             Thread.currentThread().setContextClassLoader(oldTCCL);
         }
+
+        if (retryWithoutGrouping) {
+            try {
+                executeChangeLog(configuration, dataSourceName, false);
+            } finally {
+                if (lease != null) {
+                    lease.release();
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks whether the change log has any change sets left to apply to a datasource, using a connection that is
+     * only held for the duration of the check.
+     */
+    private boolean isUpToDate(DataSource dataSource, String dataSourceName, String changeLogPath, ResourceAccessor resourceAccessor,
+                               Contexts contexts, LabelExpression labelExpression, ExecutionMetrics executionMetrics) throws LiquibaseException, SQLException {
+        JdbcConnection connection = new JdbcConnection(dataSource.getConnection());
+        Database database = null;
+        ParsedChangeLog parsedChangeLog = null;
+        try {
+            database = DatabaseFactory.getInstance().findCorrectDatabaseImplementation(connection);
+
+            // The index is created while the change log lock is held, as part of an execution
+            if (configuration.isHistoryIndex() && !ChangeLogHistoryTable.hasIndex(database)) {
+                return false;
+            }
+
+            CachingChangeLogHistoryService.attach(database, dataSourceName);
+            parsedChangeLog = acquireChangeLog(changeLogPath, resourceAccessor, database, dataSourceName, executionMetrics);
+            if (skipMode == ExecutionSettings.SkipMode.FINGERPRINT && ChangeLogFingerprint.matches(configuration, parsedChangeLog.getChangeLog(), dataSourceName, database)) {
+                executedChangeSets = ChangeLogHistoryTable.identify(parsedChangeLog.getChangeLog());
+                return true;
+            }
+
+            // Validates the change log against the history, so checksum errors are reported as they would be by an update
+            Liquibase liquibase = new Liquibase(parsedChangeLog.getChangeLog(), resourceAccessor, database);
+            if (!liquibase.listUnrunChangeSets(contexts, labelExpression, false).isEmpty()) {
+                return false;
+            }
+
+            if (settings.isStatisticsEnabled()) {
+                executionMetrics.changeSetsSkipped(parsedChangeLog.getChangeLog().getChangeSets().size());
+            }
+            if (skipMode == ExecutionSettings.SkipMode.FINGERPRINT) {
+                ChangeLogFingerprint.record(configuration, parsedChangeLog.getChangeLog(), dataSourceName, database);
+            }
+            executedChangeSets = ChangeLogHistoryTable.identify(parsedChangeLog.getChangeLog());
+            return true;
+        } finally {
+            if (parsedChangeLog != null) {
+                changeLogPool.release(parsedChangeLog);
+            }
+            if (database != null) {
+                database.close();
+            } else {
+                connection.close();
+            }
+        }
+    }
+
+    /**
+     * Reuses a change log parsed by a previous execution against a compatible datasource, or parses it if none is available.
+     */
+    private ParsedChangeLog acquireChangeLog(String changeLogPath, ResourceAccessor resourceAccessor, Database database,
+                                             String dataSourceName, ExecutionMetrics executionMetrics) throws LiquibaseException {
+        ParsedChangeLog parsedChangeLog = changeLogPool.acquire(database);
+        if (parsedChangeLog == null) {
+            ChangeLogParseEvent parseEvent = new ChangeLogParseEvent();
+            parseEvent.begin();
+            long parseStart = System.nanoTime();
+            parsedChangeLog = changeLogPool.parse(changeLogPath, resourceAccessor, database);
+            executionMetrics.parsed(System.nanoTime() - parseStart);
+            parseEvent.changeLog = configuration.getName();
+            parseEvent.dataSource = dataSourceName;
+            parseEvent.commit();
+        }
+        return parsedChangeLog;
+    }
+
+    /**
+     * Lists the change sets that are yet to be applied to the target datasources. The change log history is compared
+     * with a change log parsed by a previous execution if one is available, without taking the change log lock.
+     *
+     * @param dataSourceName the datasource to list pending change sets for, or null for every target datasource
+     * @return the pending change sets keyed by datasource
+     */
+    public Map<String, List<PendingChangeSet>> getPendingChangeSets(String dataSourceName) throws LiquibaseException, SQLException {
+        List<String> dataSources = dataSourceName != null ? Collections.singletonList(dataSourceName) : new ArrayList<>(dataSourceSuppliers.keySet());
+        for (String dataSource : dataSources) {
+            if (!dataSourceSuppliers.containsKey(dataSource)) {
+                throw new LiquibaseException(String.format("Changelog %s is not applied to datasource %s", configuration.getFileName(), dataSource));
+            }
+        }
+
+        Map<String, List<PendingChangeSet>> pending = new LinkedHashMap<>();
+        final ClassLoader oldTCCL = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(configuration.getClassLoader());
+        try {
+            ResourceAccessor resourceAccessor = createResourceAccessor(configuration, new WildFlyResourceAccessor(configuration));
+            String changeLogPath = getChangeLogPath(configuration);
+            Contexts contexts = new Contexts(configuration.getContexts());
+            LabelExpression labelExpression = new LabelExpression(configuration.getLabels());
+
+            for (String dataSource : dataSources) {
+                JdbcConnection connection = new JdbcConnection(dataSourceSuppliers.get(dataSource).get().getConnection());
+                Database database = null;
+                ParsedChangeLog parsedChangeLog = null;
+                try {
+                    database = DatabaseFactory.getInstance().findCorrectDatabaseImplementation(connection);
+                    CachingChangeLogHistoryService.attach(database, dataSource);
+                    parsedChangeLog = acquireChangeLog(changeLogPath, resourceAccessor, database, dataSource, dataSourceMetrics.get(dataSource));
+
+                    Liquibase liquibase = new Liquibase(parsedChangeLog.getChangeLog(), resourceAccessor, database);
+                    List<PendingChangeSet> changeSets = new ArrayList<>();
+                    for (ChangeSet changeSet : liquibase.listUnrunChangeSets(contexts, labelExpression, false)) {
+                        changeSets.add(new PendingChangeSet(changeSet.getId(), changeSet.getAuthor(), changeSet.getFilePath(), getLastDuration(changeSet, dataSource)));
+                    }
+                    pending.put(dataSource, changeSets);
+                } finally {
+                    if (parsedChangeLog != null) {
+                        changeLogPool.release(parsedChangeLog);
+                    }
+                    if (database != null) {
+                        database.close();
+                    } else {
+                        connection.close();
+                    }
+                }
+            }
+        } finally {
+            WildFlyScopeManager.removeCurrentScope();
+            Thread.currentThread().setContextClassLoader(oldTCCL);
+        }
+        return pending;
+    }
+
+    private long getLastDuration(ChangeSet changeSet, String dataSource) {
+        long duration = -1;
+        for (ChangeSetExecution execution : changeSetHistory.getExecutions()) {
+            if (execution.getId().equals(changeSet.getId()) && execution.getAuthor().equals(changeSet.getAuthor())
+                && execution.getFileName().equals(changeSet.getFilePath()) && execution.getDataSource().equals(dataSource)) {
+                duration = execution.getDuration();
+            }
+        }
+        return duration;
+    }
+
+    /**
+     * Generates a baseline script from the schema and change log history of one of the target datasources.
+     *
+     * @param dataSourceName the datasource to generate the baseline from, or null to use the first target datasource
+     * @param tag if not null, the tag of the most recently executed change set
+     */
+    public String generateBaseline(String dataSourceName, String tag) throws LiquibaseException, SQLException {
+        String name = dataSourceName != null ? dataSourceName : dataSourceSuppliers.keySet().iterator().next();
+        Supplier<DataSource> dataSourceSupplier = dataSourceSuppliers.get(name);
+        if (dataSourceSupplier == null) {
+            throw new LiquibaseException(String.format("Changelog %s is not applied to datasource %s", configuration.getFileName(), name));
+        }
+
+        JdbcConnection connection = new JdbcConnection(dataSourceSupplier.get().getConnection());
+        Database database = null;
+        try {
+            database = DatabaseFactory.getInstance().findCorrectDatabaseImplementation(connection);
+            return BaselineScript.generate(database, tag);
+        } finally {
+            if (database != null) {
+                database.close();
+            } else {
+                connection.close();
+            }
+        }
+    }
+
+    /**
+     * Moves the change log history rows of change sets that have been removed from the change log to an archive table.
+     *
+     * @param dataSourceName the datasource to archive rows of, or null to use the first target datasource
+     * @param removedFiles change log files that are no longer included by the change log, such as those emptied by squashing
+     * @return the number of rows archived
+     */
+    public int archiveHistory(String dataSourceName, Collection<String> removedFiles) throws LiquibaseException, SQLException {
+        Map<String, Set<String>> changeSets = executedChangeSets;
+        if (changeSets == null) {
+            throw new LiquibaseException(String.format("Changelog %s has not been executed successfully", configuration.getFileName()));
+        }
+
+        String name = dataSourceName != null ? dataSourceName : dataSourceSuppliers.keySet().iterator().next();
+        Supplier<DataSource> dataSourceSupplier = dataSourceSuppliers.get(name);
+        if (dataSourceSupplier == null) {
+            throw new LiquibaseException(String.format("Changelog %s is not applied to datasource %s", configuration.getFileName(), name));
+        }
+
+        JdbcConnection connection = new JdbcConnection(dataSourceSupplier.get().getConnection());
+        Database database = null;
+        try {
+            database = DatabaseFactory.getInstance().findCorrectDatabaseImplementation(connection);
+            return ChangeLogHistoryTable.archive(database, changeSets, removedFiles);
+        } finally {
+            if (database != null) {
+                database.close();
+            } else {
+                connection.close();
+            }
+        }
+    }
+
+    /**
+     * Writes the SQL that an update would execute against one of the target datasources, without applying it.
+     *
+     * The change log history service is deliberately not shared with the update so that the statements Liquibase
+     * would use to record change sets are not mistaken for change sets that actually ran.
+     *
+     * @param dataSourceName the datasource to generate SQL for, or null to use the first target datasource
+     * @param output the writer that the generated SQL is streamed to
+     */
+    public void updateSql(String dataSourceName, Writer output) throws LiquibaseException, SQLException {
+        String name = dataSourceName != null ? dataSourceName : dataSourceSuppliers.keySet().iterator().next();
+        Supplier<DataSource> dataSourceSupplier = dataSourceSuppliers.get(name);
+        if (dataSourceSupplier == null) {
+            throw new LiquibaseException(String.format("Changelog %s is not applied to datasource %s", configuration.getFileName(), name));
+        }
+
+        final ClassLoader oldTCCL = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(configuration.getClassLoader());
+        JdbcConnection connection = null;
+        Database database = null;
+        ParsedChangeLog parsedChangeLog = null;
+        try {
+            connection = new JdbcConnection(dataSourceSupplier.get().getConnection());
+            ResourceAccessor resourceAccessor = createResourceAccessor(configuration, new WildFlyResourceAccessor(configuration));
+            database = DatabaseFactory.getInstance().findCorrectDatabaseImplementation(connection);
+            parsedChangeLog = acquireChangeLog(getChangeLogPath(configuration), resourceAccessor, database, name, dataSourceMetrics.get(name));
+
+            Liquibase liquibase = new Liquibase(parsedChangeLog.getChangeLog(), resourceAccessor, database);
+            liquibase.updateSql(new Contexts(configuration.getContexts()), new LabelExpression(configuration.getLabels()), output);
+        } finally {
+            if (parsedChangeLog != null) {
+                changeLogPool.release(parsedChangeLog);
+            }
+            if (database != null) {
+                database.close();
+            } else if (connection != null) {
+                connection.close();
+            }
+            WildFlyScopeManager.removeCurrentScope();
+            Thread.currentThread().setContextClassLoader(oldTCCL);
+        }
+    }
+
+    private static ResourceAccessor createResourceAccessor(ChangeLogConfiguration configuration, WildFlyResourceAccessor wildFlyResourceAccessor) {
+        if (configuration.getResourceAccessor() != null) {
+            return configuration.getResourceAccessor();
+        }
+        if (needsVirtualFileAccessor(configuration)) {
+            VirtualFile basePath = VFS.getChild(configuration.getBasePath());
+            return new CompositeResourceAccessor(new VirtualFileResourceAccessor(basePath), wildFlyResourceAccessor);
+        }
+        return wildFlyResourceAccessor;
+    }
+
+    /**
+     * Determine if we need VirtualFileResourceAccessor for WEB-INF files.
+     * WEB-INF files (not in classes or lib/*.jar) are not on classpath
+     */
+    private static boolean needsVirtualFileAccessor(ChangeLogConfiguration configuration) {
+        return configuration.getBasePath() != null
+            && configuration.getPath() != null
+            && configuration.getPath().contains("/WEB-INF/")
+            && !configuration.getPath().contains("/WEB-INF/classes/")
+            && !configuration.getPath().contains(".jar/");
+    }
+
+    /**
+     * Use appropriate path for changelog lookup:
+     * - For subsystem origin or standalone deployments: use fileName (has correct extension)
+     * - For WAR/JAR deployments: use classpath path for proper relative include resolution
+     */
+    private static String getChangeLogPath(ChangeLogConfiguration configuration) {
+        if (configuration.isSubsystemOrigin()) {
+            // Subsystem changelogs have their definition in memory, use fileName
+            return configuration.getFileName();
+        } else if (needsVirtualFileAccessor(configuration)) {
+            // WEB-INF files (not on classpath) use fileName with VirtualFileResourceAccessor
+            return configuration.getFileName();
+        } else if (configuration.getPath() != null && configuration.getPath().contains("/data/content/")) {
+            // Standalone changelog deployments stored in content repository
+            // Use fileName which has the correct extension
+            return configuration.getFileName();
+        }
+        // Standard classpath deployments: use classpath path for proper relative includes
+        return configuration.getClasspathPath();
+    }
+
+    private static boolean isGroupRolledBack(TransactionGroupingConnection grouping, ChangeLogConfiguration configuration, String dataSourceName) {
+        if (grouping.getRolledBackChangeSets() == 0) {
+            return false;
+        }
+        LiquibaseLogger.ROOT_LOGGER.warn("Rolled back {} grouped change sets of changelog {} on datasource {}. Retrying with a commit per change set",
+            grouping.getRolledBackChangeSets(), configuration.getFileName(), dataSourceName);
+        return true;
+    }
+
+    /**
+     * Commits the release of the change log lock, which is deferred while change set transactions are grouped.
+     */
+    private static boolean commitLockRelease(TransactionGroupingConnection grouping) {
+        try {
+            grouping.flush();
+            return true;
+        } catch (DatabaseException e) {
+            LiquibaseLogger.ROOT_LOGGER.warn("Failed to commit the release of the change log lock", e);
+            return false;
+        }
+    }
+
+    /**
+     * Releases the change log lock using a new connection, as the one the lock was acquired with has been aborted.
+     */
+    private void releaseLock(String dataSourceName) {
+        JdbcConnection connection = null;
+        Database database = null;
+        try {
+            connection = new JdbcConnection(dataSourceSuppliers.get(dataSourceName).get().getConnection());
+            database = DatabaseFactory.getInstance().findCorrectDatabaseImplementation(connection);
+            LockServiceFactory.getInstance().getLockService(database).forceReleaseLock();
+            LiquibaseLogger.ROOT_LOGGER.info("Released change log lock on datasource {}", dataSourceName);
+        } catch (LiquibaseException | SQLException e) {
+            LiquibaseLogger.ROOT_LOGGER.warn("Failed to release the change log lock on datasource " + dataSourceName + ". It may need to be released manually", e);
+        } finally {
+            try {
+                if (database != null) {
+                    database.close();
+                } else if (connection != null) {
+                    connection.close();
+                }
+            } catch (DatabaseException e) {
+                LiquibaseLogger.ROOT_LOGGER.warn("Failed to close database connection", e);
+            }
+        }
+    }
+
+    private static void update(Liquibase liquibase, ChangeSetMetricsListener metricsListener, MetadataSnapshotCache metadataCache, Contexts contexts,
+                               LabelExpression labelExpression, int batchSize) throws LiquibaseException {
+        Map<String, Object> scopeValues = new HashMap<>();
+        scopeValues.put(BatchedLoadDataChange.BATCH_SIZE_SCOPE_KEY, batchSize);
+        scopeValues.put(MetadataSnapshotCache.SCOPE_KEY, metadataCache);
+        try {
+            if (metricsListener == null) {
+                Scope.child(scopeValues, () -> liquibase.update(contexts, labelExpression));
+            } else {
+                Scope.child(scopeValues, () -> Scope.child(metricsListener.getSqlListener(), () -> liquibase.update(contexts, labelExpression)));
+            }
+        } catch (LiquibaseException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new LiquibaseException(e);
+        }
+    }
+
+    private void logSummary(ChangeLogConfiguration configuration) {
+        StringBuilder summary = new StringBuilder(String.format("Changelog %s execution summary:", configuration.getFileName()));
+        for (DataSourceExecutionStatus status : dataSourceStatus.values()) {
+            summary.append(String.format("%n  %s: %s (%d ms)", status.getDataSource(), status.getState(), status.getDuration()));
+            if (status.getFailure() != null) {
+                summary.append(" - ").append(status.getFailure());
+            }
+        }
+        LiquibaseLogger.ROOT_LOGGER.info(summary.toString());
     }
 
     public static ServiceName createServiceName(String changeLogName) {
@@ -0,0 +1,118 @@
+/*-
+ * #%L
+ * wildfly-liquibase-subsystem
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase.service;
+
+import com.github.jamesnetherton.extension.liquibase.ChangeLogConfiguration;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import liquibase.ChecksumVersion;
+import liquibase.changelog.ChangeSet;
+import liquibase.changelog.DatabaseChangeLog;
+import liquibase.database.Database;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.LiquibaseException;
+import liquibase.snapshot.SnapshotGeneratorFactory;
+
+/**
+ * Fingerprints of the change logs this server has applied, which allow a change log with nothing to apply to be
+ * skipped without comparing it to the change log history. A fingerprint combines a digest of the parsed change sets,
+ * contexts and labels with the row count and highest ORDEREXECUTED value of the DATABASECHANGELOG table once the
+ * change log was applied.
+ *
+ * The change sets are taken from the parsed change log, so that change sets added to or modified in an included file
+ * are detected as well as those of the root change log. Fingerprints are held in memory, so they survive
+ * redeployments and reloads but not a restart of the server.
+ */
+final class ChangeLogFingerprint {
+
+    private static final Map<String, String> FINGERPRINTS = new ConcurrentHashMap<>();
+
+    private ChangeLogFingerprint() {
+    }
+
+    /**
+     * @return true if the change log was last applied to the datasource with the same definition, and the change log
+     * history of the datasource has not changed since
+     */
+    static boolean matches(ChangeLogConfiguration configuration, DatabaseChangeLog changeLog, String dataSource, Database database) throws LiquibaseException, SQLException {
+        String fingerprint = FINGERPRINTS.get(key(configuration, dataSource));
+        return fingerprint != null && fingerprint.equals(compute(configuration, changeLog, database));
+    }
+
+    /**
+     * Records the fingerprint of a change log that has been applied to a datasource.
+     */
+    static void record(ChangeLogConfiguration configuration, DatabaseChangeLog changeLog, String dataSource, Database database) throws LiquibaseException, SQLException {
+        String fingerprint = compute(configuration, changeLog, database);
+        if (fingerprint != null) {
+            FINGERPRINTS.put(key(configuration, dataSource), fingerprint);
+        } else {
+            FINGERPRINTS.remove(key(configuration, dataSource));
+        }
+    }
+
+    private static String compute(ChangeLogConfiguration configuration, DatabaseChangeLog changeLog, Database database) throws LiquibaseException, SQLException {
+        if (!(database.getConnection() instanceof JdbcConnection)
+            || !SnapshotGeneratorFactory.getInstance().hasDatabaseChangeLogTable(database)) {
+            return null;
+        }
+
+        String sql = String.format("SELECT COUNT(*), MAX(ORDEREXECUTED) FROM %s",
+            database.escapeTableName(database.getLiquibaseCatalogName(), database.getLiquibaseSchemaName(), database.getDatabaseChangeLogTableName()));
+        String tableState;
+        try (Statement statement = ((JdbcConnection) database.getConnection()).createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            resultSet.next();
+            tableState = resultSet.getLong(1) + ":" + resultSet.getLong(2);
+        }
+
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            ChecksumVersion checksumVersion = ChecksumVersion.latest();
+            for (ChangeSet changeSet : changeLog.getChangeSets()) {
+                update(digest, changeSet.getId());
+                update(digest, changeSet.getAuthor());
+                update(digest, changeSet.getFilePath());
+                update(digest, changeSet.generateCheckSum(checksumVersion).toString());
+            }
+            update(digest, configuration.getContexts());
+            update(digest, configuration.getLabels());
+            return HexFormat.of().formatHex(digest.digest()) + ":" + tableState;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    private static String key(ChangeLogConfiguration configuration, String dataSource) {
+        return String.format("%s|%s|%s", dataSource, configuration.getDeployment(), configuration.getName());
+    }
+}
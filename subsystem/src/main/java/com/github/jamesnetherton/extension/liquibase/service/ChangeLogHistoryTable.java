@@ -0,0 +1,239 @@
+/*-
+ * #%L
+ * wildfly-liquibase-subsystem
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase.service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import liquibase.Scope;
+import liquibase.change.AddColumnConfig;
+import liquibase.changelog.ChangeLogHistoryService;
+import liquibase.changelog.ChangeLogHistoryServiceFactory;
+import liquibase.changelog.ChangeSet;
+import liquibase.changelog.DatabaseChangeLog;
+import liquibase.changelog.RanChangeSet;
+import liquibase.database.Database;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.datatype.DataTypeFactory;
+import liquibase.exception.DatabaseException;
+import liquibase.exception.LiquibaseException;
+import liquibase.executor.Executor;
+import liquibase.executor.ExecutorService;
+import liquibase.lockservice.LockService;
+import liquibase.lockservice.LockServiceFactory;
+import liquibase.snapshot.SnapshotGeneratorFactory;
+import liquibase.statement.core.CreateIndexStatement;
+import liquibase.statement.core.CreateTableStatement;
+import liquibase.structure.core.Column;
+import liquibase.structure.core.Index;
+import liquibase.structure.core.Table;
+
+/**
+ * Keeps the DATABASECHANGELOG table of a database fast to query as it grows. Lookups of executed change sets are
+ * indexed, and the rows of change sets that have been removed from a change log can be moved to an archive table.
+ */
+final class ChangeLogHistoryTable {
+
+    private static final String[] INDEX_COLUMNS = {"ID", "AUTHOR", "FILENAME"};
+    private static final String INDEX_SUFFIX = "_IDX";
+    private static final String ARCHIVE_SUFFIX = "_ARCHIVE";
+
+    private ChangeLogHistoryTable() {
+    }
+
+    /**
+     * @return true if the change log table exists and has an index on the ID, AUTHOR and FILENAME columns
+     */
+    static boolean hasIndex(Database database) throws LiquibaseException {
+        if (!SnapshotGeneratorFactory.getInstance().hasDatabaseChangeLogTable(database)) {
+            return false;
+        }
+        Table table = SnapshotGeneratorFactory.getInstance().createSnapshot(changeLogTable(database), database);
+        return table.getIndexes().stream().anyMatch(ChangeLogHistoryTable::isHistoryIndex);
+    }
+
+    /**
+     * Creates an index on the ID, AUTHOR and FILENAME columns of the change log table, unless an index on those
+     * columns exists already. The table is created if the database does not have one yet.
+     *
+     * @return true if the index was created
+     */
+    static boolean ensureIndex(Database database) throws LiquibaseException {
+        Scope.getCurrentScope().getSingleton(ChangeLogHistoryServiceFactory.class).getChangeLogService(database).init();
+        if (hasIndex(database)) {
+            return false;
+        }
+
+        AddColumnConfig[] columns = new AddColumnConfig[INDEX_COLUMNS.length];
+        for (int i = 0; i < INDEX_COLUMNS.length; i++) {
+            columns[i] = new AddColumnConfig();
+            columns[i].setName(INDEX_COLUMNS[i]);
+        }
+        String indexName = database.getDatabaseChangeLogTableName() + INDEX_SUFFIX;
+        executor(database).execute(new CreateIndexStatement(indexName, database.getLiquibaseCatalogName(), database.getLiquibaseSchemaName(),
+            database.getDatabaseChangeLogTableName(), false, null, columns));
+        database.commit();
+        return true;
+    }
+
+    /**
+     * Groups the change sets of a change log by the normalized path they are recorded with in the change log table.
+     */
+    static Map<String, Set<String>> identify(DatabaseChangeLog changeLog) {
+        Map<String, Set<String>> changeSets = new HashMap<>();
+        for (ChangeSet changeSet : changeLog.getChangeSets()) {
+            changeSets.computeIfAbsent(normalize(changeSet.getFilePath()), path -> new HashSet<>()).add(key(changeSet.getId(), changeSet.getAuthor()));
+        }
+        return changeSets;
+    }
+
+    /**
+     * Moves the rows of change sets that are no longer part of a change log to the archive table, which is created
+     * alongside the change log table if necessary. Only rows recorded for the files of the change log or for one of
+     * the given removed files are considered, so that the history of other change logs using the same database is
+     * left alone. Tagged rows are kept as tags may still be used for rollbacks and preconditions.
+     *
+     * @param changeSets the change sets of the change log, as returned by {@link #identify(DatabaseChangeLog)}
+     * @param removedFiles files that used to be included by the change log
+     * @return the number of rows archived
+     */
+    static int archive(Database database, Map<String, Set<String>> changeSets, Collection<String> removedFiles) throws LiquibaseException {
+        Map<String, Set<String>> owned = new HashMap<>(changeSets);
+        for (String file : removedFiles) {
+            owned.putIfAbsent(normalize(file), Set.of());
+        }
+
+        LockService lockService = LockServiceFactory.getInstance().getLockService(database);
+        lockService.waitForLock();
+        ChangeLogHistoryService historyService = Scope.getCurrentScope().getSingleton(ChangeLogHistoryServiceFactory.class).getChangeLogService(database);
+        try {
+            historyService.init();
+            List<RanChangeSet> obsolete = new ArrayList<>();
+            for (RanChangeSet ranChangeSet : historyService.getRanChangeSets()) {
+                Set<String> current = owned.get(normalize(ranChangeSet.getChangeLog()));
+                if (current != null && ranChangeSet.getTag() == null && !current.contains(key(ranChangeSet.getId(), ranChangeSet.getAuthor()))) {
+                    obsolete.add(ranChangeSet);
+                }
+            }
+            if (obsolete.isEmpty()) {
+                return 0;
+            }
+
+            Table table = SnapshotGeneratorFactory.getInstance().createSnapshot(changeLogTable(database), database);
+            Table archive = new Table(database.getLiquibaseCatalogName(), database.getLiquibaseSchemaName(), getArchiveTableName(database));
+            if (!SnapshotGeneratorFactory.getInstance().has(archive, database)) {
+                createArchive(database, table, archive);
+            }
+            moveRows(database, table, archive, obsolete);
+            return obsolete.size();
+        } finally {
+            historyService.reset();
+            lockService.releaseLock();
+        }
+    }
+
+    static String getArchiveTableName(Database database) {
+        return database.getDatabaseChangeLogTableName() + ARCHIVE_SUFFIX;
+    }
+
+    private static void createArchive(Database database, Table table, Table archive) throws LiquibaseException {
+        CreateTableStatement statement = new CreateTableStatement(archive.getSchema().getCatalogName(), archive.getSchema().getName(), archive.getName());
+        for (Column column : table.getColumns()) {
+            statement.addColumn(column.getName(), DataTypeFactory.getInstance().fromDescription(column.getType().toString(), database));
+        }
+        executor(database).execute(statement);
+        database.commit();
+    }
+
+    private static void moveRows(Database database, Table table, Table archive, List<RanChangeSet> ranChangeSets) throws DatabaseException {
+        String catalog = database.getLiquibaseCatalogName();
+        String schema = database.getLiquibaseSchemaName();
+        String from = database.escapeTableName(catalog, schema, table.getName());
+        String to = database.escapeTableName(catalog, schema, archive.getName());
+        String columns = table.getColumns()
+            .stream()
+            .map(column -> escapeColumn(database, table, column.getName()))
+            .collect(Collectors.joining(", "));
+        String where = Arrays.stream(INDEX_COLUMNS)
+            .map(column -> escapeColumn(database, table, column) + " = ?")
+            .collect(Collectors.joining(" AND ", " WHERE ", ""));
+
+        Connection connection = ((JdbcConnection) database.getConnection()).getUnderlyingConnection();
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO " + to + " (" + columns + ") SELECT " + columns + " FROM " + from + where);
+             PreparedStatement delete = connection.prepareStatement("DELETE FROM " + from + where)) {
+            for (RanChangeSet ranChangeSet : ranChangeSets) {
+                for (PreparedStatement statement : new PreparedStatement[] {insert, delete}) {
+                    statement.setString(1, ranChangeSet.getId());
+                    statement.setString(2, ranChangeSet.getAuthor());
+                    statement.setString(3, ranChangeSet.getStoredChangeLog());
+                    statement.addBatch();
+                }
+            }
+            insert.executeBatch();
+            delete.executeBatch();
+            database.commit();
+        } catch (SQLException e) {
+            database.rollback();
+            throw new DatabaseException(e);
+        }
+    }
+
+    private static String escapeColumn(Database database, Table table, String column) {
+        return database.escapeColumnName(database.getLiquibaseCatalogName(), database.getLiquibaseSchemaName(), table.getName(), column);
+    }
+
+    private static boolean isHistoryIndex(Index index) {
+        List<Column> columns = index.getColumns();
+        if (columns.size() < INDEX_COLUMNS.length) {
+            return false;
+        }
+        Set<String> leading = new HashSet<>();
+        for (int i = 0; i < INDEX_COLUMNS.length; i++) {
+            leading.add(columns.get(i).getName().toUpperCase(Locale.ROOT));
+        }
+        return leading.equals(Set.of(INDEX_COLUMNS));
+    }
+
+    private static Table changeLogTable(Database database) {
+        return new Table(database.getLiquibaseCatalogName(), database.getLiquibaseSchemaName(), database.getDatabaseChangeLogTableName());
+    }
+
+    private static Executor executor(Database database) {
+        return Scope.getCurrentScope().getSingleton(ExecutorService.class).getExecutor("jdbc", database);
+    }
+
+    private static String normalize(String path) {
+        return DatabaseChangeLog.normalizePath(path).toLowerCase(Locale.ROOT);
+    }
+
+    private static String key(String id, String author) {
+        return id.toLowerCase(Locale.ROOT) + "::" + author.toLowerCase(Locale.ROOT);
+    }
+}
@@ -25,18 +25,15 @@ import com.github.jamesnetherton.extension.liquibase.ChangeLogConfiguration;
 import com.github.jamesnetherton.extension.liquibase.ChangeLogFormat;
 import com.github.jamesnetherton.extension.liquibase.ChangeLogResource;
 import com.github.jamesnetherton.extension.liquibase.ModelConstants;
-import java.util.function.Consumer;
-import java.util.function.Supplier;
-import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.concurrent.ExecutorService;
 import liquibase.Liquibase;
+import liquibase.exception.LiquibaseException;
 import org.jboss.as.controller.OperationContext;
 import org.jboss.as.controller.OperationFailedException;
 import org.jboss.as.controller.descriptions.ModelDescriptionConstants;
-import org.jboss.as.naming.ManagedReferenceFactory;
-import org.jboss.as.naming.deployment.ContextNames;
 import org.jboss.dmr.ModelNode;
 import org.jboss.msc.service.Service;
-import org.jboss.msc.service.ServiceBuilder;
 import org.jboss.msc.service.ServiceName;
 import org.jboss.msc.service.ServiceTarget;
 import org.jboss.msc.service.StartContext;
@@ -49,9 +46,11 @@ import org.jboss.msc.service.StopContext;
 public class ChangeLogModelService implements Service<Void> {
 
     private final ChangeLogConfigurationRegistryService registryService;
+    private final ExecutionSettings settings;
 
-    public ChangeLogModelService(ChangeLogConfigurationRegistryService registryService) {
+    public ChangeLogModelService(ChangeLogConfigurationRegistryService registryService, ExecutionSettings settings) {
         this.registryService = registryService;
+        this.settings = settings;
     }
 
     @Override
@@ -78,6 +77,14 @@ public class ChangeLogModelService implements Service<Void> {
         String hostExcludes = ChangeLogResource.HOST_EXCLUDES.resolveModelAttribute(context, model).asString("");
         String hostIncludes = ChangeLogResource.HOST_INCLUDES.resolveModelAttribute(context, model).asString("");
         String labels = ChangeLogResource.LABELS.resolveModelAttribute(context, model).asString("");
+        int parallelism = ChangeLogResource.PARALLELISM.resolveModelAttribute(context, model).asInt(0);
+        int timeout = ChangeLogResource.TIMEOUT.resolveModelAttribute(context, model).asInt(0);
+        int changeSetTimeout = ChangeLogResource.CHANGESET_TIMEOUT.resolveModelAttribute(context, model).asInt(0);
+        int batchSize = ChangeLogResource.BATCH_SIZE.resolveModelAttribute(context, model).asInt(0);
+        int transactionGroupSize = ChangeLogResource.TRANSACTION_GROUP_SIZE.resolveModelAttribute(context, model).asInt(0);
+        String baseline = ChangeLogResource.BASELINE.resolveModelAttribute(context, model).asStringOrNull();
+        boolean historyIndex = ChangeLogResource.HISTORY_INDEX.resolveModelAttribute(context, model).asBoolean(false);
+        String migrationDataSource = ChangeLogResource.MIGRATION_DATASOURCE.resolveModelAttribute(context, model).asStringOrNull();
 
         ChangeLogConfiguration configuration = ChangeLogConfiguration.builder()
             .contexts(contexts)
@@ -89,6 +96,14 @@ public class ChangeLogModelService implements Service<Void> {
             .hostIncludes(hostIncludes)
             .labels(labels)
             .name(changeLogName)
+            .parallelism(parallelism)
+            .timeout(timeout)
+            .changeSetTimeout(changeSetTimeout)
+            .batchSize(batchSize)
+            .transactionGroupSize(transactionGroupSize)
+            .baseline(baseline)
+            .historyIndex(historyIndex)
+            .migrationDataSource(migrationDataSource)
             .subsystemOrigin()
             .build();
 
@@ -96,24 +111,45 @@ public class ChangeLogModelService implements Service<Void> {
             throw new OperationFailedException("Unable to determine change log format. Supported formats are JSON, SQL, YAML and XML");
         }
 
-        ServiceTarget serviceTarget = context.getServiceTarget();
-        ServiceName serviceName = ChangeLogExecutionService.createServiceName(configuration.getName());
+        // Change logs added by the same operation are installed together once all of them have been validated
+        ChangeLogBatch batch = context.getAttachment(ChangeLogBatch.KEY);
+        if (batch == null) {
+            ChangeLogBatch newBatch = new ChangeLogBatch();
+            context.attach(ChangeLogBatch.KEY, newBatch);
+            context.addStep((batchContext, batchOperation) -> installChangeLogBatch(batchContext, newBatch), OperationContext.Stage.RUNTIME);
+            batch = newBatch;
+        }
 
-        installChangeLogExecutionService(serviceTarget, serviceName, configuration);
+        validateChangeLogConfiguration(configuration, batch);
+        batch.add(configuration);
     }
 
     public void updateChangeLogModel(OperationContext context, ModelNode operation) throws OperationFailedException {
         String changeLogName = operation.get(ModelDescriptionConstants.OP_ADDR).asObject().get(ModelConstants.DATABASE_CHANGELOG).asString();
+        String attributeName = operation.get(ModelDescriptionConstants.NAME).asString();
         String value = operation.get(ModelDescriptionConstants.VALUE).asString();
 
-        ChangeLogConfiguration configuration = registryService.removeConfiguration(changeLogName);
-        if (configuration == null) {
+        // Change sets appended to the definition are applied by the running service, which avoids a full execution
+        ChangeLogExecutionService executionService = registryService.getExecutionService(changeLogName);
+        if (attributeName.equals(ModelConstants.VALUE) && executionService != null) {
+            try {
+                if (executionService.applyAppendedChangeSets(value)) {
+                    return;
+                }
+            } catch (LiquibaseException | SQLException | IllegalStateException e) {
+                throw new OperationFailedException("Failed to apply change log " + changeLogName + ": " + e.getMessage(), e);
+            }
+        }
+
+        if (executionService == null) {
             throw new OperationFailedException("Unable to update change log model. Existing configuration is null.");
         }
 
+        // The update is applied to a copy, so that the installed change log is left as it was if the update is not valid
+        ChangeLogConfiguration configuration = executionService.getConfiguration().copy();
         String oldDataSource = configuration.getDataSource();
 
-        switch (operation.get(ModelDescriptionConstants.NAME).asString()) {
+        switch (attributeName) {
             case ModelConstants.CONTEXTS:
                 configuration.setContexts(value);
                 break;
@@ -132,6 +168,31 @@ public class ChangeLogModelService implements Service<Void> {
             case ModelConstants.LABELS:
                 configuration.setLabels(value);
                 break;
+            case ModelConstants.PARALLELISM:
+                configuration.setParallelism(operation.get(ModelDescriptionConstants.VALUE).asInt(0));
+                break;
+            case ModelConstants.TIMEOUT:
+                configuration.setTimeout(operation.get(ModelDescriptionConstants.VALUE).asInt(0));
+                break;
+            case ModelConstants.CHANGESET_TIMEOUT:
+                configuration.setChangeSetTimeout(operation.get(ModelDescriptionConstants.VALUE).asInt(0));
+                break;
+            case ModelConstants.BATCH_SIZE:
+                configuration.setBatchSize(operation.get(ModelDescriptionConstants.VALUE).asInt(0));
+                break;
+            case ModelConstants.TRANSACTION_GROUP_SIZE:
+                configuration.setTransactionGroupSize(operation.get(ModelDescriptionConstants.VALUE).asInt(0));
+                break;
+            case ModelConstants.BASELINE:
+                // Undefining the attribute, or reverting a write that defined it, passes an undefined value
+                configuration.setBaseline(operation.get(ModelDescriptionConstants.VALUE).asStringOrNull());
+                break;
+            case ModelConstants.HISTORY_INDEX:
+                configuration.setHistoryIndex(Boolean.valueOf(value));
+                break;
+            case ModelConstants.MIGRATION_DATASOURCE:
+                configuration.setMigrationDataSource(operation.get(ModelDescriptionConstants.VALUE).asStringOrNull());
+                break;
             case ModelConstants.VALUE:
                 configuration.setDefinition(value);
                 break;
@@ -146,9 +207,12 @@ public class ChangeLogModelService implements Service<Void> {
             throw new OperationFailedException("Modifying the change log datasource property is not supported");
         }
 
-        ServiceName serviceName = ChangeLogExecutionService.createServiceName(changeLogName);
+        validateChangeLogRules(configuration);
+
+        ServiceName serviceName = getExecutionServiceName(changeLogName);
         ServiceTarget serviceTarget = context.getServiceTarget();
 
+        registryService.removeConfiguration(changeLogName);
         context.removeService(serviceName);
 
         installChangeLogExecutionService(serviceTarget, serviceName, configuration);
@@ -156,81 +220,61 @@ public class ChangeLogModelService implements Service<Void> {
 
     public void removeChangeLogModel(OperationContext context, ModelNode model) throws OperationFailedException {
         String runtimeName = context.getCurrentAddressValue();
-        ServiceName serviceName = ChangeLogExecutionService.createServiceName(runtimeName);
+        ServiceName serviceName = getExecutionServiceName(runtimeName);
         context.removeService(serviceName);
         registryService.removeConfiguration(runtimeName);
     }
 
+    public ChangeLogExecutionService getExecutionService(String runtimeName) {
+        return registryService.getExecutionService(runtimeName);
+    }
+
     public static ServiceName getServiceName() {
         return ServiceName.JBOSS.append("liquibase", "changelog", "model", "update");
     }
 
-    private void installChangeLogExecutionService(ServiceTarget serviceTarget, ServiceName serviceName, ChangeLogConfiguration configuration) throws OperationFailedException {
-        if (registryService.containsDatasource(configuration.getDataSource())) {
-            throw new OperationFailedException(String.format(MESSAGE_DUPLICATE_DATASOURCE, configuration.getDataSource()));
-        }
-
-        // Get the datasource service name using bind info
-        ContextNames.BindInfo bindInfo = ContextNames.bindInfoFor(configuration.getDataSource());
-        ServiceName dataSourceServiceName = bindInfo.getBinderServiceName();
-
-        // Create wrapper service for WildFly 35 compatibility
-        final ChangeLogExecutionService[] serviceHolder = new ChangeLogExecutionService[1];
-        Service<Void> wrapperService = new Service<Void>() {
-            @Override
-            public void start(StartContext context) throws StartException {
-                serviceHolder[0].start(context);
-            }
-
-            @Override
-            public void stop(StopContext context) {
-                if (serviceHolder[0] != null) {
-                    serviceHolder[0].stop(context);
-                }
-            }
-
-            @Override
-            public Void getValue() throws IllegalStateException, IllegalArgumentException {
-                return null;
-            }
-        };
+    /**
+     * Subsystem change log names are unique, so their execution services are named after them in order that the
+     * service installed for a change log can be removed when it is updated or removed.
+     */
+    private static ServiceName getExecutionServiceName(String changeLogName) {
+        return ServiceName.JBOSS.append("liquibase", "changelog", "subsystem", changeLogName);
+    }
 
-        // Build the service
-        ServiceBuilder<?> builder = serviceTarget.addService(serviceName, wrapperService);
+    private void installChangeLogBatch(OperationContext context, ChangeLogBatch batch) {
+        context.detach(ChangeLogBatch.KEY);
 
-        // Create suppliers and consumers
-        Consumer<ChangeLogExecutionService> serviceConsumer = service -> {
-            serviceHolder[0] = service;
-        };
+        ServiceTarget serviceTarget = context.getServiceTarget();
+        ExecutorService executor = batch.createExecutor(settings);
+        for (ChangeLogConfiguration configuration : batch.getConfigurations()) {
+            ServiceName serviceName = getExecutionServiceName(configuration.getName());
+            ChangeLogExecutionService service = ServiceHelper.installChangeLogExecutionService(serviceTarget, serviceName, configuration, settings, executor);
+            registryService.addConfiguration(configuration.getName(), service);
+        }
+    }
 
-        // Add a dependency on the datasource's reference factory service
-        Supplier<ManagedReferenceFactory> dataSourceRefSupplier = builder.requires(dataSourceServiceName);
+    private void installChangeLogExecutionService(ServiceTarget serviceTarget, ServiceName serviceName, ChangeLogConfiguration configuration) throws OperationFailedException {
+        validateChangeLogConfiguration(configuration, null);
+        ChangeLogExecutionService service = ServiceHelper.installChangeLogExecutionService(serviceTarget, serviceName, configuration, settings, null);
+        registryService.addConfiguration(configuration.getName(), service);
+    }
 
-        // Create a wrapper supplier that extracts the DataSource from the reference
-        Supplier<DataSource> dataSourceSupplier = () -> {
-            try {
-                ManagedReferenceFactory factory = dataSourceRefSupplier.get();
-                if (factory != null) {
-                    Object reference = factory.getReference().getInstance();
-                    if (reference instanceof DataSource) {
-                        return (DataSource) reference;
-                    }
-                }
-                throw new RuntimeException("Failed to obtain DataSource from reference factory");
-            } catch (Exception e) {
-                throw new RuntimeException("Failed to get DataSource reference", e);
+    private void validateChangeLogConfiguration(ChangeLogConfiguration configuration, ChangeLogBatch batch) throws OperationFailedException {
+        for (String dataSource : configuration.getDataSources()) {
+            if (registryService.containsDatasource(dataSource) || (batch != null && batch.containsDataSource(dataSource))) {
+                throw new OperationFailedException(String.format(MESSAGE_DUPLICATE_DATASOURCE, dataSource));
             }
-        };
-
-        // Create the service with the datasource supplier
-        ChangeLogExecutionService service = new ChangeLogExecutionService(configuration, serviceConsumer, dataSourceSupplier);
-
-        // Set initial reference
-        serviceHolder[0] = service;
+        }
 
-        // Install the service
-        builder.install();
+        validateChangeLogRules(configuration);
+    }
 
-        registryService.addConfiguration(configuration.getName(), configuration);
+    private static void validateChangeLogRules(ChangeLogConfiguration configuration) throws OperationFailedException {
+        try {
+            configuration.getMigrationDataSources();
+            configuration.getHostRules();
+        } catch (IllegalStateException e) {
+            throw new OperationFailedException(e.getMessage());
+        }
     }
 }
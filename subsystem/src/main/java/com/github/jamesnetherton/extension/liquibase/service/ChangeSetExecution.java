@@ -0,0 +1,93 @@
+/*-
+ * #%L
+ * wildfly-liquibase-subsystem
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase.service;
+
+/**
+ * Timing and row count details recorded for a single change set execution.
+ */
+public final class ChangeSetExecution {
+
+    private final String id;
+    private final String author;
+    private final String fileName;
+    private final String dataSource;
+    private final String execType;
+    private final long timestamp;
+    private final long duration;
+    private final int statements;
+    private final int rowsAffected;
+
+    ChangeSetExecution(String id, String author, String fileName, String dataSource, String execType, long timestamp, long duration, int statements, int rowsAffected) {
+        this.id = id;
+        this.author = author;
+        this.fileName = fileName;
+        this.dataSource = dataSource;
+        this.execType = execType;
+        this.timestamp = timestamp;
+        this.duration = duration;
+        this.statements = statements;
+        this.rowsAffected = rowsAffected;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public String getDataSource() {
+        return dataSource;
+    }
+
+    public String getExecType() {
+        return execType;
+    }
+
+    /**
+     * @return the time at which the change set started executing, in milliseconds since the epoch
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return the change set execution duration in milliseconds
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    public int getStatements() {
+        return statements;
+    }
+
+    /**
+     * @return the number of rows affected by the change set, or -1 if the JDBC driver did not report an update count
+     */
+    public int getRowsAffected() {
+        return rowsAffected;
+    }
+}
@@ -0,0 +1,66 @@
+/*-
+ * #%L
+ * wildfly-liquibase-subsystem
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Bounded ring buffer holding the most recent {@link ChangeSetExecution} records of a change log.
+ */
+public final class ChangeSetExecutionHistory {
+
+    public static final int DEFAULT_CAPACITY = 100;
+
+    private final Deque<ChangeSetExecution> executions;
+    private final int capacity;
+
+    public ChangeSetExecutionHistory() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public ChangeSetExecutionHistory(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Change set execution history capacity must be greater than zero");
+        }
+        this.capacity = capacity;
+        this.executions = new ArrayDeque<>(capacity);
+    }
+
+    public synchronized void add(ChangeSetExecution execution) {
+        if (executions.size() == capacity) {
+            executions.removeFirst();
+        }
+        executions.addLast(execution);
+    }
+
+    /**
+     * @return the recorded executions, oldest first
+     */
+    public synchronized List<ChangeSetExecution> getExecutions() {
+        return new ArrayList<>(executions);
+    }
+
+    public synchronized void clear() {
+        executions.clear();
+    }
+}
@@ -0,0 +1,139 @@
+/*-
+ * #%L
+ * wildfly-liquibase-subsystem
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase.service;
+
+import com.github.jamesnetherton.extension.liquibase.jfr.ChangeSetExecutionEvent;
+import java.util.concurrent.atomic.AtomicInteger;
+import liquibase.Scope;
+import liquibase.change.Change;
+import liquibase.changelog.ChangeSet;
+import liquibase.changelog.DatabaseChangeLog;
+import liquibase.changelog.visitor.AbstractChangeExecListener;
+import liquibase.database.Database;
+import liquibase.executor.jvm.JdbcExecutor;
+import liquibase.listener.SqlListener;
+
+/**
+ * Records the duration, number of statements and rows affected for each change set executed against a datasource.
+ *
+ * Statements are counted by a {@link SqlListener} to be registered in the scope surrounding the update. Row counts are
+ * derived from the update counts Liquibase accumulates in the scope, sampled after the last change of a change set
+ * so that the DATABASECHANGELOG insert is not included.
+ *
+ * Applied and skipped change sets are also added to the {@link ExecutionMetrics} of the datasource, and each change set
+ * is reported as a {@link ChangeSetExecutionEvent} to Java Flight Recorder.
+ */
+final class ChangeSetMetricsListener extends AbstractChangeExecListener {
+
+    private final String changeLog;
+    private final String dataSource;
+    private final ChangeSetExecutionHistory history;
+    private final ExecutionMetrics metrics;
+    private final AtomicInteger statementCount = new AtomicInteger();
+    private final SqlListener sqlListener = new SqlListener() {
+        @Override
+        public void writeSqlWillRun(String sql) {
+            statementCount.incrementAndGet();
+        }
+    };
+    private long timestamp;
+    private long startTime;
+    private int startStatements;
+    private int startRows;
+    private int statements;
+    private int rows;
+    private int visited;
+    private ChangeSetExecutionEvent event;
+
+    ChangeSetMetricsListener(String changeLog, String dataSource, ChangeSetExecutionHistory history, ExecutionMetrics metrics) {
+        this.changeLog = changeLog;
+        this.dataSource = dataSource;
+        this.history = history;
+        this.metrics = metrics;
+    }
+
+    SqlListener getSqlListener() {
+        return sqlListener;
+    }
+
+    /**
+     * @return the number of change sets that were run, marked as ran or failed
+     */
+    int getVisitedCount() {
+        return visited;
+    }
+
+    @Override
+    public void willRun(ChangeSet changeSet, DatabaseChangeLog databaseChangeLog, Database database, ChangeSet.RunStatus runStatus) {
+        timestamp = System.currentTimeMillis();
+        startTime = System.nanoTime();
+        startStatements = statementCount.get();
+        startRows = getRowsAffected();
+        statements = 0;
+        rows = 0;
+        event = new ChangeSetExecutionEvent();
+        event.begin();
+    }
+
+    @Override
+    public void ran(Change change, ChangeSet changeSet, DatabaseChangeLog changeLog, Database database) {
+        statements = statementCount.get() - startStatements;
+        rows = getRowsAffected() - startRows;
+    }
+
+    @Override
+    public void ran(ChangeSet changeSet, DatabaseChangeLog databaseChangeLog, Database database, ChangeSet.ExecType execType) {
+        if (execType == ChangeSet.ExecType.EXECUTED || execType == ChangeSet.ExecType.RERAN) {
+            metrics.changeSetApplied();
+        } else {
+            metrics.changeSetsSkipped(1);
+        }
+        record(changeSet, execType.name());
+    }
+
+    @Override
+    public void runFailed(ChangeSet changeSet, DatabaseChangeLog databaseChangeLog, Database database, Exception exception) {
+        statements = statementCount.get() - startStatements;
+        rows = getRowsAffected() - startRows;
+        record(changeSet, "FAILED");
+    }
+
+    private void record(ChangeSet changeSet, String execType) {
+        visited++;
+        long duration = (System.nanoTime() - startTime) / 1_000_000;
+        int rowsAffected = startRows < 0 ? -1 : rows;
+        history.add(new ChangeSetExecution(changeSet.getId(), changeSet.getAuthor(), changeSet.getFilePath(), dataSource, execType, timestamp, duration, statements, rowsAffected));
+
+        if (event != null) {
+            event.changeLog = changeLog;
+            event.dataSource = dataSource;
+            event.changeSetId = changeSet.getId();
+            event.author = changeSet.getAuthor();
+            event.execType = execType;
+            event.commit();
+            event = null;
+        }
+    }
+
+    private static int getRowsAffected() {
+        AtomicInteger rowsAffected = Scope.getCurrentScope().get(JdbcExecutor.ROWS_AFFECTED_SCOPE_KEY, AtomicInteger.class);
+        return rowsAffected != null ? rowsAffected.get() : -1;
+    }
+}
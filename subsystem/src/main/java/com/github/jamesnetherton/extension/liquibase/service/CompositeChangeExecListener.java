@@ -0,0 +1,93 @@
+/*-
+ * #%L
+ * wildfly-liquibase-subsystem
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase.service;
+
+import java.util.Arrays;
+import java.util.List;
+import liquibase.change.Change;
+import liquibase.changelog.ChangeSet;
+import liquibase.changelog.DatabaseChangeLog;
+import liquibase.changelog.visitor.ChangeExecListener;
+import liquibase.database.Database;
+import liquibase.exception.PreconditionErrorException;
+import liquibase.exception.PreconditionFailedException;
+import liquibase.precondition.core.PreconditionContainer;
+
+/**
+ * Dispatches change execution events to several listeners, as Liquibase only accepts a single {@link ChangeExecListener}.
+ */
+final class CompositeChangeExecListener implements ChangeExecListener {
+
+    private final List<ChangeExecListener> listeners;
+
+    CompositeChangeExecListener(ChangeExecListener... listeners) {
+        this.listeners = Arrays.asList(listeners);
+    }
+
+    @Override
+    public void willRun(ChangeSet changeSet, DatabaseChangeLog databaseChangeLog, Database database, ChangeSet.RunStatus runStatus) {
+        listeners.forEach(listener -> listener.willRun(changeSet, databaseChangeLog, database, runStatus));
+    }
+
+    @Override
+    public void ran(ChangeSet changeSet, DatabaseChangeLog databaseChangeLog, Database database, ChangeSet.ExecType execType) {
+        listeners.forEach(listener -> listener.ran(changeSet, databaseChangeLog, database, execType));
+    }
+
+    @Override
+    public void willRollback(ChangeSet changeSet, DatabaseChangeLog databaseChangeLog, Database database) {
+        listeners.forEach(listener -> listener.willRollback(changeSet, databaseChangeLog, database));
+    }
+
+    @Override
+    public void rolledBack(ChangeSet changeSet, DatabaseChangeLog databaseChangeLog, Database database) {
+        listeners.forEach(listener -> listener.rolledBack(changeSet, databaseChangeLog, database));
+    }
+
+    @Override
+    public void preconditionFailed(PreconditionFailedException error, PreconditionContainer.FailOption onFail) {
+        listeners.forEach(listener -> listener.preconditionFailed(error, onFail));
+    }
+
+    @Override
+    public void preconditionErrored(PreconditionErrorException error, PreconditionContainer.ErrorOption onError) {
+        listeners.forEach(listener -> listener.preconditionErrored(error, onError));
+    }
+
+    @Override
+    public void willRun(Change change, ChangeSet changeSet, DatabaseChangeLog changeLog, Database database) {
+        listeners.forEach(listener -> listener.willRun(change, changeSet, changeLog, database));
+    }
+
+    @Override
+    public void ran(Change change, ChangeSet changeSet, DatabaseChangeLog changeLog, Database database) {
+        listeners.forEach(listener -> listener.ran(change, changeSet, changeLog, database));
+    }
+
+    @Override
+    public void runFailed(ChangeSet changeSet, DatabaseChangeLog databaseChangeLog, Database database, Exception exception) {
+        listeners.forEach(listener -> listener.runFailed(changeSet, databaseChangeLog, database, exception));
+    }
+
+    @Override
+    public void rollbackFailed(ChangeSet changeSet, DatabaseChangeLog databaseChangeLog, Database database, Exception exception) {
+        listeners.forEach(listener -> listener.rollbackFailed(changeSet, databaseChangeLog, database, exception));
+    }
+}
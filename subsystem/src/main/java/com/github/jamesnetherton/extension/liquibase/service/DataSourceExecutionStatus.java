@@ -0,0 +1,93 @@
+/*-
+ * #%L
+ * wildfly-liquibase-subsystem
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase.service;
+
+/**
+ * Tracks the outcome of applying a change log to one of its target datasources.
+ */
+public final class DataSourceExecutionStatus {
+
+    private final String dataSource;
+    private volatile State state = State.PENDING;
+    private volatile long startTime;
+    private volatile long duration = -1;
+    private volatile String failure;
+
+    DataSourceExecutionStatus(String dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    public String getDataSource() {
+        return dataSource;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * @return the execution duration in milliseconds, or -1 if execution has not yet completed
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    public String getFailure() {
+        return failure;
+    }
+
+    void running() {
+        this.startTime = System.currentTimeMillis();
+        this.duration = -1;
+        this.failure = null;
+        this.state = State.RUNNING;
+    }
+
+    void executed() {
+        complete(State.EXECUTED);
+    }
+
+    void skipped() {
+        this.state = State.SKIPPED;
+    }
+
+    void failed(Throwable cause) {
+        this.failure = cause.getMessage() != null ? cause.getMessage() : cause.getClass().getName();
+        complete(State.FAILED);
+    }
+
+    private void complete(State state) {
+        this.duration = System.currentTimeMillis() - startTime;
+        this.state = state;
+    }
+
+    public enum State {
+        PENDING,
+        RUNNING,
+        EXECUTED,
+        SKIPPED,
+        FAILED;
+
+        @Override
+        public String toString() {
+            return this.name().toLowerCase();
+        }
+    }
+}
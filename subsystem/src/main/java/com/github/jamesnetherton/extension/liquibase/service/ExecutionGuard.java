@@ -0,0 +1,164 @@
+/*-
+ * #%L
+ * wildfly-liquibase-subsystem
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase.service;
+
+import com.github.jamesnetherton.extension.liquibase.LiquibaseLogger;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import liquibase.changelog.ChangeSet;
+import liquibase.changelog.DatabaseChangeLog;
+import liquibase.changelog.visitor.AbstractChangeExecListener;
+import liquibase.database.Database;
+
+/**
+ * Enforces the change log and change set timeouts of a single change log execution, and allows it to be cancelled.
+ *
+ * Statements created through {@link #getConnection()} are given a query timeout matching the time remaining before the
+ * nearest deadline. Should a statement overrun, for example because the driver ignores query timeouts, a watchdog aborts
+ * the connection shortly after the deadline has passed. Cancellation aborts the connection immediately and prevents
+ * any further change sets from running.
+ */
+final class ExecutionGuard extends AbstractChangeExecListener implements AutoCloseable {
+
+    private static final long ABORT_GRACE_PERIOD_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private final String description;
+    private final Connection connection;
+    private final Connection guardedConnection;
+    private final int timeout;
+    private final int changeSetTimeout;
+    private final long changeLogDeadline;
+    private final ScheduledFuture<?> watchdog;
+    private volatile long changeSetDeadline = Long.MAX_VALUE;
+    private volatile String cancellationReason;
+
+    /**
+     * @param scheduler the scheduler that the watchdog runs on, if a timeout is configured
+     */
+    ExecutionGuard(String description, Connection connection, int timeout, int changeSetTimeout, ScheduledExecutorService scheduler) {
+        this.description = description;
+        this.connection = connection;
+        this.timeout = timeout;
+        this.changeSetTimeout = changeSetTimeout;
+        this.changeLogDeadline = timeout > 0 ? System.nanoTime() + TimeUnit.SECONDS.toNanos(timeout) : Long.MAX_VALUE;
+        this.guardedConnection = (Connection) Proxy.newProxyInstance(ExecutionGuard.class.getClassLoader(), new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+            Object result;
+            try {
+                result = method.invoke(connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (result instanceof Statement) {
+                applyQueryTimeout((Statement) result);
+            }
+            return result;
+        });
+
+        if (timeout > 0 || changeSetTimeout > 0) {
+            this.watchdog = scheduler.scheduleWithFixedDelay(this::checkDeadlines, 1, 1, TimeUnit.SECONDS);
+        } else {
+            this.watchdog = null;
+        }
+    }
+
+    /**
+     * @return a view of the guarded connection which applies query timeouts to the statements it creates
+     */
+    Connection getConnection() {
+        return guardedConnection;
+    }
+
+    boolean isCancelled() {
+        return cancellationReason != null;
+    }
+
+    String getCancellationReason() {
+        return cancellationReason;
+    }
+
+    /**
+     * Cancels the execution by aborting its connection. Does nothing if the execution has already been cancelled.
+     */
+    void cancel(String reason) {
+        synchronized (this) {
+            if (cancellationReason != null) {
+                return;
+            }
+            cancellationReason = reason;
+        }
+
+        LiquibaseLogger.ROOT_LOGGER.warn("Aborting {}: {}", description, reason);
+        try {
+            connection.abort(Runnable::run);
+        } catch (SQLException | RuntimeException e) {
+            LiquibaseLogger.ROOT_LOGGER.warn("Failed to abort connection for " + description, e);
+        }
+    }
+
+    @Override
+    public void willRun(ChangeSet changeSet, DatabaseChangeLog databaseChangeLog, Database database, ChangeSet.RunStatus runStatus) {
+        if (isCancelled()) {
+            throw new IllegalStateException(cancellationReason);
+        }
+        if (changeSetTimeout > 0) {
+            changeSetDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(changeSetTimeout);
+        }
+    }
+
+    @Override
+    public void ran(ChangeSet changeSet, DatabaseChangeLog databaseChangeLog, Database database, ChangeSet.ExecType execType) {
+        changeSetDeadline = Long.MAX_VALUE;
+    }
+
+    @Override
+    public void runFailed(ChangeSet changeSet, DatabaseChangeLog databaseChangeLog, Database database, Exception exception) {
+        changeSetDeadline = Long.MAX_VALUE;
+    }
+
+    @Override
+    public void close() {
+        if (watchdog != null) {
+            watchdog.cancel(false);
+        }
+    }
+
+    private void applyQueryTimeout(Statement statement) throws SQLException {
+        long deadline = Math.min(changeLogDeadline, changeSetDeadline);
+        if (deadline != Long.MAX_VALUE) {
+            long remaining = TimeUnit.NANOSECONDS.toSeconds(deadline - System.nanoTime());
+            statement.setQueryTimeout((int) Math.max(1, remaining));
+        }
+    }
+
+    private void checkDeadlines() {
+        long now = System.nanoTime();
+        if (changeLogDeadline != Long.MAX_VALUE && now - changeLogDeadline > ABORT_GRACE_PERIOD_NANOS) {
+            cancel(String.format("Execution timed out after %d seconds", timeout));
+        } else if (changeSetDeadline != Long.MAX_VALUE && now - changeSetDeadline > ABORT_GRACE_PERIOD_NANOS) {
+            cancel(String.format("Change set execution timed out after %d seconds", changeSetTimeout));
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*-
+ * #%L
+ * wildfly-liquibase-subsystem
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cumulative execution metrics for a change log, or for one of its target datasources.
+ *
+ * Values recorded against datasource metrics are also added to the change log metrics they were created from.
+ */
+public final class ExecutionMetrics {
+
+    private final ExecutionMetrics parent;
+    private final LongAdder parseTime = new LongAdder();
+    private final LongAdder executionTime = new LongAdder();
+    private final LongAdder lockWaitTime = new LongAdder();
+    private final LongAdder changeSetsApplied = new LongAdder();
+    private final LongAdder changeSetsSkipped = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder resourceCacheHits = new LongAdder();
+
+    ExecutionMetrics() {
+        this(null);
+    }
+
+    private ExecutionMetrics(ExecutionMetrics parent) {
+        this.parent = parent;
+    }
+
+    ExecutionMetrics createChild() {
+        return new ExecutionMetrics(this);
+    }
+
+    /**
+     * @return the total time spent parsing the change log in milliseconds
+     */
+    public long getParseTime() {
+        return TimeUnit.NANOSECONDS.toMillis(parseTime.sum());
+    }
+
+    /**
+     * @return the total time spent applying the change log in milliseconds
+     */
+    public long getExecutionTime() {
+        return TimeUnit.NANOSECONDS.toMillis(executionTime.sum());
+    }
+
+    /**
+     * @return the total time spent waiting to acquire the Liquibase change log lock in milliseconds
+     */
+    public long getLockWaitTime() {
+        return TimeUnit.NANOSECONDS.toMillis(lockWaitTime.sum());
+    }
+
+    public long getChangeSetsApplied() {
+        return changeSetsApplied.sum();
+    }
+
+    public long getChangeSetsSkipped() {
+        return changeSetsSkipped.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    public long getResourceCacheHits() {
+        return resourceCacheHits.sum();
+    }
+
+    void parsed(long nanos) {
+        parseTime.add(nanos);
+        if (parent != null) {
+            parent.parsed(nanos);
+        }
+    }
+
+    void executed(long nanos) {
+        executionTime.add(nanos);
+        if (parent != null) {
+            parent.executed(nanos);
+        }
+    }
+
+    void lockAcquired(long nanos) {
+        lockWaitTime.add(nanos);
+        if (parent != null) {
+            parent.lockAcquired(nanos);
+        }
+    }
+
+    void changeSetApplied() {
+        changeSetsApplied.increment();
+        if (parent != null) {
+            parent.changeSetApplied();
+        }
+    }
+
+    void changeSetsSkipped(long count) {
+        changeSetsSkipped.add(count);
+        if (parent != null) {
+            parent.changeSetsSkipped(count);
+        }
+    }
+
+    void failed() {
+        failures.increment();
+        if (parent != null) {
+            parent.failed();
+        }
+    }
+
+    void resourceCacheHits(long count) {
+        resourceCacheHits.add(count);
+        if (parent != null) {
+            parent.resourceCacheHits(count);
+        }
+    }
+}
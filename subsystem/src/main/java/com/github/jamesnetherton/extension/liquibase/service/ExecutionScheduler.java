@@ -0,0 +1,78 @@
+/*-
+ * #%L
+ * wildfly-liquibase-subsystem
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase.service;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.jboss.msc.service.Service;
+import org.jboss.msc.service.ServiceName;
+import org.jboss.msc.service.StartContext;
+import org.jboss.msc.service.StopContext;
+
+/**
+ * Service owning the scheduler that runs the timers of change log executions, such as the watchdogs enforcing
+ * execution timeouts.
+ *
+ * The scheduler thread is created on first use and stopped together with the subsystem, so that it does not outlive
+ * a reload. Change log execution services depend on this service, so they are stopped before it.
+ */
+public final class ExecutionScheduler implements Service<Void> {
+
+    private static final ServiceName SERVICE_NAME = ServiceName.JBOSS.append("liquibase", "execution", "scheduler");
+
+    private ScheduledThreadPoolExecutor executor;
+
+    public static ServiceName getServiceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public void start(StartContext context) {
+        // The scheduler is created on first use
+    }
+
+    @Override
+    public synchronized void stop(StopContext context) {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    @Override
+    public Void getValue() throws IllegalStateException, IllegalArgumentException {
+        return null;
+    }
+
+    synchronized ScheduledExecutorService getExecutor() {
+        if (executor == null) {
+            executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+                Thread thread = new Thread(runnable, "Liquibase execution scheduler");
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.setKeepAliveTime(1, TimeUnit.MINUTES);
+            executor.allowCoreThreadTimeOut(true);
+            executor.setRemoveOnCancelPolicy(true);
+        }
+        return executor;
+    }
+}
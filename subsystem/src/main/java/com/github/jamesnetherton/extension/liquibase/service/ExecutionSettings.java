@@ -0,0 +1,161 @@
+/*-
+ * #%L
+ * wildfly-liquibase-subsystem
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase.service;
+
+import com.github.jamesnetherton.extension.liquibase.LiquibaseLogger;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import liquibase.lockservice.LockService;
+
+/**
+ * Subsystem wide settings which tune how change logs are executed, shared by every change log execution service.
+ */
+public final class ExecutionSettings {
+
+    public static final ExecutionSettings DEFAULT = new ExecutionSettings(0, false, 0, 0, 0, 0, SkipMode.PENDING, true);
+
+    private final int executorThreads;
+    private final boolean virtualThreads;
+    private final int lockRecheckInterval;
+    private final int lockWaitTimeout;
+    private final int migrationLeaseDuration;
+    private final int changeLogPoolSize;
+    private final SkipMode skipMode;
+    private final boolean statisticsEnabled;
+    private final ExecutionScheduler scheduler = new ExecutionScheduler();
+
+    /**
+     * @param executorThreads the maximum number of threads that change logs are applied with, or 0 for the number of processors
+     * @param virtualThreads whether change logs are applied using virtual threads, where the JVM supports them
+     * @param lockRecheckInterval seconds between attempts to acquire the change log lock, or 0 for the Liquibase default
+     * @param lockWaitTimeout minutes to wait for the change log lock, or 0 for the Liquibase default
+     * @param migrationLeaseDuration seconds that a migration lease is held for between renewals, or 0 if servers do not
+     * elect a single server to apply a change log
+     * @param changeLogPoolSize the number of idle parsed copies kept of each change log, or 0 for no limit
+     * @param skipMode how change logs that have nothing to apply are detected
+     * @param statisticsEnabled whether the execution of each change set is recorded
+     */
+    public ExecutionSettings(int executorThreads, boolean virtualThreads, int lockRecheckInterval, int lockWaitTimeout, int migrationLeaseDuration, int changeLogPoolSize, SkipMode skipMode, boolean statisticsEnabled) {
+        this.executorThreads = executorThreads;
+        this.virtualThreads = virtualThreads;
+        this.lockRecheckInterval = lockRecheckInterval;
+        this.lockWaitTimeout = lockWaitTimeout;
+        this.migrationLeaseDuration = migrationLeaseDuration;
+        this.changeLogPoolSize = changeLogPoolSize;
+        this.skipMode = skipMode;
+        this.statisticsEnabled = statisticsEnabled;
+    }
+
+    public int getExecutorThreads() {
+        return executorThreads > 0 ? executorThreads : Runtime.getRuntime().availableProcessors();
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public int getLockRecheckInterval() {
+        return lockRecheckInterval;
+    }
+
+    public int getLockWaitTimeout() {
+        return lockWaitTimeout;
+    }
+
+    public int getMigrationLeaseDuration() {
+        return migrationLeaseDuration;
+    }
+
+    public int getChangeLogPoolSize() {
+        return changeLogPoolSize;
+    }
+
+    public SkipMode getSkipMode() {
+        return skipMode;
+    }
+
+    public boolean isStatisticsEnabled() {
+        return statisticsEnabled;
+    }
+
+    /**
+     * @return the scheduler of execution timers, which is installed as a service by the subsystem
+     */
+    public ExecutionScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Applies the lock settings to the change log lock service of a database.
+     */
+    void configure(LockService lockService) {
+        if (lockRecheckInterval > 0) {
+            lockService.setChangeLogLockRecheckTime(lockRecheckInterval);
+        }
+        if (lockWaitTimeout > 0) {
+            lockService.setChangeLogLockWaitTime(lockWaitTimeout);
+        }
+    }
+
+    /**
+     * Creates a factory for the daemon threads that change logs are applied with.
+     */
+    ThreadFactory createThreadFactory(String name) {
+        if (virtualThreads) {
+            try {
+                // Thread.ofVirtual() is only available from Java 21, while the subsystem is built for Java 17
+                Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+                Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+                builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, name + "-", 1L);
+                return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            } catch (ReflectiveOperationException e) {
+                LiquibaseLogger.ROOT_LOGGER.warn("Virtual threads are not supported by this JVM. Using platform threads to apply change logs");
+            }
+        }
+
+        AtomicInteger threadCount = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, String.format("%s-%d", name, threadCount.incrementAndGet()));
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    public enum SkipMode {
+        /**
+         * Every execution applies the change log using a connection held for the whole migration.
+         */
+        NONE,
+        /**
+         * An execution is skipped if the change log has no pending change sets, which is checked using a short-lived connection.
+         */
+        PENDING,
+        /**
+         * As {@link #PENDING}, but the check is also skipped if neither the change log definition nor the change log
+         * history of the datasource have changed since the change log was last applied to it by this server.
+         */
+        FINGERPRINT;
+
+        @Override
+        public String toString() {
+            return this.name().toLowerCase();
+        }
+    }
+}
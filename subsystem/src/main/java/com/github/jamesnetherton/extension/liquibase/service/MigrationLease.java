@@ -0,0 +1,339 @@
+/*-
+ * #%L
+ * wildfly-liquibase-subsystem
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase.service;
+
+import com.github.jamesnetherton.extension.liquibase.ChangeLogConfiguration;
+import com.github.jamesnetherton.extension.liquibase.LiquibaseLogger;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+import liquibase.Scope;
+import liquibase.database.Database;
+import liquibase.database.DatabaseFactory;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.datatype.DataTypeFactory;
+import liquibase.exception.DatabaseException;
+import liquibase.exception.LiquibaseException;
+import liquibase.exception.LockException;
+import liquibase.executor.ExecutorService;
+import liquibase.snapshot.SnapshotGeneratorFactory;
+import liquibase.statement.NotNullConstraint;
+import liquibase.statement.core.CreateTableStatement;
+import liquibase.structure.core.Table;
+
+/**
+ * A lease which elects a single server of a cluster to apply a change log to a database. Leases are rows of a
+ * DATABASECHANGELOGLEASE table, created alongside the DATABASECHANGELOG table, which expire unless the server holding
+ * them renews them. Servers that find a lease held by another server poll its row using short-lived connections until
+ * it is released or expires, instead of holding a connection while they wait for the Liquibase change log lock.
+ *
+ * A lease guards the change log history of a schema, as the Liquibase change log lock does, so servers applying any
+ * change log to the same schema compete for the same row. Expiry times are compared using the clocks of the servers,
+ * so the lease duration must exceed the clock skew between them.
+ */
+final class MigrationLease {
+
+    private static final String TABLE_SUFFIX = "LEASE";
+    private static final String NODE_NAME = nodeName();
+    // The lease tables known to exist, by datasource name
+    private static final Map<String, LeaseTable> TABLES = new ConcurrentHashMap<>();
+
+    private final DataSource dataSource;
+    private final String dataSourceName;
+    private final String changeLogName;
+    private final String table;
+    private final String id;
+    private final String holder;
+    private final long duration;
+    private ScheduledFuture<?> renewal;
+    private boolean contended;
+
+    private MigrationLease(DataSource dataSource, String dataSourceName, String changeLogName, String table, String id, long duration) {
+        this.dataSource = dataSource;
+        this.dataSourceName = dataSourceName;
+        this.changeLogName = changeLogName;
+        this.table = table;
+        this.id = id;
+        this.holder = NODE_NAME + "@" + UUID.randomUUID();
+        this.duration = duration;
+    }
+
+    /**
+     * Acquires the lease of a change log on a datasource, waiting while another server holds it.
+     *
+     * @return the lease, which must be released once the change log has been applied
+     * @throws LockException if the lease could not be acquired within the lock wait timeout
+     */
+    static MigrationLease acquire(ChangeLogConfiguration configuration, DataSource dataSource, String dataSourceName, ExecutionSettings settings) throws LiquibaseException, SQLException {
+        long duration = TimeUnit.SECONDS.toMillis(settings.getMigrationLeaseDuration());
+        long recheckInterval = TimeUnit.SECONDS.toMillis(settings.getLockRecheckInterval() > 0 ? settings.getLockRecheckInterval() : 1);
+        long deadline = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(settings.getLockWaitTimeout() > 0 ? settings.getLockWaitTimeout() : 5);
+
+        LeaseTable leaseTable = getTable(dataSource, dataSourceName);
+        MigrationLease lease = new MigrationLease(dataSource, dataSourceName, configuration.getFileName(), leaseTable.name, leaseTable.id, duration);
+        String otherHolder = null;
+        while (true) {
+            long now = System.currentTimeMillis();
+            try (Connection connection = dataSource.getConnection()) {
+                if (lease.tryAcquire(connection, now)) {
+                    if (otherHolder != null) {
+                        lease.contended = true;
+                        LiquibaseLogger.ROOT_LOGGER.info("Acquired migration lease of changelog {} on datasource {} after waiting for {}", lease.changeLogName, dataSourceName, otherHolder);
+                    }
+                    lease.renewal = settings.getScheduler().getExecutor().scheduleWithFixedDelay(lease::renew, duration / 3, duration / 3, TimeUnit.MILLISECONDS);
+                    return lease;
+                }
+
+                String currentHolder = lease.getHolder(connection);
+                if (currentHolder != null && !currentHolder.equals(otherHolder)) {
+                    LiquibaseLogger.ROOT_LOGGER.info("Waiting for {} to apply changelog {} to datasource {}", currentHolder, lease.changeLogName, dataSourceName);
+                    otherHolder = currentHolder;
+                }
+            } catch (SQLException e) {
+                // The lease table may have been dropped, so the next acquisition checks for it again
+                TABLES.remove(dataSourceName, leaseTable);
+                throw e;
+            }
+
+            if (now > deadline) {
+                throw new LockException(String.format("Could not acquire migration lease of changelog %s on datasource %s. It is held by %s", lease.changeLogName, dataSourceName, otherHolder));
+            }
+
+            try {
+                Thread.sleep(recheckInterval);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new LockException("Interrupted while waiting for migration lease of changelog " + lease.changeLogName + " on datasource " + dataSourceName);
+            }
+        }
+    }
+
+    /**
+     * @return true if the lease was held by another server when it was first requested, which may have applied the
+     * change log in the meantime
+     */
+    boolean isContended() {
+        return contended;
+    }
+
+    /**
+     * Releases the lease, so that a server waiting for it can go on to find that the change log has been applied.
+     */
+    void release() {
+        renewal.cancel(false);
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("DELETE FROM " + table + " WHERE ID = ? AND LEASEDBY = ?")) {
+            statement.setString(1, id);
+            statement.setString(2, holder);
+            statement.executeUpdate();
+            commit(connection);
+        } catch (SQLException e) {
+            LiquibaseLogger.ROOT_LOGGER.warn("Failed to release migration lease of changelog {} on datasource {}. It will expire instead", changeLogName, dataSourceName, e);
+        }
+    }
+
+    private boolean tryAcquire(Connection connection, long now) throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO " + table + " (ID, LEASEDBY, EXPIRES) VALUES (?, ?, ?)")) {
+            insert.setString(1, id);
+            insert.setString(2, holder);
+            insert.setLong(3, now + duration);
+            insert.executeUpdate();
+            commit(connection);
+            return true;
+        } catch (SQLException e) {
+            // SQL state class 23 is an integrity constraint violation, raised when the row exists already
+            if (e.getSQLState() == null || !e.getSQLState().startsWith("23")) {
+                throw e;
+            }
+            rollback(connection);
+        }
+
+        // Take over a lease that its holder failed to renew, unless another server takes it over first
+        long expires;
+        String expiredHolder;
+        try (PreparedStatement select = connection.prepareStatement("SELECT LEASEDBY, EXPIRES FROM " + table + " WHERE ID = ?")) {
+            select.setString(1, id);
+            try (ResultSet resultSet = select.executeQuery()) {
+                if (!resultSet.next()) {
+                    return false;
+                }
+                expiredHolder = resultSet.getString(1);
+                expires = resultSet.getLong(2);
+            }
+        }
+        if (expires >= now) {
+            return false;
+        }
+
+        try (PreparedStatement update = connection.prepareStatement("UPDATE " + table + " SET LEASEDBY = ?, EXPIRES = ? WHERE ID = ? AND EXPIRES = ?")) {
+            update.setString(1, holder);
+            update.setLong(2, now + duration);
+            update.setString(3, id);
+            update.setLong(4, expires);
+            boolean acquired = update.executeUpdate() == 1;
+            commit(connection);
+            if (acquired) {
+                LiquibaseLogger.ROOT_LOGGER.warn("Took over expired migration lease of changelog {} on datasource {} from {}", changeLogName, dataSourceName, expiredHolder);
+            }
+            return acquired;
+        }
+    }
+
+    private String getHolder(Connection connection) throws SQLException {
+        try (PreparedStatement select = connection.prepareStatement("SELECT LEASEDBY FROM " + table + " WHERE ID = ?")) {
+            select.setString(1, id);
+            try (ResultSet resultSet = select.executeQuery()) {
+                return resultSet.next() ? resultSet.getString(1) : null;
+            }
+        }
+    }
+
+    private void renew() {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("UPDATE " + table + " SET EXPIRES = ? WHERE ID = ? AND LEASEDBY = ?")) {
+            statement.setLong(1, System.currentTimeMillis() + duration);
+            statement.setString(2, id);
+            statement.setString(3, holder);
+            if (statement.executeUpdate() == 0) {
+                LiquibaseLogger.ROOT_LOGGER.warn("Migration lease of changelog {} on datasource {} was taken over by another server", changeLogName, dataSourceName);
+            }
+            commit(connection);
+        } catch (SQLException e) {
+            LiquibaseLogger.ROOT_LOGGER.warn("Failed to renew migration lease of changelog {} on datasource {}", changeLogName, dataSourceName, e);
+        }
+    }
+
+    static String getTableName(Database database) {
+        return database.getDatabaseChangeLogTableName() + TABLE_SUFFIX;
+    }
+
+    /**
+     * Returns the lease table of a datasource, creating it unless it exists already. The table is only looked for
+     * once per datasource, unless the datasource is replaced or the table cannot be used.
+     */
+    private static LeaseTable getTable(DataSource dataSource, String dataSourceName) throws LiquibaseException, SQLException {
+        LeaseTable leaseTable = TABLES.get(dataSourceName);
+        if (leaseTable == null || leaseTable.dataSource != dataSource) {
+            leaseTable = createTable(dataSource);
+            TABLES.put(dataSourceName, leaseTable);
+        }
+        return leaseTable;
+    }
+
+    private static LeaseTable createTable(DataSource dataSource) throws LiquibaseException, SQLException {
+        JdbcConnection connection = new JdbcConnection(dataSource.getConnection());
+        Database database = null;
+        try {
+            database = DatabaseFactory.getInstance().findCorrectDatabaseImplementation(connection);
+            String catalog = database.getLiquibaseCatalogName();
+            String schema = database.getLiquibaseSchemaName();
+            String name = getTableName(database);
+            Table table = new Table(catalog, schema, name);
+            if (!SnapshotGeneratorFactory.getInstance().has(table, database)) {
+                DataTypeFactory types = DataTypeFactory.getInstance();
+                CreateTableStatement statement = new CreateTableStatement(catalog, schema, name)
+                    .addPrimaryKeyColumn("ID", types.fromDescription("VARCHAR(64)", database), null, null, null, new NotNullConstraint())
+                    .addColumn("LEASEDBY", types.fromDescription("VARCHAR(255)", database))
+                    .addColumn("EXPIRES", types.fromDescription("BIGINT", database));
+                try {
+                    Scope.getCurrentScope().getSingleton(ExecutorService.class).getExecutor("jdbc", database).execute(statement);
+                    database.commit();
+                } catch (DatabaseException e) {
+                    // Another server may have created the table concurrently
+                    database.rollback();
+                    if (!SnapshotGeneratorFactory.getInstance().has(table, database)) {
+                        throw e;
+                    }
+                }
+            }
+            return new LeaseTable(dataSource, database.escapeTableName(catalog, schema, name), id(database));
+        } finally {
+            if (database != null) {
+                database.close();
+            } else {
+                connection.close();
+            }
+        }
+    }
+
+    /**
+     * Leases are identified by a digest of the change log history table they guard, so that datasources sharing a
+     * schema share its lease.
+     */
+    static String id(Database database) {
+        String changeLogTable = database.escapeTableName(database.getLiquibaseCatalogName(), database.getLiquibaseSchemaName(),
+            database.getDatabaseChangeLogTableName());
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(changeLogTable.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void commit(Connection connection) throws SQLException {
+        if (!connection.getAutoCommit()) {
+            connection.commit();
+        }
+    }
+
+    private static void rollback(Connection connection) throws SQLException {
+        if (!connection.getAutoCommit()) {
+            connection.rollback();
+        }
+    }
+
+    private static String nodeName() {
+        String nodeName = System.getProperty("jboss.node.name");
+        if (nodeName == null) {
+            try {
+                nodeName = InetAddress.getLocalHost().getHostName();
+            } catch (UnknownHostException e) {
+                nodeName = "unknown";
+            }
+        }
+        return nodeName;
+    }
+
+    private static final class LeaseTable {
+        private final DataSource dataSource;
+        private final String name;
+        private final String id;
+
+        private LeaseTable(DataSource dataSource, String name, String id) {
+            this.dataSource = dataSource;
+            this.name = name;
+            this.id = id;
+        }
+    }
+}
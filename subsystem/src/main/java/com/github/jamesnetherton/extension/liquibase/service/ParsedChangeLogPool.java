@@ -0,0 +1,171 @@
+/*-
+ * #%L
+ * wildfly-liquibase-subsystem
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase.service;
+
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import liquibase.Scope;
+import liquibase.changelog.ChangeLogParameters;
+import liquibase.changelog.DatabaseChangeLog;
+import liquibase.database.Database;
+import liquibase.exception.LiquibaseException;
+import liquibase.parser.ChangeLogParser;
+import liquibase.parser.ChangeLogParserFactory;
+import liquibase.resource.ResourceAccessor;
+
+/**
+ * Pool of parsed change logs shared by the workers which apply one change log to many datasources.
+ *
+ * Validating and updating a {@link DatabaseChangeLog} mutates the state of its change sets, so a parsed change log is
+ * only ever handed to one worker at a time. A parse result is reused for another datasource if every database
+ * property that was expanded while parsing (e.g. ${database.defaultSchemaName}) resolves to the same value for it.
+ * Parse results are kept for the lifetime of the execution service, so pending change sets can be listed without
+ * parsing the change log again.
+ */
+final class ParsedChangeLogPool {
+
+    private final Deque<ParsedChangeLog> idle = new ConcurrentLinkedDeque<>();
+    private final int maxIdle;
+
+    /**
+     * @param maxIdle the number of parse results kept between uses, or 0 to keep every parse result
+     */
+    ParsedChangeLogPool(int maxIdle) {
+        this.maxIdle = maxIdle;
+    }
+
+    ParsedChangeLog acquire(Database database) {
+        for (ParsedChangeLog parsedChangeLog : idle) {
+            ChangeLogParameters parameters = parsedChangeLog.parameters.resolve(database);
+            if (parameters != null && idle.remove(parsedChangeLog)) {
+                parsedChangeLog.parameters.bind(parameters);
+                return parsedChangeLog;
+            }
+        }
+        return null;
+    }
+
+    ParsedChangeLog parse(String changeLogPath, ResourceAccessor resourceAccessor, Database database) throws LiquibaseException {
+        DatabaseChangeLogParameters parameters = new DatabaseChangeLogParameters(database);
+
+        Map<String, Object> scopeValues = new HashMap<>();
+        scopeValues.put(Scope.Attr.database.name(), database);
+        scopeValues.put(Scope.Attr.resourceAccessor.name(), resourceAccessor);
+
+        try {
+            DatabaseChangeLog changeLog = Scope.child(scopeValues, () -> {
+                ChangeLogParser parser = ChangeLogParserFactory.getInstance().getParser(changeLogPath, resourceAccessor);
+                return parser.parse(changeLogPath, parameters, resourceAccessor);
+            });
+            parameters.parsed();
+            return new ParsedChangeLog(changeLog, parameters);
+        } catch (LiquibaseException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new LiquibaseException(e);
+        }
+    }
+
+    void release(ParsedChangeLog parsedChangeLog) {
+        // Approximate under concurrent releases, which at worst keeps a few more parse results than configured
+        if (maxIdle <= 0 || idle.size() < maxIdle) {
+            idle.push(parsedChangeLog);
+        }
+    }
+
+    /**
+     * Discards the idle parse results, for when the change log definition they were parsed from has changed.
+     */
+    void clear() {
+        idle.clear();
+    }
+
+    static final class ParsedChangeLog {
+        private final DatabaseChangeLog changeLog;
+        private final DatabaseChangeLogParameters parameters;
+
+        private ParsedChangeLog(DatabaseChangeLog changeLog, DatabaseChangeLogParameters parameters) {
+            this.changeLog = changeLog;
+            this.parameters = parameters;
+        }
+
+        DatabaseChangeLog getChangeLog() {
+            return changeLog;
+        }
+    }
+
+    /**
+     * {@link ChangeLogParameters} which records the database properties expanded at parse time and which resolves
+     * database properties expanded at execution time against the datasource the change log is currently bound to.
+     */
+    private static final class DatabaseChangeLogParameters extends ChangeLogParameters {
+        private static final String DATABASE_PROPERTY_PREFIX = "database.";
+        private static final String DATABASE_TYPE_PROPERTY = "database.typeName";
+
+        private final Map<String, Object> parseTimeValues = new HashMap<>();
+        private volatile ChangeLogParameters databaseParameters;
+        private volatile boolean parsing = true;
+
+        private DatabaseChangeLogParameters(Database database) {
+            super(database);
+            this.databaseParameters = new ChangeLogParameters(database);
+            // dbms filtered properties are evaluated while parsing
+            this.parseTimeValues.put(DATABASE_TYPE_PROPERTY, databaseParameters.getValue(DATABASE_TYPE_PROPERTY, null));
+        }
+
+        @Override
+        public Object getValue(String key, DatabaseChangeLog changeLog) {
+            if (key == null || !key.startsWith(DATABASE_PROPERTY_PREFIX)) {
+                return super.getValue(key, changeLog);
+            }
+
+            Object value = databaseParameters.getValue(key, changeLog);
+            if (parsing) {
+                synchronized (parseTimeValues) {
+                    parseTimeValues.put(key, value);
+                }
+            }
+            return value;
+        }
+
+        private void parsed() {
+            this.parsing = false;
+        }
+
+        private ChangeLogParameters resolve(Database database) {
+            ChangeLogParameters parameters = new ChangeLogParameters(database);
+            synchronized (parseTimeValues) {
+                for (Map.Entry<String, Object> entry : parseTimeValues.entrySet()) {
+                    if (!Objects.equals(entry.getValue(), parameters.getValue(entry.getKey(), null))) {
+                        return null;
+                    }
+                }
+            }
+            return parameters;
+        }
+
+        private void bind(ChangeLogParameters parameters) {
+            this.databaseParameters = parameters;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/*-
+ * #%L
+ * wildfly-liquibase-subsystem
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase.service;
+
+/**
+ * A change set that has yet to be applied to a datasource.
+ */
+public final class PendingChangeSet {
+
+    private final String id;
+    private final String author;
+    private final String fileName;
+    private final long lastDuration;
+
+    PendingChangeSet(String id, String author, String fileName, long lastDuration) {
+        this.id = id;
+        this.author = author;
+        this.fileName = fileName;
+        this.lastDuration = lastDuration;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * @return the duration in milliseconds of the most recent recorded execution of the change set against the
+     * datasource, such as for runOnChange change sets, or -1 if it has not been recorded
+     */
+    public long getLastDuration() {
+        return lastDuration;
+    }
+}
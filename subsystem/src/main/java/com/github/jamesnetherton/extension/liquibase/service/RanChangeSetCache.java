@@ -0,0 +1,157 @@
+/*-
+ * #%L
+ * wildfly-liquibase-subsystem
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase.service;
+
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import liquibase.changelog.ChangeSet;
+import liquibase.changelog.RanChangeSet;
+
+/**
+ * The contents of a change log table of a datasource, shared by all change log executions that target it so the table
+ * is read once rather than by every execution. Histories are cached per datasource and per liquibase catalog, schema
+ * and change log table name, so change logs that keep their history in different tables of a datasource do not share it.
+ *
+ * Caches are held softly, so they are kept across the executions of a server boot but may be reclaimed afterwards.
+ * Each cached history is stored together with the row count and highest ORDEREXECUTED value of the table. Before
+ * a cached history is reused, both are compared with the table to detect changes made by other servers or rolled back
+ * transactions.
+ *
+ * Changes that alter neither value go unnoticed. Rows updated in place by another server, such as by clearing check
+ * sums or syncing a change log there, or rows deleted and inserted in equal numbers below the highest ORDEREXECUTED
+ * value, are not seen until the cache is reclaimed, evicted or invalidated by a change made through this server. Such
+ * updates made by this server always invalidate the cache.
+ *
+ * At most {@link #setMaxSize(int)} histories are cached, the least recently used being evicted first.
+ */
+final class RanChangeSetCache {
+
+    static final String DATA_SOURCE_ATTRIBUTE = "wildfly.liquibase.ranChangeSetCache.dataSource";
+
+    static final int DEFAULT_MAX_SIZE = 32;
+
+    private static volatile int maxSize = DEFAULT_MAX_SIZE;
+    private static final Map<List<String>, SoftReference<RanChangeSetCache>> CACHES = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<List<String>, SoftReference<RanChangeSetCache>> eldest) {
+            return size() > maxSize;
+        }
+    };
+
+    private List<RanChangeSet> ranChangeSets;
+    private long rowCount;
+    private long maxOrderExecuted;
+
+    private RanChangeSetCache() {
+    }
+
+    /**
+     * Sets the number of datasource histories that are cached. A size of 0 disables caching.
+     */
+    static void setMaxSize(int size) {
+        synchronized (CACHES) {
+            maxSize = size;
+            Iterator<List<String>> iterator = CACHES.keySet().iterator();
+            while (CACHES.size() > size && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+    }
+
+    static boolean isEnabled() {
+        return maxSize > 0;
+    }
+
+    /**
+     * @return the cache of the given change log table of a datasource, or null if caching is disabled
+     */
+    static RanChangeSetCache forTable(String dataSource, String catalogName, String schemaName, String tableName) {
+        if (!isEnabled()) {
+            return null;
+        }
+        List<String> key = Arrays.asList(dataSource, catalogName, schemaName, tableName);
+        synchronized (CACHES) {
+            SoftReference<RanChangeSetCache> reference = CACHES.get(key);
+            RanChangeSetCache cache = reference != null ? reference.get() : null;
+            if (cache == null) {
+                cache = new RanChangeSetCache();
+                CACHES.put(key, new SoftReference<>(cache));
+            }
+            return cache;
+        }
+    }
+
+    /**
+     * @return a copy of the cached history, or null if there is none or the table has changed since it was cached
+     */
+    synchronized List<RanChangeSet> get(long rowCount, long maxOrderExecuted) {
+        if (ranChangeSets != null && this.rowCount == rowCount && this.maxOrderExecuted == maxOrderExecuted) {
+            return new ArrayList<>(ranChangeSets);
+        }
+        return null;
+    }
+
+    /**
+     * Caches a history read from the table.
+     */
+    synchronized void put(List<RanChangeSet> ranChangeSets, long rowCount, long maxOrderExecuted) {
+        this.ranChangeSets = new ArrayList<>(ranChangeSets);
+        this.rowCount = rowCount;
+        this.maxOrderExecuted = maxOrderExecuted;
+    }
+
+    /**
+     * Accounts for a change set that has been marked as ran. Change sets that ran before are updated in place by
+     * Liquibase, so their previous entry is replaced rather than kept alongside the new one.
+     */
+    synchronized void recorded(ChangeSet changeSet, ChangeSet.ExecType execType, int orderExecuted) {
+        if (ranChangeSets == null) {
+            return;
+        }
+        if (execType.ranBefore) {
+            ranChangeSets.removeIf(ranChangeSet -> ranChangeSet.isSameAs(changeSet));
+        } else {
+            rowCount++;
+        }
+        RanChangeSet ranChangeSet = new RanChangeSet(changeSet, execType, null, null);
+        ranChangeSet.setOrderExecuted(orderExecuted);
+        ranChangeSets.add(ranChangeSet);
+        maxOrderExecuted = Math.max(maxOrderExecuted, orderExecuted);
+    }
+
+    /**
+     * Applies a tag to the most recently recorded change set.
+     */
+    synchronized void tagged(String tag) {
+        if (ranChangeSets != null && !ranChangeSets.isEmpty()) {
+            ranChangeSets.get(ranChangeSets.size() - 1).setTag(tag);
+        }
+    }
+
+    synchronized void invalidate() {
+        ranChangeSets = null;
+    }
+}
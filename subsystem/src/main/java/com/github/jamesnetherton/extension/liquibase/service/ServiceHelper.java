@@ -20,13 +20,24 @@
 package com.github.jamesnetherton.extension.liquibase.service;
 
 import com.github.jamesnetherton.extension.liquibase.ChangeLogConfiguration;
-import liquibase.util.NetUtil;
+import com.github.jamesnetherton.extension.liquibase.LiquibaseLogger;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import javax.sql.DataSource;
 import org.jboss.as.controller.OperationContext;
+import org.jboss.as.naming.ManagedReferenceFactory;
+import org.jboss.as.naming.deployment.ContextNames;
 import org.jboss.msc.service.Service;
 import org.jboss.msc.service.ServiceBuilder;
 import org.jboss.msc.service.ServiceController;
 import org.jboss.msc.service.ServiceName;
 import org.jboss.msc.service.ServiceTarget;
+import org.jboss.msc.service.StartContext;
+import org.jboss.msc.service.StartException;
+import org.jboss.msc.service.StopContext;
 
 public final class ServiceHelper {
 
@@ -60,33 +71,111 @@ public final class ServiceHelper {
         return getService(context, serviceName, ChangeLogModelService.class);
     }
 
-    public static boolean isChangeLogExecutable(ChangeLogConfiguration configuration) {
-        final String hostExcludes = configuration.getHostExcludes();
-        final String hostIncludes = configuration.getHostIncludes();
+    /**
+     * Installs a {@link ChangeLogExecutionService} which depends on the binder services of every datasource targeted
+     * by the change log configuration.
+     */
+    public static ChangeLogExecutionService installChangeLogExecutionService(ServiceTarget serviceTarget, ServiceName serviceName, ChangeLogConfiguration configuration) {
+        return installChangeLogExecutionService(serviceTarget, serviceName, configuration, ExecutionSettings.DEFAULT, null);
+    }
 
-        if ((hostExcludes == null || hostExcludes.isEmpty()) && (hostIncludes == null || hostIncludes.isEmpty())) {
-            return true;
-        }
+    /**
+     * Installs a {@link ChangeLogExecutionService} which applies the change log using a pool shared with other change
+     * logs, or its own threads if the pool is null.
+     */
+    public static ChangeLogExecutionService installChangeLogExecutionService(ServiceTarget serviceTarget, ServiceName serviceName, ChangeLogConfiguration configuration,
+                                                                             ExecutionSettings settings, ExecutorService batchExecutor) {
+        return installChangeLogExecutionService(serviceTarget, serviceName, configuration, settings, batchExecutor, null);
+    }
 
-        String hostName = NetUtil.getLocalHostName();
+    /**
+     * Installs a {@link ChangeLogExecutionService} which obtains datasources from the given suppliers where present,
+     * such as datasources produced by the CDI beans of a deployment, and otherwise depends on their binder services.
+     */
+    public static ChangeLogExecutionService installChangeLogExecutionService(ServiceTarget serviceTarget, ServiceName serviceName, ChangeLogConfiguration configuration,
+                                                                             ExecutionSettings settings, ExecutorService batchExecutor,
+                                                                             Map<String, Supplier<DataSource>> providedDataSourceSuppliers) {
+        // Create wrapper service for WildFly 35 compatibility
+        final ChangeLogExecutionService[] serviceHolder = new ChangeLogExecutionService[1];
+        Service<Void> wrapperService = new Service<Void>() {
+            @Override
+            public void start(StartContext context) throws StartException {
+                serviceHolder[0].start(context);
+            }
 
-        if (hostIncludes != null && !hostIncludes.isEmpty()) {
-            for (String host : hostIncludes.split(",")) {
-                host = host.trim();
-                if (hostName.equalsIgnoreCase(host)) {
-                    return true;
+            @Override
+            public void stop(StopContext context) {
+                if (serviceHolder[0] != null) {
+                    serviceHolder[0].stop(context);
                 }
             }
-        } else if (hostExcludes != null && !hostExcludes.isEmpty()) {
-            for (String host : hostExcludes.split(",")) {
-                host = host.trim();
-                if (hostName.equalsIgnoreCase(host)) {
-                    return false;
-                }
+
+            @Override
+            public Void getValue() throws IllegalStateException, IllegalArgumentException {
+                return null;
+            }
+        };
+
+        // Build the service
+        ServiceBuilder<?> builder = serviceTarget.addService(serviceName, wrapperService);
+
+        // Stop before the scheduler that the timers of executions run on
+        builder.requires(ExecutionScheduler.getServiceName());
+
+        // Create suppliers and consumers
+        Consumer<ChangeLogExecutionService> serviceConsumer = service -> {
+            serviceHolder[0] = service;
+        };
+
+        Map<String, Supplier<DataSource>> dataSourceSuppliers = new LinkedHashMap<>();
+        Map<String, String> migrationDataSources = configuration.getMigrationDataSources();
+        if (providedDataSourceSuppliers != null) {
+            dataSourceSuppliers.putAll(providedDataSourceSuppliers);
+        }
+        for (String dataSource : configuration.getDataSources()) {
+            if (dataSourceSuppliers.containsKey(dataSource)) {
+                continue;
             }
-            return true;
+
+            // Connections are obtained from the migration datasource if one is configured, so that migrations do not
+            // occupy the connection pool of the application. Results are still reported against the target datasource
+            String connectionSource = migrationDataSources.getOrDefault(dataSource, dataSource);
+
+            // Get the datasource service name using bind info
+            ContextNames.BindInfo bindInfo = ContextNames.bindInfoFor(connectionSource);
+            ServiceName dataSourceServiceName = bindInfo.getBinderServiceName();
+
+            LiquibaseLogger.ROOT_LOGGER.debug("Using datasource service name: {} for JNDI name: {}", dataSourceServiceName, connectionSource);
+
+            // Add a dependency on the datasource's reference factory service
+            Supplier<ManagedReferenceFactory> dataSourceRefSupplier = builder.requires(dataSourceServiceName);
+
+            // Create a wrapper supplier that extracts the DataSource from the reference
+            dataSourceSuppliers.put(dataSource, () -> {
+                try {
+                    ManagedReferenceFactory factory = dataSourceRefSupplier.get();
+                    if (factory != null) {
+                        Object reference = factory.getReference().getInstance();
+                        if (reference instanceof DataSource) {
+                            return (DataSource) reference;
+                        }
+                    }
+                    throw new RuntimeException("Failed to obtain DataSource from reference factory");
+                } catch (Exception e) {
+                    throw new RuntimeException("Failed to get DataSource reference", e);
+                }
+            });
         }
 
-        return false;
+        // Create the service with the datasource suppliers
+        ChangeLogExecutionService service = new ChangeLogExecutionService(configuration, serviceConsumer, dataSourceSuppliers, settings, batchExecutor);
+
+        // Set initial reference
+        serviceHolder[0] = service;
+
+        // Install the service
+        builder.install();
+
+        return service;
     }
 }
@@ -0,0 +1,149 @@
+/*-
+ * #%L
+ * wildfly-liquibase-subsystem
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase.service;
+
+import java.sql.Connection;
+import java.util.Set;
+import liquibase.changelog.ChangeSet;
+import liquibase.changelog.DatabaseChangeLog;
+import liquibase.changelog.visitor.AbstractChangeExecListener;
+import liquibase.changelog.visitor.ChangeExecListener;
+import liquibase.database.Database;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.DatabaseException;
+
+/**
+ * {@link JdbcConnection} which commits consecutive transactional change sets together rather than one at a time.
+ *
+ * Once the first change set starts, commits issued by Liquibase are deferred until the configured number of change sets
+ * have run, so that their changes and history rows are written in a single transaction. Pending work is committed before
+ * a change set that does not run in a transaction, and whenever Liquibase rolls back outside of a change set, such as
+ * when the change log lock is released. A rollback within a change set discards the whole group, and the number of
+ * change sets lost in this way is reported by {@link #getRolledBackChangeSets()}.
+ */
+final class TransactionGroupingConnection extends JdbcConnection {
+
+    // Liquibase also reports transactional DDL for databases that commit DDL implicitly, such as H2, MySQL and Oracle
+    private static final Set<String> TRANSACTIONAL_DDL_DATABASES = Set.of("db2", "derby", "mssql", "postgresql", "sqlite");
+
+    private final int groupSize;
+    private final ChangeExecListener listener = new GroupingListener();
+    private boolean active;
+    private boolean inChangeSet;
+    private boolean commitPending;
+    private int pendingChangeSets;
+    private int rolledBackChangeSets;
+
+    TransactionGroupingConnection(Connection connection, int groupSize) {
+        super(connection);
+        this.groupSize = groupSize;
+    }
+
+    /**
+     * @return true if a failed group can be rolled back without leaving behind the schema changes of its change sets
+     */
+    static boolean isSupported(Database database) {
+        return database.supportsDDLInTransaction() && TRANSACTIONAL_DDL_DATABASES.contains(database.getShortName());
+    }
+
+    /**
+     * @return the listener which marks change set boundaries. Grouping only takes effect once it is registered with Liquibase
+     */
+    ChangeExecListener getChangeExecListener() {
+        return listener;
+    }
+
+    int getRolledBackChangeSets() {
+        return rolledBackChangeSets;
+    }
+
+    @Override
+    public void commit() throws DatabaseException {
+        if (active) {
+            commitPending = true;
+        } else {
+            super.commit();
+        }
+    }
+
+    @Override
+    public void rollback() throws DatabaseException {
+        if (active && !inChangeSet) {
+            flush();
+        } else if (active) {
+            rolledBackChangeSets += pendingChangeSets;
+            pendingChangeSets = 0;
+            commitPending = false;
+        }
+        super.rollback();
+    }
+
+    /**
+     * Commits any deferred work.
+     */
+    void flush() throws DatabaseException {
+        if (commitPending || pendingChangeSets > 0) {
+            super.commit();
+            commitPending = false;
+            pendingChangeSets = 0;
+        }
+    }
+
+    private final class GroupingListener extends AbstractChangeExecListener {
+
+        @Override
+        public void willRun(ChangeSet changeSet, DatabaseChangeLog databaseChangeLog, Database database, ChangeSet.RunStatus runStatus) {
+            try {
+                if (!changeSet.isRunInTransaction()) {
+                    flush();
+                    active = false;
+                } else {
+                    active = true;
+                }
+                inChangeSet = true;
+            } catch (DatabaseException e) {
+                throw new IllegalStateException("Failed to commit change set group before " + changeSet, e);
+            }
+        }
+
+        @Override
+        public void ran(ChangeSet changeSet, DatabaseChangeLog databaseChangeLog, Database database, ChangeSet.ExecType execType) {
+            inChangeSet = false;
+            if (!changeSet.isRunInTransaction()) {
+                // Defer commits again from here on so that the next change set can join a new group
+                active = true;
+                return;
+            }
+
+            try {
+                if (++pendingChangeSets >= groupSize) {
+                    flush();
+                }
+            } catch (DatabaseException e) {
+                throw new IllegalStateException("Failed to commit change set group ending with " + changeSet, e);
+            }
+        }
+
+        @Override
+        public void runFailed(ChangeSet changeSet, DatabaseChangeLog databaseChangeLog, Database database, Exception exception) {
+            inChangeSet = false;
+        }
+    }
+}
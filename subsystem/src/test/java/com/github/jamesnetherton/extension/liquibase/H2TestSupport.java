@@ -0,0 +1,99 @@
+/*-
+ * #%L
+ * wildfly-liquibase-subsystem
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import liquibase.database.Database;
+import liquibase.database.DatabaseFactory;
+import liquibase.database.jvm.JdbcConnection;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+
+/**
+ * Base class for tests which run against H2 in-memory databases of their own.
+ *
+ * Each test gets a new database in {@link #dataSource}. The databases opened through {@link #openDatabase()} are closed,
+ * and every database created by the test is shut down, once the test has finished.
+ */
+public abstract class H2TestSupport {
+
+    protected JdbcDataSource dataSource;
+
+    private final List<JdbcDataSource> dataSources = new ArrayList<>();
+    private final List<Database> databases = new ArrayList<>();
+
+    @Before
+    public void setUpDataSource() {
+        dataSource = createDataSource();
+    }
+
+    @After
+    public void tearDownDataSources() throws Exception {
+        for (Database database : databases) {
+            database.close();
+        }
+        DatabaseFactory.reset();
+        for (JdbcDataSource createdDataSource : dataSources) {
+            execute(createdDataSource, "SHUTDOWN");
+        }
+    }
+
+    protected JdbcDataSource createDataSource() {
+        JdbcDataSource createdDataSource = new JdbcDataSource();
+        createdDataSource.setURL("jdbc:h2:mem:" + getClass().getSimpleName() + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        dataSources.add(createdDataSource);
+        return createdDataSource;
+    }
+
+    protected Database openDatabase() throws Exception {
+        return openDatabase(dataSource);
+    }
+
+    protected Database openDatabase(JdbcDataSource source) throws Exception {
+        Database database = DatabaseFactory.getInstance().findCorrectDatabaseImplementation(new JdbcConnection(source.getConnection()));
+        databases.add(database);
+        return database;
+    }
+
+    /**
+     * Connects a particular {@link Database} implementation to {@link #dataSource}.
+     */
+    protected Database openDatabase(Database database) throws Exception {
+        database.setConnection(new JdbcConnection(dataSource.getConnection()));
+        databases.add(database);
+        return database;
+    }
+
+    protected void execute(String sql) throws SQLException {
+        execute(dataSource, sql);
+    }
+
+    protected static void execute(JdbcDataSource source, String sql) throws SQLException {
+        try (Connection connection = source.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*-
+ * #%L
+ * wildfly-liquibase-subsystem
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase;
+
+import java.util.Collections;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HostRulesTestCase {
+
+    @Test
+    public void testNoRules() {
+        HostRules rules = HostRules.compile(null, " ");
+        Assert.assertTrue(rules.isEmpty());
+        Assert.assertTrue(rules.matchesLocalHost());
+    }
+
+    @Test
+    public void testHostNames() {
+        HostRules rules = HostRules.compile("foo.com, BAR.net", null);
+        Assert.assertTrue(rules.matches("foo.com", Collections.emptySet()));
+        Assert.assertTrue(rules.matches("bar.NET", Collections.emptySet()));
+        Assert.assertFalse(rules.matches("foo.com.au", Collections.emptySet()));
+    }
+
+    @Test
+    public void testGlobPatterns() {
+        HostRules rules = HostRules.compile("app-*.example.com,db-?", null);
+        Assert.assertTrue(rules.matches("app-7f3a.example.com", Collections.emptySet()));
+        Assert.assertTrue(rules.matches("DB-1", Collections.emptySet()));
+        Assert.assertFalse(rules.matches("db-10", Collections.emptySet()));
+        Assert.assertFalse(rules.matches("app-1xexample.com", Collections.emptySet()));
+    }
+
+    @Test
+    public void testRegularExpressions() {
+        HostRules rules = HostRules.compile(null, "regex:worker-[0-9]+");
+        Assert.assertFalse(rules.matches("worker-12", Collections.emptySet()));
+        Assert.assertTrue(rules.matches("worker-12.example.com", Collections.emptySet()));
+    }
+
+    @Test
+    public void testRoles() {
+        HostRules rules = HostRules.compile("role:migrator", null);
+        Assert.assertTrue(rules.matches("any.host", Set.of("web", "migrator")));
+        Assert.assertFalse(rules.matches("any.host", Set.of("web")));
+    }
+
+    @Test
+    public void testIncludesTakePrecedenceOverExcludes() {
+        HostRules rules = HostRules.compile("role:migrator", "*");
+        Assert.assertTrue(rules.matches("any.host", Set.of("migrator")));
+        Assert.assertFalse(rules.matches("any.host", Collections.emptySet()));
+    }
+
+    @Test
+    public void testLocalRoles() {
+        String roles = System.getProperty(HostRules.ROLES_PROPERTY);
+        try {
+            System.setProperty(HostRules.ROLES_PROPERTY, "web, Migrator");
+            Assert.assertTrue(HostRules.compile("role:migrator", null).matchesLocalHost());
+            Assert.assertFalse(HostRules.compile(null, "role:migrator").matchesLocalHost());
+        } finally {
+            if (roles == null) {
+                System.clearProperty(HostRules.ROLES_PROPERTY);
+            } else {
+                System.setProperty(HostRules.ROLES_PROPERTY, roles);
+            }
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testInvalidRegularExpression() {
+        HostRules.compile("regex:worker-[", null);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testInvalidConfiguration() {
+        ChangeLogConfiguration.builder()
+            .name("changelog.xml")
+            .dataSource("java:jboss/datasources/ExampleDS")
+            .definition("<databaseChangeLog/>")
+            .hostIncludes("role:")
+            .classLoader(HostRulesTestCase.class.getClassLoader())
+            .subsystemOrigin()
+            .build();
+    }
+}
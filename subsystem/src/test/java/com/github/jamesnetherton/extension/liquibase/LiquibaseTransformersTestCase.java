@@ -0,0 +1,89 @@
+/*-
+ * #%L
+ * wildfly-liquibase-subsystem
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase;
+
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.OUTCOME;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.SUBSYSTEM;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.SUCCESS;
+
+import java.util.List;
+import org.jboss.as.controller.AttributeDefinition;
+import org.jboss.as.controller.PathAddress;
+import org.jboss.as.controller.PathElement;
+import org.jboss.as.controller.operations.common.Util;
+import org.jboss.as.controller.transform.OperationTransformer.TransformedOperation;
+import org.jboss.as.model.test.FailedOperationTransformationConfig;
+import org.jboss.as.model.test.ModelTestControllerVersion;
+import org.jboss.as.model.test.ModelTestUtils;
+import org.jboss.as.subsystem.test.AbstractSubsystemTest;
+import org.jboss.as.subsystem.test.AdditionalInitialization;
+import org.jboss.as.subsystem.test.KernelServices;
+import org.jboss.as.subsystem.test.KernelServicesBuilder;
+import org.jboss.dmr.ModelNode;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LiquibaseTransformersTestCase extends AbstractSubsystemTest {
+
+    // The last release to ship version 1.0.0 of the subsystem model
+    private static final String LEGACY_SUBSYSTEM_ARTIFACT = "com.github.jamesnetherton:wildfly-liquibase-subsystem:2.2.0";
+
+    private static final PathAddress SUBSYSTEM_ADDRESS = PathAddress.pathAddress(SUBSYSTEM, LiquibaseExtension.SUBSYSTEM_NAME);
+    private static final PathAddress CHANGE_LOG_ADDRESS = SUBSYSTEM_ADDRESS.append(PathElement.pathElement(ModelConstants.DATABASE_CHANGELOG, "test-migration"));
+
+    public LiquibaseTransformersTestCase() {
+        super(LiquibaseExtension.SUBSYSTEM_NAME, new LiquibaseExtension());
+    }
+
+    @Test
+    public void testRejectTransformers100() throws Exception {
+        KernelServicesBuilder builder = createKernelServicesBuilder(AdditionalInitialization.MANAGEMENT);
+        builder.createLegacyKernelServicesBuilder(AdditionalInitialization.MANAGEMENT, ModelTestControllerVersion.MASTER, LiquibaseTransformers.VERSION_1_0_0)
+            .addMavenResourceURL(LEGACY_SUBSYSTEM_ARTIFACT)
+            .dontPersistXml();
+
+        KernelServices mainServices = builder.build();
+        Assert.assertTrue(mainServices.isSuccessfulBoot());
+        KernelServices legacyServices = mainServices.getLegacyServices(LiquibaseTransformers.VERSION_1_0_0);
+        Assert.assertNotNull(legacyServices);
+        Assert.assertTrue(legacyServices.isSuccessfulBoot());
+
+        List<ModelNode> operations = builder.parseXmlResource("subsystem.xml");
+        AttributeDefinition[] subsystemAttributes = LiquibaseRootResource.ATTRIBUTES.toArray(new AttributeDefinition[0]);
+        ModelTestUtils.checkFailedTransformedBootOperations(mainServices, LiquibaseTransformers.VERSION_1_0_0, operations,
+            new FailedOperationTransformationConfig()
+                .addFailedAttribute(SUBSYSTEM_ADDRESS,
+                    new FailedOperationTransformationConfig.NewAttributesConfig(subsystemAttributes))
+                .addFailedAttribute(SUBSYSTEM_ADDRESS.append(ChangeLogResource.CHANGE_LOG_PATH),
+                    new FailedOperationTransformationConfig.NewAttributesConfig(LiquibaseTransformers.CHANGE_LOG_ATTRIBUTES_1_1)));
+
+        for (String operationName : LiquibaseTransformers.CHANGE_LOG_OPERATIONS_1_1) {
+            ModelNode operation = Util.createEmptyOperation(operationName, CHANGE_LOG_ADDRESS);
+            TransformedOperation transformed = mainServices.transformOperation(LiquibaseTransformers.VERSION_1_0_0, operation);
+            Assert.assertTrue(operationName, transformed.rejectOperation(success()));
+        }
+    }
+
+    private static ModelNode success() {
+        ModelNode result = new ModelNode();
+        result.get(OUTCOME).set(SUCCESS);
+        return result;
+    }
+}
@@ -35,6 +35,6 @@ public class SubsystemBaseParsingTestCase extends AbstractSubsystemBaseTest {
 
     @Override
     protected String getSubsystemXsdPath() throws Exception {
-        return "schema/wildfly-liquibase-subsystem_1_0.xsd";
+        return "schema/wildfly-liquibase-subsystem_1_1.xsd";
     }
 }
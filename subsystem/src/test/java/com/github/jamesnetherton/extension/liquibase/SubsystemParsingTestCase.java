@@ -25,6 +25,7 @@ import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.OP_
 import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.SUBSYSTEM;
 
 import java.util.List;
+import javax.xml.stream.XMLStreamException;
 import org.jboss.as.controller.PathAddress;
 import org.jboss.as.controller.PathElement;
 import org.jboss.as.subsystem.test.AbstractSubsystemTest;
@@ -56,6 +57,14 @@ public class SubsystemParsingTestCase extends AbstractSubsystemTest {
         PathElement element = addr.getElement(0);
         Assert.assertEquals(SUBSYSTEM, element.getKey());
         Assert.assertEquals(LiquibaseExtension.SUBSYSTEM_NAME, element.getValue());
+        Assert.assertEquals(8, addSubsystem.get(ModelConstants.EXECUTOR_THREADS).asInt());
+        Assert.assertTrue(addSubsystem.get(ModelConstants.VIRTUAL_THREADS).asBoolean());
+        Assert.assertEquals(5, addSubsystem.get(ModelConstants.LOCK_RECHECK_INTERVAL).asInt());
+        Assert.assertEquals(2, addSubsystem.get(ModelConstants.LOCK_WAIT_TIMEOUT).asInt());
+        Assert.assertEquals(16, addSubsystem.get(ModelConstants.HISTORY_CACHE_SIZE).asInt());
+        Assert.assertEquals(4, addSubsystem.get(ModelConstants.CHANGELOG_POOL_SIZE).asInt());
+        Assert.assertEquals("fingerprint", addSubsystem.get(ModelConstants.SKIP_MODE).asString());
+        Assert.assertFalse(addSubsystem.get(ModelConstants.STATISTICS_ENABLED).asBoolean());
 
         //Then we will get the add type operation
         ModelNode addType = operations.get(1);
@@ -66,6 +75,14 @@ public class SubsystemParsingTestCase extends AbstractSubsystemTest {
         Assert.assertFalse(addType.get(ModelConstants.FAIL_ON_ERROR).asBoolean());
         Assert.assertEquals("foo.com,bar.net,cheese.org", addType.get(ModelConstants.HOST_EXCLUDES).asString());
         Assert.assertEquals("cheese.org,bar.net,foo.com", addType.get(ModelConstants.HOST_INCLUDES).asString());
+        Assert.assertEquals(4, addType.get(ModelConstants.PARALLELISM).asInt());
+        Assert.assertEquals(600, addType.get(ModelConstants.TIMEOUT).asInt());
+        Assert.assertEquals(60, addType.get(ModelConstants.CHANGESET_TIMEOUT).asInt());
+        Assert.assertEquals(500, addType.get(ModelConstants.BATCH_SIZE).asInt());
+        Assert.assertEquals(50, addType.get(ModelConstants.TRANSACTION_GROUP_SIZE).asInt());
+        Assert.assertEquals("baseline/tenant.sql", addType.get(ModelConstants.BASELINE).asString());
+        Assert.assertTrue(addType.get(ModelConstants.HISTORY_INDEX).asBoolean());
+        Assert.assertEquals("java:jboss/datasources/ExampleMigrationDS", addType.get(ModelConstants.MIGRATION_DATASOURCE).asString());
         addr = PathAddress.pathAddress(addType.get(OP_ADDR));
         Assert.assertEquals(2, addr.size());
         element = addr.getElement(0);
@@ -75,4 +92,35 @@ public class SubsystemParsingTestCase extends AbstractSubsystemTest {
         Assert.assertEquals("databaseChangeLog", element.getKey());
         Assert.assertEquals("test-migration", element.getValue());
     }
+
+    @Test
+    public void testParseSubsystem10() throws Exception {
+        String subsystemXml = readResource("subsystem_1_0.xml");
+        List<ModelNode> operations = super.parse(subsystemXml);
+        Assert.assertEquals(2, operations.size());
+
+        ModelNode addSubsystem = operations.get(0);
+        Assert.assertEquals(ADD, addSubsystem.get(OP).asString());
+        Assert.assertFalse(addSubsystem.hasDefined(ModelConstants.EXECUTOR_THREADS));
+        Assert.assertFalse(addSubsystem.hasDefined(ModelConstants.SKIP_MODE));
+
+        ModelNode addType = operations.get(1);
+        Assert.assertEquals("java:jboss/datasources/ExampleDS", addType.get(ModelConstants.DATASOURCE).asString());
+        Assert.assertEquals("cheese", addType.get(ModelConstants.LABELS).asString());
+    }
+
+    @Test(expected = XMLStreamException.class)
+    public void testParseSubsystem10RejectsSubsystemAttributes() throws Exception {
+        String subsystemXml = readResource("subsystem_1_0.xml")
+            .replace("<subsystem xmlns=\"urn:com.github.jamesnetherton.liquibase:1.0\">",
+                "<subsystem xmlns=\"urn:com.github.jamesnetherton.liquibase:1.0\" executor-threads=\"8\">");
+        super.parse(subsystemXml);
+    }
+
+    @Test(expected = XMLStreamException.class)
+    public void testParseSubsystem10RejectsChangeLogAttributes() throws Exception {
+        String subsystemXml = readResource("subsystem_1_0.xml")
+            .replace("fail-on-error=\"false\"", "fail-on-error=\"false\" parallelism=\"4\"");
+        super.parse(subsystemXml);
+    }
 }
@@ -0,0 +1,85 @@
+/*-
+ * #%L
+ * wildfly-liquibase-subsystem
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase.deployment;
+
+import com.github.jamesnetherton.extension.liquibase.ChangeLogConfiguration;
+import com.github.jamesnetherton.extension.liquibase.ChangeLogConfiguration.BuilderCollection;
+import com.github.jamesnetherton.extension.liquibase.ChangeLogExecutionMode;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import org.jboss.staxmapper.XMLElementReader;
+import org.jboss.staxmapper.XMLMapper;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LiquibaseJBossAllParserTestCase {
+
+    @Test
+    public void testParseExecutionModeAndSkipIfUnchanged() throws Exception {
+        ChangeLogConfiguration configuration = parse("<execution-mode>deferred</execution-mode><skip-if-unchanged>true</skip-if-unchanged>");
+        Assert.assertEquals(ChangeLogExecutionMode.DEFERRED, configuration.getExecutionMode());
+        Assert.assertEquals(Boolean.TRUE, configuration.getSkipIfUnchanged());
+
+        configuration = parse("<execution-mode>async</execution-mode><skip-if-unchanged>false</skip-if-unchanged>");
+        Assert.assertEquals(ChangeLogExecutionMode.ASYNC, configuration.getExecutionMode());
+        Assert.assertEquals(Boolean.FALSE, configuration.getSkipIfUnchanged());
+    }
+
+    @Test
+    public void testParseDefaults() throws Exception {
+        ChangeLogConfiguration configuration = parse("");
+        Assert.assertEquals(ChangeLogExecutionMode.SYNC, configuration.getExecutionMode());
+        // Without skip-if-unchanged, the subsystem skip-mode applies
+        Assert.assertNull(configuration.getSkipIfUnchanged());
+
+        Assert.assertEquals(ChangeLogExecutionMode.SYNC, parse("<execution-mode/>").getExecutionMode());
+    }
+
+    @Test(expected = XMLStreamException.class)
+    public void testParseInvalidExecutionMode() throws Exception {
+        parse("<execution-mode>eventually</execution-mode>");
+    }
+
+    private ChangeLogConfiguration parse(String elements) throws XMLStreamException {
+        String xml = "<liquibase xmlns=\"" + LiquibaseJBossAllParser.NAMESPACE_1_0 + "\" changelog=\"changes.xml\">"
+            + "<datasource>java:jboss/datasources/ExampleDS</datasource>"
+            + elements
+            + "</liquibase>";
+
+        LiquibaseJBossAllParser parser = new LiquibaseJBossAllParser();
+        XMLMapper mapper = XMLMapper.Factory.create();
+        mapper.registerRootElement(LiquibaseJBossAllParser.ROOT_ELEMENT,
+            (XMLElementReader<List<BuilderCollection>>) (reader, result) -> result.add(parser.parse(reader, null)));
+
+        List<BuilderCollection> result = new ArrayList<>();
+        mapper.parseDocument(result, XMLInputFactory.newInstance().createXMLStreamReader(new StringReader(xml)));
+        Assert.assertEquals(1, result.size());
+        Assert.assertEquals(1, result.get(0).getBuilders().size());
+
+        return result.get(0).getBuilders().get(0)
+            .definition("<databaseChangeLog/>")
+            .classLoader(getClass().getClassLoader())
+            .deploymentOrigin()
+            .build();
+    }
+}
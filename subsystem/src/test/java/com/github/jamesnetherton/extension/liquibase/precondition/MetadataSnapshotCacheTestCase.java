@@ -0,0 +1,89 @@
+/*-
+ * #%L
+ * wildfly-liquibase-subsystem
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase.precondition;
+
+import com.github.jamesnetherton.extension.liquibase.H2TestSupport;
+import java.sql.Statement;
+import liquibase.changelog.ChangeSet;
+import liquibase.changelog.visitor.ChangeExecListener;
+import liquibase.database.Database;
+import liquibase.database.jvm.JdbcConnection;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MetadataSnapshotCacheTestCase extends H2TestSupport {
+
+    private final MetadataSnapshotCache cache = new MetadataSnapshotCache();
+    private final ChangeSet changeSet = new ChangeSet("1", "wildfly", false, false, "changelog.xml", null, null, null);
+    private int tables;
+    private Database database;
+
+    @Before
+    public void setUp() throws Exception {
+        database = openDatabase();
+    }
+
+    @Test
+    public void testKeptForChangeSetsThatDidNotRun() throws Exception {
+        ChangeExecListener listener = cache.getChangeExecListener();
+        for (ChangeSet.ExecType execType : new ChangeSet.ExecType[] {ChangeSet.ExecType.MARK_RAN, ChangeSet.ExecType.SKIPPED}) {
+            String table = createTable();
+            listener.ran(changeSet, null, database, execType);
+            Assert.assertFalse(execType.name(), hasTable(table));
+        }
+    }
+
+    @Test
+    public void testInvalidatedForChangeSetsThatRan() throws Exception {
+        ChangeExecListener listener = cache.getChangeExecListener();
+        for (ChangeSet.ExecType execType : ChangeSet.ExecType.values()) {
+            if (execType == ChangeSet.ExecType.MARK_RAN || execType == ChangeSet.ExecType.SKIPPED) {
+                continue;
+            }
+            String table = createTable();
+            listener.ran(changeSet, null, database, execType);
+            Assert.assertTrue(execType.name(), hasTable(table));
+        }
+    }
+
+    @Test
+    public void testInvalidatedForFailedChangeSets() throws Exception {
+        String table = createTable();
+        cache.getChangeExecListener().runFailed(changeSet, null, database, new Exception());
+        Assert.assertTrue(hasTable(table));
+    }
+
+    /**
+     * Creates a table after the tables of the schema have been cached.
+     */
+    private String createTable() throws Exception {
+        String table = "METADATA_TEST_" + (++tables);
+        Assert.assertFalse(hasTable(table));
+        try (Statement statement = ((JdbcConnection) database.getConnection()).createStatement()) {
+            statement.execute("CREATE TABLE " + table + " (ID INT)");
+        }
+        return table;
+    }
+
+    private boolean hasTable(String table) throws Exception {
+        return cache.hasTable(database, null, null, table);
+    }
+}
@@ -0,0 +1,136 @@
+/*-
+ * #%L
+ * wildfly-liquibase-subsystem
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase.service;
+
+import com.github.jamesnetherton.extension.liquibase.H2TestSupport;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import liquibase.Liquibase;
+import liquibase.database.DatabaseFactory;
+import liquibase.exception.LiquibaseException;
+import liquibase.resource.DirectoryResourceAccessor;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BaselineScriptTestCase extends H2TestSupport {
+
+    private static final String CHANGELOG = "<databaseChangeLog xmlns=\"http://www.liquibase.org/xml/ns/dbchangelog\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\""
+        + " xsi:schemaLocation=\"http://www.liquibase.org/xml/ns/dbchangelog http://www.liquibase.org/xml/ns/dbchangelog/dbchangelog-latest.xsd\">"
+        + "<changeSet id=\"1\" author=\"wildfly\"><createTable tableName=\"baseline_test\"><column name=\"id\" type=\"int\"/></createTable></changeSet>"
+        + "<changeSet id=\"2\" author=\"wildfly\"><tagDatabase tag=\"v1\"/></changeSet>"
+        + "</databaseChangeLog>";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testGenerate() throws Exception {
+        update(dataSource);
+        execute(dataSource, "CREATE TABLE DATABASECHANGELOG_ARCHIVE (ID VARCHAR(255))");
+        execute(dataSource, "CREATE TABLE DATABASECHANGELOGLEASE (ID VARCHAR(64) PRIMARY KEY)");
+
+        String script = generate(dataSource, "v1");
+        Assert.assertTrue(script, script.contains("CREATE TABLE baseline_test") || script.contains("CREATE TABLE BASELINE_TEST"));
+        Assert.assertTrue(script, script.contains("INSERT INTO DATABASECHANGELOG"));
+        Assert.assertFalse(script, script.contains("DATABASECHANGELOG_ARCHIVE"));
+        Assert.assertFalse(script, script.contains("DATABASECHANGELOGLEASE"));
+        Assert.assertFalse(script, script.contains("CREATE TABLE DATABASECHANGELOG"));
+    }
+
+    @Test
+    public void testGenerateWithUnknownTag() throws Exception {
+        update(dataSource);
+        try {
+            generate(dataSource, "v2");
+            Assert.fail("Expected LiquibaseException");
+        } catch (LiquibaseException e) {
+            Assert.assertTrue(e.getMessage().contains("v2"));
+        }
+    }
+
+    @Test
+    public void testApply() throws Exception {
+        JdbcDataSource source = createDataSource();
+        update(source);
+        Files.write(new File(folder.getRoot(), "baseline.sql").toPath(), generate(source, "v1").getBytes(StandardCharsets.UTF_8));
+
+        DatabaseFactory.getInstance().register(new TransactionalH2Database());
+        JdbcDataSource target = createDataSource();
+        Assert.assertTrue(applyIfEmpty(target) > 0);
+        Assert.assertEquals(0, count(target, "baseline_test"));
+        Assert.assertEquals(2, count(target, "DATABASECHANGELOG"));
+
+        // Databases with change log history are left alone
+        Assert.assertEquals(-1, applyIfEmpty(target));
+        Assert.assertEquals(2, count(target, "DATABASECHANGELOG"));
+    }
+
+    @Test
+    public void testApplyWithoutTransactionalDDL() throws Exception {
+        JdbcDataSource source = createDataSource();
+        update(source);
+        Files.write(new File(folder.getRoot(), "baseline.sql").toPath(), generate(source, "v1").getBytes(StandardCharsets.UTF_8));
+
+        JdbcDataSource target = createDataSource();
+        try {
+            applyIfEmpty(target);
+            Assert.fail("Expected LiquibaseException");
+        } catch (LiquibaseException e) {
+            Assert.assertTrue(e.getMessage().contains("DDL"));
+        }
+        Assert.assertEquals(0, count(target, "DATABASECHANGELOG"));
+        try {
+            count(target, "baseline_test");
+            Assert.fail("Expected the baseline not to be applied");
+        } catch (SQLException e) {
+            // Expected
+        }
+    }
+
+    private void update(JdbcDataSource dataSource) throws Exception {
+        Files.write(new File(folder.getRoot(), "changelog.xml").toPath(), CHANGELOG.getBytes(StandardCharsets.UTF_8));
+        new Liquibase("changelog.xml", new DirectoryResourceAccessor(folder.getRoot()), openDatabase(dataSource)).update("");
+    }
+
+    private String generate(JdbcDataSource dataSource, String tag) throws Exception {
+        return BaselineScript.generate(openDatabase(dataSource), tag);
+    }
+
+    private int applyIfEmpty(JdbcDataSource dataSource) throws Exception {
+        return BaselineScript.applyIfEmpty(openDatabase(dataSource), new DirectoryResourceAccessor(folder.getRoot()), "baseline.sql");
+    }
+
+    private static int count(JdbcDataSource dataSource, String table) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,383 @@
+/*-
+ * #%L
+ * wildfly-liquibase-subsystem
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase.service;
+
+import com.github.jamesnetherton.extension.liquibase.ChangeLogConfiguration;
+import com.github.jamesnetherton.extension.liquibase.ChangeLogExecutionMode;
+import com.github.jamesnetherton.extension.liquibase.H2TestSupport;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import javax.sql.DataSource;
+import liquibase.database.DatabaseFactory;
+import liquibase.resource.DirectoryResourceAccessor;
+import org.jboss.msc.service.StartContext;
+import org.jboss.msc.service.StartException;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ChangeLogExecutionServiceTestCase extends H2TestSupport {
+
+    private static final String DATASOURCE = "java:jboss/datasources/ExecutionServiceDS";
+
+    @Before
+    public void setUp() throws Exception {
+        CachingChangeLogHistoryService.register();
+        execute("CREATE TABLE execution_test (id INT PRIMARY KEY)");
+    }
+
+    @Test
+    public void testRetryWithoutGrouping() throws Exception {
+        // H2 commits DDL implicitly, so it is only treated as transactional here to allow grouping of the DML change sets below
+        DatabaseFactory.getInstance().register(new TransactionalH2Database());
+
+        String definition = changeLog(
+            insert("1", 1),
+            insert("2", 2),
+            "<changeSet id=\"3\" author=\"wildfly\" failOnError=\"false\"><sql>INSERT INTO missing_table VALUES (3)</sql></changeSet>",
+            insert("4", 4));
+
+        ChangeLogConfiguration configuration = configuration(definition).transactionGroupSize(10).build();
+        ChangeLogExecutionService service = createService(configuration);
+        service.executeChangeLog(configuration);
+
+        // The failed change set rolled back the group it joined, which must then be applied again with a commit per change set
+        Assert.assertEquals(List.of("1", "2", "4"), query("SELECT id FROM execution_test ORDER BY id"));
+        Assert.assertEquals(List.of("1", "2", "4"), query("SELECT ID FROM DATABASECHANGELOG ORDER BY ID"));
+        Assert.assertEquals(DataSourceExecutionStatus.State.EXECUTED, service.getDataSourceStatus().iterator().next().getState());
+    }
+
+    @Test
+    public void testNoGroupingWithoutTransactionalDDL() throws Exception {
+        String definition = changeLog(
+            insert("1", 1),
+            "<changeSet id=\"2\" author=\"wildfly\" failOnError=\"false\"><sql>INSERT INTO missing_table VALUES (2)</sql></changeSet>",
+            insert("3", 3));
+
+        ChangeLogConfiguration configuration = configuration(definition).transactionGroupSize(10).build();
+        createService(configuration).executeChangeLog(configuration);
+
+        Assert.assertEquals(List.of("1", "3"), query("SELECT id FROM execution_test ORDER BY id"));
+        Assert.assertEquals(List.of("1", "3"), query("SELECT ID FROM DATABASECHANGELOG ORDER BY ID"));
+    }
+
+    @Test
+    public void testApplyAppendedChangeSets() throws Exception {
+        String definition = changeLog(insert("1", 1));
+        ChangeLogConfiguration configuration = configuration(definition).build();
+        ChangeLogExecutionService service = createService(configuration);
+        service.executeChangeLog(configuration);
+
+        String appended = changeLog(insert("1", 1), insert("2", 2));
+        Assert.assertTrue(service.applyAppendedChangeSets(appended));
+        Assert.assertEquals(appended, configuration.getDefinition());
+        Assert.assertEquals(List.of("1", "2"), query("SELECT id FROM execution_test ORDER BY id"));
+
+        // Change sets that differ from those applied need the service to be reinstalled
+        Assert.assertFalse(service.applyAppendedChangeSets(changeLog(insert("1", 10), insert("2", 2), insert("3", 3))));
+        Assert.assertEquals(appended, configuration.getDefinition());
+    }
+
+    @Test
+    public void testApplyAppendedChangeSetsFailure() throws Exception {
+        String definition = changeLog(insert("1", 1));
+        ChangeLogConfiguration configuration = configuration(definition).build();
+        ChangeLogExecutionService service = createService(configuration);
+        service.executeChangeLog(configuration);
+
+        try {
+            service.applyAppendedChangeSets(changeLog(insert("1", 1), "<changeSet id=\"2\" author=\"wildfly\"><sql>INSERT INTO missing_table VALUES (2)</sql></changeSet>"));
+            Assert.fail("Expected the appended change set to fail");
+        } catch (RuntimeException e) {
+            // Expected
+        }
+
+        // The definition is restored to match the model, which keeps the previous value of the failed operation
+        Assert.assertEquals(definition, configuration.getDefinition());
+        Assert.assertEquals(List.of("1"), query("SELECT ID FROM DATABASECHANGELOG ORDER BY ID"));
+        Assert.assertEquals(DataSourceExecutionStatus.State.FAILED, service.getDataSourceStatus().iterator().next().getState());
+    }
+
+    @Test
+    public void testApplyAppendedChangeSetsConnectionFailure() throws Exception {
+        String definition = changeLog(insert("1", 1));
+        ChangeLogConfiguration configuration = configuration(definition).build();
+        AtomicReference<DataSource> current = new AtomicReference<>(dataSource);
+        ChangeLogExecutionService service = createService(configuration, provided -> { }, current::get);
+        service.executeChangeLog(configuration);
+
+        current.set((DataSource) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {DataSource.class}, (proxy, method, args) -> {
+            throw new SQLException("Unavailable");
+        }));
+        ClassLoader managementClassLoader = new URLClassLoader(new URL[0], null);
+        ClassLoader oldTCCL = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(managementClassLoader);
+        try {
+            service.applyAppendedChangeSets(changeLog(insert("1", 1), insert("2", 2)));
+            Assert.fail("Expected SQLException");
+        } catch (SQLException e) {
+            // The thread that applies the change sets keeps its own class loader
+            Assert.assertSame(managementClassLoader, Thread.currentThread().getContextClassLoader());
+        } finally {
+            Thread.currentThread().setContextClassLoader(oldTCCL);
+        }
+    }
+
+    @Test
+    public void testConfiguredResourceAccessor() throws Exception {
+        // Change logs configured through CDI are resolved by the resource accessor produced by the deployment
+        Path directory = Files.createTempDirectory("execution-test");
+        try {
+            Files.write(directory.resolve("execution-test.xml"), changeLog(insert("1", 1)).getBytes(StandardCharsets.UTF_8));
+
+            ChangeLogConfiguration configuration = configuration(changeLog())
+                .resourceAccessor(new DirectoryResourceAccessor(directory.toFile()))
+                .build();
+            createService(configuration).executeChangeLog(configuration);
+
+            Assert.assertEquals(List.of("1"), query("SELECT id FROM execution_test"));
+        } finally {
+            Files.delete(directory.resolve("execution-test.xml"));
+            Files.delete(directory);
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testUpToDateWithoutMigrationLease() throws Exception {
+        ExecutionSettings settings = new ExecutionSettings(0, false, 1, 0, 60, 0, ExecutionSettings.SkipMode.PENDING, true);
+        ChangeLogConfiguration configuration = configuration(changeLog(insert("1", 1))).build();
+        try {
+            createService(configuration, settings).executeChangeLog(configuration);
+
+            // Another server holding the lease must not hold up servers that have nothing to apply
+            try (Connection connection = dataSource.getConnection();
+                 PreparedStatement statement = connection.prepareStatement("INSERT INTO DATABASECHANGELOGLEASE (ID, LEASEDBY, EXPIRES) VALUES (?, ?, ?)")) {
+                statement.setString(1, MigrationLease.id(openDatabase()));
+                statement.setString(2, "other-server");
+                statement.setLong(3, System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(10));
+                statement.executeUpdate();
+            }
+
+            ChangeLogExecutionService service = createService(configuration, settings);
+            service.executeChangeLog(configuration);
+            Assert.assertEquals(DataSourceExecutionStatus.State.EXECUTED, service.getDataSourceStatus().iterator().next().getState());
+            Assert.assertEquals(List.of("other-server"), query("SELECT LEASEDBY FROM DATABASECHANGELOGLEASE"));
+        } finally {
+            settings.getScheduler().stop(null);
+        }
+    }
+
+    @Test
+    public void testStartSync() throws Exception {
+        ChangeLogConfiguration configuration = configuration(changeLog(insert("1", 1))).build();
+        AtomicReference<ChangeLogExecutionService> provided = new AtomicReference<>();
+        ChangeLogExecutionService service = createService(configuration, provided::set, () -> dataSource);
+        RecordingStartContext context = new RecordingStartContext();
+
+        service.start(context.proxy());
+
+        Assert.assertFalse(context.asynchronous);
+        Assert.assertSame(service, provided.get());
+        Assert.assertEquals(List.of("1"), query("SELECT id FROM execution_test"));
+    }
+
+    @Test
+    public void testStartAsync() throws Exception {
+        ChangeLogConfiguration configuration = configuration(changeLog(insert("1", 1))).executionMode(ChangeLogExecutionMode.ASYNC).build();
+        AtomicReference<ChangeLogExecutionService> provided = new AtomicReference<>();
+        CountDownLatch proceed = new CountDownLatch(1);
+        ChangeLogExecutionService service = createService(configuration, provided::set, blockingDataSource(proceed));
+        RecordingStartContext context = new RecordingStartContext();
+
+        service.start(context.proxy());
+
+        // Dependent services must not start until the change log is applied
+        Assert.assertTrue(context.asynchronous);
+        Assert.assertFalse(context.isDone());
+        Assert.assertNull(provided.get());
+
+        proceed.countDown();
+        Assert.assertTrue(context.await());
+        Assert.assertNull(context.failure);
+        Assert.assertSame(service, provided.get());
+        Assert.assertEquals(List.of("1"), query("SELECT id FROM execution_test"));
+    }
+
+    @Test
+    public void testStartAsyncFailure() throws Exception {
+        ChangeLogConfiguration configuration = configuration(changeLog(insert("1", 1))).executionMode(ChangeLogExecutionMode.ASYNC).build();
+        AtomicReference<ChangeLogExecutionService> provided = new AtomicReference<>();
+        ChangeLogExecutionService service = createService(configuration, provided::set, () -> {
+            throw new LinkageError("Datasource class not available");
+        });
+        RecordingStartContext context = new RecordingStartContext();
+
+        service.start(context.proxy());
+
+        // Errors must fail the start too, rather than leave the service starting forever
+        Assert.assertTrue(context.await());
+        Assert.assertNotNull(context.failure);
+        Assert.assertTrue(context.failure.getCause() instanceof LinkageError);
+        Assert.assertNull(provided.get());
+    }
+
+    @Test
+    public void testStartDeferred() throws Exception {
+        ChangeLogConfiguration configuration = configuration(changeLog(insert("1", 1))).executionMode(ChangeLogExecutionMode.DEFERRED).build();
+        AtomicReference<ChangeLogExecutionService> provided = new AtomicReference<>();
+        CountDownLatch proceed = new CountDownLatch(1);
+        ChangeLogExecutionService service = createService(configuration, provided::set, blockingDataSource(proceed));
+        RecordingStartContext context = new RecordingStartContext();
+
+        service.start(context.proxy());
+
+        // The service is available straight away while the change log is still being applied
+        Assert.assertFalse(context.asynchronous);
+        Assert.assertSame(service, provided.get());
+        Assert.assertEquals(List.of(), query("SELECT id FROM execution_test"));
+
+        proceed.countDown();
+        DataSourceExecutionStatus status = service.getDataSourceStatus().iterator().next();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (status.getState() != DataSourceExecutionStatus.State.EXECUTED && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(DataSourceExecutionStatus.State.EXECUTED, status.getState());
+        Assert.assertEquals(List.of("1"), query("SELECT id FROM execution_test"));
+    }
+
+    ChangeLogConfiguration.Builder configuration(String definition) {
+        return ChangeLogConfiguration.builder()
+            .name("execution-test.xml")
+            .dataSource(DATASOURCE)
+            .definition(definition)
+            .classLoader(getClass().getClassLoader())
+            .subsystemOrigin();
+    }
+
+    ChangeLogExecutionService createService(ChangeLogConfiguration configuration) {
+        return createService(configuration, service -> { }, () -> dataSource);
+    }
+
+    ChangeLogExecutionService createService(ChangeLogConfiguration configuration, ExecutionSettings settings) {
+        Map<String, Supplier<DataSource>> dataSources = Map.of(DATASOURCE, () -> dataSource);
+        return new ChangeLogExecutionService(configuration, service -> { }, dataSources, settings, null);
+    }
+
+    ChangeLogExecutionService createService(ChangeLogConfiguration configuration, Consumer<ChangeLogExecutionService> serviceConsumer,
+                                            Supplier<DataSource> dataSourceSupplier) {
+        Map<String, Supplier<DataSource>> dataSources = Map.of(DATASOURCE, dataSourceSupplier);
+        return new ChangeLogExecutionService(configuration, serviceConsumer, dataSources);
+    }
+
+    /**
+     * Holds back the execution of a change log until the latch is released.
+     */
+    Supplier<DataSource> blockingDataSource(CountDownLatch proceed) {
+        return () -> {
+            try {
+                proceed.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return dataSource;
+        };
+    }
+
+    static String changeLog(String... changeSets) {
+        return "<databaseChangeLog xmlns=\"http://www.liquibase.org/xml/ns/dbchangelog\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\""
+            + " xsi:schemaLocation=\"http://www.liquibase.org/xml/ns/dbchangelog http://www.liquibase.org/xml/ns/dbchangelog/dbchangelog-latest.xsd\">"
+            + String.join("", changeSets)
+            + "</databaseChangeLog>";
+    }
+
+    static String insert(String id, int value) {
+        return String.format("<changeSet id=\"%s\" author=\"wildfly\"><sql>INSERT INTO execution_test VALUES (%d)</sql></changeSet>", id, value);
+    }
+
+    List<String> query(String sql) throws SQLException {
+        List<String> values = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            while (resultSet.next()) {
+                values.add(resultSet.getString(1));
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Records how a service completes its start.
+     */
+    static final class RecordingStartContext {
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile boolean asynchronous;
+        private volatile StartException failure;
+
+        StartContext proxy() {
+            return (StartContext) Proxy.newProxyInstance(StartContext.class.getClassLoader(), new Class<?>[] {StartContext.class},
+                (proxy, method, args) -> invoke(method, args));
+        }
+
+        private Object invoke(Method method, Object[] args) {
+            switch (method.getName()) {
+                case "asynchronous":
+                    asynchronous = true;
+                    return null;
+                case "complete":
+                    done.countDown();
+                    return null;
+                case "failed":
+                    failure = (StartException) args[0];
+                    done.countDown();
+                    return null;
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        }
+
+        boolean isDone() {
+            return done.getCount() == 0;
+        }
+
+        boolean await() throws InterruptedException {
+            return done.await(10, TimeUnit.SECONDS);
+        }
+    }
+}
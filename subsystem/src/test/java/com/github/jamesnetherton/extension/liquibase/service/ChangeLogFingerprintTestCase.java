@@ -0,0 +1,143 @@
+/*-
+ * #%L
+ * wildfly-liquibase-subsystem
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase.service;
+
+import com.github.jamesnetherton.extension.liquibase.ChangeLogConfiguration;
+import com.github.jamesnetherton.extension.liquibase.H2TestSupport;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.SQLException;
+import liquibase.changelog.DatabaseChangeLog;
+import liquibase.database.Database;
+import liquibase.resource.DirectoryResourceAccessor;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ChangeLogFingerprintTestCase extends H2TestSupport {
+
+    private static final String DATASOURCE = "java:jboss/datasources/FingerprintDS";
+    private static final String DEFINITION = ChangeLogExecutionServiceTestCase.changeLog(
+        "<changeSet id=\"1\" author=\"wildfly\"><sql>SELECT 1</sql></changeSet>");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Database database;
+    private String name;
+
+    @Before
+    public void setUp() throws Exception {
+        database = openDatabase();
+        // Fingerprints are held statically, so each test uses its own change log name
+        name = "fingerprint-" + System.nanoTime() + ".xml";
+    }
+
+    @Test
+    public void testNoChangeLogTable() throws Exception {
+        ChangeLogConfiguration configuration = configuration().build();
+        DatabaseChangeLog changeLog = parse(DEFINITION);
+        ChangeLogFingerprint.record(configuration, changeLog, DATASOURCE, database);
+        Assert.assertFalse(ChangeLogFingerprint.matches(configuration, changeLog, DATASOURCE, database));
+    }
+
+    @Test
+    public void testMatches() throws Exception {
+        createChangeLogTable();
+        ChangeLogConfiguration configuration = configuration().build();
+        DatabaseChangeLog changeLog = parse(DEFINITION);
+        Assert.assertFalse(ChangeLogFingerprint.matches(configuration, changeLog, DATASOURCE, database));
+
+        ChangeLogFingerprint.record(configuration, changeLog, DATASOURCE, database);
+        Assert.assertTrue(ChangeLogFingerprint.matches(configuration, changeLog, DATASOURCE, database));
+        Assert.assertTrue(ChangeLogFingerprint.matches(configuration().build(), parse(DEFINITION), DATASOURCE, database));
+
+        // Fingerprints are recorded per datasource
+        Assert.assertFalse(ChangeLogFingerprint.matches(configuration, changeLog, "java:jboss/datasources/OtherDS", database));
+    }
+
+    @Test
+    public void testChangedDefinition() throws Exception {
+        createChangeLogTable();
+        ChangeLogFingerprint.record(configuration().build(), parse(DEFINITION), DATASOURCE, database);
+
+        String definition = DEFINITION.replace("SELECT 1", "SELECT 2");
+        Assert.assertFalse(ChangeLogFingerprint.matches(configuration().build(), parse(definition), DATASOURCE, database));
+        Assert.assertFalse(ChangeLogFingerprint.matches(configuration().contexts("test").build(), parse(DEFINITION), DATASOURCE, database));
+        Assert.assertFalse(ChangeLogFingerprint.matches(configuration().labels("test").build(), parse(DEFINITION), DATASOURCE, database));
+    }
+
+    @Test
+    public void testChangedInclude() throws Exception {
+        String definition = ChangeLogExecutionServiceTestCase.changeLog("<include file=\"included.xml\" relativeToChangelogFile=\"true\"/>");
+        write("included.xml", DEFINITION);
+        DatabaseChangeLog changeLog = parse(definition);
+
+        // The root change log is unchanged, but the file it includes gains a change set
+        write("included.xml", DEFINITION.replace("</changeSet>", "</changeSet><changeSet id=\"2\" author=\"wildfly\"><sql>SELECT 2</sql></changeSet>"));
+        DatabaseChangeLog changedChangeLog = parse(definition);
+
+        // Parsing an include initializes the history service, which creates the change log table
+        ChangeLogConfiguration configuration = configuration().build();
+        ChangeLogFingerprint.record(configuration, changeLog, DATASOURCE, database);
+        Assert.assertTrue(ChangeLogFingerprint.matches(configuration, changeLog, DATASOURCE, database));
+        Assert.assertFalse(ChangeLogFingerprint.matches(configuration, changedChangeLog, DATASOURCE, database));
+    }
+
+    @Test
+    public void testChangedHistory() throws Exception {
+        createChangeLogTable();
+        ChangeLogConfiguration configuration = configuration().build();
+        DatabaseChangeLog changeLog = parse(DEFINITION);
+        ChangeLogFingerprint.record(configuration, changeLog, DATASOURCE, database);
+
+        // Another server applied change sets to the datasource
+        execute("INSERT INTO DATABASECHANGELOG (ID, ORDEREXECUTED) VALUES ('other', 1)");
+        Assert.assertFalse(ChangeLogFingerprint.matches(configuration, changeLog, DATASOURCE, database));
+
+        ChangeLogFingerprint.record(configuration, changeLog, DATASOURCE, database);
+        Assert.assertTrue(ChangeLogFingerprint.matches(configuration, changeLog, DATASOURCE, database));
+    }
+
+    private ChangeLogConfiguration.Builder configuration() {
+        return ChangeLogConfiguration.builder()
+            .name(name)
+            .dataSource(DATASOURCE)
+            .definition(DEFINITION)
+            .classLoader(getClass().getClassLoader())
+            .subsystemOrigin();
+    }
+
+    private DatabaseChangeLog parse(String definition) throws Exception {
+        write("changelog.xml", definition);
+        return new ParsedChangeLogPool(0).parse("changelog.xml", new DirectoryResourceAccessor(folder.getRoot()), database).getChangeLog();
+    }
+
+    private void write(String fileName, String content) throws Exception {
+        Files.write(new File(folder.getRoot(), fileName).toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void createChangeLogTable() throws SQLException {
+        execute("CREATE TABLE DATABASECHANGELOG (ID VARCHAR(255), ORDEREXECUTED INT)");
+    }
+}
@@ -0,0 +1,126 @@
+/*-
+ * #%L
+ * wildfly-liquibase-subsystem
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase.service;
+
+import com.github.jamesnetherton.extension.liquibase.H2TestSupport;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import liquibase.Liquibase;
+import liquibase.database.Database;
+import liquibase.resource.DirectoryResourceAccessor;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ChangeLogHistoryTableTestCase extends H2TestSupport {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Database database;
+
+    @Before
+    public void setUp() throws Exception {
+        database = openDatabase();
+    }
+
+    @Test
+    public void testArchiveRemovedChangeSets() throws Exception {
+        write("changelog.xml", changeSet("1") + changeSet("2") + changeSet("3")
+            + "<changeSet id=\"4\" author=\"wildfly\"><tagDatabase tag=\"v1\"/></changeSet>"
+            + "<include file=\"removed.xml\" relativeToChangelogFile=\"true\"/>");
+        write("removed.xml", changeSet("5"));
+        write("other.xml", changeSet("2"));
+        update("changelog.xml");
+        update("other.xml");
+
+        // Change set 2, the tagged change set 4 and the include of removed.xml are no longer part of the change log
+        write("changelog.xml", changeSet("1") + changeSet("3"));
+        Liquibase liquibase = new Liquibase("changelog.xml", new DirectoryResourceAccessor(folder.getRoot()), database);
+        int archived = ChangeLogHistoryTable.archive(database, ChangeLogHistoryTable.identify(liquibase.getDatabaseChangeLog()), List.of("removed.xml"));
+
+        Assert.assertEquals(2, archived);
+        Assert.assertEquals(Arrays.asList("changelog.xml:1", "changelog.xml:3", "changelog.xml:4", "other.xml:2"), query("DATABASECHANGELOG"));
+        Assert.assertEquals(Arrays.asList("changelog.xml:2", "removed.xml:5"), query("DATABASECHANGELOG_ARCHIVE"));
+
+        // Nothing is left to archive
+        Assert.assertEquals(0, ChangeLogHistoryTable.archive(database, ChangeLogHistoryTable.identify(liquibase.getDatabaseChangeLog()), List.of("removed.xml")));
+    }
+
+    @Test
+    public void testArchiveWithoutRemovedChangeSets() throws Exception {
+        write("changelog.xml", changeSet("1") + changeSet("2"));
+        update("changelog.xml");
+
+        Liquibase liquibase = new Liquibase("changelog.xml", new DirectoryResourceAccessor(folder.getRoot()), database);
+        Assert.assertEquals(0, ChangeLogHistoryTable.archive(database, ChangeLogHistoryTable.identify(liquibase.getDatabaseChangeLog()), Collections.emptyList()));
+        Assert.assertEquals(Arrays.asList("changelog.xml:1", "changelog.xml:2"), query("DATABASECHANGELOG"));
+    }
+
+    @Test
+    public void testEnsureIndex() throws Exception {
+        write("changelog.xml", changeSet("1"));
+        update("changelog.xml");
+
+        Assert.assertFalse(ChangeLogHistoryTable.hasIndex(database));
+        Assert.assertTrue(ChangeLogHistoryTable.ensureIndex(database));
+        Assert.assertTrue(ChangeLogHistoryTable.hasIndex(database));
+        Assert.assertFalse(ChangeLogHistoryTable.ensureIndex(database));
+    }
+
+    private void update(String changeLog) throws Exception {
+        new Liquibase(changeLog, new DirectoryResourceAccessor(folder.getRoot()), database).update("");
+    }
+
+    private void write(String fileName, String changeSets) throws Exception {
+        String changeLog = "<databaseChangeLog xmlns=\"http://www.liquibase.org/xml/ns/dbchangelog\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\""
+            + " xsi:schemaLocation=\"http://www.liquibase.org/xml/ns/dbchangelog http://www.liquibase.org/xml/ns/dbchangelog/dbchangelog-latest.xsd\">"
+            + changeSets
+            + "</databaseChangeLog>";
+        Files.write(new File(folder.getRoot(), fileName).toPath(), changeLog.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String changeSet(String id) {
+        return "<changeSet id=\"" + id + "\" author=\"wildfly\"><sql>SELECT 1</sql></changeSet>";
+    }
+
+    private List<String> query(String table) throws SQLException {
+        List<String> rows = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT FILENAME, ID FROM " + table + " ORDER BY FILENAME, ID")) {
+            while (resultSet.next()) {
+                rows.add(resultSet.getString(1) + ":" + resultSet.getString(2));
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,240 @@
+/*-
+ * #%L
+ * wildfly-liquibase-subsystem
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase.service;
+
+import com.github.jamesnetherton.extension.liquibase.ChangeLogConfiguration;
+import com.github.jamesnetherton.extension.liquibase.H2TestSupport;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MigrationLeaseTestCase extends H2TestSupport {
+
+    private static final String DATASOURCE = "java:jboss/datasources/MigrationLeaseDS";
+    private static final String LEASE_TABLE = "DATABASECHANGELOGLEASE";
+
+    private ChangeLogConfiguration configuration;
+    // Leases last a second, and are polled for every second
+    private final ExecutionSettings settings = new ExecutionSettings(0, false, 1, 0, 1, 0, ExecutionSettings.SkipMode.PENDING, true);
+
+    @Before
+    public void setUp() {
+        configuration = ChangeLogConfiguration.builder()
+            .name("lease-test.xml")
+            .dataSource(DATASOURCE)
+            .definition("<databaseChangeLog/>")
+            .deployment("lease-test.war")
+            .classLoader(getClass().getClassLoader())
+            .deploymentOrigin()
+            .build();
+    }
+
+    @After
+    public void tearDown() {
+        settings.getScheduler().stop(null);
+    }
+
+    @Test
+    public void testAcquireAndRelease() throws Exception {
+        MigrationLease lease = acquire();
+        Assert.assertFalse(lease.isContended());
+        Assert.assertNotNull(getHolder());
+
+        lease.release();
+        Assert.assertNull(getHolder());
+
+        // The lease table exists already, and the released lease can be acquired again
+        lease = acquire();
+        Assert.assertFalse(lease.isContended());
+        lease.release();
+    }
+
+    @Test
+    public void testLeaseIsRenewed() throws Exception {
+        MigrationLease lease = acquire();
+        try {
+            Thread.sleep(1500);
+            Assert.assertTrue(getExpires() > System.currentTimeMillis());
+        } finally {
+            lease.release();
+        }
+    }
+
+    @Test
+    public void testWaitForReleasedLease() throws Exception {
+        MigrationLease lease = acquire();
+        String holder = getHolder();
+
+        CompletableFuture<MigrationLease> waiting = CompletableFuture.supplyAsync(this::acquireUnchecked);
+        try {
+            // The lease is renewed, so it does not expire while it is held
+            waiting.get(2500, TimeUnit.MILLISECONDS);
+            Assert.fail("Expected the lease to be held");
+        } catch (TimeoutException e) {
+            // Expected
+        }
+        Assert.assertEquals(holder, getHolder());
+
+        lease.release();
+        MigrationLease acquired = waiting.get(10, TimeUnit.SECONDS);
+        Assert.assertTrue(acquired.isContended());
+        Assert.assertNotEquals(holder, getHolder());
+        acquired.release();
+    }
+
+    @Test
+    public void testTakeOverExpiredLease() throws Exception {
+        String id = createLeaseTable();
+        insertLease(id, "crashed-server", System.currentTimeMillis() - 1000);
+
+        MigrationLease lease = acquire();
+        Assert.assertFalse(lease.isContended());
+        Assert.assertNotEquals("crashed-server", getHolder());
+        lease.release();
+        Assert.assertNull(getHolder());
+    }
+
+    @Test
+    public void testTakeOverLeaseOnExpiry() throws Exception {
+        String id = createLeaseTable();
+        long expires = System.currentTimeMillis() + 1500;
+        insertLease(id, "stopped-server", expires);
+
+        MigrationLease lease = acquire();
+        // The lease was not renewed by its holder, and is taken over once it expires
+        Assert.assertTrue(System.currentTimeMillis() > expires);
+        Assert.assertTrue(lease.isContended());
+        Assert.assertNotEquals("stopped-server", getHolder());
+        lease.release();
+    }
+
+    @Test
+    public void testLeaseIsSharedByChangeLogs() throws Exception {
+        MigrationLease lease = acquire();
+
+        // Change logs of other deployments applied to the same schema wait for the same lease
+        ChangeLogConfiguration other = ChangeLogConfiguration.builder()
+            .name("other-lease-test.xml")
+            .dataSource(DATASOURCE)
+            .definition("<databaseChangeLog/>")
+            .deployment("other-lease-test.war")
+            .classLoader(getClass().getClassLoader())
+            .deploymentOrigin()
+            .build();
+        CompletableFuture<MigrationLease> waiting = CompletableFuture.supplyAsync(() -> acquireUnchecked(other));
+        try {
+            waiting.get(1500, TimeUnit.MILLISECONDS);
+            Assert.fail("Expected the lease to be held");
+        } catch (TimeoutException e) {
+            // Expected
+        }
+
+        lease.release();
+        MigrationLease acquired = waiting.get(10, TimeUnit.SECONDS);
+        Assert.assertTrue(acquired.isContended());
+        acquired.release();
+    }
+
+    @Test
+    public void testDroppedLeaseTable() throws Exception {
+        acquire().release();
+        execute("DROP TABLE " + LEASE_TABLE);
+
+        // The lease table is only looked for once, so its absence fails the next acquisition
+        try {
+            acquire();
+            Assert.fail("Expected the lease table to be missing");
+        } catch (SQLException e) {
+            // Expected
+        }
+
+        // The failure causes the lease table to be looked for, and created, again
+        MigrationLease lease = acquire();
+        Assert.assertNotNull(getHolder());
+        lease.release();
+    }
+
+    private MigrationLease acquire() throws Exception {
+        return acquire(configuration);
+    }
+
+    private MigrationLease acquire(ChangeLogConfiguration configuration) throws Exception {
+        return MigrationLease.acquire(configuration, dataSource, DATASOURCE, settings);
+    }
+
+    private MigrationLease acquireUnchecked() {
+        return acquireUnchecked(configuration);
+    }
+
+    private MigrationLease acquireUnchecked(ChangeLogConfiguration configuration) {
+        try {
+            return acquire(configuration);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Creates the lease table by acquiring and releasing the lease, and returns the ID of its row.
+     */
+    private String createLeaseTable() throws Exception {
+        MigrationLease lease = acquire();
+        try {
+            return query("SELECT ID FROM " + LEASE_TABLE);
+        } finally {
+            lease.release();
+        }
+    }
+
+    private void insertLease(String id, String holder, long expires) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("INSERT INTO " + LEASE_TABLE + " (ID, LEASEDBY, EXPIRES) VALUES (?, ?, ?)")) {
+            statement.setString(1, id);
+            statement.setString(2, holder);
+            statement.setLong(3, expires);
+            statement.executeUpdate();
+        }
+    }
+
+    private String getHolder() throws SQLException {
+        return query("SELECT LEASEDBY FROM " + LEASE_TABLE);
+    }
+
+    private long getExpires() throws SQLException {
+        return Long.parseLong(query("SELECT EXPIRES FROM " + LEASE_TABLE));
+    }
+
+    private String query(String sql) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            return resultSet.next() ? resultSet.getString(1) : null;
+        }
+    }
+}
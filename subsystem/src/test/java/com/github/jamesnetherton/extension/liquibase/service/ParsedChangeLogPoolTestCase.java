@@ -0,0 +1,142 @@
+/*-
+ * #%L
+ * wildfly-liquibase-subsystem
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase.service;
+
+import com.github.jamesnetherton.extension.liquibase.H2TestSupport;
+import com.github.jamesnetherton.extension.liquibase.service.ParsedChangeLogPool.ParsedChangeLog;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import liquibase.change.core.RawSQLChange;
+import liquibase.database.Database;
+import liquibase.database.core.H2Database;
+import liquibase.resource.DirectoryResourceAccessor;
+import liquibase.resource.ResourceAccessor;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ParsedChangeLogPoolTestCase extends H2TestSupport {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ResourceAccessor resourceAccessor;
+
+    @Before
+    public void setUp() throws Exception {
+        resourceAccessor = new DirectoryResourceAccessor(folder.getRoot());
+        writeChangeLog("plain.xml", "<sql>SELECT 1</sql>");
+        writeChangeLog("expanded.xml", "<sql>SELECT COUNT(*) FROM ${database.databaseChangeLogTableName}</sql>");
+    }
+
+    @Test
+    public void testAcquireReleased() throws Exception {
+        ParsedChangeLogPool pool = new ParsedChangeLogPool(0);
+        Database database = openDatabase(new H2Database());
+        Assert.assertNull(pool.acquire(database));
+
+        ParsedChangeLog parsedChangeLog = pool.parse("plain.xml", resourceAccessor, database);
+        Assert.assertEquals(1, parsedChangeLog.getChangeLog().getChangeSets().size());
+
+        // Parse results in use are not handed out again
+        Assert.assertNull(pool.acquire(database));
+
+        pool.release(parsedChangeLog);
+        Assert.assertSame(parsedChangeLog, pool.acquire(database));
+        Assert.assertNull(pool.acquire(database));
+    }
+
+    @Test
+    public void testMaxIdle() throws Exception {
+        ParsedChangeLogPool pool = new ParsedChangeLogPool(1);
+        Database database = openDatabase(new H2Database());
+
+        ParsedChangeLog first = pool.parse("plain.xml", resourceAccessor, database);
+        ParsedChangeLog second = pool.parse("plain.xml", resourceAccessor, database);
+        pool.release(first);
+        pool.release(second);
+
+        Assert.assertSame(first, pool.acquire(database));
+        Assert.assertNull(pool.acquire(database));
+    }
+
+    @Test
+    public void testClear() throws Exception {
+        ParsedChangeLogPool pool = new ParsedChangeLogPool(0);
+        Database database = openDatabase(new H2Database());
+
+        pool.release(pool.parse("plain.xml", resourceAccessor, database));
+        pool.clear();
+        Assert.assertNull(pool.acquire(database));
+    }
+
+    @Test
+    public void testKeyedByDatabaseType() throws Exception {
+        ParsedChangeLogPool pool = new ParsedChangeLogPool(0);
+        Database h2 = openDatabase(new H2Database());
+
+        // dbms filtered content is resolved while parsing, so parse results are not shared between database types
+        pool.release(pool.parse("plain.xml", resourceAccessor, h2));
+        Assert.assertNull(pool.acquire(openDatabase(new TransactionalH2Database())));
+        Assert.assertNotNull(pool.acquire(openDatabase(new H2Database())));
+    }
+
+    @Test
+    public void testKeyedByExpandedDatabaseParameters() throws Exception {
+        ParsedChangeLogPool pool = new ParsedChangeLogPool(0);
+        Database database = openDatabase(new H2Database());
+
+        ParsedChangeLog parsedChangeLog = pool.parse("expanded.xml", resourceAccessor, database);
+        Assert.assertEquals("SELECT COUNT(*) FROM DATABASECHANGELOG", sql(parsedChangeLog));
+        pool.release(parsedChangeLog);
+
+        // The change log table name was expanded into the parse result, so it cannot be reused for another table name
+        Database other = openDatabase(new H2Database());
+        other.setDatabaseChangeLogTableName("OTHER_CHANGELOG");
+        Assert.assertNull(pool.acquire(other));
+
+        Assert.assertSame(parsedChangeLog, pool.acquire(openDatabase(new H2Database())));
+    }
+
+    @Test
+    public void testUnexpandedDatabaseParametersNotKeyed() throws Exception {
+        ParsedChangeLogPool pool = new ParsedChangeLogPool(0);
+        Database database = openDatabase(new H2Database());
+
+        ParsedChangeLog parsedChangeLog = pool.parse("plain.xml", resourceAccessor, database);
+        pool.release(parsedChangeLog);
+
+        Database other = openDatabase(new H2Database());
+        other.setDatabaseChangeLogTableName("OTHER_CHANGELOG");
+        Assert.assertSame(parsedChangeLog, pool.acquire(other));
+    }
+
+    private void writeChangeLog(String name, String change) throws Exception {
+        String changeLog = ChangeLogExecutionServiceTestCase.changeLog("<changeSet id=\"1\" author=\"wildfly\">" + change + "</changeSet>");
+        Files.write(new File(folder.getRoot(), name).toPath(), changeLog.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String sql(ParsedChangeLog parsedChangeLog) {
+        return ((RawSQLChange) parsedChangeLog.getChangeLog().getChangeSets().get(0).getChanges().get(0)).getSql();
+    }
+}
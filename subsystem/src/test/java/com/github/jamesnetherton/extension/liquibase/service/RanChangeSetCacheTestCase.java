@@ -0,0 +1,134 @@
+/*-
+ * #%L
+ * wildfly-liquibase-subsystem
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase.service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import liquibase.changelog.ChangeSet;
+import liquibase.changelog.RanChangeSet;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RanChangeSetCacheTestCase {
+
+    private static final String DATASOURCE = "java:jboss/datasources/RanChangeSetCacheDS";
+
+    @After
+    public void tearDown() {
+        RanChangeSetCache.setMaxSize(RanChangeSetCache.DEFAULT_MAX_SIZE);
+    }
+
+    @Test
+    public void testGet() {
+        RanChangeSetCache cache = cache("TABLE_STATE");
+        Assert.assertNull(cache.get(0, 0));
+
+        cache.put(Arrays.asList(ranChangeSet("1", 1), ranChangeSet("2", 2)), 2, 2);
+        Assert.assertEquals(Arrays.asList("1", "2"), ids(cache.get(2, 2)));
+
+        // Changes made by other servers
+        Assert.assertNull(cache.get(3, 3));
+        Assert.assertNull(cache.get(2, 3));
+        Assert.assertNull(cache.get(1, 2));
+
+        // The cached history is returned as a copy
+        cache.get(2, 2).clear();
+        Assert.assertEquals(2, cache.get(2, 2).size());
+    }
+
+    @Test
+    public void testRecorded() {
+        RanChangeSetCache cache = cache("RECORDED");
+
+        // Nothing is recorded until the history has been read
+        cache.recorded(changeSet("1"), ChangeSet.ExecType.EXECUTED, 1);
+        Assert.assertNull(cache.get(1, 1));
+
+        cache.put(List.of(ranChangeSet("1", 1)), 1, 1);
+        cache.recorded(changeSet("2"), ChangeSet.ExecType.EXECUTED, 2);
+        Assert.assertNull(cache.get(1, 1));
+        Assert.assertEquals(Arrays.asList("1", "2"), ids(cache.get(2, 2)));
+
+        // Change sets that ran before are updated in place
+        cache.recorded(changeSet("1"), ChangeSet.ExecType.RERAN, 3);
+        List<RanChangeSet> ranChangeSets = cache.get(2, 3);
+        Assert.assertEquals(Arrays.asList("2", "1"), ids(ranChangeSets));
+        Assert.assertEquals(ChangeSet.ExecType.RERAN, ranChangeSets.get(1).getExecType());
+        Assert.assertEquals(Integer.valueOf(3), ranChangeSets.get(1).getOrderExecuted());
+
+        cache.tagged("v1");
+        Assert.assertEquals("v1", cache.get(2, 3).get(1).getTag());
+    }
+
+    @Test
+    public void testInvalidate() {
+        RanChangeSetCache cache = cache("INVALIDATE");
+        cache.put(List.of(ranChangeSet("1", 1)), 1, 1);
+        cache.invalidate();
+        Assert.assertNull(cache.get(1, 1));
+
+        // Nothing is recorded in an invalidated cache, so the next read goes to the table
+        cache.recorded(changeSet("2"), ChangeSet.ExecType.EXECUTED, 2);
+        Assert.assertNull(cache.get(2, 2));
+    }
+
+    @Test
+    public void testCacheKey() {
+        RanChangeSetCache cache = RanChangeSetCache.forTable(DATASOURCE, "CATALOG", "SCHEMA", "DATABASECHANGELOG");
+        Assert.assertSame(cache, RanChangeSetCache.forTable(DATASOURCE, "CATALOG", "SCHEMA", "DATABASECHANGELOG"));
+        Assert.assertNotSame(cache, RanChangeSetCache.forTable(DATASOURCE + "2", "CATALOG", "SCHEMA", "DATABASECHANGELOG"));
+        Assert.assertNotSame(cache, RanChangeSetCache.forTable(DATASOURCE, "OTHER", "SCHEMA", "DATABASECHANGELOG"));
+        Assert.assertNotSame(cache, RanChangeSetCache.forTable(DATASOURCE, "CATALOG", "OTHER", "DATABASECHANGELOG"));
+        Assert.assertNotSame(cache, RanChangeSetCache.forTable(DATASOURCE, "CATALOG", "SCHEMA", "OTHERCHANGELOG"));
+        Assert.assertNotSame(cache, RanChangeSetCache.forTable(DATASOURCE, null, null, "DATABASECHANGELOG"));
+    }
+
+    @Test
+    public void testMaxSize() {
+        RanChangeSetCache.setMaxSize(1);
+        RanChangeSetCache first = cache("FIRST");
+        cache("SECOND");
+        Assert.assertNotSame(first, cache("FIRST"));
+
+        RanChangeSetCache.setMaxSize(0);
+        Assert.assertFalse(RanChangeSetCache.isEnabled());
+        Assert.assertNull(cache("FIRST"));
+    }
+
+    private static RanChangeSetCache cache(String tableName) {
+        return RanChangeSetCache.forTable(DATASOURCE, null, "PUBLIC", tableName);
+    }
+
+    private static ChangeSet changeSet(String id) {
+        return new ChangeSet(id, "wildfly", false, false, "changelog.xml", null, null, null);
+    }
+
+    private static RanChangeSet ranChangeSet(String id, int orderExecuted) {
+        RanChangeSet ranChangeSet = new RanChangeSet(changeSet(id), ChangeSet.ExecType.EXECUTED, null, null);
+        ranChangeSet.setOrderExecuted(orderExecuted);
+        return ranChangeSet;
+    }
+
+    private static List<String> ids(List<RanChangeSet> ranChangeSets) {
+        return ranChangeSets.stream().map(RanChangeSet::getId).collect(Collectors.toList());
+    }
+}
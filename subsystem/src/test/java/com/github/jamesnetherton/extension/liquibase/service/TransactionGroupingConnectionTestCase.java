@@ -0,0 +1,167 @@
+/*-
+ * #%L
+ * wildfly-liquibase-subsystem
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase.service;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import liquibase.changelog.ChangeSet;
+import liquibase.changelog.visitor.ChangeExecListener;
+import liquibase.database.core.H2Database;
+import liquibase.database.core.PostgresDatabase;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TransactionGroupingConnectionTestCase {
+
+    private final List<String> calls = new ArrayList<>();
+    private Connection connection;
+
+    @Before
+    public void setUp() {
+        connection = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {Connection.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "commit":
+                case "rollback":
+                    calls.add(method.getName());
+                    return null;
+                case "getAutoCommit":
+                case "isClosed":
+                    return false;
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                default:
+                    return null;
+            }
+        });
+    }
+
+    @Test
+    public void testGroupCommittedAtGroupSize() throws Exception {
+        TransactionGroupingConnection grouping = new TransactionGroupingConnection(connection, 3);
+        ChangeExecListener listener = grouping.getChangeExecListener();
+
+        run(grouping, listener, changeSet("1", true));
+        run(grouping, listener, changeSet("2", true));
+        Assert.assertTrue(calls.isEmpty());
+
+        run(grouping, listener, changeSet("3", true));
+        Assert.assertEquals(List.of("commit"), calls);
+
+        run(grouping, listener, changeSet("4", true));
+        Assert.assertEquals(List.of("commit"), calls);
+
+        grouping.flush();
+        Assert.assertEquals(List.of("commit", "commit"), calls);
+
+        // Nothing is left to commit
+        grouping.flush();
+        Assert.assertEquals(List.of("commit", "commit"), calls);
+        Assert.assertEquals(0, grouping.getRolledBackChangeSets());
+    }
+
+    @Test
+    public void testNonTransactionalChangeSetBreaksGroup() throws Exception {
+        TransactionGroupingConnection grouping = new TransactionGroupingConnection(connection, 3);
+        ChangeExecListener listener = grouping.getChangeExecListener();
+
+        run(grouping, listener, changeSet("1", true));
+        Assert.assertTrue(calls.isEmpty());
+
+        // The pending group is committed before the change set starts, and its own commit is not deferred
+        ChangeSet nonTransactional = changeSet("2", false);
+        listener.willRun(nonTransactional, null, null, ChangeSet.RunStatus.NOT_RAN);
+        Assert.assertEquals(List.of("commit"), calls);
+        grouping.commit();
+        Assert.assertEquals(List.of("commit", "commit"), calls);
+        listener.ran(nonTransactional, null, null, ChangeSet.ExecType.EXECUTED);
+
+        // A new group starts after it
+        run(grouping, listener, changeSet("3", true));
+        run(grouping, listener, changeSet("4", true));
+        Assert.assertEquals(List.of("commit", "commit"), calls);
+        run(grouping, listener, changeSet("5", true));
+        Assert.assertEquals(List.of("commit", "commit", "commit"), calls);
+    }
+
+    @Test
+    public void testRollbackWithinChangeSetDiscardsGroup() throws Exception {
+        TransactionGroupingConnection grouping = new TransactionGroupingConnection(connection, 5);
+        ChangeExecListener listener = grouping.getChangeExecListener();
+
+        run(grouping, listener, changeSet("1", true));
+        run(grouping, listener, changeSet("2", true));
+
+        ChangeSet failing = changeSet("3", true);
+        listener.willRun(failing, null, null, ChangeSet.RunStatus.NOT_RAN);
+        grouping.rollback();
+        listener.runFailed(failing, null, null, new Exception());
+
+        Assert.assertEquals(List.of("rollback"), calls);
+        Assert.assertEquals(2, grouping.getRolledBackChangeSets());
+
+        // The discarded group leaves nothing to commit
+        grouping.flush();
+        Assert.assertEquals(List.of("rollback"), calls);
+    }
+
+    @Test
+    public void testRollbackOutsideChangeSetCommitsGroup() throws Exception {
+        TransactionGroupingConnection grouping = new TransactionGroupingConnection(connection, 5);
+        ChangeExecListener listener = grouping.getChangeExecListener();
+
+        run(grouping, listener, changeSet("1", true));
+        run(grouping, listener, changeSet("2", true));
+
+        // Such as when Liquibase releases the change log lock
+        grouping.rollback();
+
+        Assert.assertEquals(List.of("commit", "rollback"), calls);
+        Assert.assertEquals(0, grouping.getRolledBackChangeSets());
+    }
+
+    @Test
+    public void testCommitBeforeFirstChangeSet() throws Exception {
+        TransactionGroupingConnection grouping = new TransactionGroupingConnection(connection, 5);
+        grouping.commit();
+        Assert.assertEquals(List.of("commit"), calls);
+    }
+
+    @Test
+    public void testSupportedDatabases() {
+        Assert.assertTrue(TransactionGroupingConnection.isSupported(new PostgresDatabase()));
+        Assert.assertFalse(TransactionGroupingConnection.isSupported(new H2Database()));
+    }
+
+    private static void run(TransactionGroupingConnection grouping, ChangeExecListener listener, ChangeSet changeSet) throws Exception {
+        listener.willRun(changeSet, null, null, ChangeSet.RunStatus.NOT_RAN);
+        // Liquibase commits each change set once it and its history row have been written
+        grouping.commit();
+        listener.ran(changeSet, null, null, ChangeSet.ExecType.EXECUTED);
+    }
+
+    private static ChangeSet changeSet(String id, boolean runInTransaction) {
+        return new ChangeSet(id, "wildfly", false, false, "changelog.xml", null, null, runInTransaction, null);
+    }
+}
@@ -0,0 +1,38 @@
+/*-
+ * #%L
+ * wildfly-liquibase-subsystem
+ * %%
+ * Copyright (C) 2017 James Netherton
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.github.jamesnetherton.extension.liquibase.service;
+
+import liquibase.database.core.H2Database;
+
+/**
+ * H2 database that reports transactional DDL, for tests whose change sets roll back with the transaction on H2.
+ */
+public final class TransactionalH2Database extends H2Database {
+
+    @Override
+    public String getShortName() {
+        return "postgresql";
+    }
+
+    @Override
+    public int getPriority() {
+        return super.getPriority() + 10;
+    }
+}
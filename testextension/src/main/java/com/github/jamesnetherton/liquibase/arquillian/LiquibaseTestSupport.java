@@ -41,6 +41,9 @@ import javax.sql.DataSource;
 import org.jboss.arquillian.test.api.ArquillianResource;
 import org.jboss.as.arquillian.container.ManagementClient;
 import org.jboss.as.controller.client.ModelControllerClient;
+import org.jboss.as.controller.client.Operation;
+import org.jboss.as.controller.client.OperationMessageHandler;
+import org.jboss.as.controller.client.OperationResponse;
 import org.jboss.as.controller.client.helpers.standalone.ServerDeploymentHelper;
 import org.jboss.dmr.ModelNode;
 import org.junit.jupiter.api.Assertions;
@@ -111,6 +114,80 @@ public class LiquibaseTestSupport {
         return executeDmrRemove("liquibase", "databaseChangeLog", name);
     }
 
+    /**
+     * Executes an operation against a Liquibase subsystem databaseChangeLog resource and returns its result.
+     */
+    protected ModelNode executeLiquibaseDmrOperation(String changeLogName, String operationName, ModelNode parameters) throws Exception {
+        ModelNode address = new ModelNode();
+        address.add("subsystem", "liquibase");
+        address.add("databaseChangeLog", changeLogName);
+        return executeDmrOperation(address, operationName, parameters);
+    }
+
+    /**
+     * Executes an operation against a Liquibase subsystem databaseChangeLog resource and returns the content of the stream attached to its response.
+     */
+    protected String executeLiquibaseDmrStreamOperation(String changeLogName, String operationName, ModelNode parameters) throws Exception {
+        ModelNode operation = parameters == null ? new ModelNode() : parameters.clone();
+        operation.get("operation").set(operationName);
+        operation.get("address").add("subsystem", "liquibase");
+        operation.get("address").add("databaseChangeLog", changeLogName);
+
+        ManagementClient client = getOrCreateManagementClient();
+        try (OperationResponse response = client.getControllerClient().executeOperation(Operation.Factory.create(operation), OperationMessageHandler.DISCARD)) {
+            ModelNode result = response.getResponseNode();
+            Assertions.assertEquals("success", result.get("outcome").asString(), result.get("failure-description").asString());
+
+            List<OperationResponse.StreamEntry> streams = response.getInputStreams();
+            Assertions.assertEquals(1, streams.size());
+            // Operations return the UUID of the attachment that holds their output
+            Assertions.assertEquals(streams.get(0).getUUID(), result.get("result").asString());
+            return TestExtensionUtils.inputStreamToString(streams.get(0).getStream());
+        }
+    }
+
+    /**
+     * Executes an operation against the databaseChangeLog resource of a deployment and returns its result.
+     */
+    protected ModelNode executeLiquibaseDeploymentOperation(String deploymentName, String changeLogName, String operationName, ModelNode parameters) throws Exception {
+        ModelNode address = new ModelNode();
+        address.add("deployment", deploymentName);
+        address.add("subsystem", "liquibase");
+        address.add("databaseChangeLog", changeLogName);
+        return executeDmrOperation(address, operationName, parameters);
+    }
+
+    /**
+     * Reads a connection pool statistic of a datasource added by {@link #addDataSource(String, String)}.
+     */
+    protected int readDataSourcePoolStatistic(String dataSourceName, String statistic) throws Exception {
+        ModelNode address = new ModelNode();
+        address.add("subsystem", "datasources");
+        address.add("data-source", dataSourceName);
+        address.add("statistics", "pool");
+
+        ModelNode parameters = new ModelNode();
+        parameters.get("name").set(statistic);
+        return executeDmrOperation(address, "read-attribute", parameters).asInt();
+    }
+
+    private ModelNode executeDmrOperation(ModelNode address, String operationName, ModelNode parameters) throws Exception {
+        ModelNode operation = parameters == null ? new ModelNode() : parameters.clone();
+        operation.get("operation").set(operationName);
+        operation.get("address").set(address);
+
+        ManagementClient client = getOrCreateManagementClient();
+        ModelNode result = client.getControllerClient().execute(operation);
+        Assertions.assertEquals("success", result.get("outcome").asString(), result.get("failure-description").asString());
+        return result.get("result");
+    }
+
+    protected ModelNode readLiquibaseDmrAttribute(String changeLogName, String attributeName) throws Exception {
+        ModelNode parameters = new ModelNode();
+        parameters.get("name").set(attributeName);
+        return executeLiquibaseDmrOperation(changeLogName, "read-attribute", parameters);
+    }
+
     protected boolean addDataSource(String dataSourceName, String databaseName) throws Exception {
         ModelNode address = new ModelNode();
         address.add("subsystem", "datasources");
@@ -124,6 +201,7 @@ public class LiquibaseTestSupport {
         operation.get("connection-url").set("jdbc:h2:mem:" + databaseName + ";DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE");
         operation.get("user-name").set("sa");
         operation.get("password").set("sa");
+        operation.get("statistics-enabled").set(true);
 
         return executeDmrOperation(operation);
     }
@@ -155,20 +233,41 @@ public class LiquibaseTestSupport {
     /**
      * Executes a CLI script file by parsing and executing DMR operations.
      * Uses ModelControllerClient API instead of spawning external CLI process.
+     * Commands between batch and run-batch are executed as the steps of one composite operation.
      */
     protected boolean executeCliScript(File scriptFile) throws Exception {
         LOG.info("Executing CLI script via DMR: {}", scriptFile.getAbsolutePath());
 
         try (BufferedReader reader = new BufferedReader(new FileReader(scriptFile))) {
             String line;
+            ModelNode batch = null;
             while ((line = reader.readLine()) != null) {
                 line = line.trim();
                 if (line.isEmpty() || line.startsWith("#")) {
                     continue; // Skip empty lines and comments
                 }
 
-                if (!parseDmrCommand(line)) {
-                    return false;
+                if (line.equals("batch")) {
+                    batch = new ModelNode();
+                    batch.get("operation").set("composite");
+                    batch.get("address").setEmptyList();
+                    batch.get("steps").setEmptyList();
+                } else if (line.equals("run-batch") && batch != null) {
+                    if (!executeDmrOperation(batch)) {
+                        return false;
+                    }
+                    batch = null;
+                } else if (batch != null) {
+                    ModelNode operation = parseDmrCommand(line);
+                    if (operation == null) {
+                        return false;
+                    }
+                    batch.get("steps").add(operation);
+                } else {
+                    ModelNode operation = parseDmrCommand(line);
+                    if (operation == null || !executeDmrOperation(operation)) {
+                        return false;
+                    }
                 }
             }
         }
@@ -193,14 +292,17 @@ public class LiquibaseTestSupport {
     }
 
     protected boolean executeCliCommand(String command) throws Exception {
-        return parseDmrCommand(command);
+        ModelNode operation = parseDmrCommand(command);
+        return operation != null && executeDmrOperation(operation);
     }
 
     /**
-     * Parses a CLI command string and executes it via DMR.
+     * Parses a CLI command string into a DMR operation.
      * Supports liquibase subsystem operations and common management operations.
+     *
+     * @return the operation, or null if the command is not supported
      */
-    private boolean parseDmrCommand(String command) throws Exception {
+    private ModelNode parseDmrCommand(String command) {
         LOG.debug("Parsing DMR command: {}", command);
 
         // Pattern for /subsystem=X/resource=Y/:operation(params...)
@@ -214,7 +316,7 @@ public class LiquibaseTestSupport {
             String operation = dmrMatcher.group(4);
             String params = dmrMatcher.group(5);
 
-            return executeParsedDmrOperation(subsystem, resourceType, resourceName, operation, params);
+            return createParsedDmrOperation(subsystem, resourceType, resourceName, operation, params);
         }
 
         // Pattern for simple remove: /subsystem=X/resource=Y/:remove
@@ -225,18 +327,18 @@ public class LiquibaseTestSupport {
             String subsystem = removeMatcher.group(1);
             String resourceType = removeMatcher.group(2);
             String resourceName = removeMatcher.group(3);
-            return executeDmrRemove(subsystem, resourceType, resourceName);
+            return createDmrRemove(subsystem, resourceType, resourceName);
         }
 
         LOG.warn("Unsupported CLI command format: {}", command);
-        return false;
+        return null;
     }
 
     /**
-     * Executes a parsed DMR operation.
+     * Creates a DMR operation from a parsed CLI command.
      */
-    private boolean executeParsedDmrOperation(String subsystem, String resourceType, String resourceName,
-                                               String operation, String params) throws Exception {
+    private ModelNode createParsedDmrOperation(String subsystem, String resourceType, String resourceName,
+                                               String operation, String params) {
         ModelNode address = new ModelNode();
         address.add("subsystem", subsystem);
         address.add(resourceType, resourceName);
@@ -258,10 +360,10 @@ public class LiquibaseTestSupport {
                 break;
             default:
                 LOG.warn("Unsupported DMR operation: {}", operation);
-                return false;
+                return null;
         }
 
-        return executeDmrOperation(op);
+        return op;
     }
 
     /**
@@ -396,6 +498,10 @@ public class LiquibaseTestSupport {
      * Executes a DMR remove operation.
      */
     private boolean executeDmrRemove(String subsystem, String resourceType, String resourceName) throws Exception {
+        return executeDmrOperation(createDmrRemove(subsystem, resourceType, resourceName));
+    }
+
+    private ModelNode createDmrRemove(String subsystem, String resourceType, String resourceName) {
         ModelNode address = new ModelNode();
         address.add("subsystem", subsystem);
         address.add(resourceType, resourceName);
@@ -403,8 +509,7 @@ public class LiquibaseTestSupport {
         ModelNode operation = new ModelNode();
         operation.get("operation").set("remove");
         operation.get("address").set(address);
-
-        return executeDmrOperation(operation);
+        return operation;
     }
 
     /**